@@ -0,0 +1,44 @@
+package org.apache.helix;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+
+/**
+ * A {@link BaseDataAccessor} that is able to write many ZNodes in a few round trips. Callers check
+ * whether the accessor they hold implements it, and fall back to the {@link BaseDataAccessor}
+ * methods otherwise.
+ * @param <T> The type of record to write
+ */
+public interface BatchWriteDataAccessor<T> {
+  /**
+   * Write multiple ZNodes with as few round trips as possible. The ops are sent in chunks of
+   * ZooKeeper multi-ops that fit in one request. An op that fails does not fail the other ops of
+   * its chunk, which are sent again without it, so each op succeeds or fails as if it was written
+   * on its own. Atomicity across the ops is not provided.
+   * <p>
+   * As with a single create, a multi-op that is sent again after a connection loss may have been
+   * applied already, in which case its creates are reported as failed because their ZNodes
+   * exist.
+   * @param ops the writes, applied in order
+   * @return For each op, true if it is applied, false otherwise
+   */
+  boolean[] batchWrite(List<BatchWriteOp<T>> ops);
+}
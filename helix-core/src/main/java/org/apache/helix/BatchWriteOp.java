@@ -0,0 +1,112 @@
+package org.apache.helix;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * A write of one ZNode in a batch written by {@link BatchWriteDataAccessor#batchWrite(java.util.List)}.
+ * @param <T> The type of record to write
+ */
+public class BatchWriteOp<T> {
+  public enum Type {
+    CREATE,
+    SET,
+    DELETE
+  }
+
+  private final Type _type;
+  private final String _path;
+  private final T _record;
+  private final int _expectedVersion;
+  private final int _options;
+
+  private BatchWriteOp(Type type, String path, T record, int expectedVersion, int options) {
+    _type = type;
+    _path = path;
+    _record = record;
+    _expectedVersion = expectedVersion;
+    _options = options;
+  }
+
+  /**
+   * Create a ZNode, which fails if the ZNode exists. The parent ZNodes are created if they do not
+   * exist.
+   * @param path path to the ZNode to create
+   * @param record the data to write to the ZNode
+   * @param options Set the type of ZNode see the valid values in {@link AccessOption}
+   */
+  public static <T> BatchWriteOp<T> create(String path, T record, int options) {
+    return new BatchWriteOp<>(Type.CREATE, path, record, -1, options);
+  }
+
+  /**
+   * Set the data of a ZNode if its version matches. If the expected version is -1, the data is
+   * set whatever the version, and the ZNode is created if it does not exist.
+   * @param path path to the ZNode to set
+   * @param record the data to write to the ZNode
+   * @param expectedVersion the expected version of the ZNode, or -1 for any version
+   * @param options Set the type of ZNode see the valid values in {@link AccessOption}
+   */
+  public static <T> BatchWriteOp<T> set(String path, T record, int expectedVersion,
+      int options) {
+    return new BatchWriteOp<>(Type.SET, path, record, expectedVersion, options);
+  }
+
+  /**
+   * Delete a ZNode if its version matches. If the expected version is -1, the ZNode is deleted
+   * with its children whatever its version, and deleting a ZNode that does not exist succeeds.
+   * @param path path to the ZNode to delete
+   * @param expectedVersion the expected version of the ZNode, or -1 for any version
+   */
+  public static <T> BatchWriteOp<T> delete(String path, int expectedVersion) {
+    return new BatchWriteOp<>(Type.DELETE, path, null, expectedVersion, AccessOption.PERSISTENT);
+  }
+
+  public Type getType() {
+    return _type;
+  }
+
+  public String getPath() {
+    return _path;
+  }
+
+  public T getRecord() {
+    return _record;
+  }
+
+  public int getExpectedVersion() {
+    return _expectedVersion;
+  }
+
+  public int getOptions() {
+    return _options;
+  }
+
+  /**
+   * @return a copy of this op on another path
+   */
+  public BatchWriteOp<T> withPath(String path) {
+    return new BatchWriteOp<>(_type, path, _record, _expectedVersion, _options);
+  }
+
+  @Override
+  public String toString() {
+    return _type + " " + _path + (_expectedVersion == -1 ? "" : " version: " + _expectedVersion);
+  }
+}
@@ -19,8 +19,11 @@ package org.apache.helix;
  * under the License.
  */
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Metadata associated with a notification event and the current state of the cluster
@@ -41,6 +44,7 @@ public class NotificationContext {
   private Type _type;
   private HelixConstants.ChangeType _changeType;
   private String _pathChanged;
+  private Set<String> _pathsChanged;
   private String _eventName;
   private long _creationTime;
 
@@ -85,6 +89,7 @@ public class NotificationContext {
     copy.setType(_type);
     copy.setChangeType(_changeType);
     copy.setPathChanged(_pathChanged);
+    copy._pathsChanged = _pathsChanged;
     copy.setEventName(_eventName);
     copy.setCreationTime(_creationTime);
     copy._map.putAll(_map);
@@ -210,6 +215,31 @@ public class NotificationContext {
     this._pathChanged = pathChanged;
   }
 
+  /**
+   * Get all the paths that have changed. A batched notification can cover the changes of multiple
+   * paths, while {@link #getPathChanged()} only returns one of them.
+   *
+   * @return the changed paths, empty if unknown
+   */
+  public Set<String> getPathsChanged() {
+    if (_pathsChanged != null) {
+      return _pathsChanged;
+    }
+    if (_pathChanged == null) {
+      return Collections.emptySet();
+    }
+    return Collections.singleton(_pathChanged);
+  }
+
+  /**
+   * Set all the paths that have changed
+   *
+   * @param pathsChanged
+   */
+  public void setPathsChanged(Set<String> pathsChanged) {
+    _pathsChanged = Collections.unmodifiableSet(new HashSet<>(pathsChanged));
+  }
+
   /**
    * Gets the change type.
    *
@@ -28,11 +28,137 @@ public class SystemPropertyKeys {
   // Indicate monitoring level of the HelixManager metrics
   public static final String MONITOR_LEVEL = "helixmanager.monitorLevel";
 
+  // Monitoring
+  // Level of the metrics registered as MBeans: ALL registers every MBean, DEFAULT skips the
+  // per-instance-resource MBeans, and AGGREGATED_ONLY also skips the per-instance and per-resource
+  // MBeans. The metrics that are not registered are still served by the metrics exporter.
+  public static final String MBEAN_MONITOR_LEVEL = "helix.monitoring.mbeanLevel";
+  // Port of the local HTTP server serving the metrics in the Prometheus text format at /metrics.
+  // The exporter is disabled unless the port is set. Set to 0 to pick any free port.
+  public static final String METRICS_EXPORTER_PORT = "helix.metrics.exporterPort";
+  // Host the metrics exporter binds to. By default it binds to the loopback address only. Set to
+  // 0.0.0.0 to serve the metrics on all the addresses.
+  public static final String METRICS_EXPORTER_HOST = "helix.metrics.exporterHost";
+
+  // ZNRecordSerializer
+  // Set to true to write indented JSON to ZooKeeper. By default records are written compactly.
+  public static final String ZNRECORD_SERIALIZER_INDENT_OUTPUT =
+      "helix.znrecordSerializer.indentOutput";
+
+  // Set to true to make HelixManager write ZNRecords in the binary format. Only enable it once all
+  // the readers of the cluster are able to read the binary format.
+  public static final String ZNRECORD_BINARY_FORMAT_ENABLED = "helix.znrecord.binaryFormatEnabled";
+
   // CallbackHandler
   public static final String ASYNC_BATCH_MODE_ENABLED = "helix.callbackhandler.isAsyncBatchModeEnabled";
 
   public static final String LEGACY_ASYNC_BATCH_MODE_ENABLED = "isAsyncBatchModeEnabled";
 
+  // Set to true to invoke the callbacks of different listeners concurrently on a shared thread pool
+  // instead of one at a time per HelixManager. Callbacks of the same listener are still invoked one
+  // at a time and in order. The callbacks of listeners in batch mode are still invoked on their own
+  // batch processing thread instead of the shared thread pool, concurrently with other listeners.
+  // The shared thread pool is shut down once all the HelixManagers using it are disconnected.
+  public static final String CONCURRENT_CALLBACK_DISPATCH_ENABLED =
+      "helix.callbackhandler.concurrentDispatchEnabled";
+
+  // Number of threads invoking callbacks when the concurrent callback dispatch is enabled
+  public static final String CONCURRENT_CALLBACK_DISPATCH_POOL_SIZE =
+      "helix.callbackhandler.concurrentDispatchPoolSize";
+
+  // ZkClient
+  // Number of threads delivering the data and child change events of a ZkClient. Events of the
+  // same path are always delivered in order. By default all the events are delivered by one thread.
+  public static final String ZK_EVENT_THREAD_PARTITIONS = "helix.zkclient.eventThreadPartitions";
+
+  // ZkBaseDataAccessor
+  // Max number of in-flight requests of an async batch read. By default, or when set to 0 or less,
+  // all the requests of a batch are issued at once.
+  public static final String ZK_ASYNC_READ_WINDOW_SIZE =
+      "helix.zkbasedataaccessor.asyncReadWindowSize";
+
+  // Number of threads deserializing the results of async batch reads. By default the results are
+  // deserialized by the reading thread.
+  public static final String ZK_ASYNC_READ_DESERIALIZER_POOL_SIZE =
+      "helix.zkbasedataaccessor.asyncReadDeserializerPoolSize";
+
+  // Max bytes of the ops sent in one multi-op by a batch write. Keep it below the jute.maxbuffer of
+  // the ZooKeeper servers.
+  public static final String ZK_MULTI_MAX_BYTES = "helix.zkbasedataaccessor.multiMaxBytes";
+
+  // Set to true to send the messages of the controller and the writes of the task contexts as
+  // batch writes of multi-ops instead of one async request per ZNode.
+  public static final String ZK_MULTI_WRITE_ENABLED =
+      "helix.zkbasedataaccessor.multiWriteEnabled";
+
+  // Task framework
+  // Set to true to persist the partitions of JobContexts as packed columns instead of one map field
+  // per partition. It makes the context znodes smaller and faster to write and parse, while the
+  // decoded contexts stay map based in memory. Only enable it once all the readers of the contexts
+  // are able to decode them.
+  public static final String TASK_JOB_CONTEXT_COLUMNAR_ENCODING_ENABLED =
+      "helix.task.jobContextColumnarEncodingEnabled";
+  // Set to true to only dispatch the workflows whose configs, contexts, ideal states or task current
+  // states changed in the task pipeline, instead of all the workflows on every event.
+  public static final String TASK_INCREMENTAL_DISPATCH_ENABLED =
+      "helix.task.incrementalDispatchEnabled";
+  // Interval in ms of the full dispatch of all the workflows when incremental dispatch is enabled.
+  public static final String TASK_FULL_DISPATCH_INTERVAL = "helix.task.fullDispatchInterval";
+  // Set to true to keep the timers of the task framework in a timer wheel, and to fire the timers
+  // due in the same tick as one OnDemandRebalance task pipeline.
+  public static final String TASK_TIMER_WHEEL_ENABLED = "helix.task.timerWheelEnabled";
+  // Tick length in ms of the timer wheel of the task framework.
+  public static final String TASK_TIMER_WHEEL_TICK = "helix.task.timerWheelTick";
+
+  // Participant
+  // Set to true to run tasks and message handlers on threads created on demand, with their
+  // concurrency limited by permits instead of by the size of fixed thread pools.
+  public static final String PARTICIPANT_ELASTIC_EXECUTION_ENABLED =
+      "helix.participant.elasticExecutionEnabled";
+  // Number of tasks run at the same time by a participant in the elastic execution mode.
+  public static final String PARTICIPANT_TASK_CONCURRENCY_LIMIT =
+      "helix.participant.taskConcurrencyLimit";
+
+  // Set to true to batch the removals of handled messages and the error records of a participant
+  // into async multi-path writes.
+  public static final String PARTICIPANT_WRITE_COALESCING_ENABLED =
+      "helix.participant.writeCoalescingEnabled";
+  // Maximum time in ms a coalesced write is delayed.
+  public static final String PARTICIPANT_WRITE_COALESCING_INTERVAL =
+      "helix.participant.writeCoalescingInterval";
+  // Number of pending coalesced writes that triggers a flush before the interval elapses.
+  public static final String PARTICIPANT_WRITE_COALESCING_BATCH_SIZE =
+      "helix.participant.writeCoalescingBatchSize";
+  // Set to true to merge the concurrent partition updates of the same current state of a
+  // participant into one conditional ZK write.
+  public static final String PARTICIPANT_CURRENT_STATE_COALESCING_ENABLED =
+      "helix.participant.currentStateCoalescingEnabled";
+  // Time in ms the first update of a current state waits for others to join its write.
+  public static final String PARTICIPANT_CURRENT_STATE_COALESCING_WINDOW =
+      "helix.participant.currentStateCoalescingWindow";
+  // Percentage of the messages whose INFO level status updates are recorded. 0 drops all the INFO
+  // level status updates. Warnings and errors are always recorded.
+  public static final String STATUS_UPDATE_INFO_SAMPLE_PERCENTAGE =
+      "helix.statusUpdate.infoSamplePercentage";
+
+  // DefaultMessagingService
+  // Set to true to evaluate the recipient criteria of messages against an in-memory snapshot of the
+  // cluster data kept up to date by ZooKeeper watches, instead of reading the data on every send.
+  public static final String MESSAGING_CRITERIA_CACHE_ENABLED =
+      "helix.messaging.criteriaCacheEnabled";
+
   // Controller
+  // Set to true to only compute the external views of the resources whose current states, ideal
+  // states, configs or pending messages changed, instead of all the resources on every event.
+  public static final String CONTROLLER_INCREMENTAL_EXTERNAL_VIEW_ENABLED =
+      "helix.controller.incrementalExternalViewEnabled";
+  // Interval in ms of the full computation of all the external views when incremental
+  // computation is enabled.
+  public static final String CONTROLLER_EXTERNAL_VIEW_FULL_RECONCILE_INTERVAL =
+      "helix.controller.externalViewFullReconcileInterval";
+  // Set to true to pipeline the events of the controller: the child names and stats read by the
+  // data refresh of the next event are read ahead while the current event is computed.
+  public static final String CONTROLLER_PIPELINED_REFRESH_ENABLED =
+      "helix.controller.pipelinedRefreshEnabled";
   public static final String CONTROLLER_MESSAGE_PURGE_DELAY = "helix.controller.stages.MessageGenerationPhase.messagePurgeDelay";
 }
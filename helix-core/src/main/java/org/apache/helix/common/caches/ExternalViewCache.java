@@ -24,15 +24,22 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixException;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyType;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.ZNRecordAssembler;
 import org.apache.helix.model.ExternalView;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,6 +53,8 @@ public class ExternalViewCache extends AbstractDataCache<ExternalView> {
 
   protected Map<String, ExternalView> _externalViewMap;
   protected Map<String, ExternalView> _externalViewCache;
+  // Resource -> bucket name -> the bucket record of a bucketized external view, with its version
+  private Map<String, Map<String, ZNRecord>> _bucketCache;
 
   protected String _clusterName;
 
@@ -60,6 +69,7 @@ public class ExternalViewCache extends AbstractDataCache<ExternalView> {
     _clusterName = clusterName;
     _externalViewMap = Collections.emptyMap();
     _externalViewCache = Collections.emptyMap();
+    _bucketCache = new HashMap<>();
     _type = type;
   }
 
@@ -94,9 +104,41 @@ public class ExternalViewCache extends AbstractDataCache<ExternalView> {
     Set<PropertyKey> reloadKeys = new HashSet<>(currentPropertyKeys);
     reloadKeys.removeAll(cachedKeys);
 
+    // The bucketized external views are refreshed bucket by bucket, so their buckets are cached
+    List<PropertyKey> bucketizedKeys = new ArrayList<>();
+    if (_type.equals(PropertyType.EXTERNALVIEW)) {
+      Iterator<PropertyKey> keyIter = cachedKeys.iterator();
+      while (keyIter.hasNext()) {
+        PropertyKey key = keyIter.next();
+        if (cachedExternalViewMap.get(key).getBucketSize() > 0) {
+          bucketizedKeys.add(key);
+          keyIter.remove();
+        }
+      }
+      // the new views that have children are bucketized
+      if (!reloadKeys.isEmpty()) {
+        List<PropertyKey> newKeys = new ArrayList<>(reloadKeys);
+        List<String> newPaths = new ArrayList<>();
+        for (PropertyKey key : newKeys) {
+          newPaths.add(key.getPath());
+        }
+        Stat[] newStats = accessor.getBaseDataAccessor().getStats(newPaths, 0);
+        for (int i = 0; i < newKeys.size(); i++) {
+          if (newStats[i] != null && newStats[i].getNumChildren() > 0) {
+            bucketizedKeys.add(newKeys.get(i));
+            reloadKeys.remove(newKeys.get(i));
+          }
+        }
+      }
+    }
+
     Map<PropertyKey, ExternalView> updatedMap =
         refreshProperties(accessor, new LinkedList<>(reloadKeys), new ArrayList<>(cachedKeys),
             cachedExternalViewMap);
+    Map<String, Map<String, ZNRecord>> newBucketCache = new HashMap<>();
+    updatedMap.putAll(
+        refreshBucketizedViews(accessor, bucketizedKeys, cachedExternalViewMap, newBucketCache));
+    _bucketCache = newBucketCache;
     Map<String, ExternalView> newExternalViewMap = Maps.newHashMap();
     for (ExternalView externalView : updatedMap.values()) {
       newExternalViewMap.put(externalView.getResourceName(), externalView);
@@ -110,6 +152,122 @@ public class ExternalViewCache extends AbstractDataCache<ExternalView> {
         + ", took " + (endTime - startTime) + " ms");
   }
 
+  /**
+   * Refresh the bucketized external views. A cached view whose parent znode is unchanged is reused,
+   * as writers update the parent after the buckets. Otherwise only the buckets whose versions
+   * changed are read, and the view is assembled from them and the cached buckets.
+   */
+  private Map<PropertyKey, ExternalView> refreshBucketizedViews(HelixDataAccessor accessor,
+      List<PropertyKey> keys, Map<PropertyKey, ExternalView> cachedExternalViewMap,
+      Map<String, Map<String, ZNRecord>> newBucketCache) {
+    Map<PropertyKey, ExternalView> refreshedMap = Maps.newHashMap();
+    if (keys.isEmpty()) {
+      return refreshedMap;
+    }
+
+    List<HelixProperty.Stat> stats = accessor.getPropertyStats(keys);
+    for (int i = 0; i < keys.size(); i++) {
+      PropertyKey key = keys.get(i);
+      ExternalView cachedView = cachedExternalViewMap.get(key);
+      String resource = cachedView == null ? null : cachedView.getResourceName();
+      Map<String, ZNRecord> cachedBuckets = resource == null ? null : _bucketCache.get(resource);
+      if (cachedBuckets != null && cachedView.getStat().equals(stats.get(i))) {
+        refreshedMap.put(key, cachedView);
+        newBucketCache.put(resource, cachedBuckets);
+        continue;
+      }
+
+      ExternalView view = refreshBucketizedView(accessor.getBaseDataAccessor(), key.getPath(),
+          cachedBuckets == null ? Collections.<String, ZNRecord>emptyMap() : cachedBuckets,
+          newBucketCache);
+      if (view != null) {
+        refreshedMap.put(key, view);
+      } else {
+        LOG.warn("znode is null for key: " + key);
+      }
+    }
+    return refreshedMap;
+  }
+
+  private ExternalView refreshBucketizedView(BaseDataAccessor<ZNRecord> baseAccessor, String path,
+      Map<String, ZNRecord> cachedBuckets, Map<String, Map<String, ZNRecord>> newBucketCache) {
+    Stat stat = new Stat();
+    ZNRecord record = baseAccessor.get(path, stat, AccessOption.PERSISTENT);
+    if (record == null) {
+      return null;
+    }
+    record.setCreationTime(stat.getCtime());
+    record.setModifiedTime(stat.getMtime());
+    record.setVersion(stat.getVersion());
+    record.setEphemeralOwner(stat.getEphemeralOwner());
+    ExternalView view = new ExternalView(record);
+    if (view.getBucketSize() == 0) {
+      return view;
+    }
+
+    List<String> bucketNames = baseAccessor.getChildNames(path, 0);
+    if (bucketNames == null) {
+      bucketNames = Collections.emptyList();
+    }
+    List<String> bucketPaths = new ArrayList<>();
+    for (String bucketName : bucketNames) {
+      bucketPaths.add(path + "/" + bucketName);
+    }
+    Stat[] bucketStats = baseAccessor.getStats(bucketPaths, 0);
+
+    Map<String, ZNRecord> buckets = new HashMap<>();
+    List<String> reloadNames = new ArrayList<>();
+    List<String> reloadPaths = new ArrayList<>();
+    for (int i = 0; i < bucketNames.size(); i++) {
+      String bucketName = bucketNames.get(i);
+      Stat bucketStat = bucketStats[i];
+      if (bucketStat == null) {
+        // removed since listed
+        continue;
+      }
+      ZNRecord cachedBucket = cachedBuckets.get(bucketName);
+      if (cachedBucket != null && cachedBucket.getVersion() == bucketStat.getVersion()) {
+        buckets.put(bucketName, cachedBucket);
+      } else {
+        reloadNames.add(bucketName);
+        reloadPaths.add(bucketPaths.get(i));
+      }
+    }
+
+    if (!reloadPaths.isEmpty()) {
+      List<Stat> reloadStats = new ArrayList<>();
+      for (int i = 0; i < reloadPaths.size(); i++) {
+        reloadStats.add(new Stat());
+      }
+      List<ZNRecord> reloadedBuckets = baseAccessor.get(reloadPaths, reloadStats, 0, false);
+      for (int i = 0; i < reloadPaths.size(); i++) {
+        ZNRecord bucket = reloadedBuckets.get(i);
+        if (bucket != null) {
+          bucket.setVersion(reloadStats.get(i).getVersion());
+          buckets.put(reloadNames.get(i), bucket);
+        }
+      }
+    }
+    newBucketCache.put(view.getResourceName(), buckets);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(String.format("Read %d of %d buckets of %s", reloadPaths.size(), buckets.size(),
+          path));
+    }
+
+    // clean up list and map fields in case the parent node was written by mistake, see HELIX-574
+    ZNRecord viewRecord = view.getRecord();
+    viewRecord.getMapFields().clear();
+    viewRecord.getListFields().clear();
+    ZNRecord assembledRecord =
+        new ZNRecordAssembler().assemble(new ArrayList<>(buckets.values()));
+    if (assembledRecord != null) {
+      viewRecord.getSimpleFields().putAll(assembledRecord.getSimpleFields());
+      viewRecord.getListFields().putAll(assembledRecord.getListFields());
+      viewRecord.getMapFields().putAll(assembledRecord.getMapFields());
+    }
+    return view;
+  }
+
   private PropertyKey externalViewsKey(PropertyKey.Builder keyBuilder) {
     PropertyKey evPropertyKey;
     if (_type.equals(PropertyType.EXTERNALVIEW)) {
@@ -150,5 +308,6 @@ public class ExternalViewCache extends AbstractDataCache<ExternalView> {
   public void clear() {
     _externalViewCache.clear();
     _externalViewMap.clear();
+    _bucketCache.clear();
   }
 }
@@ -20,8 +20,10 @@ package org.apache.helix.common.caches;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -90,6 +92,10 @@ public class PropertyCache<T extends HelixProperty> extends AbstractDataCache<T>
   private final boolean _useSelectiveUpdate;
   private final PropertyCacheKeyFuncs<T> _keyFuncs;
 
+  // Number of objects read from the data store and reused from the cache in the last refresh
+  private int _reloadedCount;
+  private int _skippedCount;
+
   public PropertyCache(ControlContextProvider contextProvider, String propertyDescription,
       PropertyCacheKeyFuncs<T> keyFuncs, boolean useSelectiveUpdate) {
     super(contextProvider);
@@ -164,9 +170,90 @@ public class PropertyCache<T extends HelixProperty> extends AbstractDataCache<T>
             _propertyDescription, System.currentTimeMillis() - start, _useSelectiveUpdate));
   }
 
+  /**
+   * Refresh the cache by reloading only the objects under the given changed paths. All the other
+   * cached objects are kept without checking their stats in the data store.
+   * Falls back to {@link #refresh(HelixDataAccessor)} if the changed paths are unknown, the cache
+   * does not use selective update, or any change is on the root path, since the set of objects
+   * might have changed.
+   * @param accessor helix data accessor provided by caller
+   * @param changedPaths paths of the changed znodes, null if unknown
+   */
+  public void refresh(final HelixDataAccessor accessor, Collection<String> changedPaths) {
+    if (changedPaths == null || !_useSelectiveUpdate) {
+      refresh(accessor);
+      return;
+    }
+
+    String rootPath = _keyFuncs.getRootKey(accessor).getPath();
+    Set<String> changedObjNames = new HashSet<>();
+    for (String path : changedPaths) {
+      String objName = getObjNameFromPath(rootPath, path);
+      if (objName == null) {
+        refresh(accessor);
+        return;
+      }
+      changedObjNames.add(objName);
+    }
+
+    long start = System.currentTimeMillis();
+    doRefreshChangedObjects(accessor, changedObjNames);
+    LogUtil.logInfo(LOG, genEventInfo(), String
+        .format("Refreshed %s property %s took %s ms. Reloaded changed objects: %s",
+            _objMap.size(), _propertyDescription, System.currentTimeMillis() - start,
+            changedObjNames));
+  }
+
+  /**
+   * @return the name of the object that the given path belongs to, null if the path is not under
+   * an object of this cache
+   */
+  private static String getObjNameFromPath(String rootPath, String path) {
+    if (path == null || !path.startsWith(rootPath + "/")) {
+      return null;
+    }
+    String objName = path.substring(rootPath.length() + 1);
+    // Changes of bucketized children are changes of the parent object
+    int index = objName.indexOf('/');
+    if (index >= 0) {
+      objName = objName.substring(0, index);
+    }
+    return objName.isEmpty() ? null : objName;
+  }
+
+  private void doRefreshChangedObjects(final HelixDataAccessor accessor,
+      Set<String> changedObjNames) {
+    List<String> objNames = new ArrayList<>(changedObjNames);
+    List<PropertyKey> reloadKeys = new ArrayList<>();
+    for (String objName : objNames) {
+      reloadKeys.add(_keyFuncs.getObjPropertyKey(accessor, objName));
+    }
+
+    Map<String, T> newCache = new HashMap<>(_objCache);
+    List<T> reloadedObjs = accessor.getProperty(reloadKeys, true);
+    for (int i = 0; i < objNames.size(); i++) {
+      T obj = reloadedObjs.get(i);
+      newCache.remove(objNames.get(i));
+      if (obj != null) {
+        newCache.put(_keyFuncs.getObjName(obj), obj);
+      }
+    }
+    _reloadedCount = reloadKeys.size();
+    _skippedCount = 0;
+    for (String objName : _objCache.keySet()) {
+      if (!changedObjNames.contains(objName)) {
+        _skippedCount++;
+      }
+    }
+    _objCache = newCache;
+    _objMap = new HashMap<>(_objCache);
+  }
+
   private void doSimpleCacheRefresh(final HelixDataAccessor accessor) {
     _objCache = accessor.getChildValuesMap(_keyFuncs.getRootKey(accessor), true);
     _objMap = new HashMap<>(_objCache);
+    _reloadedCount = _objCache.size();
+    _skippedCount = 0;
   }
 
   private void doRefreshWithSelectiveUpdate(final HelixDataAccessor accessor) {
@@ -175,6 +262,8 @@ public class PropertyCache<T extends HelixProperty> extends AbstractDataCache<T>
     Map<PropertyKey, T> updatedData = refreshProperties(accessor, input.getReloadKeys(),
         input.getCachedKeys(), input.getCachedPropertyMap());
     _objCache = propertyKeyMapToStringMap(updatedData, _keyFuncs);
+    _reloadedCount = input.getReloadKeys().size();
+    _skippedCount = Math.max(updatedData.size() - _reloadedCount, 0);
 
     // need to separate keys so we can potentially update cache map asynchronously while
     // keeping snapshot unchanged
@@ -190,6 +279,20 @@ public class PropertyCache<T extends HelixProperty> extends AbstractDataCache<T>
     return stringMap;
   }
 
+  /**
+   * @return the number of objects read from the data store in the last refresh
+   */
+  public int getReloadedCount() {
+    return _reloadedCount;
+  }
+
+  /**
+   * @return the number of cached objects reused without being read in the last refresh
+   */
+  public int getSkippedCount() {
+    return _skippedCount;
+  }
+
   public Map<String, T> getPropertyMap() {
     return Collections.unmodifiableMap(_objMap);
   }
@@ -20,6 +20,7 @@ package org.apache.helix.common.caches;
  */
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -27,20 +28,27 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.BatchWriteDataAccessor;
+import org.apache.helix.BatchWriteOp;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.PropertyType;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.common.controllers.ControlContextProvider;
 import org.apache.helix.controller.LogUtil;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
 import org.apache.helix.model.ResourceAssignment;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.task.AssignableInstanceManager;
 import org.apache.helix.task.JobConfig;
 import org.apache.helix.task.JobContext;
+import org.apache.helix.task.JobContextColumnarCodec;
 import org.apache.helix.task.RuntimeJobDag;
 import org.apache.helix.task.TaskConstants;
 import org.apache.helix.task.WorkflowConfig;
 import org.apache.helix.task.WorkflowContext;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +58,7 @@ import org.slf4j.LoggerFactory;
 public class TaskDataCache extends AbstractDataCache {
   private static final Logger LOG = LoggerFactory.getLogger(TaskDataCache.class.getName());
   private static final String NAME = "NAME";
+  private static final int NON_EXIST_VERSION = -1;
 
   private Map<String, JobConfig> _jobConfigMap = new HashMap<>();
   private Map<String, RuntimeJobDag> _runtimeJobDagMap = new HashMap<>();
@@ -59,16 +68,30 @@ public class TaskDataCache extends AbstractDataCache {
   // concurrency will be hard to handle.
   private Map<String, ZNRecord> _contextMap = new HashMap<>();
   private Map<String, ZNRecord> _prevAssignmentMap = new HashMap<>();
+  // The znode versions of the cached contexts and previous assignments. A cached record is reused
+  // on refresh as long as its znode version is unchanged, including the records written by this
+  // cache, or as long as a znode that did not exist is still missing. An entry is removed whenever
+  // the version of the znode is unknown.
+  private Map<String, Integer> _contextVersionMap = new HashMap<>();
+  private Map<String, Integer> _prevAssignmentVersionMap = new HashMap<>();
   private Set<String> _prevAssignmentToUpdate = new HashSet<>();
   private Set<String> _prevAssignmentToRemove = new HashSet<>();
   private Set<String> _contextToUpdate = new HashSet<>();
   private Set<String> _contextToRemove = new HashSet<>();
+  // Names of the contexts that are new, changed by others or gone in the last refresh
+  private Set<String> _contextsChangedOnRefresh = new HashSet<>();
   // The following fields have been added for quota-based task scheduling
   private final AssignableInstanceManager _assignableInstanceManager =
       new AssignableInstanceManager();
   // Current usage for this scheduled jobs is used for differentiate the jobs has been processed in
   // JobDispatcher from RESOURCE_TO_BALANCE to reduce the redundant computation.
   private Set<String> _dispatchedJobs = new HashSet<>();
+  private long _cacheHitCount = 0L;
+  private long _zkReadCount = 0L;
+  private final boolean _jobContextColumnarEncodingEnabled =
+      Boolean.getBoolean(SystemPropertyKeys.TASK_JOB_CONTEXT_COLUMNAR_ENCODING_ENABLED);
+  private final boolean _multiWriteEnabled =
+      Boolean.getBoolean(SystemPropertyKeys.ZK_MULTI_WRITE_ENABLED);
 
   private enum TaskDataType {
     CONTEXT,
@@ -169,56 +192,244 @@ public class TaskDataCache extends AbstractDataCache {
   }
 
   private void refreshContextsAndPreviousAssignments(HelixDataAccessor accessor) {
-    // TODO: Need an optimize for reading context only if the refresh is needed.
     long start = System.currentTimeMillis();
-    _contextMap.clear();
-    _prevAssignmentMap.clear();
+    Map<String, ZNRecord> oldContextMap = _contextMap;
+    Map<String, ZNRecord> oldPrevAssignmentMap = _prevAssignmentMap;
+    _contextMap = new HashMap<>();
+    _prevAssignmentMap = new HashMap<>();
+    _contextsChangedOnRefresh = new HashSet<>(oldContextMap.keySet());
     if (_controlContextProvider.getClusterName() == null || _controlContextProvider.getClusterName()
         .equalsIgnoreCase(UNKNOWN_CLUSTER)) {
       return;
     }
     String path = String.format("/%s/%s%s", _controlContextProvider.getClusterName(),
         PropertyType.PROPERTYSTORE.name(), TaskConstants.REBALANCER_CONTEXT_ROOT);
-    List<String> contextPaths = new ArrayList<>();
-    List<String> prevAssignmentPaths = new ArrayList<>();
     List<String> childNames = accessor.getBaseDataAccessor().getChildNames(path, 0);
     if (childNames == null) {
+      _contextVersionMap.clear();
+      _prevAssignmentVersionMap.clear();
       return;
     }
+    List<String> prevAssignmentNames = new ArrayList<>();
     for (String resourceName : childNames) {
-      contextPaths.add(getTaskDataPath(resourceName, TaskDataType.CONTEXT));
       //Workflow does not have previous assignment
       if (!_workflowConfigMap.containsKey(resourceName)) {
-        prevAssignmentPaths.add(getTaskDataPath(resourceName, TaskDataType.PREV_ASSIGNMENT));
+        prevAssignmentNames.add(resourceName);
       }
     }
 
-    List<ZNRecord> contexts = accessor.getBaseDataAccessor().get(contextPaths, null, 0);
-    List<ZNRecord> prevAssignments =
-        accessor.getBaseDataAccessor().get(prevAssignmentPaths, null, 0);
-
+    int cacheHitCount = 0;
+    int zkReadCount = 0;
+    List<String> contextNamesToRead = refreshTaskData(accessor, childNames, oldContextMap,
+        _contextMap, _contextVersionMap, _contextToUpdate, TaskDataType.CONTEXT);
+    cacheHitCount += childNames.size() - contextNamesToRead.size();
+    zkReadCount += contextNamesToRead.size();
+    _contextsChangedOnRefresh.removeAll(_contextMap.keySet());
+    List<ZNRecord> contexts = readTaskData(accessor, contextNamesToRead, _contextVersionMap,
+        TaskDataType.CONTEXT);
     for (int i = 0; i < contexts.size(); i++) {
       ZNRecord context = contexts.get(i);
+      // Contexts written by this cache without a known version are read again, but they only
+      // changed if others wrote them
+      String contextName = contextNamesToRead.get(i);
+      if (context == null || !context.equals(oldContextMap.get(contextName))) {
+        _contextsChangedOnRefresh.add(contextName);
+      } else {
+        _contextsChangedOnRefresh.remove(contextName);
+      }
       if (context != null && context.getSimpleField(NAME) != null) {
         _contextMap.put(context.getSimpleField(NAME), context);
       } else {
-        _contextMap.put(childNames.get(i), context);
-        LogUtil.logDebug(LOG, genEventInfo(),
-            String.format("Context for %s is null or miss the context NAME!", childNames.get((i))));
+        _contextMap.put(contextNamesToRead.get(i), context);
+        LogUtil.logDebug(LOG, genEventInfo(), String
+            .format("Context for %s is null or miss the context NAME!", contextNamesToRead.get(i)));
       }
     }
 
+    List<String> prevAssignmentNamesToRead =
+        refreshTaskData(accessor, prevAssignmentNames, oldPrevAssignmentMap, _prevAssignmentMap,
+            _prevAssignmentVersionMap, _prevAssignmentToUpdate, TaskDataType.PREV_ASSIGNMENT);
+    cacheHitCount += prevAssignmentNames.size() - prevAssignmentNamesToRead.size();
+    zkReadCount += prevAssignmentNamesToRead.size();
+    List<ZNRecord> prevAssignments = readTaskData(accessor, prevAssignmentNamesToRead,
+        _prevAssignmentVersionMap, TaskDataType.PREV_ASSIGNMENT);
     for (ZNRecord prevAssignment : prevAssignments) {
       if (prevAssignment != null) {
         _prevAssignmentMap.put(prevAssignment.getId(), prevAssignment);
       }
     }
 
+    _cacheHitCount += cacheHitCount;
+    _zkReadCount += zkReadCount;
     if (LOG.isDebugEnabled()) {
-      LogUtil.logDebug(LOG, genEventInfo(),
-          "# of workflow/job context read from zk: " + _contextMap.size() + ". Take " + (
-              System.currentTimeMillis() - start) + " ms");
+      LogUtil.logDebug(LOG, genEventInfo(), String.format(
+          "# of workflow/job context and previous assignment reused from cache: %d, read from zk: %d. Take %d ms",
+          cacheHitCount, zkReadCount, System.currentTimeMillis() - start));
+    }
+  }
+
+  /**
+   * Reuse the cached records of the given resources whose znode versions have not changed since
+   * they were read or written by this cache, and drop the versions of the resources that are gone.
+   * Records with in-memory changes that have not been persisted are always read again.
+   *
+   * @return the names of the resources that need to be read from zookeeper
+   */
+  private List<String> refreshTaskData(HelixDataAccessor accessor, List<String> resourceNames,
+      Map<String, ZNRecord> oldDataMap, Map<String, ZNRecord> newDataMap,
+      Map<String, Integer> versionMap, Set<String> dataToUpdate, TaskDataType taskDataType) {
+    versionMap.keySet().retainAll(resourceNames);
+    List<String> namesToCheck = new ArrayList<>();
+    List<String> pathsToCheck = new ArrayList<>();
+    for (String resourceName : resourceNames) {
+      Integer version = versionMap.get(resourceName);
+      if (version != null && (version == NON_EXIST_VERSION || oldDataMap.get(resourceName) != null)
+          && !dataToUpdate.contains(resourceName)) {
+        namesToCheck.add(resourceName);
+        pathsToCheck.add(getTaskDataPath(resourceName, taskDataType));
+      }
+    }
+
+    Set<String> cachedNames = new HashSet<>();
+    boolean[] unchanged = checkVersions(accessor, namesToCheck, pathsToCheck, versionMap);
+    for (int i = 0; i < namesToCheck.size(); i++) {
+      String resourceName = namesToCheck.get(i);
+      if (unchanged[i]) {
+        if (oldDataMap.containsKey(resourceName)) {
+          newDataMap.put(resourceName, oldDataMap.get(resourceName));
+        }
+        cachedNames.add(resourceName);
+      }
+    }
+
+    List<String> namesToRead = new ArrayList<>();
+    for (String resourceName : resourceNames) {
+      if (!cachedNames.contains(resourceName)) {
+        namesToRead.add(resourceName);
+      }
+    }
+    return namesToRead;
+  }
+
+  @SuppressWarnings("unchecked")
+  private BatchWriteDataAccessor<ZNRecord> getBatchWriteAccessor(HelixDataAccessor accessor) {
+    BaseDataAccessor<ZNRecord> baseAccessor = accessor.getBaseDataAccessor();
+    return _multiWriteEnabled && baseAccessor instanceof BatchWriteDataAccessor
+        ? (BatchWriteDataAccessor<ZNRecord>) baseAccessor : null;
+  }
+
+  /**
+   * Check whether the znodes of the given resources still have the cached versions. The znodes
+   * that existed are checked together in multi-ops where the accessor supports it, so an unchanged
+   * cache takes one round trip. The znodes that did not exist are checked by their stats.
+   *
+   * @return true for each resource whose znode has not changed
+   */
+  private boolean[] checkVersions(HelixDataAccessor accessor, List<String> resourceNames,
+      List<String> paths, Map<String, Integer> versionMap) {
+    boolean[] unchanged = new boolean[resourceNames.size()];
+    List<Integer> statIndexes = new ArrayList<>();
+    List<Integer> checkIndexes = new ArrayList<>();
+    BaseDataAccessor<ZNRecord> baseDataAccessor = accessor.getBaseDataAccessor();
+    for (int i = 0; i < resourceNames.size(); i++) {
+      if (baseDataAccessor instanceof ZkBaseDataAccessor
+          && versionMap.get(resourceNames.get(i)) != NON_EXIST_VERSION) {
+        checkIndexes.add(i);
+      } else {
+        statIndexes.add(i);
+      }
+    }
+
+    if (!checkIndexes.isEmpty()) {
+      List<String> checkPaths = new ArrayList<>(checkIndexes.size());
+      List<Integer> checkVersions = new ArrayList<>(checkIndexes.size());
+      for (int index : checkIndexes) {
+        checkPaths.add(paths.get(index));
+        checkVersions.add(versionMap.get(resourceNames.get(index)));
+      }
+      boolean[] checked = ((ZkBaseDataAccessor<ZNRecord>) baseDataAccessor)
+          .checkVersions(checkPaths, checkVersions);
+      for (int i = 0; i < checkIndexes.size(); i++) {
+        unchanged[checkIndexes.get(i)] = checked[i];
+      }
+    }
+
+    if (!statIndexes.isEmpty()) {
+      List<String> statPaths = new ArrayList<>(statIndexes.size());
+      for (int index : statIndexes) {
+        statPaths.add(paths.get(index));
+      }
+      Stat[] stats = baseDataAccessor.getStats(statPaths, 0);
+      for (int i = 0; i < statIndexes.size(); i++) {
+        int index = statIndexes.get(i);
+        int version = stats[i] == null ? NON_EXIST_VERSION : stats[i].getVersion();
+        unchanged[index] = version == versionMap.get(resourceNames.get(index));
+      }
+    }
+    return unchanged;
+  }
+
+  private List<ZNRecord> readTaskData(HelixDataAccessor accessor, List<String> resourceNames,
+      Map<String, Integer> versionMap, TaskDataType taskDataType) {
+    if (resourceNames.isEmpty()) {
+      return new ArrayList<>();
+    }
+    List<String> paths = new ArrayList<>();
+    for (String resourceName : resourceNames) {
+      paths.add(getTaskDataPath(resourceName, taskDataType));
+    }
+    List<Stat> stats = new ArrayList<>();
+    List<ZNRecord> records = accessor.getBaseDataAccessor().get(paths, stats, 0);
+    for (int i = 0; i < resourceNames.size(); i++) {
+      if (taskDataType == TaskDataType.CONTEXT && records.get(i) != null) {
+        JobContextColumnarCodec.decode(records.get(i));
+      }
+      if (records.get(i) != null && stats.get(i) != null) {
+        versionMap.put(resourceNames.get(i), stats.get(i).getVersion());
+      } else if (records.get(i) == null) {
+        versionMap.put(resourceNames.get(i), NON_EXIST_VERSION);
+      } else {
+        versionMap.remove(resourceNames.get(i));
+      }
     }
+    return records;
+  }
+
+  /**
+   * Indicate that all the contexts and previous assignments should be read from zookeeper on the
+   * next refresh, e.g. after a leadership change, when another controller may have written them.
+   */
+  public synchronized void requireFullRefresh() {
+    _contextVersionMap.clear();
+    _prevAssignmentVersionMap.clear();
+  }
+
+  /**
+   * Returns the names of the contexts that are new, were changed by others or are gone in the last
+   * refresh. Contexts written by this cache are not included, even if they had to be read again.
+   *
+   * @return
+   */
+  public Set<String> getContextsChangedOnRefresh() {
+    return Collections.unmodifiableSet(_contextsChangedOnRefresh);
+  }
+
+  /**
+   * Returns the total number of contexts and previous assignments reused from the cache on refresh
+   *
+   * @return
+   */
+  public long getCacheHitCount() {
+    return _cacheHitCount;
+  }
+
+  /**
+   * Returns the total number of contexts and previous assignments read from zookeeper on refresh
+   *
+   * @return
+   */
+  public long getZkReadCount() {
+    return _zkReadCount;
   }
 
   /**
@@ -270,7 +481,7 @@ public class TaskDataCache extends AbstractDataCache {
    */
   public JobContext getJobContext(String resourceName) {
     if (_contextMap.containsKey(resourceName) && _contextMap.get(resourceName) != null) {
-      return new JobContext(_contextMap.get(resourceName));
+      return new JobContext(copyRecord(_contextMap.get(resourceName)));
     }
     return null;
   }
@@ -284,11 +495,30 @@ public class TaskDataCache extends AbstractDataCache {
    */
   public WorkflowContext getWorkflowContext(String resourceName) {
     if (_contextMap.containsKey(resourceName) && _contextMap.get(resourceName) != null) {
-      return new WorkflowContext(_contextMap.get(resourceName));
+      return new WorkflowContext(copyRecord(_contextMap.get(resourceName)));
     }
     return null;
   }
 
+  /**
+   * Copy the record with its map and list fields, so changes of the returned contexts are only
+   * cached once they are updated to the cache.
+   */
+  private static ZNRecord copyRecord(ZNRecord record) {
+    ZNRecord copy = new ZNRecord(record);
+    for (Map.Entry<String, Map<String, String>> mapField : record.getMapFields().entrySet()) {
+      if (mapField.getValue() != null) {
+        copy.setMapField(mapField.getKey(), new HashMap<>(mapField.getValue()));
+      }
+    }
+    for (Map.Entry<String, List<String>> listField : record.getListFields().entrySet()) {
+      if (listField.getValue() != null) {
+        copy.setListField(listField.getKey(), new ArrayList<>(listField.getValue()));
+      }
+    }
+    return copy;
+  }
+
   /**
    * Update context of the Job
    */
@@ -315,44 +545,78 @@ public class TaskDataCache extends AbstractDataCache {
     // Do not update it if the is need to be remove
     _contextToUpdate.removeAll(_contextToRemove);
     batchUpdateData(accessor, new ArrayList<>(_contextToUpdate), _contextMap, _contextToUpdate,
+        _contextVersionMap, TaskDataType.CONTEXT);
+    batchDeleteData(accessor, new ArrayList<>(_contextToRemove), _contextVersionMap,
         TaskDataType.CONTEXT);
-    batchDeleteData(accessor, new ArrayList<>(_contextToRemove), TaskDataType.CONTEXT);
     _contextToRemove.clear();
 
     _prevAssignmentToUpdate.removeAll(_prevAssignmentToRemove);
     batchUpdateData(accessor, new ArrayList<>(_prevAssignmentToUpdate), _prevAssignmentMap,
-        _prevAssignmentToUpdate, TaskDataType.PREV_ASSIGNMENT);
-    batchDeleteData(accessor, new ArrayList<>(_prevAssignmentToRemove),
+        _prevAssignmentToUpdate, _prevAssignmentVersionMap, TaskDataType.PREV_ASSIGNMENT);
+    batchDeleteData(accessor, new ArrayList<>(_prevAssignmentToRemove), _prevAssignmentVersionMap,
         TaskDataType.PREV_ASSIGNMENT);
     _prevAssignmentToRemove.clear();
   }
 
   private void batchUpdateData(HelixDataAccessor accessor, List<String> dataUpdateNames,
-      Map<String, ZNRecord> dataMap, Set<String> dataToUpdate, TaskDataType taskDataType) {
+      Map<String, ZNRecord> dataMap, Set<String> dataToUpdate, Map<String, Integer> versionMap,
+      TaskDataType taskDataType) {
+    List<String> contextUpdateNames = new ArrayList<>();
     List<String> contextUpdatePaths = new ArrayList<>();
     List<ZNRecord> updatedData = new ArrayList<>();
     for (String resourceName : dataUpdateNames) {
       if (dataMap.get(resourceName) != null) {
+        contextUpdateNames.add(resourceName);
         contextUpdatePaths.add(getTaskDataPath(resourceName, taskDataType));
-        updatedData.add(dataMap.get(resourceName));
+        ZNRecord record = dataMap.get(resourceName);
+        if (taskDataType == TaskDataType.CONTEXT && _jobContextColumnarEncodingEnabled) {
+          // Workflow contexts have no partitions, so they are written as they are
+          record = JobContextColumnarCodec.encode(record);
+        }
+        updatedData.add(record);
       }
     }
 
-    boolean[] updateSuccess = accessor.getBaseDataAccessor()
-        .setChildren(contextUpdatePaths, updatedData, AccessOption.PERSISTENT);
+    boolean[] updateSuccess;
+    BatchWriteDataAccessor<ZNRecord> batchWriteAccessor = getBatchWriteAccessor(accessor);
+    if (batchWriteAccessor != null) {
+      // The controller owns the task data, so it is set whatever its version, as setChildren does.
+      // The data known not to exist, such as the contexts of new jobs, is created instead of
+      // failing a set first.
+      List<BatchWriteOp<ZNRecord>> ops = new ArrayList<>(contextUpdatePaths.size());
+      for (int i = 0; i < contextUpdatePaths.size(); i++) {
+        Integer version = versionMap.get(contextUpdateNames.get(i));
+        ops.add(version != null && version == NON_EXIST_VERSION
+            ? BatchWriteOp.create(contextUpdatePaths.get(i), updatedData.get(i),
+            AccessOption.PERSISTENT)
+            : BatchWriteOp.set(contextUpdatePaths.get(i), updatedData.get(i), -1,
+                AccessOption.PERSISTENT));
+      }
+      updateSuccess = batchWriteAccessor.batchWrite(ops);
+    } else {
+      updateSuccess = accessor.getBaseDataAccessor()
+          .setChildren(contextUpdatePaths, updatedData, AccessOption.PERSISTENT);
+    }
 
     for (int i = 0; i < updateSuccess.length; i++) {
+      String resourceName = contextUpdateNames.get(i);
+      Integer version = versionMap.remove(resourceName);
       if (updateSuccess[i]) {
-        dataToUpdate.remove(dataUpdateNames.get(i));
+        dataToUpdate.remove(resourceName);
+        // The write is trusted, so the cached record stays valid as long as nobody else writes the
+        // znode. If the previous version is unknown, the record is read again on the next refresh.
+        if (version != null) {
+          versionMap.put(resourceName, version + 1);
+        }
       } else {
         LogUtil.logWarn(LOG, _controlContextProvider.getClusterEventId(), String
-            .format("Failed to update the %s for %s", taskDataType.name(), dataUpdateNames.get(i)));
+            .format("Failed to update the %s for %s", taskDataType.name(), resourceName));
       }
     }
   }
 
   private void batchDeleteData(HelixDataAccessor accessor, List<String> contextNamesToRemove,
-      TaskDataType taskDataType) {
+      Map<String, Integer> versionMap, TaskDataType taskDataType) {
 
     // Delete contexts
     // We can not leave the context here since some of the deletion happens for cleaning workflow
@@ -361,12 +625,22 @@ public class TaskDataCache extends AbstractDataCache {
     List<String> contextPathsToRemove = new ArrayList<>();
     for (String resourceName : contextNamesToRemove) {
       contextPathsToRemove.add(getTaskDataPath(resourceName, taskDataType));
+      versionMap.remove(resourceName);
     }
 
     // TODO: current behavior is when you delete non-existing data will return false.
     // Once the behavior fixed, we can add retry logic back. Otherwise, it will stay in memory and
     // not allow same workflow name recreation.
-    accessor.getBaseDataAccessor().remove(contextPathsToRemove, AccessOption.PERSISTENT);
+    BatchWriteDataAccessor<ZNRecord> batchWriteAccessor = getBatchWriteAccessor(accessor);
+    if (batchWriteAccessor != null) {
+      List<BatchWriteOp<ZNRecord>> ops = new ArrayList<>(contextPathsToRemove.size());
+      for (String path : contextPathsToRemove) {
+        ops.add(BatchWriteOp.<ZNRecord>delete(path, -1));
+      }
+      batchWriteAccessor.batchWrite(ops);
+    } else {
+      accessor.getBaseDataAccessor().remove(contextPathsToRemove, AccessOption.PERSISTENT);
+    }
   }
 
   /**
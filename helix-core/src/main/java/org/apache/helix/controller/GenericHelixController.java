@@ -38,11 +38,14 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import org.I0Itec.zkclient.exception.ZkInterruptedException;
+import org.apache.helix.BaseDataAccessor;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixManager;
 import org.apache.helix.NotificationContext;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.ZNRecord;
 import org.apache.helix.api.exceptions.HelixMetaDataAccessException;
 import org.apache.helix.api.listeners.ClusterConfigChangeListener;
 import org.apache.helix.api.listeners.ControllerChangeListener;
@@ -56,6 +59,7 @@ import org.apache.helix.api.listeners.ResourceConfigChangeListener;
 import org.apache.helix.common.ClusterEventBlockingQueue;
 import org.apache.helix.common.DedupEventProcessor;
 import org.apache.helix.controller.dataproviders.BaseControllerDataProvider;
+import org.apache.helix.controller.dataproviders.ReadAheadDataAccessor;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.controller.pipeline.AsyncWorkerType;
@@ -123,6 +127,7 @@ public class GenericHelixController implements IdealStateChangeListener,
 
   private static final long EVENT_THREAD_JOIN_TIMEOUT = 1000;
   private static final int ASYNC_TASKS_THREADPOOL_SIZE = 10;
+  private static final long NOT_RECORDED = -1L;
   private final PipelineRegistry _registry;
   private final PipelineRegistry _taskRegistry;
 
@@ -168,6 +173,25 @@ public class GenericHelixController implements IdealStateChangeListener,
   Timer _onDemandRebalanceTimer = null;
   AtomicReference<RebalanceTask> _nextRebalanceTask = new AtomicReference<>();
 
+  /**
+   * Resource -> deadline of the task framework timers that are due, until a task pipeline picks
+   * them up. The timers of a failed task pipeline run are put back.
+   */
+  private final Map<String, Long> _dueTaskTimers = new HashMap<>();
+
+  /**
+   * The accessor reading ahead the data of the next event of the default pipeline, if the
+   * pipelined refresh is enabled.
+   */
+  private final boolean _pipelinedRefreshEnabled =
+      Boolean.getBoolean(SystemPropertyKeys.CONTROLLER_PIPELINED_REFRESH_ENABLED);
+  private volatile ReadAheadDataAccessor _readAheadAccessor;
+
+  /**
+   * Time of the earliest change notification not handled by the default pipeline yet.
+   */
+  private final AtomicLong _earliestNotificationTime = new AtomicLong(NOT_RECORDED);
+
 
   /**
    * A cache maintained across pipelines
@@ -285,6 +309,44 @@ public class GenericHelixController implements IdealStateChangeListener,
             eventType, _clusterName));
   }
 
+  /**
+   * Trigger a task pipeline run for the workflows and jobs whose timers are due. The due timers are
+   * kept until a task pipeline run picks them up, so the timers of an OnDemandRebalance event that
+   * is replaced in the event queue by a later one are not lost.
+   * @param manager the manager that scheduled the timers
+   * @param dueTimers resource name -> deadline of its timer
+   * @return false if the task pipeline of this controller is not led by the given manager
+   */
+  public boolean onDemandTaskRebalance(HelixManager manager, Map<String, Long> dueTimers) {
+    if (_taskEventQueue == null || manager != _helixManager || !manager.isLeader()) {
+      return false;
+    }
+    addDueTaskTimers(dueTimers);
+
+    NotificationContext changeContext = new NotificationContext(manager);
+    changeContext.setType(NotificationContext.Type.CALLBACK);
+    String uid = UUID.randomUUID().toString().substring(0, 8);
+    ClusterEvent event = new ClusterEvent(_clusterName, ClusterEventType.OnDemandRebalance,
+        String.format("%s_%s", uid, Pipeline.Type.TASK.name()));
+    event.addAttribute(AttributeName.helixmanager.name(), manager);
+    event.addAttribute(AttributeName.changeContext.name(), changeContext);
+    event.addAttribute(AttributeName.eventData.name(), new ArrayList<>());
+    event.addAttribute(AttributeName.AsyncFIFOWorkerPool.name(), _asyncFIFOWorkerPool);
+    enqueueEvent(_taskEventQueue, event);
+    return true;
+  }
+
+  private void addDueTaskTimers(Map<String, Long> dueTimers) {
+    synchronized (_dueTaskTimers) {
+      for (Map.Entry<String, Long> entry : dueTimers.entrySet()) {
+        Long deadline = _dueTaskTimers.get(entry.getKey());
+        if (deadline == null || entry.getValue() < deadline) {
+          _dueTaskTimers.put(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+  }
+
   /**
    * Starts the rebalancing timer with the specified period. Start the timer if necessary; If the
    * period is smaller than the current period, cancel the current timer and use the new period.
@@ -458,6 +520,8 @@ public class GenericHelixController implements IdealStateChangeListener,
       registry.register(ClusterEventType.Resume, dataRefresh, dataPreprocess, rebalancePipeline);
       registry.register(ClusterEventType.PeriodicalRebalance, dataRefresh, dataPreprocess,
           rebalancePipeline);
+      registry.register(ClusterEventType.OnDemandRebalance, dataRefresh, dataPreprocess,
+          rebalancePipeline);
       return registry;
     }
   }
@@ -627,6 +691,24 @@ public class GenericHelixController implements IdealStateChangeListener,
       return;
     }
     event.addAttribute(AttributeName.ControllerDataProvider.name(), dataProvider);
+    ReadAheadDataAccessor readAheadAccessor = null;
+    if (!isTaskFrameworkPipeline) {
+      readAheadAccessor = getReadAheadAccessor(manager);
+      if (readAheadAccessor != null) {
+        event.addAttribute(AttributeName.ReadAheadDataAccessor.name(), readAheadAccessor);
+      }
+      long notificationTime = _earliestNotificationTime.getAndSet(NOT_RECORDED);
+      if (notificationTime != NOT_RECORDED) {
+        event.addAttribute(AttributeName.EarliestNotificationTime.name(), notificationTime);
+      }
+    }
+    if (isTaskFrameworkPipeline) {
+      // Any task pipeline run handles the timers that are due, whatever its event type
+      synchronized (_dueTaskTimers) {
+        event.addAttribute(AttributeName.DUE_TASK_TIMERS.name(), new HashMap<>(_dueTaskTimers));
+        _dueTaskTimers.clear();
+      }
+    }
 
     logger.info(String.format("START: Invoking %s controller pipeline for cluster %s event: %s  %s",
         manager.getClusterName(), dataProvider.getPipelineName(), event.getEventType(),
@@ -644,6 +726,14 @@ public class GenericHelixController implements IdealStateChangeListener,
             "Exception while executing {} pipeline: {} for cluster {}. Will not continue to next pipeline",
             dataProvider.getPipelineName(), _clusterName, Arrays.toString(e.getStackTrace()));
 
+        if (isTaskFrameworkPipeline) {
+          // The workflows of the due timers may not have been dispatched, so the timers are handed
+          // to the next task pipeline run, including the retry below
+          Map<String, Long> dueTaskTimers =
+              event.getAttribute(AttributeName.DUE_TASK_TIMERS.name());
+          addDueTaskTimers(dueTaskTimers);
+        }
+
         if (e instanceof HelixMetaDataAccessException) {
           rebalanceFail = true;
           // If pipeline failed due to read/write fails to zookeeper, retry the pipeline.
@@ -671,6 +761,9 @@ public class GenericHelixController implements IdealStateChangeListener,
     if (!rebalanceFail) {
       _continousRebalanceFailureCount = 0;
     }
+    if (readAheadAccessor != null) {
+      readAheadAccessor.endPipeline();
+    }
 
     _lastPipelineEndTimestamp = System.currentTimeMillis();
     logger.info("END: Invoking {} controller pipeline for event {}::{} for cluster {}, took {} ms",
@@ -880,12 +973,17 @@ public class GenericHelixController implements IdealStateChangeListener,
   private void notifyCaches(NotificationContext context, ChangeType changeType) {
     if (context == null || context.getType() != NotificationContext.Type.CALLBACK) {
       requestDataProvidersFullRefresh();
+    } else if (context.getPathsChanged().isEmpty()) {
+      updateDataChangeInProvider(changeType, null);
     } else {
-      updateDataChangeInProvider(changeType, context.getPathChanged());
+      for (String path : context.getPathsChanged()) {
+        updateDataChangeInProvider(changeType, path);
+      }
     }
   }
 
   private void updateDataChangeInProvider(ChangeType type, String path) {
+    invalidateReadAhead(path);
     if (_resourceControlDataProvider != null) {
       _resourceControlDataProvider.notifyDataChange(type, path);
     }
@@ -896,6 +994,7 @@ public class GenericHelixController implements IdealStateChangeListener,
   }
 
   private void requestDataProvidersFullRefresh() {
+    invalidateReadAhead(null);
     if (_resourceControlDataProvider != null) {
       _resourceControlDataProvider.requireFullRefresh();
     }
@@ -926,7 +1025,47 @@ public class GenericHelixController implements IdealStateChangeListener,
     if (event == null || queue == null) {
       return;
     }
+    if (queue == _eventQueue) {
+      NotificationContext changeContext = event.getAttribute(AttributeName.changeContext.name());
+      if (changeContext != null && changeContext.getType() != NotificationContext.Type.FINALIZE) {
+        _earliestNotificationTime.compareAndSet(NOT_RECORDED, changeContext.getCreationTime());
+      }
+    }
     queue.put(event);
+    ReadAheadDataAccessor readAheadAccessor = _readAheadAccessor;
+    if (queue == _eventQueue && readAheadAccessor != null) {
+      readAheadAccessor.requestReadAhead();
+    }
+  }
+
+  /**
+   * Get the accessor reading ahead the data of the default pipeline on the ZooKeeper connection of
+   * the manager.
+   * @return null if the pipelined refresh is disabled
+   */
+  private ReadAheadDataAccessor getReadAheadAccessor(HelixManager manager) {
+    if (!_pipelinedRefreshEnabled) {
+      return null;
+    }
+    BaseDataAccessor<ZNRecord> baseDataAccessor =
+        manager.getHelixDataAccessor().getBaseDataAccessor();
+    ReadAheadDataAccessor readAheadAccessor = _readAheadAccessor;
+    if (readAheadAccessor == null
+        || readAheadAccessor.getBaseDataAccessor() != baseDataAccessor) {
+      if (readAheadAccessor != null) {
+        readAheadAccessor.shutdown();
+      }
+      readAheadAccessor = new ReadAheadDataAccessor(_clusterName, baseDataAccessor);
+      _readAheadAccessor = readAheadAccessor;
+    }
+    return readAheadAccessor;
+  }
+
+  private void invalidateReadAhead(String path) {
+    ReadAheadDataAccessor readAheadAccessor = _readAheadAccessor;
+    if (readAheadAccessor != null) {
+      readAheadAccessor.invalidate(path);
+    }
   }
 
   @Override
@@ -1063,6 +1202,10 @@ public class GenericHelixController implements IdealStateChangeListener,
     // shutdown async workers
     shutdownAsyncFIFOWorkers();
 
+    if (_readAheadAccessor != null) {
+      _readAheadAccessor.shutdown();
+    }
+
     enableClusterStatusMonitor(false);
 
     // TODO controller shouldn't be used in anyway after shutdown.
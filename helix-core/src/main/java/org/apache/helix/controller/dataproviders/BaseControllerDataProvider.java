@@ -81,8 +81,24 @@ public class BaseControllerDataProvider implements ControlContextProvider {
   private boolean _hasMaintenanceSignalChanged;
   private ExecutorService _asyncTasksThreadPool;
 
+  // Properties whose caches can reload only the changed znodes instead of the whole property.
+  // ResourceConfigs are not included since they also hold the workflow and job configs of the task
+  // framework, which must be read as a consistent snapshot. The IdealStates of jobs are included:
+  // each one is only read with its own job config, and jobs created or removed change the children
+  // of the root path, which still triggers a full refresh.
+  private static final List<HelixConstants.ChangeType> _pathScopedRefreshProperty = Arrays
+      .asList(HelixConstants.ChangeType.IDEAL_STATE, HelixConstants.ChangeType.LIVE_INSTANCE,
+          HelixConstants.ChangeType.INSTANCE_CONFIG);
+
   // A map recording what data has changed
   protected Map<HelixConstants.ChangeType, Boolean> _propertyDataChangedMap;
+  // A map recording the changed paths of each property since the last refresh. A changed
+  // property without an entry here requires a full refresh.
+  private final Map<HelixConstants.ChangeType, Set<String>> _propertyChangedPathMap =
+      new HashMap<>();
+  // Number of properties read from ZK and reused from the caches in the last refresh
+  private int _lastRefreshReloadedCount;
+  private int _lastRefreshSkippedCount;
 
   // Property caches
   private final PropertyCache<ResourceConfig> _resourceConfigCache;
@@ -219,9 +235,9 @@ public class BaseControllerDataProvider implements ControlContextProvider {
 
   private void refreshIdealState(final HelixDataAccessor accessor) {
     if (_propertyDataChangedMap.get(HelixConstants.ChangeType.IDEAL_STATE)) {
-      _propertyDataChangedMap.put(HelixConstants.ChangeType.IDEAL_STATE, false);
-
-      _idealStateCache.refresh(accessor);
+      _idealStateCache
+          .refresh(accessor, consumeChangedPaths(HelixConstants.ChangeType.IDEAL_STATE));
+      recordRefreshStats(_idealStateCache);
     } else {
       LogUtil.logInfo(logger, getClusterEventId(), String
           .format("No ideal state change for %s cluster, %s pipeline", _clusterName,
@@ -231,8 +247,8 @@ public class BaseControllerDataProvider implements ControlContextProvider {
 
   private void refreshLiveInstances(final HelixDataAccessor accessor) {
     if (_propertyDataChangedMap.get(HelixConstants.ChangeType.LIVE_INSTANCE)) {
-      _propertyDataChangedMap.put(HelixConstants.ChangeType.LIVE_INSTANCE, false);
-      _liveInstanceCache.refresh(accessor);
+      _liveInstanceCache.refresh(accessor, consumeChangedPaths(HelixConstants.ChangeType.LIVE_INSTANCE));
+      recordRefreshStats(_liveInstanceCache);
       _updateInstanceOfflineTime = true;
     } else {
       LogUtil.logInfo(logger, getClusterEventId(), String
@@ -243,8 +259,8 @@ public class BaseControllerDataProvider implements ControlContextProvider {
 
   private void refreshInstanceConfigs(final HelixDataAccessor accessor) {
     if (_propertyDataChangedMap.get(HelixConstants.ChangeType.INSTANCE_CONFIG)) {
-      _propertyDataChangedMap.put(HelixConstants.ChangeType.INSTANCE_CONFIG, false);
-      _instanceConfigCache.refresh(accessor);
+      _instanceConfigCache.refresh(accessor, consumeChangedPaths(HelixConstants.ChangeType.INSTANCE_CONFIG));
+      recordRefreshStats(_instanceConfigCache);
       LogUtil.logInfo(logger, getClusterEventId(), String
           .format("Reloaded InstanceConfig for cluster %s, %s pipeline. Keys: %s", _clusterName,
               getPipelineName(), _instanceConfigCache.getPropertyMap().keySet()));
@@ -257,8 +273,8 @@ public class BaseControllerDataProvider implements ControlContextProvider {
 
   private void refreshResourceConfig(final HelixDataAccessor accessor) {
     if (_propertyDataChangedMap.get(HelixConstants.ChangeType.RESOURCE_CONFIG)) {
-      _propertyDataChangedMap.put(HelixConstants.ChangeType.RESOURCE_CONFIG, false);
-      _resourceConfigCache.refresh(accessor);
+      _resourceConfigCache.refresh(accessor, consumeChangedPaths(HelixConstants.ChangeType.RESOURCE_CONFIG));
+      recordRefreshStats(_resourceConfigCache);
       LogUtil.logInfo(logger, getClusterEventId(), String
           .format("Reloaded ResourceConfig for cluster %s, %s pipeline. Cnt: %s", _clusterName,
               getPipelineName(), _resourceConfigCache.getPropertyMap().keySet().size()));
@@ -290,6 +306,8 @@ public class BaseControllerDataProvider implements ControlContextProvider {
   }
 
   public synchronized void refresh(HelixDataAccessor accessor) {
+    _lastRefreshReloadedCount = 0;
+    _lastRefreshSkippedCount = 0;
     // Refresh raw data
     _clusterConfig = accessor.getProperty(accessor.keyBuilder().clusterConfig());
     refreshIdealState(accessor);
@@ -597,14 +615,64 @@ public class BaseControllerDataProvider implements ControlContextProvider {
    * Notify the cache that some part of the cluster data has been changed.
    */
   public void notifyDataChange(HelixConstants.ChangeType changeType) {
-    _propertyDataChangedMap.put(changeType, true);
+    synchronized (_propertyChangedPathMap) {
+      _propertyChangedPathMap.remove(changeType);
+      _propertyDataChangedMap.put(changeType, true);
+    }
   }
 
   /**
-   * Notify the cache that some part of the cluster data has been changed.
+   * Notify the cache that some part of the cluster data has been changed. For the properties that
+   * support it, only the changed path is reloaded on the next refresh.
    */
   public void notifyDataChange(HelixConstants.ChangeType changeType, String pathChanged) {
-    notifyDataChange(changeType);
+    if (pathChanged == null || !_pathScopedRefreshProperty.contains(changeType)) {
+      notifyDataChange(changeType);
+      return;
+    }
+    synchronized (_propertyChangedPathMap) {
+      if (!_propertyDataChangedMap.get(changeType)) {
+        _propertyChangedPathMap.put(changeType, new HashSet<String>());
+        _propertyDataChangedMap.put(changeType, true);
+      }
+      Set<String> changedPaths = _propertyChangedPathMap.get(changeType);
+      // No entry means a full refresh is already pending
+      if (changedPaths != null) {
+        changedPaths.add(pathChanged);
+      }
+    }
+  }
+
+  /**
+   * Reset the change flag of the property and return its changed paths.
+   * @return the changed paths, or null if the property requires a full refresh
+   */
+  private Set<String> consumeChangedPaths(HelixConstants.ChangeType changeType) {
+    synchronized (_propertyChangedPathMap) {
+      _propertyDataChangedMap.put(changeType, false);
+      return _propertyChangedPathMap.remove(changeType);
+    }
+  }
+
+  private void recordRefreshStats(PropertyCache<?> cache) {
+    _lastRefreshReloadedCount += cache.getReloadedCount();
+    _lastRefreshSkippedCount += cache.getSkippedCount();
+  }
+
+  /**
+   * @return the number of properties read from ZK in the last refresh, for the properties that
+   * are refreshed by change notifications
+   */
+  public int getLastRefreshReloadedCount() {
+    return _lastRefreshReloadedCount;
+  }
+
+  /**
+   * @return the number of cached properties reused without being read from ZK in the last
+   * refresh, for the properties that are refreshed by change notifications
+   */
+  public int getLastRefreshSkippedCount() {
+    return _lastRefreshSkippedCount;
   }
 
   private void updateOfflineInstanceHistory(HelixDataAccessor accessor) {
@@ -669,7 +737,7 @@ public class BaseControllerDataProvider implements ControlContextProvider {
   public synchronized void requireFullRefresh() {
     for (HelixConstants.ChangeType type : HelixConstants.ChangeType.values()) {
       if (!_noFullRefreshProperty.contains(type)) {
-        _propertyDataChangedMap.put(type, true);
+        notifyDataChange(type);
       }
     }
   }
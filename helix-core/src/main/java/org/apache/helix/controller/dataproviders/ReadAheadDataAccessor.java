@@ -0,0 +1,460 @@
+package org.apache.helix.controller.dataproviders;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.HelixProperty;
+import org.apache.helix.InstanceType;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.PropertyPathBuilder;
+import org.apache.helix.PropertyType;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.common.DedupEventProcessor;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A data accessor for the data refresh of the controller pipeline, which reads the child names and
+ * the stats the next refresh needs ahead from ZooKeeper while the current event is computed and
+ * its messages are dispatched.
+ * <p>
+ * The accessor records the child names and the stats read by a refresh. Once the refresh is done,
+ * every new event requests a read-ahead, which reads them again on a background thread into a
+ * buffer. The next refresh takes its reads from the buffer, once each, and reads the rest from
+ * ZooKeeper. The records themselves are always read from ZooKeeper.
+ * <p>
+ * The buffered reads of a path are dropped on every change notification of the path or of one of
+ * its parents, so a refresh only reads data older than what ZooKeeper holds when the notification
+ * of the change is still to come, and will trigger another event. Only the data the controller
+ * does not write itself is read ahead: current states, live instances and configs.
+ * <p>
+ * The refresh reads the messages of an instance before its current states, so it never sees a
+ * handled message gone without the current state it updated. To keep that order, the messages of
+ * the instances are read ahead before their current states, as a fence. The buffered current
+ * states of an instance are dropped if the refresh finds one of the fenced messages gone, or if
+ * the controller sent messages to the instance.
+ */
+public class ReadAheadDataAccessor extends ZKHelixDataAccessor {
+  private static final Logger LOG = LoggerFactory.getLogger(ReadAheadDataAccessor.class);
+  private static final String READ_AHEAD_EVENT = "ReadAhead";
+  private static final Set<PropertyType> READ_AHEAD_TYPES =
+      EnumSet.of(PropertyType.CURRENTSTATES, PropertyType.LIVEINSTANCES, PropertyType.CONFIGS);
+
+  private enum State {
+    // No pipeline is running, the next event is handled right away
+    IDLE,
+    REFRESHING,
+    // The refresh is done and the event is computed, the next refresh can be read ahead
+    COMPUTING
+  }
+
+  private final String _clusterName;
+  private final Object _lock = new Object();
+  private final DedupEventProcessor<String, Runnable> _readAheadWorker;
+  private final Runnable _readAheadTask;
+
+  private State _state = State.IDLE;
+  private long _refreshCount = 0L;
+  private boolean _readAheadRequested = false;
+  // Path -> key of the reads of the last refresh, and of the running one
+  private Map<String, PropertyKey> _childNamesReads = Collections.emptyMap();
+  private Map<String, PropertyKey> _statReads = Collections.emptyMap();
+  private Map<String, PropertyKey> _recordedChildNamesReads;
+  private Map<String, PropertyKey> _recordedStatReads;
+  private final Map<String, List<String>> _childNamesBuffer = new HashMap<>();
+  private final Map<String, HelixProperty.Stat> _statBuffer = new HashMap<>();
+  // Instance -> names of its messages read ahead before its current states
+  private final Map<String, Set<String>> _messageFences = new HashMap<>();
+  // The paths changed since the running read-ahead started, null for all the paths
+  private List<String> _changedPaths;
+
+  private long _bufferedReadCount = 0L;
+  private long _readCount = 0L;
+
+  public ReadAheadDataAccessor(String clusterName, BaseDataAccessor<ZNRecord> baseDataAccessor) {
+    super(clusterName, InstanceType.CONTROLLER, baseDataAccessor);
+    _clusterName = clusterName;
+    _readAheadTask = new Runnable() {
+      @Override
+      public void run() {
+        readAhead();
+      }
+    };
+    _readAheadWorker =
+        new DedupEventProcessor<String, Runnable>(clusterName, "RefreshReadAheadWorker") {
+          @Override
+          protected void handleEvent(Runnable event) {
+            event.run();
+          }
+        };
+    _readAheadWorker.setDaemon(true);
+    _readAheadWorker.start();
+  }
+
+  /**
+   * Start recording the reads of a refresh, and take the buffered reads in it.
+   */
+  public void beginRefresh() {
+    synchronized (_lock) {
+      _state = State.REFRESHING;
+      _refreshCount++;
+      if (_changedPaths != null) {
+        // The read in flight is older than the refresh
+        _changedPaths.add(null);
+      }
+      _recordedChildNamesReads = new LinkedHashMap<>();
+      _recordedStatReads = new LinkedHashMap<>();
+      _bufferedReadCount = 0L;
+      _readCount = 0L;
+    }
+  }
+
+  /**
+   * Finish the refresh. The recorded reads are read ahead for the next refresh once an event is
+   * requested.
+   */
+  public void endRefresh() {
+    synchronized (_lock) {
+      if (_state != State.REFRESHING) {
+        return;
+      }
+      LOG.debug("Refresh took {} of its {} child names and stat reads from the read-ahead",
+          _bufferedReadCount, _readCount);
+      _childNamesReads = _recordedChildNamesReads;
+      _statReads = _recordedStatReads;
+      _recordedChildNamesReads = null;
+      _recordedStatReads = null;
+      _childNamesBuffer.clear();
+      _statBuffer.clear();
+      _messageFences.clear();
+      _state = State.COMPUTING;
+      if (_readAheadRequested) {
+        _readAheadRequested = false;
+        _readAheadWorker.queueEvent(READ_AHEAD_EVENT, _readAheadTask);
+      }
+    }
+  }
+
+  /**
+   * Finish the pipeline of the event. The reads of the events requested from now on are not read
+   * ahead, as they are handled right away.
+   */
+  public void endPipeline() {
+    synchronized (_lock) {
+      endRefresh();
+      _state = State.IDLE;
+      _readAheadRequested = false;
+    }
+  }
+
+  /**
+   * Request the reads of the next refresh to be read ahead, as an event is queued.
+   */
+  public void requestReadAhead() {
+    synchronized (_lock) {
+      switch (_state) {
+      case REFRESHING:
+        _readAheadRequested = true;
+        break;
+      case COMPUTING:
+        _readAheadWorker.queueEvent(READ_AHEAD_EVENT, _readAheadTask);
+        break;
+      default:
+        break;
+      }
+    }
+  }
+
+  /**
+   * Drop the buffered reads of a changed path and of the paths below it.
+   * @param path the changed path, or null if any path may have changed
+   */
+  public void invalidate(String path) {
+    synchronized (_lock) {
+      if (_changedPaths != null) {
+        _changedPaths.add(path);
+      }
+      if (path == null) {
+        _childNamesBuffer.clear();
+        _statBuffer.clear();
+        return;
+      }
+      removePathsBelow(_childNamesBuffer.keySet(), path);
+      removePathsBelow(_statBuffer.keySet(), path);
+    }
+  }
+
+  /**
+   * Drop the buffered current states of the recipients of messages the controller sent. Call it
+   * once the messages are created, so the fences read afterwards include them.
+   * @param messages
+   */
+  public void invalidateRecipients(Collection<Message> messages) {
+    Set<String> instances = new HashSet<>();
+    for (Message message : messages) {
+      instances.add(message.getTgtName());
+    }
+    for (String instance : instances) {
+      invalidate(PropertyPathBuilder.instanceCurrentState(_clusterName, instance));
+    }
+  }
+
+  /**
+   * Stop the read-ahead worker.
+   */
+  public void shutdown() {
+    _readAheadWorker.shutdown();
+  }
+
+  @Override
+  public List<String> getChildNames(PropertyKey key) {
+    if (key.getType() == PropertyType.MESSAGES) {
+      List<String> messageNames = super.getChildNames(key);
+      checkMessageFence(getInstanceName(key), messageNames);
+      return messageNames;
+    }
+    if (!READ_AHEAD_TYPES.contains(key.getType())) {
+      return super.getChildNames(key);
+    }
+    String path = key.getPath();
+    synchronized (_lock) {
+      if (_state == State.REFRESHING) {
+        _recordedChildNamesReads.put(path, key);
+        _readCount++;
+      }
+      List<String> childNames = _childNamesBuffer.remove(path);
+      if (childNames != null) {
+        _bufferedReadCount++;
+        return childNames;
+      }
+    }
+    return super.getChildNames(key);
+  }
+
+  @Override
+  public List<HelixProperty.Stat> getPropertyStats(List<PropertyKey> keys) {
+    if (keys == null || keys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<HelixProperty.Stat> stats = new ArrayList<>(keys.size());
+    List<PropertyKey> keysToRead = new ArrayList<>();
+    List<Integer> indexesToRead = new ArrayList<>();
+    synchronized (_lock) {
+      for (int i = 0; i < keys.size(); i++) {
+        PropertyKey key = keys.get(i);
+        String path = key.getPath();
+        if (READ_AHEAD_TYPES.contains(key.getType())) {
+          if (_state == State.REFRESHING) {
+            _recordedStatReads.put(path, key);
+            _readCount++;
+          }
+          if (_statBuffer.containsKey(path)) {
+            _bufferedReadCount++;
+            stats.add(_statBuffer.remove(path));
+            continue;
+          }
+        }
+        stats.add(null);
+        keysToRead.add(key);
+        indexesToRead.add(i);
+      }
+    }
+    if (!keysToRead.isEmpty()) {
+      List<HelixProperty.Stat> readStats = super.getPropertyStats(keysToRead);
+      for (int i = 0; i < indexesToRead.size(); i++) {
+        stats.set(indexesToRead.get(i), readStats.get(i));
+      }
+    }
+    return stats;
+  }
+
+  /**
+   * @return the number of the reads of the last refresh taken from the read-ahead
+   */
+  public long getBufferedReadCount() {
+    synchronized (_lock) {
+      return _bufferedReadCount;
+    }
+  }
+
+  // For tests
+  int getBufferedPathCount() {
+    synchronized (_lock) {
+      return _childNamesBuffer.size() + _statBuffer.size();
+    }
+  }
+
+  // For tests
+  int getRecordedPathCount() {
+    synchronized (_lock) {
+      return _childNamesReads.size() + _statReads.size();
+    }
+  }
+
+  private void readAhead() {
+    List<PropertyKey> childNamesKeys = new ArrayList<>();
+    List<PropertyKey> statKeys = new ArrayList<>();
+    long refreshCount;
+    synchronized (_lock) {
+      if (_state != State.COMPUTING) {
+        return;
+      }
+      refreshCount = _refreshCount;
+      for (Map.Entry<String, PropertyKey> entry : _childNamesReads.entrySet()) {
+        if (!_childNamesBuffer.containsKey(entry.getKey())) {
+          childNamesKeys.add(entry.getValue());
+        }
+      }
+      for (Map.Entry<String, PropertyKey> entry : _statReads.entrySet()) {
+        if (!_statBuffer.containsKey(entry.getKey())) {
+          statKeys.add(entry.getValue());
+        }
+      }
+      // Track the changes from before the fences are read, so a current state changed after its
+      // fence was read is not buffered
+      _changedPaths = new ArrayList<>();
+    }
+
+    try {
+      if (!readMessageFences(childNamesKeys, refreshCount)) {
+        return;
+      }
+      for (PropertyKey key : childNamesKeys) {
+        if (isRefreshStarted(refreshCount)) {
+          return;
+        }
+        List<String> childNames = super.getChildNames(key);
+        synchronized (_lock) {
+          if (childNames != null && !isChanged(key.getPath())) {
+            _childNamesBuffer.put(key.getPath(), childNames);
+          }
+        }
+      }
+
+      if (statKeys.isEmpty() || !readMessageFences(statKeys, refreshCount)
+          || isRefreshStarted(refreshCount)) {
+        return;
+      }
+      List<HelixProperty.Stat> stats = super.getPropertyStats(statKeys);
+      synchronized (_lock) {
+        for (int i = 0; i < statKeys.size(); i++) {
+          String path = statKeys.get(i).getPath();
+          if (!isChanged(path)) {
+            _statBuffer.put(path, stats.get(i));
+          }
+        }
+      }
+    } finally {
+      synchronized (_lock) {
+        _changedPaths = null;
+      }
+    }
+  }
+
+  /**
+   * Read the messages of the instances whose current states are to be read ahead.
+   * @return false if the next refresh already started
+   */
+  private boolean readMessageFences(List<PropertyKey> keys, long refreshCount) {
+    Set<String> instances = new HashSet<>();
+    for (PropertyKey key : keys) {
+      if (key.getType() == PropertyType.CURRENTSTATES) {
+        instances.add(getInstanceName(key));
+      }
+    }
+    for (String instance : instances) {
+      if (isRefreshStarted(refreshCount)) {
+        return false;
+      }
+      List<String> messageNames = super.getChildNames(keyBuilder().messages(instance));
+      synchronized (_lock) {
+        if (_refreshCount != refreshCount) {
+          return false;
+        }
+        Set<String> fence = _messageFences.get(instance);
+        if (fence == null) {
+          fence = new HashSet<>();
+          _messageFences.put(instance, fence);
+        }
+        fence.addAll(messageNames);
+      }
+    }
+    return true;
+  }
+
+  private void checkMessageFence(String instance, List<String> messageNames) {
+    synchronized (_lock) {
+      Set<String> fence = _messageFences.get(instance);
+      if (fence != null && !messageNames.containsAll(fence)) {
+        _messageFences.remove(instance);
+        invalidate(PropertyPathBuilder.instanceCurrentState(_clusterName, instance));
+      }
+    }
+  }
+
+  private static String getInstanceName(PropertyKey key) {
+    // The params of the keys of the instances are the cluster name, then the instance name
+    return key.getParams()[1];
+  }
+
+  /**
+   * @return true if the next refresh already started, so nothing is to be read ahead any more
+   */
+  private boolean isRefreshStarted(long refreshCount) {
+    synchronized (_lock) {
+      return _refreshCount != refreshCount;
+    }
+  }
+
+  private boolean isChanged(String path) {
+    for (String changedPath : _changedPaths) {
+      if (changedPath == null || isBelow(path, changedPath)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void removePathsBelow(Set<String> paths, String path) {
+    List<String> pathsToRemove = new ArrayList<>();
+    for (String bufferedPath : paths) {
+      if (isBelow(bufferedPath, path)) {
+        pathsToRemove.add(bufferedPath);
+      }
+    }
+    paths.removeAll(pathsToRemove);
+  }
+
+  private static boolean isBelow(String path, String parentPath) {
+    return path.equals(parentPath) || path.startsWith(parentPath + "/");
+  }
+}
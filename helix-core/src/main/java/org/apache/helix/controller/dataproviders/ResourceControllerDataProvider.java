@@ -19,10 +19,13 @@ package org.apache.helix.controller.dataproviders;
  * under the License.
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.PropertyKey;
@@ -31,8 +34,11 @@ import org.apache.helix.common.caches.AbstractDataCache;
 import org.apache.helix.common.caches.PropertyCache;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.pipeline.Pipeline;
+import org.apache.helix.controller.rebalancer.topology.Topology;
 import org.apache.helix.controller.stages.MissingTopStateRecord;
+import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.ResourceAssignment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,6 +68,14 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
   private Map<String, Map<String, MissingTopStateRecord>> _missingTopStateMap;
   private Map<String, Map<String, String>> _lastTopStateLocationMap;
 
+  // maintain a cache of cluster topologies shared by the rebalance strategies, keyed by
+  // (allNodes, liveNodes, instance weights). Cleared once the instances or the cluster config change.
+  private final Map<List<Object>, Topology> _topologyCache = new ConcurrentHashMap<>();
+
+  // instance weights overridden in memory by the rebalance strategy running on the current thread,
+  // so the shared instance configs are never modified while resources are calculated in parallel
+  private final ThreadLocal<Map<String, Integer>> _instanceWeightOverrides = new ThreadLocal<>();
+
   public ResourceControllerDataProvider() {
     this(AbstractDataCache.UNKNOWN_CLUSTER);
   }
@@ -100,10 +114,12 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
         return obj.getResourceName();
       }
     }, true);
-    _resourceAssignmentCache = new HashMap<>();
-    _idealMappingCache = new HashMap<>();
-    _missingTopStateMap = new HashMap<>();
-    _lastTopStateLocationMap = new HashMap<>();
+    // Rebalancers may update these caches concurrently when best possible states are calculated
+    // in parallel
+    _resourceAssignmentCache = new ConcurrentHashMap<>();
+    _idealMappingCache = new ConcurrentHashMap<>();
+    _missingTopStateMap = new ConcurrentHashMap<>();
+    _lastTopStateLocationMap = new ConcurrentHashMap<>();
   }
 
   public synchronized void refresh(HelixDataAccessor accessor) {
@@ -117,9 +133,18 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
       clearCachedResourceAssignments();
     }
 
+    boolean topologyChanged =
+        _propertyDataChangedMap.get(HelixConstants.ChangeType.LIVE_INSTANCE)
+            || _propertyDataChangedMap.get(HelixConstants.ChangeType.INSTANCE_CONFIG);
+    ClusterConfig previousClusterConfig = getClusterConfig();
+
     // Refresh base
     super.refresh(accessor);
 
+    if (topologyChanged || !isSameVersion(previousClusterConfig, getClusterConfig())) {
+      clearCachedTopologies();
+    }
+
     // Refresh resource controller specific property caches
     refreshExternalViews(accessor);
     refreshTargetExternalViews(accessor);
@@ -268,6 +293,83 @@ public class ResourceControllerDataProvider extends BaseControllerDataProvider {
     _idealMappingCache.clear();
   }
 
+  @Override
+  public void setClusterConfig(ClusterConfig clusterConfig) {
+    super.setClusterConfig(clusterConfig);
+    clearCachedTopologies();
+  }
+
+  @Override
+  public void setInstanceConfigMap(Map<String, InstanceConfig> instanceConfigMap) {
+    super.setInstanceConfigMap(instanceConfigMap);
+    clearCachedTopologies();
+  }
+
+  /**
+   * Get the topology of the given nodes. The topology is built once and then shared by the
+   * rebalance strategies until the instances or the cluster config change, so the callers must not
+   * modify it.
+   * @param allNodes all the instances of the topology
+   * @param liveNodes the live instances of the topology
+   * @return the topology
+   */
+  public Topology getTopology(List<String> allNodes, List<String> liveNodes) {
+    Map<String, InstanceConfig> instanceConfigMap = getInstanceConfigMap();
+    // Instance weights can be overridden in memory by the rebalance strategies, e.g.
+    // ConstraintRebalanceStrategy, so they are part of the key.
+    Map<String, Integer> weightOverrides = _instanceWeightOverrides.get();
+    if (weightOverrides != null && !weightOverrides.isEmpty()) {
+      instanceConfigMap = new HashMap<>(instanceConfigMap);
+      for (Map.Entry<String, Integer> override : weightOverrides.entrySet()) {
+        InstanceConfig instanceConfig = instanceConfigMap.get(override.getKey());
+        if (instanceConfig != null) {
+          InstanceConfig instanceConfigCopy =
+              new InstanceConfig(new ZNRecord(instanceConfig.getRecord()));
+          instanceConfigCopy.setWeight(override.getValue());
+          instanceConfigMap.put(override.getKey(), instanceConfigCopy);
+        }
+      }
+    }
+    List<Integer> weights = new ArrayList<>(allNodes.size());
+    for (String node : allNodes) {
+      InstanceConfig instanceConfig = instanceConfigMap.get(node);
+      weights.add(instanceConfig == null ? null : instanceConfig.getWeight());
+    }
+    List<String> allNodesCopy = new ArrayList<>(allNodes);
+    List<String> liveNodesCopy = new ArrayList<>(liveNodes);
+    List<Object> topologyKey = Arrays.<Object>asList(allNodesCopy, liveNodesCopy, weights);
+
+    Topology topology = _topologyCache.get(topologyKey);
+    if (topology == null) {
+      topology = new Topology(allNodesCopy, liveNodesCopy, instanceConfigMap, getClusterConfig());
+      _topologyCache.put(topologyKey, topology);
+    }
+    return topology;
+  }
+
+  /**
+   * Override the weights of the instances in the topologies got by the current thread, without
+   * modifying the cached instance configs.
+   * @param instanceWeights weights by instance name, or null to remove the overrides
+   */
+  public void setInstanceWeightOverrides(Map<String, Integer> instanceWeights) {
+    if (instanceWeights == null) {
+      _instanceWeightOverrides.remove();
+    } else {
+      _instanceWeightOverrides.set(instanceWeights);
+    }
+  }
+
+  public void clearCachedTopologies() {
+    _topologyCache.clear();
+  }
+
+  private static boolean isSameVersion(ClusterConfig config, ClusterConfig otherConfig) {
+    return config == otherConfig || (config != null && otherConfig != null
+        && config.getRecord().getVersion() >= 0
+        && config.getRecord().getVersion() == otherConfig.getRecord().getVersion());
+  }
+
   public void clearMonitoringRecords() {
     _missingTopStateMap.clear();
     _lastTopStateLocationMap.clear();
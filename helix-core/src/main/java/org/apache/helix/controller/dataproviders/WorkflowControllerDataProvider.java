@@ -109,6 +109,12 @@ public class WorkflowControllerDataProvider extends BaseControllerDataProvider {
     dumpDebugInfo();
   }
 
+  @Override
+  public synchronized void requireFullRefresh() {
+    super.requireFullRefresh();
+    _taskDataCache.requireFullRefresh();
+  }
+
   protected void dumpDebugInfo() {
     super.dumpDebugInfo();
     LogUtil.logDebug(logger, getClusterEventId(),
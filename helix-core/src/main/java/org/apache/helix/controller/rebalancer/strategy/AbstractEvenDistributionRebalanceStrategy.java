@@ -95,8 +95,7 @@ public abstract class AbstractEvenDistributionRebalanceStrategy
     // Try to re-assign if the original map is not empty
     if (!origPartitionMap.isEmpty()) {
       Map<String, List<Node>> finalPartitionMap = null;
-      Topology allNodeTopo = new Topology(allNodes, allNodes, clusterData.getInstanceConfigMap(),
-          clusterData.getClusterConfig());
+      Topology allNodeTopo = clusterData.getTopology(allNodes, allNodes);
       // Transform current assignment to instance->partitions map, and get total partitions
       Map<Node, List<String>> nodeToPartitionMap =
           convertPartitionMap(origPartitionMap, allNodeTopo);
@@ -38,7 +38,6 @@ import org.apache.helix.controller.common.ResourcesStateMap;
 import org.apache.helix.controller.rebalancer.constraint.PartitionWeightAwareEvennessConstraint;
 import org.apache.helix.controller.rebalancer.strategy.crushMapping.CardDealingAdjustmentAlgorithmV2;
 import org.apache.helix.controller.rebalancer.topology.Topology;
-import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.Partition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -150,15 +149,6 @@ public class ConstraintRebalanceStrategy extends AbstractEvenDistributionRebalan
   public ZNRecord computePartitionAssignment(final List<String> allNodes,
       final List<String> liveNodes, final Map<String, Map<String, String>> currentMapping,
       ResourceControllerDataProvider clusterData) throws HelixException {
-    // Since instance weight will be replaced by constraint evaluation, record it in advance to avoid
-    // overwriting.
-    Map<String, Integer> instanceWeightRecords = new HashMap<>();
-    for (InstanceConfig instanceConfig : clusterData.getInstanceConfigMap().values()) {
-      if (instanceConfig.getWeight() != InstanceConfig.WEIGHT_NOT_SET) {
-        instanceWeightRecords.put(instanceConfig.getInstanceName(), instanceConfig.getWeight());
-      }
-    }
-
     List<String> candidates = new ArrayList<>(allNodes);
     // Only calculate for configured nodes.
     // Remove all non-configured nodes.
@@ -204,12 +194,6 @@ public class ConstraintRebalanceStrategy extends AbstractEvenDistributionRebalan
       updateConstraints(partition, stateMap, clusterData.getClusterEventId());
     }
 
-    // recover the original weight
-    for (String instanceName : instanceWeightRecords.keySet()) {
-      clusterData.getInstanceConfigMap().get(instanceName)
-          .setWeight(instanceWeightRecords.get(instanceName));
-    }
-
     ZNRecord result = new ZNRecord(_resourceName);
     result.setListFields(preferenceList);
     result.setMapFields(idealStateMap);
@@ -295,17 +279,26 @@ public class ConstraintRebalanceStrategy extends AbstractEvenDistributionRebalan
       }
     }
     // Limit the weight to be at least MIN_INSTANCE_WEIGHT
+    // The weights only override the instance configs in the topologies used by this calculation, the
+    // shared instance configs are not modified.
+    Map<String, Integer> instanceWeights = new HashMap<>();
     for (int i = 0; i < instancePriority.length; i++) {
-      clusterData.getInstanceConfigMap().get(qualifiedNodes.get(i))
-          .setWeight(instancePriority[i] - baseline + MIN_INSTANCE_WEIGHT);
+      instanceWeights
+          .put(qualifiedNodes.get(i), instancePriority[i] - baseline + MIN_INSTANCE_WEIGHT);
     }
 
     // Trigger rebalance only for a single partition.
     // Note that if we do it for the whole resource,
     // the result won't be accurate since the pending assignment won't be updated to constraints.
     super.init(_resourceName, Collections.singletonList(partitionName), _states, _maxPerNode);
-    ZNRecord partitionAssignment = super
-        .computePartitionAssignment(qualifiedNodes, liveNodes, Collections.EMPTY_MAP, clusterData);
+    ZNRecord partitionAssignment;
+    clusterData.setInstanceWeightOverrides(instanceWeights);
+    try {
+      partitionAssignment = super
+          .computePartitionAssignment(qualifiedNodes, liveNodes, Collections.EMPTY_MAP, clusterData);
+    } finally {
+      clusterData.setInstanceWeightOverrides(null);
+    }
 
     return partitionAssignment.getListFields().get(partitionName);
   }
@@ -0,0 +1,173 @@
+package org.apache.helix.controller.rebalancer.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A hierarchical timing wheel of deadlines, keyed by name.
+ * <p>
+ * Time is split into ticks. The first level has one slot per tick, and each next level has one
+ * slot per full turn of the level below, so a deadline is added and removed in constant time
+ * whatever the number of deadlines. When the wheel is advanced, the slots of the higher levels that
+ * come due are cascaded down, and all the deadlines of the ticks passed are returned at once.
+ * <p>
+ * A deadline is never returned before its time, and at most one tick after it. This class is not
+ * thread-safe.
+ */
+class HierarchicalTimerWheel<K> {
+  private static final int SLOT_BITS = 6;
+  private static final int SLOT_COUNT = 1 << SLOT_BITS;
+  private static final long SLOT_MASK = SLOT_COUNT - 1;
+  // 10 levels of 64 slots cover 2^60 ticks
+  private static final int LEVEL_COUNT = 10;
+
+  private final long _tickMs;
+  private final List<List<Set<K>>> _levels = new ArrayList<>(LEVEL_COUNT);
+  // Keys already due when added, returned by the next advance
+  private final Set<K> _expired = new HashSet<>();
+  private final Map<K, Long> _deadlines = new HashMap<>();
+  private final Map<K, Set<K>> _slots = new HashMap<>();
+  private long _currentTick;
+
+  /**
+   * @param tickMs the length of a tick in milliseconds
+   * @param startTime the time the wheel starts at
+   */
+  HierarchicalTimerWheel(long tickMs, long startTime) {
+    if (tickMs <= 0) {
+      throw new IllegalArgumentException("Tick length must be positive: " + tickMs);
+    }
+    _tickMs = tickMs;
+    _currentTick = startTime / tickMs;
+    for (int level = 0; level < LEVEL_COUNT; level++) {
+      List<Set<K>> slots = new ArrayList<>(SLOT_COUNT);
+      for (int slot = 0; slot < SLOT_COUNT; slot++) {
+        slots.add(new HashSet<K>());
+      }
+      _levels.add(slots);
+    }
+  }
+
+  /**
+   * Add a deadline, replacing the existing deadline of the key.
+   * @param key
+   * @param deadline time in milliseconds
+   */
+  void add(K key, long deadline) {
+    remove(key);
+    _deadlines.put(key, deadline);
+    place(key, deadline);
+  }
+
+  /**
+   * Remove the deadline of the key.
+   * @param key
+   * @return the removed deadline, or -1 if the key has no deadline
+   */
+  long remove(K key) {
+    Long deadline = _deadlines.remove(key);
+    if (deadline == null) {
+      return -1L;
+    }
+    _slots.remove(key).remove(key);
+    return deadline;
+  }
+
+  /**
+   * @param key
+   * @return the deadline of the key, or -1 if the key has no deadline
+   */
+  long getDeadline(K key) {
+    Long deadline = _deadlines.get(key);
+    return deadline == null ? -1L : deadline;
+  }
+
+  /**
+   * @return the number of deadlines in the wheel
+   */
+  int size() {
+    return _deadlines.size();
+  }
+
+  /**
+   * Advance the wheel to the given time, and remove the deadlines that are due.
+   * @param currentTime time in milliseconds
+   * @return key -> deadline of the deadlines that are due
+   */
+  Map<K, Long> advance(long currentTime) {
+    Map<K, Long> due = new HashMap<>();
+    collect(_expired, due);
+    long targetTick = currentTime / _tickMs;
+    while (_currentTick < targetTick) {
+      _currentTick++;
+      // A level is cascaded each time all the levels below it complete a turn
+      for (int level = 1; level < LEVEL_COUNT; level++) {
+        if ((_currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+          break;
+        }
+        Set<K> slot = _levels.get(level).get(slotIndex(_currentTick, level));
+        List<K> keys = new ArrayList<>(slot);
+        slot.clear();
+        for (K key : keys) {
+          place(key, _deadlines.get(key));
+        }
+      }
+      collect(_levels.get(0).get(slotIndex(_currentTick, 0)), due);
+      collect(_expired, due);
+    }
+    return due;
+  }
+
+  private void place(K key, long deadline) {
+    // Deadlines are rounded up to the tick, so they do not fire early
+    long deadlineTick = deadline / _tickMs + (deadline % _tickMs > 0 ? 1 : 0);
+    long ticks = deadlineTick - _currentTick;
+    Set<K> slot;
+    if (ticks <= 0) {
+      slot = _expired;
+    } else {
+      int level = 0;
+      while (level < LEVEL_COUNT - 1 && ticks >= 1L << (SLOT_BITS * (level + 1))) {
+        level++;
+      }
+      slot = _levels.get(level).get(slotIndex(deadlineTick, level));
+    }
+    slot.add(key);
+    _slots.put(key, slot);
+  }
+
+  private void collect(Set<K> slot, Map<K, Long> due) {
+    for (K key : slot) {
+      due.put(key, _deadlines.remove(key));
+      _slots.remove(key);
+    }
+    slot.clear();
+  }
+
+  private static int slotIndex(long tick, int level) {
+    return (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+  }
+}
@@ -9,8 +9,8 @@ import org.apache.helix.model.ResourceConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
@@ -41,7 +41,8 @@ public class RebalanceScheduler {
     }
   }
 
-  private final Map<String, ScheduledTask> _rebalanceTasks = new HashMap<String, ScheduledTask>();
+  private final Map<String, ScheduledTask> _rebalanceTasks =
+      new ConcurrentHashMap<String, ScheduledTask>();
   private final ScheduledExecutorService _rebalanceExecutor =
       Executors.newSingleThreadScheduledExecutor();
 
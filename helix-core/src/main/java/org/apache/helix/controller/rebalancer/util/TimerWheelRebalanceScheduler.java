@@ -0,0 +1,156 @@
+package org.apache.helix.controller.rebalancer.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.apache.helix.HelixManager;
+import org.apache.helix.controller.GenericHelixController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link RebalanceScheduler} that keeps the deadlines of all the resources in a
+ * {@link HierarchicalTimerWheel}, instead of one executor task per resource.
+ * <p>
+ * The wheel is advanced once per tick. All the deadlines due in the tick are handed in one batch to
+ * the controller of their cluster, which runs a single OnDemandRebalance task pipeline for them,
+ * rather than each deadline touching the ideal state of its resource and triggering a pipeline of
+ * its own. If no controller in this process leads the task pipeline with the manager that
+ * scheduled the deadlines, the ideal states are touched as before.
+ */
+public class TimerWheelRebalanceScheduler extends RebalanceScheduler {
+  private static final Logger LOG = LoggerFactory.getLogger(TimerWheelRebalanceScheduler.class);
+
+  private final long _tickMs;
+  private final HierarchicalTimerWheel<String> _wheel;
+  // Resource -> the manager that scheduled its deadline
+  private final Map<String, HelixManager> _managers = new HashMap<>();
+  private ScheduledExecutorService _ticker;
+
+  /**
+   * @param tickMs the length of a tick in milliseconds
+   */
+  public TimerWheelRebalanceScheduler(long tickMs) {
+    _tickMs = tickMs;
+    _wheel = new HierarchicalTimerWheel<>(tickMs, System.currentTimeMillis());
+  }
+
+  @Override
+  public synchronized void scheduleRebalance(HelixManager manager, String resource,
+      long startTime) {
+    // Do nothing if there is already a deadline set for the resource with the same start time.
+    if (_wheel.getDeadline(resource) == startTime) {
+      LOG.debug("Schedule timer for job: {} is up to date.", resource);
+      return;
+    }
+    LOG.info("Schedule rebalance for resource : {} at time: {} delay: {}", resource, startTime,
+        startTime - System.currentTimeMillis());
+    _wheel.add(resource, startTime);
+    _managers.put(resource, manager);
+    if (_ticker == null) {
+      _ticker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "TimerWheelRebalanceScheduler");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      // The ticks are aligned to the tick boundaries, so the deadlines on them fire on time
+      _ticker.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          // An exception would cancel the following ticks
+          try {
+            tick();
+          } catch (Throwable t) {
+            LOG.error("Failed to fire the due rebalance timers", t);
+          }
+        }
+      }, _tickMs - System.currentTimeMillis() % _tickMs, _tickMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public synchronized long getRebalanceTime(String resource) {
+    return _wheel.getDeadline(resource);
+  }
+
+  @Override
+  public synchronized long removeScheduledRebalance(String resource) {
+    _managers.remove(resource);
+    long startTime = _wheel.remove(resource);
+    if (startTime != -1L) {
+      LOG.info("Remove scheduled rebalance task at time: {} for resource: {}", startTime,
+          resource);
+    }
+    return startTime;
+  }
+
+  private void tick() {
+    // The deadlines are grouped by the manager that scheduled them, so each batch goes to the
+    // controller of its own cluster
+    Map<HelixManager, Map<String, Long>> batches = new IdentityHashMap<>();
+    synchronized (this) {
+      for (Map.Entry<String, Long> entry : _wheel.advance(System.currentTimeMillis())
+          .entrySet()) {
+        HelixManager manager = _managers.remove(entry.getKey());
+        Map<String, Long> batch = batches.get(manager);
+        if (batch == null) {
+          batch = new HashMap<>();
+          batches.put(manager, batch);
+        }
+        batch.put(entry.getKey(), entry.getValue());
+      }
+    }
+    // The managers of the batches may be disconnected already, so one batch failing does not stop
+    // the others
+    for (Map.Entry<HelixManager, Map<String, Long>> batch : batches.entrySet()) {
+      try {
+        fire(batch.getKey(), batch.getValue());
+      } catch (Exception e) {
+        LOG.error("Failed to fire rebalance timers for {}", batch.getValue().keySet(), e);
+      }
+    }
+  }
+
+  private void fire(HelixManager manager, Map<String, Long> dueTimers) {
+    GenericHelixController controller =
+        GenericHelixController.getController(manager.getClusterName());
+    if (controller != null && controller.onDemandTaskRebalance(manager, dueTimers)) {
+      LOG.info("Fired {} rebalance timers of cluster {} in one pipeline", dueTimers.size(),
+          manager.getClusterName());
+      return;
+    }
+    for (String resource : dueTimers.keySet()) {
+      try {
+        invokeRebalance(manager.getHelixDataAccessor(), resource);
+      } catch (Exception e) {
+        LOG.error("Failed to invoke rebalance for resource {}", resource, e);
+      }
+    }
+  }
+}
@@ -38,5 +38,8 @@ public enum AttributeName {
   AsyncFIFOWorkerPool,
   PipelineType,
   LastRebalanceFinishTimeStamp,
-  ControllerDataProvider
+  ControllerDataProvider,
+  ReadAheadDataAccessor,
+  EarliestNotificationTime,
+  DUE_TASK_TIMERS
 }
@@ -21,9 +21,18 @@ package org.apache.helix.controller.stages;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
 import org.apache.helix.controller.LogUtil;
@@ -57,6 +66,26 @@ import org.slf4j.LoggerFactory;
 public class BestPossibleStateCalcStage extends AbstractBaseStage {
   private static final Logger logger = LoggerFactory.getLogger(BestPossibleStateCalcStage.class.getName());
 
+  // Shared by the pipelines of all the controllers in the JVM. The threads are daemon threads and
+  // time out when idle, so the pool does not need to be shut down.
+  private static final ThreadPoolExecutor COMPUTE_THREAD_POOL =
+      new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactory() {
+            private final AtomicInteger _threadCount = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+              Thread thread =
+                  new Thread(r, "BestPossibleStateCalc-" + _threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+
+  static {
+    COMPUTE_THREAD_POOL.allowCoreThreadTimeOut(true);
+  }
+
   @Override
   public void process(ClusterEvent event) throws Exception {
     _eventId = event.getEventId();
@@ -112,23 +141,20 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
         (HelixManager) event.getAttribute(AttributeName.helixmanager.name()));
 
     final List<String> failureResources = new ArrayList<>();
-    Iterator<Resource> itr = resourceMap.values().iterator();
-    while (itr.hasNext()) {
-      Resource resource = itr.next();
-      boolean result = false;
-      try {
-        result =
-            computeResourceBestPossibleState(event, cache, currentStateOutput, resource, output);
-      } catch (HelixException ex) {
-        LogUtil.logError(logger, _eventId,
-            "Exception when calculating best possible states for " + resource.getResourceName(),
-            ex);
-
-      }
-      if (!result) {
-        failureResources.add(resource.getResourceName());
-        LogUtil.logWarn(logger, _eventId,
-            "Failed to calculate best possible states for " + resource.getResourceName());
+    int parallelism = cache.getClusterConfig() == null ? 1
+        : cache.getClusterConfig().getBestPossibleCalcParallelism();
+    if (parallelism > 1 && resourceMap.size() > 1) {
+      computeInParallel(event, cache, currentStateOutput, resourceMap, output, failureResources,
+          parallelism);
+    } else {
+      Iterator<Resource> itr = resourceMap.values().iterator();
+      while (itr.hasNext()) {
+        Resource resource = itr.next();
+        boolean result = computeResourceBestPossibleStateSafely(event, cache, currentStateOutput,
+            resource, output);
+        if (!result) {
+          failureResources.add(resource.getResourceName());
+        }
       }
     }
 
@@ -140,6 +166,98 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     return output;
   }
 
+  /**
+   * Compute the best possible states of the resources on the compute thread pool. Each resource is
+   * calculated into its own output, then the results are merged following the iteration order of
+   * the resource map so the output and the failure list are the same as the sequential calculation.
+   */
+  private void computeInParallel(final ClusterEvent event,
+      final ResourceControllerDataProvider cache, final CurrentStateOutput currentStateOutput,
+      Map<String, Resource> resourceMap, BestPossibleStateOutput output,
+      List<String> failureResources, int parallelism) {
+    ExecutorService computeThreadPool = getComputeThreadPool(parallelism);
+    Map<String, Future<BestPossibleStateOutput>> futures = new LinkedHashMap<>();
+    for (final Resource resource : resourceMap.values()) {
+      futures.put(resource.getResourceName(), computeThreadPool.submit(new Callable<BestPossibleStateOutput>() {
+        @Override
+        public BestPossibleStateOutput call() {
+          BestPossibleStateOutput resourceOutput = new BestPossibleStateOutput();
+          if (computeResourceBestPossibleStateSafely(event, cache, currentStateOutput, resource,
+              resourceOutput)) {
+            return resourceOutput;
+          }
+          return null;
+        }
+      }));
+    }
+
+    for (Map.Entry<String, Future<BestPossibleStateOutput>> entry : futures.entrySet()) {
+      String resourceName = entry.getKey();
+      BestPossibleStateOutput resourceOutput;
+      try {
+        resourceOutput = entry.getValue().get();
+      } catch (InterruptedException e) {
+        for (Future<BestPossibleStateOutput> future : futures.values()) {
+          future.cancel(true);
+        }
+        Thread.currentThread().interrupt();
+        throw new HelixException(
+            "Interrupted while calculating best possible states for " + resourceName, e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw new HelixException(
+            "Failed to calculate best possible states for " + resourceName, e.getCause());
+      }
+
+      if (resourceOutput == null) {
+        failureResources.add(resourceName);
+        continue;
+      }
+      if (resourceOutput.containsResource(resourceName)) {
+        output.setPreferenceLists(resourceName, resourceOutput.getPreferenceLists(resourceName));
+      }
+      if (resourceOutput.getResourceStatesMap().containsKey(resourceName)) {
+        output.setState(resourceName, resourceOutput.getPartitionStateMap(resourceName));
+      }
+    }
+  }
+
+  /**
+   * Get the shared compute thread pool, grown to the given parallelism if it is smaller. The pool
+   * keeps the largest parallelism requested by the controllers of the JVM.
+   */
+  private static ExecutorService getComputeThreadPool(int parallelism) {
+    synchronized (COMPUTE_THREAD_POOL) {
+      if (COMPUTE_THREAD_POOL.getMaximumPoolSize() < parallelism) {
+        COMPUTE_THREAD_POOL.setMaximumPoolSize(parallelism);
+        COMPUTE_THREAD_POOL.setCorePoolSize(parallelism);
+      }
+    }
+    return COMPUTE_THREAD_POOL;
+  }
+
+  private boolean computeResourceBestPossibleStateSafely(ClusterEvent event,
+      ResourceControllerDataProvider cache, CurrentStateOutput currentStateOutput,
+      Resource resource, BestPossibleStateOutput output) {
+    boolean result = false;
+    try {
+      result = computeResourceBestPossibleState(event, cache, currentStateOutput, resource, output);
+    } catch (HelixException ex) {
+      LogUtil.logError(logger, _eventId,
+          "Exception when calculating best possible states for " + resource.getResourceName(), ex);
+    }
+    if (!result) {
+      LogUtil.logWarn(logger, _eventId,
+          "Failed to calculate best possible states for " + resource.getResourceName());
+    }
+    return result;
+  }
+
   private void updateRebalanceStatus(final boolean hasFailure, final List<String> failedResources,
       final HelixManager helixManager, final ResourceControllerDataProvider cache,
       final ClusterStatusMonitor clusterStatusMonitor, final String errorMessage) {
@@ -22,7 +22,6 @@ package org.apache.helix.controller.stages;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.common.caches.CurrentStateCache;
@@ -62,8 +61,6 @@ public class ClusterDataCache extends ResourceControllerDataProvider {
   private TaskDataCache _taskDataCache;
   private InstanceMessagesCache _instanceMessagesCache;
 
-  private Map<ChangeType, Boolean> _propertyDataChangedMap;
-
   boolean _isTaskCache;
   private String _clusterName;
 
@@ -74,9 +71,8 @@ public class ClusterDataCache extends ResourceControllerDataProvider {
 
   @Deprecated
   public ClusterDataCache(String clusterName) {
-    _propertyDataChangedMap = new ConcurrentHashMap<>();
     for (ChangeType type : ChangeType.values()) {
-      _propertyDataChangedMap.put(type, true);
+      notifyDataChange(type);
     }
     _clusterName = clusterName;
     _idealStateCache = new IdealStateCache(_clusterName);
@@ -22,6 +22,7 @@ package org.apache.helix.controller.stages;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.Message;
@@ -337,6 +338,22 @@ public class CurrentStateOutput {
     return Collections.emptyMap();
   }
 
+  /**
+   * Given resource, returns the number of its pending messages
+   * @param resourceName
+   * @return number of pending messages of all the partitions of the resource
+   */
+  public int getPendingMessageCount(String resourceName) {
+    int count = 0;
+    Map<Partition, Map<String, Message>> map = _pendingMessageMap.get(resourceName);
+    if (map != null) {
+      for (Map<String, Message> messages : map.values()) {
+        count += messages.size();
+      }
+    }
+    return count;
+  }
+
   /**
    * Get the partitions mapped in the current state
    * @param resourceId resource to look up
@@ -409,6 +426,25 @@ public class CurrentStateOutput {
     return currentPartitionCount;
   }
 
+  /**
+   * Check whether the given resource has the same current states, pending messages, cancellation
+   * messages, requested states and infos in this and the other output.
+   * @param resourceName
+   * @param other
+   * @return true if the states of the resource are the same
+   */
+  public boolean hasSameResourceState(String resourceName, CurrentStateOutput other) {
+    return Objects.equals(_currentStateMap.get(resourceName),
+        other._currentStateMap.get(resourceName))
+        && Objects.equals(_pendingMessageMap.get(resourceName),
+        other._pendingMessageMap.get(resourceName))
+        && Objects.equals(_cancellationMessageMap.get(resourceName),
+        other._cancellationMessageMap.get(resourceName))
+        && Objects.equals(_requestedStateMap.get(resourceName),
+        other._requestedStateMap.get(resourceName))
+        && Objects.equals(_infoMap.get(resourceName), other._infoMap.get(resourceName));
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
@@ -0,0 +1,195 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.model.StateModelDefinition;
+
+/**
+ * Tracks the inputs of the external views computed by {@link ExternalViewComputeStage}, so that
+ * the view of a resource is only computed again when one of its inputs changed.
+ * <p>
+ * The view of a resource is computed if:
+ * <ul>
+ * <li>one of its current states was reloaded, added or removed, including by a live instance
+ * joining, leaving or starting a new session</li>
+ * <li>its ideal state, resource config or state model definition was reloaded</li>
+ * <li>its cached external view is not the one the last computation left in the cache</li>
+ * <li>the number of its pending messages changed, which the resource monitor reports</li>
+ * <li>its last computation failed, or it was never computed</li>
+ * </ul>
+ * The cache reuses the objects it holds until they are reloaded, so the inputs are compared by
+ * identity, except for the state model definitions, which are reloaded on every refresh. The
+ * views of all the resources are computed at least once per full reconciliation interval.
+ */
+class ExternalViewChangeTracker {
+  private final long _fullReconcileInterval;
+  private long _lastFullReconcileTime = -1L;
+
+  // Instance -> current state name -> the current state of the last computation
+  private Map<String, Map<String, CurrentState>> _currentStates = new HashMap<>();
+  // Resource -> the inputs of its last computed view
+  private final Map<String, ViewInputs> _viewInputs = new HashMap<>();
+
+  private static class ViewInputs {
+    IdealState _idealState;
+    ResourceConfig _resourceConfig;
+    StateModelDefinition _stateModelDef;
+    ExternalView _externalView;
+    int _pendingMessageCount;
+    boolean _monitored;
+  }
+
+  ExternalViewChangeTracker(long fullReconcileInterval) {
+    _fullReconcileInterval = fullReconcileInterval;
+  }
+
+  /**
+   * Compute the resources whose views are to be computed in this pipeline. Their views are
+   * computed again in the next pipeline, unless they are recorded as computed.
+   * @param cache
+   * @param resourceNames names of the resources to rebalance
+   * @param currentStateOutput
+   * @return the names of the resources to compute, or null if all of them are to be computed
+   */
+  Set<String> getResourcesToCompute(ResourceControllerDataProvider cache,
+      Collection<String> resourceNames, CurrentStateOutput currentStateOutput) {
+    Set<String> changedResources = updateCurrentStates(cache);
+    long currentTime = System.currentTimeMillis();
+    if (_lastFullReconcileTime < 0
+        || currentTime - _lastFullReconcileTime >= _fullReconcileInterval) {
+      _lastFullReconcileTime = currentTime;
+      _viewInputs.clear();
+      return null;
+    }
+
+    Map<String, ExternalView> externalViews = cache.getExternalViews();
+    Set<String> resourcesToCompute = new HashSet<>();
+    for (String resourceName : resourceNames) {
+      ViewInputs inputs = _viewInputs.get(resourceName);
+      if (inputs == null || changedResources.contains(resourceName)
+          || inputs._idealState != cache.getIdealState(resourceName)
+          || inputs._resourceConfig != cache.getResourceConfig(resourceName)
+          || !isSameStateModelDef(inputs._stateModelDef,
+          getStateModelDef(cache, inputs._idealState))
+          || inputs._externalView != externalViews.get(resourceName)
+          || inputs._pendingMessageCount != currentStateOutput
+          .getPendingMessageCount(resourceName)) {
+        resourcesToCompute.add(resourceName);
+        // Recorded again once computed, so a failed computation is retried in the next pipeline
+        _viewInputs.remove(resourceName);
+      }
+    }
+    return resourcesToCompute;
+  }
+
+  /**
+   * Record the inputs of the computed views, once the views are written and cached.
+   * @param cache
+   * @param computedResources the resources whose views were computed successfully
+   * @param resourceNames names of the resources to rebalance
+   * @param currentStateOutput
+   * @param monitoringResources the resources reported by the cluster status monitor
+   */
+  void recordComputed(ResourceControllerDataProvider cache, Collection<String> computedResources,
+      Collection<String> resourceNames, CurrentStateOutput currentStateOutput,
+      Set<String> monitoringResources) {
+    _viewInputs.keySet().retainAll(resourceNames);
+    Map<String, ExternalView> externalViews = cache.getExternalViews();
+    for (String resourceName : computedResources) {
+      ViewInputs inputs = new ViewInputs();
+      inputs._idealState = cache.getIdealState(resourceName);
+      inputs._resourceConfig = cache.getResourceConfig(resourceName);
+      inputs._stateModelDef = getStateModelDef(cache, inputs._idealState);
+      inputs._externalView = externalViews.get(resourceName);
+      inputs._pendingMessageCount = currentStateOutput.getPendingMessageCount(resourceName);
+      inputs._monitored = monitoringResources.contains(resourceName);
+      _viewInputs.put(resourceName, inputs);
+    }
+  }
+
+  /**
+   * @param resourceName
+   * @return true if the resource was reported by the cluster status monitor in its last computation
+   */
+  boolean isMonitored(String resourceName) {
+    ViewInputs inputs = _viewInputs.get(resourceName);
+    return inputs != null && inputs._monitored;
+  }
+
+  /**
+   * Take the current states of the live instances, and return the resources whose current states
+   * changed since the last call.
+   */
+  private Set<String> updateCurrentStates(ResourceControllerDataProvider cache) {
+    Set<String> changedResources = new HashSet<>();
+    Map<String, Map<String, CurrentState>> currentStates = new HashMap<>();
+    for (LiveInstance liveInstance : cache.getLiveInstances().values()) {
+      String instanceName = liveInstance.getInstanceName();
+      Map<String, CurrentState> instanceStates =
+          cache.getCurrentState(instanceName, liveInstance.getSessionId());
+      Map<String, CurrentState> lastInstanceStates = _currentStates.remove(instanceName);
+      if (lastInstanceStates == null) {
+        lastInstanceStates = Collections.emptyMap();
+      }
+      for (Map.Entry<String, CurrentState> entry : instanceStates.entrySet()) {
+        if (lastInstanceStates.get(entry.getKey()) != entry.getValue()) {
+          changedResources.add(entry.getValue().getResourceName());
+        }
+      }
+      for (Map.Entry<String, CurrentState> entry : lastInstanceStates.entrySet()) {
+        if (!instanceStates.containsKey(entry.getKey())) {
+          changedResources.add(entry.getValue().getResourceName());
+        }
+      }
+      currentStates.put(instanceName, instanceStates);
+    }
+    // The instances left
+    for (Map<String, CurrentState> lastInstanceStates : _currentStates.values()) {
+      for (CurrentState currentState : lastInstanceStates.values()) {
+        changedResources.add(currentState.getResourceName());
+      }
+    }
+    _currentStates = currentStates;
+    return changedResources;
+  }
+
+  private static boolean isSameStateModelDef(StateModelDefinition stateModelDef,
+      StateModelDefinition other) {
+    return stateModelDef == other || stateModelDef != null && other != null && stateModelDef
+        .getRecord().equals(other.getRecord());
+  }
+
+  private static StateModelDefinition getStateModelDef(ResourceControllerDataProvider cache,
+      IdealState idealState) {
+    return idealState == null ? null : cache.getStateModelDef(idealState.getStateModelDefRef());
+  }
+}
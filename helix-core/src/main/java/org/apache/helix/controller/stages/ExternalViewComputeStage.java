@@ -29,13 +29,17 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 
+import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixDefinedState;
 import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.ZNRecord;
+import org.apache.helix.ZNRecordBucketizer;
 import org.apache.helix.ZNRecordDelta;
 import org.apache.helix.ZNRecordDelta.MergeOperation;
 import org.apache.helix.controller.LogUtil;
@@ -59,6 +63,11 @@ import org.slf4j.LoggerFactory;
 
 public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
   private static Logger LOG = LoggerFactory.getLogger(ExternalViewComputeStage.class);
+  private final ExternalViewChangeTracker _changeTracker =
+      Boolean.getBoolean(SystemPropertyKeys.CONTROLLER_INCREMENTAL_EXTERNAL_VIEW_ENABLED)
+          ? new ExternalViewChangeTracker(
+          Long.getLong(SystemPropertyKeys.CONTROLLER_EXTERNAL_VIEW_FULL_RECONCILE_INTERVAL, 60000L))
+          : null;
 
   @Override
   public AsyncWorkerType getAsyncWorkerType() {
@@ -90,15 +99,34 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
 
     Map<String, ExternalView> curExtViews = cache.getExternalViews();
 
+    Set<String> resourcesToCompute = null;
+    if (_changeTracker != null) {
+      resourcesToCompute =
+          _changeTracker.getResourcesToCompute(cache, resourceMap.keySet(), currentStateOutput);
+    }
+    List<String> computedResources = new ArrayList<>();
     for (Resource resource : resourceMap.values()) {
+      String resourceName = resource.getResourceName();
+      // Nothing the view depends on changed, so the view and its monitor are up to date
+      if (resourcesToCompute != null && !resourcesToCompute.contains(resourceName)) {
+        if (_changeTracker.isMonitored(resourceName)) {
+          monitoringResources.add(resourceName);
+        }
+        continue;
+      }
       try {
         computeExternalView(resource, currentStateOutput, cache, clusterStatusMonitor, curExtViews,
             manager, monitoringResources, newExtViews);
+        computedResources.add(resourceName);
       } catch (HelixException ex) {
         LogUtil.logError(LOG, _eventId,
-            "Failed to calculate external view for resource " + resource.getResourceName(), ex);
+            "Failed to calculate external view for resource " + resourceName, ex);
       }
     }
+    if (clusterStatusMonitor != null) {
+      clusterStatusMonitor.updateExternalViewComputeCounts(computedResources.size(),
+          resourceMap.size() - computedResources.size());
+    }
 
     // Keep MBeans for existing resources and unregister MBeans for dropped resources
     if (clusterStatusMonitor != null) {
@@ -132,7 +160,22 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
 
     // add/update external-views
     if (newExtViews.size() > 0) {
-      dataAccessor.setChildren(keys, newExtViews);
+      List<PropertyKey> fullWriteKeys = new ArrayList<>();
+      List<ExternalView> fullWriteViews = new ArrayList<>();
+      for (int i = 0; i < newExtViews.size(); i++) {
+        ExternalView view = newExtViews.get(i);
+        ExternalView curExtView = curExtViews.get(view.getResourceName());
+        if (view.getBucketSize() > 0 && curExtView != null
+            && curExtView.getBucketSize() == view.getBucketSize()) {
+          writeChangedBuckets(dataAccessor, keys.get(i), view, curExtView);
+        } else {
+          fullWriteKeys.add(keys.get(i));
+          fullWriteViews.add(view);
+        }
+      }
+      if (fullWriteKeys.size() > 0) {
+        dataAccessor.setChildren(fullWriteKeys, fullWriteViews);
+      }
       cache.updateExternalViews(newExtViews);
     }
 
@@ -145,6 +188,59 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
       }
     }
     cache.removeExternalViews(externalViewsToRemove);
+
+    if (_changeTracker != null) {
+      _changeTracker.recordComputed(cache, computedResources, resourceMap.keySet(),
+          currentStateOutput, monitoringResources);
+      if (resourcesToCompute != null) {
+        LogUtil.logInfo(LOG, _eventId, String
+            .format("Computed external views of %d of %d resources", computedResources.size(),
+                resourceMap.size()));
+      }
+    }
+  }
+
+  /**
+   * Write only the buckets of a bucketized external view that differ from the current view, and
+   * remove the buckets left empty. The parent node is written last, so the listeners notified of
+   * its change read the updated buckets.
+   */
+  private void writeChangedBuckets(HelixDataAccessor dataAccessor, PropertyKey key,
+      ExternalView view, ExternalView curExtView) {
+    ZNRecordBucketizer bucketizer = new ZNRecordBucketizer(view.getBucketSize());
+    Map<String, ZNRecord> buckets = bucketizer.bucketize(view.getRecord());
+    Map<String, ZNRecord> curBuckets = bucketizer.bucketize(curExtView.getRecord());
+    String path = key.getPath();
+
+    List<String> bucketPaths = new ArrayList<>();
+    List<ZNRecord> bucketRecords = new ArrayList<>();
+    for (Map.Entry<String, ZNRecord> bucket : buckets.entrySet()) {
+      if (!bucket.getValue().equals(curBuckets.get(bucket.getKey()))) {
+        bucketPaths.add(path + "/" + bucket.getKey());
+        bucketRecords.add(bucket.getValue());
+      }
+    }
+    List<String> removedBucketPaths = new ArrayList<>();
+    for (String bucketName : curBuckets.keySet()) {
+      if (!buckets.containsKey(bucketName)) {
+        removedBucketPaths.add(path + "/" + bucketName);
+      }
+    }
+
+    BaseDataAccessor<ZNRecord> baseAccessor = dataAccessor.getBaseDataAccessor();
+    if (bucketPaths.size() > 0) {
+      baseAccessor.setChildren(bucketPaths, bucketRecords, AccessOption.PERSISTENT);
+    }
+    if (removedBucketPaths.size() > 0) {
+      baseAccessor.remove(removedBucketPaths, 0);
+    }
+    ZNRecord metaRecord = new ZNRecord(view.getId());
+    metaRecord.setSimpleFields(view.getRecord().getSimpleFields());
+    baseAccessor.set(path, metaRecord, AccessOption.PERSISTENT);
+    LogUtil.logDebug(LOG, _eventId, String
+        .format("Wrote %d and removed %d of %d buckets of externalView for resource %s",
+            bucketPaths.size(), removedBucketPaths.size(), buckets.size(),
+            view.getResourceName()));
   }
 
   private void computeExternalView(final Resource resource,
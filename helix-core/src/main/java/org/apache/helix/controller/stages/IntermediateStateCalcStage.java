@@ -28,10 +28,18 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.helix.HelixDefinedState;
 import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
-import org.apache.helix.api.config.StateTransitionThrottleConfig;
 import org.apache.helix.api.config.StateTransitionThrottleConfig.RebalanceType;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
@@ -43,6 +51,7 @@ import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.IdealState;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.MaintenanceSignal;
+import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
 import org.apache.helix.model.StateModelDefinition;
@@ -59,6 +68,24 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
   private static final Logger logger =
       LoggerFactory.getLogger(IntermediateStateCalcStage.class.getName());
 
+  private static final ThreadPoolExecutor COMPUTE_THREAD_POOL =
+      new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactory() {
+            private final AtomicInteger _threadCount = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+              Thread thread =
+                  new Thread(r, "IntermediateStateCalc-" + _threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+
+  static {
+    COMPUTE_THREAD_POOL.allowCoreThreadTimeOut(true);
+  }
+
   @Override
   public void process(ClusterEvent event) throws Exception {
     _eventId = event.getEventId();
@@ -144,8 +171,10 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
         event.getAttribute(AttributeName.clusterStatusMonitor.name());
     List<String> failedResources = new ArrayList<>();
 
-    // Priority is applied in assignment computation because higher priority by looping in order of
-    // decreasing priority
+    // Resolve the resources to compute in priority order. Throttling is applied only on FULL-AUTO
+    // mode, so only those resources need a state table
+    Map<String, IdealState> resourcesToCompute = new LinkedHashMap<>();
+    Set<String> throttledResources = new HashSet<>();
     for (ResourcePriority resourcePriority : prioritizedResourceList) {
       String resourceName = resourcePriority.getResourceName();
 
@@ -166,13 +195,44 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
         idealState = new IdealState(resourceName);
         idealState.setStateModelDefRef(resource.getStateModelDefRef());
       }
+      resourcesToCompute.put(resourceName, idealState);
+      if (throttleController.isThrottleEnabled()
+          && IdealState.RebalanceMode.FULL_AUTO.equals(idealState.getRebalanceMode())) {
+        throttledResources.add(resourceName);
+      }
+    }
+
+    // The state tables only read the cache and the stage inputs, so they are built in parallel.
+    // The throttle controller is then charged resource by resource in priority order, the same
+    // way as in the sequential calculation.
+    int parallelism = dataCache.getClusterConfig().getIntermediateStateCalcParallelism();
+    Map<String, Future<ResourceStateTable>> stateTableFutures = Collections.emptyMap();
+    if (parallelism > 1 && throttledResources.size() > 1) {
+      stateTableFutures = buildStateTablesInParallel(dataCache, throttledResources,
+          resourcesToCompute, resourceMap, currentStateOutput, bestPossibleStateOutput,
+          parallelism);
+    }
+    Set<String> enabledLiveInstances = dataCache.getEnabledLiveInstances();
+
+    // Priority is applied in assignment computation because higher priority by looping in order of
+    // decreasing priority
+    for (Map.Entry<String, IdealState> entry : resourcesToCompute.entrySet()) {
+      String resourceName = entry.getKey();
+      PartitionStateMap bestPossiblePartitionStateMap =
+          bestPossibleStateOutput.getPartitionStateMap(resourceName);
+      if (!throttledResources.contains(resourceName)) {
+        output.setState(resourceName, bestPossiblePartitionStateMap);
+        continue;
+      }
 
       try {
+        ResourceStateTable stateTable = stateTableFutures.containsKey(resourceName)
+            ? getStateTable(resourceName, stateTableFutures)
+            : buildStateTable(dataCache, entry.getValue(), resourceMap.get(resourceName),
+                currentStateOutput, bestPossibleStateOutput, enabledLiveInstances);
         output.setState(resourceName,
-            computeIntermediatePartitionState(dataCache, clusterStatusMonitor, idealState,
-                resourceMap.get(resourceName), currentStateOutput,
-                bestPossibleStateOutput.getPartitionStateMap(resourceName),
-                bestPossibleStateOutput.getPreferenceLists(resourceName), throttleController));
+            computeIntermediatePartitionState(dataCache, clusterStatusMonitor, stateTable,
+                currentStateOutput, bestPossiblePartitionStateMap, throttleController));
       } catch (HelixException ex) {
         LogUtil.logInfo(logger, _eventId,
             "Failed to calculate intermediate partition states for resource " + resourceName, ex);
@@ -190,6 +250,78 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
     return output;
   }
 
+  private ResourceStateTable buildStateTable(ResourceControllerDataProvider cache,
+      IdealState idealState, Resource resource, CurrentStateOutput currentStateOutput,
+      BestPossibleStateOutput bestPossibleStateOutput, Set<String> enabledLiveInstances) {
+    String resourceName = resource.getResourceName();
+    StateModelDefinition stateModelDef = cache.getStateModelDef(idealState.getStateModelDefRef());
+    if (stateModelDef == null) {
+      throw new HelixException(String.format("State model definition %s of resource %s not found",
+          idealState.getStateModelDefRef(), resourceName));
+    }
+    return new ResourceStateTable(cache, idealState, resource, stateModelDef, currentStateOutput,
+        bestPossibleStateOutput.getPartitionStateMap(resourceName),
+        bestPossibleStateOutput.getPreferenceLists(resourceName), enabledLiveInstances);
+  }
+
+  /**
+   * Build the state tables of the resources on the compute thread pool.
+   * @return resource name -> the future of its state table
+   */
+  private Map<String, Future<ResourceStateTable>> buildStateTablesInParallel(
+      final ResourceControllerDataProvider cache, Set<String> resourceNames,
+      final Map<String, IdealState> idealStates, final Map<String, Resource> resourceMap,
+      final CurrentStateOutput currentStateOutput,
+      final BestPossibleStateOutput bestPossibleStateOutput, int parallelism) {
+    ExecutorService computeThreadPool = getComputeThreadPool(parallelism);
+    final Set<String> enabledLiveInstances = cache.getEnabledLiveInstances();
+    Map<String, Future<ResourceStateTable>> futures = new HashMap<>();
+    for (final String resourceName : resourceNames) {
+      futures.put(resourceName, computeThreadPool.submit(new Callable<ResourceStateTable>() {
+        @Override
+        public ResourceStateTable call() {
+          return buildStateTable(cache, idealStates.get(resourceName),
+              resourceMap.get(resourceName), currentStateOutput, bestPossibleStateOutput,
+              enabledLiveInstances);
+        }
+      }));
+    }
+    return futures;
+  }
+
+  private ResourceStateTable getStateTable(String resourceName,
+      Map<String, Future<ResourceStateTable>> futures) {
+    try {
+      return futures.get(resourceName).get();
+    } catch (InterruptedException e) {
+      for (Future<ResourceStateTable> future : futures.values()) {
+        future.cancel(true);
+      }
+      Thread.currentThread().interrupt();
+      throw new HelixException(
+          "Interrupted while calculating intermediate states for " + resourceName, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new HelixException(
+          "Failed to calculate intermediate states for " + resourceName, e.getCause());
+    }
+  }
+
+  private static ExecutorService getComputeThreadPool(int parallelism) {
+    synchronized (COMPUTE_THREAD_POOL) {
+      if (COMPUTE_THREAD_POOL.getMaximumPoolSize() < parallelism) {
+        COMPUTE_THREAD_POOL.setMaximumPoolSize(parallelism);
+        COMPUTE_THREAD_POOL.setCorePoolSize(parallelism);
+      }
+    }
+    return COMPUTE_THREAD_POOL;
+  }
+
   /**
    * Go through every instance in the assignment and check that each instance does NOT have more
    * replicas for partitions assigned to it than maxPartitionsPerInstance. If the assignment
@@ -276,99 +408,55 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
    * Compute intermediate partition states for a prioritized resource.
    * @param cache
    * @param clusterStatusMonitor
-   * @param idealState
-   * @param resource
+   * @param stateTable
    * @param currentStateOutput
    * @param bestPossiblePartitionStateMap
-   * @param preferenceLists
    * @param throttleController
    * @return
    */
   private PartitionStateMap computeIntermediatePartitionState(ResourceControllerDataProvider cache,
-      ClusterStatusMonitor clusterStatusMonitor, IdealState idealState, Resource resource,
+      ClusterStatusMonitor clusterStatusMonitor, ResourceStateTable stateTable,
       CurrentStateOutput currentStateOutput, PartitionStateMap bestPossiblePartitionStateMap,
-      Map<String, List<String>> preferenceLists,
       StateTransitionThrottleController throttleController) {
-    String resourceName = resource.getResourceName();
+    String resourceName = stateTable.getResourceName();
     LogUtil.logDebug(logger, _eventId, String.format("Processing resource: %s", resourceName));
 
-    // Throttling is applied only on FULL-AUTO mode
-    if (!throttleController.isThrottleEnabled()
-        || !IdealState.RebalanceMode.FULL_AUTO.equals(idealState.getRebalanceMode())) {
-      return bestPossiblePartitionStateMap;
-    }
-
-    String stateModelDefName = idealState.getStateModelDefRef();
-    StateModelDefinition stateModelDef = cache.getStateModelDef(stateModelDefName);
     PartitionStateMap intermediatePartitionStateMap = new PartitionStateMap(resourceName);
-
-    Set<Partition> partitionsNeedRecovery = new HashSet<>();
-    Set<Partition> partitionsNeedLoadBalance = new HashSet<>();
-    Set<Partition> partitionsWithErrorStateReplica = new HashSet<>();
-    for (Partition partition : resource.getPartitions()) {
-      Map<String, String> currentStateMap =
-          currentStateOutput.getCurrentStateMap(resourceName, partition);
-      Map<String, String> bestPossibleMap =
-          bestPossiblePartitionStateMap.getPartitionMap(partition);
-      List<String> preferenceList = preferenceLists.get(partition.getPartitionName());
-
-      RebalanceType rebalanceType = getRebalanceType(cache, bestPossibleMap, preferenceList,
-          stateModelDef, currentStateMap, idealState, partition.getPartitionName());
-
-      // TODO: refine getRebalanceType to return more accurate rebalance types. So the following
-      // logic doesn't need to check for more details.
-      boolean isRebalanceNeeded = false;
-
-      // Check whether partition has any ERROR state replicas
-      if (currentStateMap.values().contains(HelixDefinedState.ERROR.name())) {
-        partitionsWithErrorStateReplica.add(partition);
-      }
-
-      // Number of states required by StateModelDefinition are not satisfied, need recovery
-      if (rebalanceType.equals(RebalanceType.RECOVERY_BALANCE)) {
-        // Check if recovery is needed for this partition
-        if (!currentStateMap.equals(bestPossibleMap)) {
-          partitionsNeedRecovery.add(partition);
-          isRebalanceNeeded = true;
-        }
-      } else if (rebalanceType.equals(RebalanceType.LOAD_BALANCE)) {
-        // Number of states required by StateModelDefinition are satisfied, but to achieve
-        // BestPossibleState, need load balance
-        partitionsNeedLoadBalance.add(partition);
-        isRebalanceNeeded = true;
-      }
-
+    for (int i = 0; i < stateTable.size(); i++) {
       // Currently at BestPossibleState, no further action necessary
-      if (!isRebalanceNeeded) {
-        Map<String, String> intermediateMap = new HashMap<>(bestPossibleMap);
-        intermediatePartitionStateMap.setState(partition, intermediateMap);
+      if (stateTable.getRebalanceType(i) == RebalanceType.NONE) {
+        Map<String, String> intermediateMap = new HashMap<>(stateTable.getBestPossibleMap(i));
+        intermediatePartitionStateMap.setState(stateTable.getPartition(i), intermediateMap);
       }
     }
 
-    if (!partitionsNeedRecovery.isEmpty()) {
+    if (stateTable.getRecoveryCount() > 0) {
       LogUtil.logInfo(logger, _eventId, String
           .format("Recovery balance needed for %s partitions: %s", resourceName,
-              partitionsNeedRecovery));
+              getPartitions(stateTable, RebalanceType.RECOVERY_BALANCE)));
     }
-    if (!partitionsNeedLoadBalance.isEmpty()) {
+    if (stateTable.getLoadBalanceCount() > 0) {
       LogUtil.logInfo(logger, _eventId, String
           .format("Load balance needed for %s partitions: %s", resourceName,
-              partitionsNeedLoadBalance));
+              getPartitions(stateTable, RebalanceType.LOAD_BALANCE)));
     }
-    if (!partitionsWithErrorStateReplica.isEmpty()) {
+    if (stateTable.getErrorCount() > 0) {
+      List<Partition> partitionsWithErrorStateReplica = new ArrayList<>();
+      for (int i = 0; i < stateTable.size(); i++) {
+        if (stateTable.hasErrorReplica(i)) {
+          partitionsWithErrorStateReplica.add(stateTable.getPartition(i));
+        }
+      }
       LogUtil.logInfo(logger, _eventId, String
           .format("Partition currently has an ERROR replica in %s partitions: %s", resourceName,
               partitionsWithErrorStateReplica));
     }
 
-    chargePendingTransition(resource, currentStateOutput, throttleController,
-        partitionsNeedRecovery, partitionsNeedLoadBalance, cache);
+    chargePendingTransition(stateTable, currentStateOutput, throttleController);
 
     // Perform recovery balance
     Set<Partition> recoveryThrottledPartitions =
-        recoveryRebalance(resource, bestPossiblePartitionStateMap, throttleController,
-            intermediatePartitionStateMap, partitionsNeedRecovery, currentStateOutput,
-            cache.getStateModelDef(resource.getStateModelDefRef()).getTopState(), cache);
+        recoveryRebalance(stateTable, throttleController, intermediatePartitionStateMap);
 
     // Perform load balance upon checking conditions below
     Set<Partition> loadbalanceThrottledPartitions;
@@ -378,12 +466,12 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
     // threshold (Error) is set. If the old threshold is set, use it. If not, use the default value
     // for the new one. This is for backward-compatibility
     int threshold = 1; // Default threshold for ErrorOrRecoveryPartitionThresholdForLoadBalance
-    int partitionCount = partitionsWithErrorStateReplica.size();
+    int partitionCount = stateTable.getErrorCount();
     if (clusterConfig.getErrorOrRecoveryPartitionThresholdForLoadBalance() != -1) {
       // ErrorOrRecovery is set
       threshold = clusterConfig.getErrorOrRecoveryPartitionThresholdForLoadBalance();
-      partitionCount += partitionsNeedRecovery.size(); // Only add this count when the threshold is
-                                                       // set
+      partitionCount += stateTable.getRecoveryCount(); // Only add this count when the threshold
+                                                       // is set
     } else {
       if (clusterConfig.getErrorPartitionThresholdForLoadBalance() != 0) {
         // 0 is the default value so the old threshold has been set
@@ -395,20 +483,24 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
     // less than the threshold. Otherwise, only allow downward-transition load balance
     boolean onlyDownwardLoadBalance = partitionCount > threshold;
 
-    loadbalanceThrottledPartitions = loadRebalance(resource, currentStateOutput,
-        bestPossiblePartitionStateMap, throttleController, intermediatePartitionStateMap,
-        partitionsNeedLoadBalance, currentStateOutput.getCurrentStateMap(resourceName),
-        onlyDownwardLoadBalance, stateModelDef, cache);
+    loadbalanceThrottledPartitions = loadRebalance(stateTable, throttleController,
+        intermediatePartitionStateMap, onlyDownwardLoadBalance);
 
     if (clusterStatusMonitor != null) {
-      clusterStatusMonitor.updateRebalancerStats(resourceName, partitionsNeedRecovery.size(),
-          partitionsNeedLoadBalance.size(), recoveryThrottledPartitions.size(),
+      clusterStatusMonitor.updateRebalancerStats(resourceName, stateTable.getRecoveryCount(),
+          stateTable.getLoadBalanceCount(), recoveryThrottledPartitions.size(),
           loadbalanceThrottledPartitions.size());
     }
 
     if (logger.isDebugEnabled()) {
-      logPartitionMapState(resourceName, new HashSet<>(resource.getPartitions()),
-          partitionsNeedRecovery, recoveryThrottledPartitions, partitionsNeedLoadBalance,
+      Set<Partition> allPartitions = new HashSet<>();
+      for (int i = 0; i < stateTable.size(); i++) {
+        allPartitions.add(stateTable.getPartition(i));
+      }
+      logPartitionMapState(resourceName, allPartitions,
+          new HashSet<>(getPartitions(stateTable, RebalanceType.RECOVERY_BALANCE)),
+          recoveryThrottledPartitions,
+          new HashSet<>(getPartitions(stateTable, RebalanceType.LOAD_BALANCE)),
           loadbalanceThrottledPartitions, currentStateOutput, bestPossiblePartitionStateMap,
           intermediatePartitionStateMap);
     }
@@ -418,210 +510,121 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
     return intermediatePartitionStateMap;
   }
 
-  /**
-   * Check for a partition, whether all transitions for its replicas are downward transitions. Note
-   * that this function does NOT check for ERROR states.
-   * @param currentStateMap
-   * @param bestPossibleMap
-   * @param stateModelDef
-   * @return true if there are; false otherwise
-   */
-  private boolean isLoadBalanceDownwardForAllReplicas(Map<String, String> currentStateMap,
-      Map<String, String> bestPossibleMap, StateModelDefinition stateModelDef) {
-    Set<String> allInstances = new HashSet<>();
-    allInstances.addAll(currentStateMap.keySet());
-    allInstances.addAll(bestPossibleMap.keySet());
-    Map<String, Integer> statePriorityMap = stateModelDef.getStatePriorityMap();
-
-    for (String instance : allInstances) {
-      String currentState = currentStateMap.get(instance);
-      String bestPossibleState = bestPossibleMap.get(instance);
-      if (currentState == null) {
-        return false; // null -> state is upward
-      }
-      if (bestPossibleState != null) {
-        // Compare priority values and return if an upward transition is found
-        // Note that lower integer value implies higher priority
-        if (!statePriorityMap.containsKey(currentState)
-            || !statePriorityMap.containsKey(bestPossibleState)) {
-          // If the state is not found in statePriorityMap, consider it not strictly downward by
-          // default because we can't determine whether it is downward
-          return false;
-        }
-        if (statePriorityMap.get(currentState) > statePriorityMap.get(bestPossibleState)) {
-          return false;
-        }
+  private List<Partition> getPartitions(ResourceStateTable stateTable,
+      RebalanceType rebalanceType) {
+    List<Partition> partitions = new ArrayList<>();
+    for (int i = 0; i < stateTable.size(); i++) {
+      if (stateTable.getRebalanceType(i) == rebalanceType) {
+        partitions.add(stateTable.getPartition(i));
       }
     }
-    return true;
+    return partitions;
   }
 
   /**
    * Check and charge all pending transitions for throttling.
    */
-  private void chargePendingTransition(Resource resource, CurrentStateOutput currentStateOutput,
-      StateTransitionThrottleController throttleController, Set<Partition> partitionsNeedRecovery,
-      Set<Partition> partitionsNeedLoadbalance, ResourceControllerDataProvider cache) {
-    String resourceName = resource.getResourceName();
+  private void chargePendingTransition(ResourceStateTable stateTable,
+      CurrentStateOutput currentStateOutput,
+      StateTransitionThrottleController throttleController) {
+    String resourceName = stateTable.getResourceName();
 
     // check and charge pending transitions
-    for (Partition partition : resource.getPartitions()) {
-      // Maps instance to its current state
-      Map<String, String> currentStateMap =
-          currentStateOutput.getCurrentStateMap(resourceName, partition);
-      // Maps instance to its pending (next) state
-      Map<String, String> pendingMap =
-          currentStateOutput.getPendingStateMap(resourceName, partition);
-
-      StateTransitionThrottleConfig.RebalanceType rebalanceType = RebalanceType.NONE;
-      if (partitionsNeedRecovery.contains(partition)) {
-        rebalanceType = StateTransitionThrottleConfig.RebalanceType.RECOVERY_BALANCE;
-      } else if (partitionsNeedLoadbalance.contains(partition)) {
-        rebalanceType = StateTransitionThrottleConfig.RebalanceType.LOAD_BALANCE;
+    for (int i = 0; i < stateTable.size(); i++) {
+      // Maps instance to its pending message
+      Map<String, Message> pendingMessageMap =
+          currentStateOutput.getPendingMessageMap(resourceName, stateTable.getPartition(i));
+      if (pendingMessageMap.isEmpty()) {
+        continue;
       }
-
-      if (pendingMap.size() > 0) {
-        boolean shouldChargePartition = false;
-        for (String instance : pendingMap.keySet()) {
-          String currentState = currentStateMap.get(instance);
-          String pendingState = pendingMap.get(instance);
-          if (pendingState != null && !pendingState.equals(currentState)
-              && !cache.getDisabledInstancesForPartition(resourceName, partition.getPartitionName())
-                  .contains(instance)) {
-            // Only charge this instance if the partition is not disabled
-            throttleController.chargeInstance(rebalanceType, instance);
-            shouldChargePartition = true;
-          }
-        }
-        if (shouldChargePartition) {
-          throttleController.chargeCluster(rebalanceType);
-          throttleController.chargeResource(rebalanceType, resourceName);
+      // Maps instance to its current state
+      Map<String, String> currentStateMap = stateTable.getCurrentStateMap(i);
+      Set<String> disabledInstances = stateTable.getDisabledInstances(i);
+      RebalanceType rebalanceType = stateTable.getRebalanceType(i);
+
+      boolean shouldChargePartition = false;
+      for (Map.Entry<String, Message> entry : pendingMessageMap.entrySet()) {
+        String instance = entry.getKey();
+        String pendingState = entry.getValue().getToState();
+        if (pendingState != null && !pendingState.equals(currentStateMap.get(instance))
+            && !disabledInstances.contains(instance)) {
+          // Only charge this instance if the partition is not disabled
+          throttleController.chargeInstance(rebalanceType, instance);
+          shouldChargePartition = true;
         }
       }
+      if (shouldChargePartition) {
+        throttleController.chargeCluster(rebalanceType);
+        throttleController.chargeResource(rebalanceType, resourceName);
+      }
     }
   }
 
   /**
-   * Sort partitions according to partition priority {@link PartitionPriorityComparator}, and for
-   * each partition, throttle state transitions if needed. Also populate
-   * intermediatePartitionStateMap either with BestPossibleState (if no throttling is necessary) or
-   * CurrentState (if throttled).
-   * @param resource
-   * @param bestPossiblePartitionStateMap
+   * Prioritize the partitions that need recovery, and for each partition, throttle state
+   * transitions if needed. Also populate intermediatePartitionStateMap either with
+   * BestPossibleState (if no throttling is necessary) or CurrentState (if throttled).
+   * Partitions without top state are recovered first, then the partitions with fewer active
+   * replicas.
+   * @param stateTable
    * @param throttleController
    * @param intermediatePartitionStateMap
-   * @param partitionsNeedRecovery
-   * @param currentStateOutput
-   * @param topState
-   * @param cache
    * @return a set of partitions that need recovery but did not get recovered due to throttling
    */
-  private Set<Partition> recoveryRebalance(Resource resource,
-      PartitionStateMap bestPossiblePartitionStateMap,
+  private Set<Partition> recoveryRebalance(ResourceStateTable stateTable,
       StateTransitionThrottleController throttleController,
-      PartitionStateMap intermediatePartitionStateMap, Set<Partition> partitionsNeedRecovery,
-      CurrentStateOutput currentStateOutput, String topState,
-      ResourceControllerDataProvider cache) {
-    String resourceName = resource.getResourceName();
+      PartitionStateMap intermediatePartitionStateMap) {
     Set<Partition> partitionRecoveryBalanceThrottled = new HashSet<>();
 
-    // Maps Partition -> Instance -> State
-    Map<Partition, Map<String, String>> currentStateMap =
-        currentStateOutput.getCurrentStateMap(resourceName);
-    List<Partition> partitionsNeedRecoveryPrioritized = new ArrayList<>(partitionsNeedRecovery);
-
-    // TODO: Remove this sort by partition name when Java 1.8 is used
-    // We want the result of the intermediate state calculation to be deterministic. We sort here by
-    // partition name to ensure that the order is consistent for inputs fed into
-    // PartitionPriorityComparator sort
-    Collections.sort(partitionsNeedRecoveryPrioritized, new Comparator<Partition>() {
-      @Override
-      public int compare(Partition partition1, Partition partition2) {
-        return partition1.getPartitionName().compareTo(partition2.getPartitionName());
-      }
-    });
-    Collections.sort(partitionsNeedRecoveryPrioritized, new PartitionPriorityComparator(
-        bestPossiblePartitionStateMap.getStateMap(), currentStateMap, topState, true));
-
     // For each partition, apply throttling if needed.
-    for (Partition partition : partitionsNeedRecoveryPrioritized) {
-      throttleStateTransitionsForPartition(throttleController, resourceName, partition,
-          currentStateOutput, bestPossiblePartitionStateMap, partitionRecoveryBalanceThrottled,
-          intermediatePartitionStateMap, RebalanceType.RECOVERY_BALANCE, cache);
+    for (int index : stateTable.getPrioritizedPartitions(RebalanceType.RECOVERY_BALANCE)) {
+      throttleStateTransitionsForPartition(throttleController, stateTable, index,
+          partitionRecoveryBalanceThrottled, intermediatePartitionStateMap,
+          RebalanceType.RECOVERY_BALANCE);
     }
     LogUtil.logInfo(logger, _eventId, String.format(
         "For resource %s: Num of partitions needing recovery: %d, Num of partitions needing recovery"
             + " but throttled (not recovered): %d",
-        resourceName, partitionsNeedRecovery.size(), partitionRecoveryBalanceThrottled.size()));
+        stateTable.getResourceName(), stateTable.getRecoveryCount(),
+        partitionRecoveryBalanceThrottled.size()));
     return partitionRecoveryBalanceThrottled;
   }
 
   /**
-   * Sort partitions according to partition priority {@link PartitionPriorityComparator}, and for
-   * each partition, throttle state transitions if needed. Also populate
-   * intermediatePartitionStateMap either with BestPossibleState (if no throttling is necessary) or
-   * CurrentState (if throttled).
-   * @param resource
-   * @param currentStateOutput
-   * @param bestPossiblePartitionStateMap
+   * Prioritize the partitions that need load balance, and for each partition, throttle state
+   * transitions if needed. Also populate intermediatePartitionStateMap either with
+   * BestPossibleState (if no throttling is necessary) or CurrentState (if throttled). Partitions
+   * with fewer replicas in their best possible states are balanced first.
+   * @param stateTable
    * @param throttleController
    * @param intermediatePartitionStateMap
-   * @param partitionsNeedLoadbalance
-   * @param currentStateMap
    * @param onlyDownwardLoadBalance true when only allowing downward transitions
-   * @param stateModelDef for determining whether a partition's transitions are strictly downward
-   * @param cache
    * @return
    */
-  private Set<Partition> loadRebalance(Resource resource, CurrentStateOutput currentStateOutput,
-      PartitionStateMap bestPossiblePartitionStateMap,
+  private Set<Partition> loadRebalance(ResourceStateTable stateTable,
       StateTransitionThrottleController throttleController,
-      PartitionStateMap intermediatePartitionStateMap, Set<Partition> partitionsNeedLoadbalance,
-      Map<Partition, Map<String, String>> currentStateMap, boolean onlyDownwardLoadBalance,
-      StateModelDefinition stateModelDef, ResourceControllerDataProvider cache) {
-    String resourceName = resource.getResourceName();
+      PartitionStateMap intermediatePartitionStateMap, boolean onlyDownwardLoadBalance) {
     Set<Partition> partitionsLoadbalanceThrottled = new HashSet<>();
 
-    List<Partition> partitionsNeedLoadRebalancePrioritized =
-        new ArrayList<>(partitionsNeedLoadbalance);
-
-    // TODO: Remove this sort by partition name when Java 1.8 is used
-    // We want the result of the intermediate state calculation to be deterministic. We sort here by
-    // partition name to ensure that the order is consistent for inputs fed into
-    // PartitionPriorityComparator sort
-    Collections.sort(partitionsNeedLoadRebalancePrioritized, new Comparator<Partition>() {
-      @Override
-      public int compare(Partition partition1, Partition partition2) {
-        return partition1.getPartitionName().compareTo(partition2.getPartitionName());
-      }
-    });
-    Collections.sort(partitionsNeedLoadRebalancePrioritized, new PartitionPriorityComparator(
-        bestPossiblePartitionStateMap.getStateMap(), currentStateMap, "", false));
-
-    for (Partition partition : partitionsNeedLoadRebalancePrioritized) {
+    for (int index : stateTable.getPrioritizedPartitions(RebalanceType.LOAD_BALANCE)) {
       // If this is a downward load balance, check if the partition's transition is strictly
       // downward
-      if (onlyDownwardLoadBalance) {
-        Map<String, String> currentStateMapForPartition =
-            currentStateOutput.getCurrentStateMap(resourceName, partition);
-        Map<String, String> bestPossibleMapForPartition =
-            bestPossiblePartitionStateMap.getPartitionMap(partition);
-        if (!isLoadBalanceDownwardForAllReplicas(currentStateMapForPartition,
-            bestPossibleMapForPartition, stateModelDef)) {
-          // For downward load balance, if a partition's transitions are not strictly downward,
-          // set currentState to intermediateState
-          intermediatePartitionStateMap.setState(partition, currentStateMapForPartition);
-          continue;
-        }
+      if (onlyDownwardLoadBalance && !stateTable.isLoadBalanceDownwardForAllReplicas(index)) {
+        // For downward load balance, if a partition's transitions are not strictly downward,
+        // set currentState to intermediateState
+        intermediatePartitionStateMap.setState(stateTable.getPartition(index),
+            stateTable.getCurrentStateMap(index));
+        continue;
       }
-      throttleStateTransitionsForPartition(throttleController, resourceName, partition,
-          currentStateOutput, bestPossiblePartitionStateMap, partitionsLoadbalanceThrottled,
-          intermediatePartitionStateMap, RebalanceType.LOAD_BALANCE, cache);
+      throttleStateTransitionsForPartition(throttleController, stateTable, index,
+          partitionsLoadbalanceThrottled, intermediatePartitionStateMap,
+          RebalanceType.LOAD_BALANCE);
     }
     LogUtil.logInfo(logger, _eventId, String.format(
         "For resource %s: Num of partitions needing load-balance: %d, Num of partitions needing"
             + " load-balance but throttled (not load-balanced): %d",
-        resourceName, partitionsNeedLoadbalance.size(), partitionsLoadbalanceThrottled.size()));
+        stateTable.getResourceName(), stateTable.getLoadBalanceCount(),
+        partitionsLoadbalanceThrottled.size()));
     return partitionsLoadbalanceThrottled;
   }
 
@@ -629,25 +632,21 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
    * Check the status on throttling at every level (cluster, resource, instance) and set
    * intermediatePartitionStateMap accordingly per partition.
    * @param throttleController
-   * @param resourceName
-   * @param partition
-   * @param currentStateOutput
-   * @param bestPossiblePartitionStateMap
+   * @param stateTable
+   * @param index index of the partition in the state table
    * @param partitionsThrottled
    * @param intermediatePartitionStateMap
    * @param rebalanceType
-   * @param cache
    */
   private void throttleStateTransitionsForPartition(
-      StateTransitionThrottleController throttleController, String resourceName,
-      Partition partition, CurrentStateOutput currentStateOutput,
-      PartitionStateMap bestPossiblePartitionStateMap, Set<Partition> partitionsThrottled,
-      PartitionStateMap intermediatePartitionStateMap, RebalanceType rebalanceType,
-      ResourceControllerDataProvider cache) {
-
-    Map<String, String> currentStateMap =
-        currentStateOutput.getCurrentStateMap(resourceName, partition);
-    Map<String, String> bestPossibleMap = bestPossiblePartitionStateMap.getPartitionMap(partition);
+      StateTransitionThrottleController throttleController, ResourceStateTable stateTable,
+      int index, Set<Partition> partitionsThrottled,
+      PartitionStateMap intermediatePartitionStateMap, RebalanceType rebalanceType) {
+    String resourceName = stateTable.getResourceName();
+    Partition partition = stateTable.getPartition(index);
+    Map<String, String> currentStateMap = stateTable.getCurrentStateMap(index);
+    Map<String, String> bestPossibleMap = stateTable.getBestPossibleMap(index);
+    Set<String> disabledInstances = stateTable.getDisabledInstances(index);
     Set<String> allInstances = new HashSet<>(currentStateMap.keySet());
     allInstances.addAll(bestPossibleMap.keySet());
     Map<String, String> intermediateMap = new HashMap<>();
@@ -666,8 +665,7 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
         String currentState = currentStateMap.get(instance);
         String bestPossibleState = bestPossibleMap.get(instance);
         if (bestPossibleState != null && !bestPossibleState.equals(currentState)
-            && !cache.getDisabledInstancesForPartition(resourceName, partition.getPartitionName())
-                .contains(instance)) {
+            && !disabledInstances.contains(instance)) {
           if (throttleController.shouldThrottleForInstance(rebalanceType, instance)) {
             hasReachedThrottlingLimit = true;
             if (logger.isDebugEnabled()) {
@@ -690,8 +688,7 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
         String currentState = currentStateMap.get(instance);
         String bestPossibleState = bestPossibleMap.get(instance);
         if (bestPossibleState != null && !bestPossibleState.equals(currentState)
-            && !cache.getDisabledInstancesForPartition(resourceName, partition.getPartitionName())
-                .contains(instance)) {
+            && !disabledInstances.contains(instance)) {
           throttleController.chargeInstance(rebalanceType, instance);
           shouldChargeForPartition = true;
         }
@@ -708,8 +705,7 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
         String currentState = currentStateMap.get(instance);
         String bestPossibleState = bestPossibleMap.get(instance);
         if (bestPossibleState != null && !bestPossibleState.equals(currentState)
-            && cache.getDisabledInstancesForPartition(resourceName, partition.getPartitionName())
-                .contains(instance)) {
+            && disabledInstances.contains(instance)) {
           // Because this partition is disabled, we allow assignment
           intermediateMap.put(instance, bestPossibleState);
         } else {
@@ -725,68 +721,6 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
     intermediatePartitionStateMap.setState(partition, intermediateMap);
   }
 
-  /**
-   * For a partition, given its preferenceList, bestPossibleState, and currentState, determine which
-   * type of rebalance is needed to model IdealState's states defined by the state model definition.
-   * @return RebalanceType needed to bring the replicas to idea states
-   *         RECOVERY_BALANCE - not all required states (replicas) are available through all
-   *         replicas, or the partition is disabled
-   *         NONE - current state matches the ideal state
-   *         LOAD_BALANCE - although all replicas required exist, Helix needs to optimize the
-   *         allocation
-   */
-  private RebalanceType getRebalanceType(ResourceControllerDataProvider cache,
-      Map<String, String> bestPossibleMap, List<String> preferenceList,
-      StateModelDefinition stateModelDef, Map<String, String> currentStateMap,
-      IdealState idealState, String partitionName) {
-    if (preferenceList == null) {
-      preferenceList = Collections.emptyList();
-    }
-
-    int replica = idealState.getReplicaCount(preferenceList.size());
-    Set<String> activeList = new HashSet<>(preferenceList);
-    activeList.retainAll(cache.getEnabledLiveInstances());
-
-    // For each state, check that this partition currently has the required number of that state as
-    // required by StateModelDefinition.
-    LinkedHashMap<String, Integer> expectedStateCountMap =
-        stateModelDef.getStateCountMap(activeList.size(), replica); // StateModelDefinition's counts
-    // Current counts without disabled partitions or disabled instances
-    Map<String, String> currentStateMapWithoutDisabled = new HashMap<>(currentStateMap);
-    currentStateMapWithoutDisabled.keySet().removeAll(
-        cache.getDisabledInstancesForPartition(idealState.getResourceName(), partitionName));
-    Map<String, Integer> currentStateCounts =
-        StateModelDefinition.getStateCounts(currentStateMapWithoutDisabled);
-
-    // Go through each state and compare counts
-    for (String state : expectedStateCountMap.keySet()) {
-      Integer expectedCount = expectedStateCountMap.get(state);
-      Integer currentCount = currentStateCounts.get(state);
-      expectedCount = expectedCount == null ? 0 : expectedCount;
-      currentCount = currentCount == null ? 0 : currentCount;
-
-      // If counts do not match up, this partition requires recovery
-      if (currentCount < expectedCount) {
-        // Recovery is not needed in cases where this partition just started, was dropped, or is in
-        // error
-        if (!state.equals(HelixDefinedState.DROPPED.name())
-            && !state.equals(HelixDefinedState.ERROR.name())
-            && !state.equals(stateModelDef.getInitialState())) {
-          return RebalanceType.RECOVERY_BALANCE;
-        }
-      }
-    }
-    // No recovery needed, all expected replicas exist
-    // Check if this partition is actually in the BestPossibleState
-    if (currentStateMap.equals(bestPossibleMap)) {
-      return RebalanceType.NONE; // No further action required
-    } else {
-      return RebalanceType.LOAD_BALANCE; // Required state counts are satisfied, but in order to
-                                         // achieve BestPossibleState, load balance may be required
-                                         // to shift replicas around
-    }
-  }
-
   /**
    * Log rebalancer metadata for debugging purposes.
    * @param resource
@@ -865,89 +799,4 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
       return priority2.compareTo(priority1);
     }
   }
-
-  // Compare partitions according following standard:
-  // 1) Partition without top state always is the highest priority.
-  // 2) For partition with top-state, the more number of active replica it has, the less priority.
-  private class PartitionPriorityComparator implements Comparator<Partition> {
-    private Map<Partition, Map<String, String>> _bestPossibleMap;
-    private Map<Partition, Map<String, String>> _currentStateMap;
-    private String _topState;
-    private boolean _recoveryRebalance;
-
-    PartitionPriorityComparator(Map<Partition, Map<String, String>> bestPossibleMap,
-        Map<Partition, Map<String, String>> currentStateMap, String topState,
-        boolean recoveryRebalance) {
-      _bestPossibleMap = bestPossibleMap;
-      _currentStateMap = currentStateMap;
-      _topState = topState;
-      _recoveryRebalance = recoveryRebalance;
-    }
-
-    @Override
-    public int compare(Partition p1, Partition p2) {
-      if (_recoveryRebalance) {
-        int missTopState1 = getMissTopStateIndex(p1);
-        int missTopState2 = getMissTopStateIndex(p2);
-        // Highest priority for the partition without top state
-        if (missTopState1 != missTopState2) {
-          return Integer.compare(missTopState1, missTopState2);
-        }
-        // Higher priority for the partition with fewer active replicas
-        int currentActiveReplicas1 = getCurrentActiveReplicas(p1);
-        int currentActiveReplicas2 = getCurrentActiveReplicas(p2);
-        return Integer.compare(currentActiveReplicas1, currentActiveReplicas2);
-      }
-      // Higher priority for the partition with fewer replicas with states matching with IdealState
-      int idealStateMatched1 = getIdealStateMatched(p1);
-      int idealStateMatched2 = getIdealStateMatched(p2);
-      return Integer.compare(idealStateMatched1, idealStateMatched2);
-    }
-
-    private int getMissTopStateIndex(Partition partition) {
-      // 0 if no replicas in top-state, 1 if it has at least one replica in top-state.
-      if (!_currentStateMap.containsKey(partition)
-          || !_currentStateMap.get(partition).values().contains(_topState)) {
-        return 0;
-      }
-      return 1;
-    }
-
-    private int getCurrentActiveReplicas(Partition partition) {
-      int currentActiveReplicas = 0;
-      if (!_currentStateMap.containsKey(partition)) {
-        return currentActiveReplicas;
-      }
-      // Initialize state -> number of this state map
-      Map<String, Integer> stateCountMap = new HashMap<>();
-      for (String state : _bestPossibleMap.get(partition).values()) {
-        if (!stateCountMap.containsKey(state)) {
-          stateCountMap.put(state, 0);
-        }
-        stateCountMap.put(state, stateCountMap.get(state) + 1);
-      }
-      // Search the state map
-      for (String state : _currentStateMap.get(partition).values()) {
-        if (stateCountMap.containsKey(state) && stateCountMap.get(state) > 0) {
-          currentActiveReplicas++;
-          stateCountMap.put(state, stateCountMap.get(state) - 1);
-        }
-      }
-      return currentActiveReplicas;
-    }
-
-    private int getIdealStateMatched(Partition partition) {
-      int matchedState = 0;
-      if (!_currentStateMap.containsKey(partition)) {
-        return matchedState;
-      }
-      for (String instance : _bestPossibleMap.get(partition).keySet()) {
-        if (_bestPossibleMap.get(partition).get(instance)
-            .equals(_currentStateMap.get(partition).get(instance))) {
-          matchedState++;
-        }
-      }
-      return matchedState;
-    }
-  }
 }
@@ -26,13 +26,20 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.BatchWriteDataAccessor;
+import org.apache.helix.BatchWriteOp;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixManager;
 import org.apache.helix.HelixManagerProperties;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.ZNRecord;
 import org.apache.helix.controller.dataproviders.BaseControllerDataProvider;
 import org.apache.helix.controller.LogUtil;
+import org.apache.helix.controller.dataproviders.ReadAheadDataAccessor;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.controller.pipeline.AbstractBaseStage;
 import org.apache.helix.controller.pipeline.StageException;
@@ -40,6 +47,7 @@ import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
+import org.apache.helix.monitoring.mbeans.ClusterEventMonitor;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,12 +87,24 @@ public abstract class MessageDispatchStage extends AbstractBaseStage {
             manager.getProperties());
 
     List<Message> messagesSent = sendMessages(dataAccessor, outputMessages);
+    ReadAheadDataAccessor readAheadAccessor =
+        event.getAttribute(AttributeName.ReadAheadDataAccessor.name());
+    if (readAheadAccessor != null) {
+      // The current states read ahead while sending may be updated by the recipients any time now
+      readAheadAccessor.invalidateRecipients(outputMessages);
+    }
     // TODO: Need also count messages from task rebalancer
     if (!(cache instanceof WorkflowControllerDataProvider)) {
       ClusterStatusMonitor clusterStatusMonitor =
           event.getAttribute(AttributeName.clusterStatusMonitor.name());
       if (clusterStatusMonitor != null) {
         clusterStatusMonitor.increaseMessageReceived(outputMessages);
+        Long notificationTime = event.getAttribute(AttributeName.EarliestNotificationTime.name());
+        if (notificationTime != null && !messagesSent.isEmpty()) {
+          clusterStatusMonitor.updateClusterEventDuration(
+              ClusterEventMonitor.PhaseName.NotificationToDispatch.name(),
+              System.currentTimeMillis() - notificationTime);
+        }
       }
     }
     long cacheStart = System.currentTimeMillis();
@@ -137,6 +157,7 @@ public abstract class MessageDispatchStage extends AbstractBaseStage {
   }
 
   // return the messages actually sent
+  @SuppressWarnings("unchecked")
   protected List<Message> sendMessages(HelixDataAccessor dataAccessor, List<Message> messages) {
     List<Message> messageSent = new ArrayList<>();
     if (messages == null || messages.isEmpty()) {
@@ -168,7 +189,20 @@ public abstract class MessageDispatchStage extends AbstractBaseStage {
       keys.add(keyBuilder.message(message.getTgtName(), message.getId()));
     }
 
-    boolean[] results = dataAccessor.createChildren(keys, new ArrayList<>(messages));
+    boolean[] results;
+    BaseDataAccessor<ZNRecord> baseAccessor = dataAccessor.getBaseDataAccessor();
+    if (Boolean.getBoolean(SystemPropertyKeys.ZK_MULTI_WRITE_ENABLED)
+        && baseAccessor instanceof BatchWriteDataAccessor) {
+      // Messages are created in multi-ops of many messages each, instead of one request each
+      List<BatchWriteOp<ZNRecord>> ops = new ArrayList<>(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        ops.add(BatchWriteOp.create(keys.get(i).getPath(), messages.get(i).getRecord(),
+            AccessOption.PERSISTENT));
+      }
+      results = ((BatchWriteDataAccessor<ZNRecord>) baseAccessor).batchWrite(ops);
+    } else {
+      results = dataAccessor.createChildren(keys, new ArrayList<>(messages));
+    }
     for (int i = 0; i < results.length; i++) {
       if (!results[i]) {
         LogUtil.logError(logger, _eventId, "Failed to send message: " + keys.get(i));
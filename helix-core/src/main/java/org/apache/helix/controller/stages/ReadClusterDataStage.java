@@ -25,10 +25,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixManager;
+import org.apache.helix.common.caches.TaskDataCache;
 import org.apache.helix.controller.dataproviders.BaseControllerDataProvider;
 import org.apache.helix.controller.LogUtil;
+import org.apache.helix.controller.dataproviders.ReadAheadDataAccessor;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.controller.pipeline.AbstractBaseStage;
@@ -54,12 +55,31 @@ public class ReadClusterDataStage extends AbstractBaseStage {
     final BaseControllerDataProvider dataProvider =
         event.getAttribute(AttributeName.ControllerDataProvider.name());
 
-    HelixDataAccessor dataAccessor = manager.getHelixDataAccessor();
-
-    dataProvider.refresh(dataAccessor);
+    ReadAheadDataAccessor readAheadAccessor =
+        event.getAttribute(AttributeName.ReadAheadDataAccessor.name());
+    if (readAheadAccessor == null) {
+      dataProvider.refresh(manager.getHelixDataAccessor());
+    } else {
+      readAheadAccessor.beginRefresh();
+      try {
+        dataProvider.refresh(readAheadAccessor);
+      } finally {
+        readAheadAccessor.endRefresh();
+      }
+    }
     final ClusterConfig clusterConfig = dataProvider.getClusterConfig();
         final ClusterStatusMonitor clusterStatusMonitor =
             event.getAttribute(AttributeName.clusterStatusMonitor.name());
+    if (clusterStatusMonitor != null && dataProvider instanceof ResourceControllerDataProvider) {
+      clusterStatusMonitor.updateDataRefreshPropertyCounts(
+          dataProvider.getLastRefreshReloadedCount(), dataProvider.getLastRefreshSkippedCount());
+    }
+    if (clusterStatusMonitor != null && dataProvider instanceof WorkflowControllerDataProvider) {
+      TaskDataCache taskDataCache =
+          ((WorkflowControllerDataProvider) dataProvider).getTaskDataCache();
+      clusterStatusMonitor.updateTaskDataCacheCounts(taskDataCache.getCacheHitCount(),
+          taskDataCache.getZkReadCount());
+    }
 
     // TODO (harry): move this to separate stage for resource controller only
     if (dataProvider instanceof ResourceControllerDataProvider) {
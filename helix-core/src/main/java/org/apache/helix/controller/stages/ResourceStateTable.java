@@ -0,0 +1,372 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.helix.HelixDefinedState;
+import org.apache.helix.api.config.StateTransitionThrottleConfig.RebalanceType;
+import org.apache.helix.controller.common.PartitionStateMap;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.Resource;
+import org.apache.helix.model.StateModelDefinition;
+
+/**
+ * The per-partition inputs of the intermediate state calculation of a resource: the rebalance
+ * type each partition needs, whether it has an ERROR replica, and the keys its recovery or load
+ * balance is prioritized by. They only depend on the best possible and current states, so the
+ * tables of the resources can be built in parallel before the throttle controller is charged
+ * resource by resource.
+ * <p>
+ * States are interned as their index in the priority list of the state model definition, so the
+ * state counts of a partition are kept in int arrays instead of maps, and partitions are
+ * prioritized by sorting primitive keys instead of comparing maps on every comparison.
+ */
+class ResourceStateTable {
+  // Bits of a sort key given to each of the two priorities and to the partition name rank, which
+  // bounds the partitions of a resource to 2^21
+  private static final int KEY_BITS = 21;
+  private static final long KEY_MASK = (1L << KEY_BITS) - 1;
+
+  private final String _resourceName;
+  private final StateModelDefinition _stateModelDef;
+  private final Map<String, Integer> _stateIds = new HashMap<>();
+  // Whether missing replicas in the state make the partition need recovery
+  private final boolean[] _recoveryStates;
+  // Number of enabled live instances in the preference list and replica count -> expected counts
+  private final Map<Long, int[]> _expectedStateCounts = new HashMap<>();
+  private int[] _stateCounts;
+
+  // Partitions sorted by name
+  private final Partition[] _partitions;
+  private final Map<String, String>[] _currentStateMaps;
+  private final Map<String, String>[] _bestPossibleMaps;
+  private final Set<String>[] _disabledInstances;
+  private final RebalanceType[] _rebalanceTypes;
+  private final boolean[] _hasErrorReplica;
+  private int _recoveryCount;
+  private int _loadBalanceCount;
+  private int _errorCount;
+
+  @SuppressWarnings("unchecked")
+  ResourceStateTable(ResourceControllerDataProvider cache, IdealState idealState,
+      Resource resource, StateModelDefinition stateModelDef,
+      CurrentStateOutput currentStateOutput, PartitionStateMap bestPossiblePartitionStateMap,
+      Map<String, List<String>> preferenceLists, Set<String> enabledLiveInstances) {
+    _resourceName = resource.getResourceName();
+    _stateModelDef = stateModelDef;
+
+    List<String> states = stateModelDef.getStatesPriorityList();
+    _recoveryStates = new boolean[states.size()];
+    for (int i = 0; i < states.size(); i++) {
+      String state = states.get(i);
+      _stateIds.put(state, i);
+      _recoveryStates[i] = !state.equals(HelixDefinedState.DROPPED.name())
+          && !state.equals(HelixDefinedState.ERROR.name())
+          && !state.equals(stateModelDef.getInitialState());
+    }
+    _stateCounts = new int[states.size()];
+
+    List<Partition> partitions = new ArrayList<>(resource.getPartitions());
+    Collections.sort(partitions, new Comparator<Partition>() {
+      @Override
+      public int compare(Partition partition1, Partition partition2) {
+        return partition1.getPartitionName().compareTo(partition2.getPartitionName());
+      }
+    });
+    int size = partitions.size();
+    _partitions = partitions.toArray(new Partition[size]);
+    _currentStateMaps = new Map[size];
+    _bestPossibleMaps = new Map[size];
+    _disabledInstances = new Set[size];
+    _rebalanceTypes = new RebalanceType[size];
+    _hasErrorReplica = new boolean[size];
+
+    for (int i = 0; i < size; i++) {
+      Partition partition = _partitions[i];
+      _currentStateMaps[i] = currentStateOutput.getCurrentStateMap(_resourceName, partition);
+      _bestPossibleMaps[i] = bestPossiblePartitionStateMap.getPartitionMap(partition);
+      _disabledInstances[i] =
+          cache.getDisabledInstancesForPartition(_resourceName, partition.getPartitionName());
+      _rebalanceTypes[i] = getRebalanceType(i, idealState,
+          preferenceLists.get(partition.getPartitionName()), enabledLiveInstances);
+      if (_rebalanceTypes[i] == RebalanceType.RECOVERY_BALANCE) {
+        _recoveryCount++;
+      } else if (_rebalanceTypes[i] == RebalanceType.LOAD_BALANCE) {
+        _loadBalanceCount++;
+      }
+      // Check whether partition has any ERROR state replica
+      _hasErrorReplica[i] =
+          _currentStateMaps[i].values().contains(HelixDefinedState.ERROR.name());
+      if (_hasErrorReplica[i]) {
+        _errorCount++;
+      }
+    }
+  }
+
+  /**
+   * For a partition, given its preferenceList, bestPossibleState, and currentState, determine
+   * which type of rebalance is needed to model IdealState's states defined by the state model
+   * definition.
+   * @return RECOVERY_BALANCE - not all required states (replicas) are available through all
+   *         replicas, or the partition is disabled, and the current states are not the best
+   *         possible states
+   *         NONE - current state matches the best possible state
+   *         LOAD_BALANCE - although all replicas required exist, Helix needs to optimize the
+   *         allocation
+   */
+  private RebalanceType getRebalanceType(int index, IdealState idealState,
+      List<String> preferenceList, Set<String> enabledLiveInstances) {
+    Map<String, String> currentStateMap = _currentStateMaps[index];
+    // Currently at BestPossibleState, no further action necessary
+    if (currentStateMap.equals(_bestPossibleMaps[index])) {
+      return RebalanceType.NONE;
+    }
+
+    if (preferenceList == null) {
+      preferenceList = Collections.emptyList();
+    }
+    int replica = idealState.getReplicaCount(preferenceList.size());
+    int activeCount = 0;
+    for (int i = 0; i < preferenceList.size(); i++) {
+      String instance = preferenceList.get(i);
+      if (enabledLiveInstances.contains(instance) && preferenceList.indexOf(instance) == i) {
+        activeCount++;
+      }
+    }
+    // For each state, check that this partition currently has the required number of that state
+    // as required by StateModelDefinition.
+    int[] expectedCounts = getExpectedStateCounts(activeCount, replica);
+
+    // Current counts without disabled partitions or disabled instances
+    Arrays.fill(_stateCounts, 0);
+    Set<String> disabledInstances = _disabledInstances[index];
+    for (Map.Entry<String, String> entry : currentStateMap.entrySet()) {
+      Integer stateId = _stateIds.get(entry.getValue());
+      if (stateId != null && !disabledInstances.contains(entry.getKey())) {
+        _stateCounts[stateId]++;
+      }
+    }
+    for (int stateId = 0; stateId < expectedCounts.length; stateId++) {
+      // Recovery is not needed in cases where this partition just started, was dropped, or is in
+      // error
+      if (_stateCounts[stateId] < expectedCounts[stateId] && _recoveryStates[stateId]) {
+        return RebalanceType.RECOVERY_BALANCE;
+      }
+    }
+    // Required state counts are satisfied, but in order to achieve BestPossibleState, load balance
+    // may be required to shift replicas around
+    return RebalanceType.LOAD_BALANCE;
+  }
+
+  private int[] getExpectedStateCounts(int activeCount, int replica) {
+    long key = ((long) activeCount << 32) | (replica & 0xFFFFFFFFL);
+    int[] expectedCounts = _expectedStateCounts.get(key);
+    if (expectedCounts == null) {
+      expectedCounts = new int[_recoveryStates.length];
+      for (Map.Entry<String, Integer> entry : _stateModelDef.getStateCountMap(activeCount, replica)
+          .entrySet()) {
+        Integer stateId = _stateIds.get(entry.getKey());
+        if (stateId != null && entry.getValue() != null) {
+          expectedCounts[stateId] = entry.getValue();
+        }
+      }
+      _expectedStateCounts.put(key, expectedCounts);
+    }
+    return expectedCounts;
+  }
+
+  String getResourceName() {
+    return _resourceName;
+  }
+
+  int size() {
+    return _partitions.length;
+  }
+
+  Partition getPartition(int index) {
+    return _partitions[index];
+  }
+
+  Map<String, String> getCurrentStateMap(int index) {
+    return _currentStateMaps[index];
+  }
+
+  Map<String, String> getBestPossibleMap(int index) {
+    return _bestPossibleMaps[index];
+  }
+
+  Set<String> getDisabledInstances(int index) {
+    return _disabledInstances[index];
+  }
+
+  RebalanceType getRebalanceType(int index) {
+    return _rebalanceTypes[index];
+  }
+
+  boolean hasErrorReplica(int index) {
+    return _hasErrorReplica[index];
+  }
+
+  int getRecoveryCount() {
+    return _recoveryCount;
+  }
+
+  int getLoadBalanceCount() {
+    return _loadBalanceCount;
+  }
+
+  int getErrorCount() {
+    return _errorCount;
+  }
+
+  /**
+   * @param rebalanceType RECOVERY_BALANCE or LOAD_BALANCE
+   * @return the indexes of the partitions that need the rebalance type, in the order they are
+   *         rebalanced, ties broken by partition name
+   */
+  int[] getPrioritizedPartitions(RebalanceType rebalanceType) {
+    int count = rebalanceType == RebalanceType.RECOVERY_BALANCE ? _recoveryCount
+        : _loadBalanceCount;
+    long[] keys = new long[count];
+    int k = 0;
+    for (int i = 0; i < _partitions.length; i++) {
+      if (_rebalanceTypes[i] != rebalanceType) {
+        continue;
+      }
+      long key;
+      if (rebalanceType == RebalanceType.RECOVERY_BALANCE) {
+        // Partition without top state always is the highest priority, then the partition with
+        // fewer active replicas
+        key = ((long) getTopStateIndex(i) << (2 * KEY_BITS))
+            | ((long) getCurrentActiveReplicas(i) << KEY_BITS);
+      } else {
+        // Higher priority for the partition with fewer replicas in their best possible states
+        key = (long) getBestPossibleStateMatched(i) << KEY_BITS;
+      }
+      keys[k++] = key | i;
+    }
+    Arrays.sort(keys);
+    int[] indexes = new int[count];
+    for (int i = 0; i < count; i++) {
+      indexes[i] = (int) (keys[i] & KEY_MASK);
+    }
+    return indexes;
+  }
+
+  /**
+   * Check for a partition, whether all transitions for its replicas are downward transitions.
+   * Note that this function does NOT check for ERROR states.
+   * @return true if there are; false otherwise
+   */
+  boolean isLoadBalanceDownwardForAllReplicas(int index) {
+    Map<String, String> currentStateMap = _currentStateMaps[index];
+    Map<String, String> bestPossibleMap = _bestPossibleMaps[index];
+    Map<String, Integer> statePriorityMap = _stateModelDef.getStatePriorityMap();
+    for (String instance : bestPossibleMap.keySet()) {
+      if (!currentStateMap.containsKey(instance)) {
+        return false; // null -> state is upward
+      }
+    }
+    for (Map.Entry<String, String> entry : currentStateMap.entrySet()) {
+      String currentState = entry.getValue();
+      String bestPossibleState = bestPossibleMap.get(entry.getKey());
+      if (currentState == null) {
+        return false;
+      }
+      if (bestPossibleState != null) {
+        // Compare priority values and return if an upward transition is found
+        // Note that lower integer value implies higher priority
+        Integer currentPriority = statePriorityMap.get(currentState);
+        Integer bestPossiblePriority = statePriorityMap.get(bestPossibleState);
+        if (currentPriority == null || bestPossiblePriority == null) {
+          // If the state is not found in statePriorityMap, consider it not strictly downward by
+          // default because we can't determine whether it is downward
+          return false;
+        }
+        if (currentPriority > bestPossiblePriority) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  // 0 if no replicas in top-state, 1 if it has at least one replica in top-state.
+  private int getTopStateIndex(int index) {
+    return _currentStateMaps[index].values().contains(_stateModelDef.getTopState()) ? 1 : 0;
+  }
+
+  private int getCurrentActiveReplicas(int index) {
+    int currentActiveReplicas = 0;
+    Map<String, String> bestPossibleMap = _bestPossibleMaps[index];
+    // Count the best possible replicas of each state, interning the states out of the model
+    Arrays.fill(_stateCounts, 0);
+    Map<String, Integer> otherStateCounts = null;
+    for (String state : bestPossibleMap.values()) {
+      Integer stateId = _stateIds.get(state);
+      if (stateId != null) {
+        _stateCounts[stateId]++;
+      } else {
+        if (otherStateCounts == null) {
+          otherStateCounts = new HashMap<>();
+        }
+        Integer count = otherStateCounts.get(state);
+        otherStateCounts.put(state, count == null ? 1 : count + 1);
+      }
+    }
+    // Search the state map
+    for (String state : _currentStateMaps[index].values()) {
+      Integer stateId = _stateIds.get(state);
+      if (stateId != null) {
+        if (_stateCounts[stateId] > 0) {
+          currentActiveReplicas++;
+          _stateCounts[stateId]--;
+        }
+      } else if (otherStateCounts != null) {
+        Integer count = otherStateCounts.get(state);
+        if (count != null && count > 0) {
+          currentActiveReplicas++;
+          otherStateCounts.put(state, count - 1);
+        }
+      }
+    }
+    return currentActiveReplicas;
+  }
+
+  private int getBestPossibleStateMatched(int index) {
+    int matchedState = 0;
+    Map<String, String> currentStateMap = _currentStateMaps[index];
+    for (Map.Entry<String, String> entry : _bestPossibleMaps[index].entrySet()) {
+      if (entry.getValue().equals(currentStateMap.get(entry.getKey()))) {
+        matchedState++;
+      }
+    }
+    return matchedState;
+  }
+}
@@ -14,7 +14,7 @@ import org.slf4j.LoggerFactory;
 
 public class TaskGarbageCollectionStage extends AbstractAsyncBaseStage {
   private static Logger LOG = LoggerFactory.getLogger(TaskGarbageCollectionStage.class);
-  private static RebalanceScheduler _rebalanceScheduler = new RebalanceScheduler();
+  private static RebalanceScheduler _rebalanceScheduler = TaskUtil.createRebalanceScheduler();
 
   @Override
   public AsyncWorkerType getAsyncWorkerType() {
@@ -2,6 +2,7 @@ package org.apache.helix.controller.stages.task;
 
 import com.google.common.collect.Maps;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -10,6 +11,7 @@ import java.util.PriorityQueue;
 import java.util.Set;
 import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixManager;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.controller.pipeline.AbstractBaseStage;
@@ -25,6 +27,7 @@ import org.apache.helix.model.IdealState;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
 import org.apache.helix.model.ResourceAssignment;
+import org.apache.helix.monitoring.mbeans.ClusterEventMonitor;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.apache.helix.task.AssignableInstanceManager;
 import org.apache.helix.task.TaskConstants;
@@ -41,6 +44,10 @@ public class TaskSchedulingStage extends AbstractBaseStage {
   private static final Logger logger = LoggerFactory.getLogger(TaskSchedulingStage.class.getName());
   private Map<String, PriorityQueue<WorkflowObject>> _quotaBasedWorkflowPQs = Maps.newHashMap();
   private WorkflowDispatcher _workflowDispatcher;
+  private final WorkflowDispatchTracker _dispatchTracker =
+      Boolean.getBoolean(SystemPropertyKeys.TASK_INCREMENTAL_DISPATCH_ENABLED)
+          ? new WorkflowDispatchTracker(
+          Long.getLong(SystemPropertyKeys.TASK_FULL_DISPATCH_INTERVAL, 60000L)) : null;
 
   @Override
   public void process(ClusterEvent event) throws Exception {
@@ -59,9 +66,19 @@ public class TaskSchedulingStage extends AbstractBaseStage {
     // Reset current INIT/RUNNING tasks on participants for throttling
     cache.resetActiveTaskCount(currentStateOutput);
 
+    ClusterStatusMonitor clusterStatusMonitor =
+        event.getAttribute(AttributeName.clusterStatusMonitor.name());
     buildQuotaBasedWorkflowPQsAndInitDispatchers(cache,
         (HelixManager) event.getAttribute(AttributeName.helixmanager.name()),
-        (ClusterStatusMonitor) event.getAttribute(AttributeName.clusterStatusMonitor.name()));
+        clusterStatusMonitor);
+
+    Map<String, Long> dueTaskTimers = event.getAttribute(AttributeName.DUE_TASK_TIMERS.name());
+    if (dueTaskTimers != null && !dueTaskTimers.isEmpty() && clusterStatusMonitor != null) {
+      // The lag of the earliest timer is the scheduling lag of the batch
+      clusterStatusMonitor.updateClusterEventDuration(
+          ClusterEventMonitor.PhaseName.TaskTimerLag.name(),
+          System.currentTimeMillis() - Collections.min(dueTaskTimers.values()));
+    }
 
     final BestPossibleStateOutput bestPossibleStateOutput =
         compute(event, resourceMap, currentStateOutput);
@@ -76,7 +93,9 @@ public class TaskSchedulingStage extends AbstractBaseStage {
     BestPossibleStateOutput output = new BestPossibleStateOutput();
     final List<String> failureResources = new ArrayList<>();
     // Queues only for Workflows
-    scheduleWorkflows(resourceMap, cache, restOfResources, failureResources, currentStateOutput, output);
+    Map<String, Long> dueTaskTimers = event.getAttribute(AttributeName.DUE_TASK_TIMERS.name());
+    scheduleWorkflows(resourceMap, cache, restOfResources, failureResources, currentStateOutput,
+        dueTaskTimers == null ? Collections.<String>emptySet() : dueTaskTimers.keySet(), output);
     for (String jobName : cache.getTaskDataCache().getDispatchedJobs()) {
       updateResourceMap(jobName, resourceMap, output.getPartitionStateMap(jobName).partitionSet());
       restOfResources.remove(jobName);
@@ -240,8 +259,16 @@ public class TaskSchedulingStage extends AbstractBaseStage {
 
   private void scheduleWorkflows(Map<String, Resource> resourceMap, WorkflowControllerDataProvider cache,
       Map<String, Resource> restOfResources, List<String> failureResources,
-      CurrentStateOutput currentStateOutput, BestPossibleStateOutput bestPossibleOutput) {
+      CurrentStateOutput currentStateOutput, Set<String> dueTimerResources,
+      BestPossibleStateOutput bestPossibleOutput) {
     AssignableInstanceManager assignableInstanceManager = cache.getAssignableInstanceManager();
+    Set<String> workflowsToDispatch = null;
+    if (_dispatchTracker != null) {
+      _dispatchTracker.cleanUp(cache);
+      workflowsToDispatch =
+          _dispatchTracker.getWorkflowsToDispatch(cache, currentStateOutput, dueTimerResources);
+    }
+    int dispatchedCount = 0;
     for (PriorityQueue<WorkflowObject> quotaBasedWorkflowPQ : _quotaBasedWorkflowPQs.values()) {
       Iterator<WorkflowObject> it = quotaBasedWorkflowPQ.iterator();
       while (it.hasNext()) {
@@ -250,6 +277,15 @@ public class TaskSchedulingStage extends AbstractBaseStage {
         // TODO : Resource is null could be workflow just created without any IdealState.
         // Let's remove this check when Helix is independent from IdealState
         if (resource != null) {
+          // Nothing the workflow depends on changed, so its job assignments are the same
+          if (workflowsToDispatch != null && !workflowsToDispatch.contains(workflowId)
+              && _dispatchTracker.reuseJobAssignments(workflowId, cache, bestPossibleOutput)) {
+            restOfResources.remove(workflowId);
+            continue;
+          }
+          dispatchedCount++;
+          Map<String, String> workflowStates = _dispatchTracker == null ? null
+              : _dispatchTracker.getWorkflowStates(workflowId, cache);
           try {
             WorkflowContext context = _workflowDispatcher
                 .getOrInitializeWorkflowContext(workflowId, cache.getTaskDataCache());
@@ -266,14 +302,26 @@ public class TaskSchedulingStage extends AbstractBaseStage {
                   "Fail to schedule new jobs assignment for Workflow %s due to quota %s is full",
                   workflowId, quotaType));
             }
+            if (_dispatchTracker != null) {
+              _dispatchTracker.recordDispatch(workflowId, workflowStates, cache,
+                  bestPossibleOutput);
+            }
           } catch (Exception e) {
             LogUtil.logError(logger, _eventId,
                 "Error computing assignment for Workflow " + workflowId + ". Skipping.", e);
             failureResources.add(workflowId);
+            if (_dispatchTracker != null) {
+              _dispatchTracker.removeWorkflow(workflowId);
+            }
           }
         }
       }
     }
+    if (workflowsToDispatch != null) {
+      LogUtil.logInfo(logger, _eventId, String
+          .format("Dispatched %d of %d workflows", dispatchedCount,
+              cache.getWorkflowConfigMap().size()));
+    }
   }
 
   private void updateResourceMap(String jobName, Map<String, Resource> resourceMap,
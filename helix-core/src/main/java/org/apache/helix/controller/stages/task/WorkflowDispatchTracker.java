@@ -0,0 +1,331 @@
+package org.apache.helix.controller.stages.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.helix.controller.common.PartitionStateMap;
+import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
+import org.apache.helix.controller.stages.BestPossibleStateOutput;
+import org.apache.helix.controller.stages.CurrentStateOutput;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.task.JobConfig;
+import org.apache.helix.task.TaskState;
+import org.apache.helix.task.WorkflowConfig;
+import org.apache.helix.task.WorkflowContext;
+import org.apache.helix.task.assigner.AssignableInstance;
+
+/**
+ * Tracks the inputs of the workflows dispatched by {@link TaskSchedulingStage}, so that a workflow
+ * is only dispatched again when one of its inputs changed. Otherwise, the job assignments computed
+ * by its last dispatch are reused.
+ * <p>
+ * A workflow is dispatched if:
+ * <ul>
+ * <li>the config or ideal state of the workflow or of one of its jobs was reloaded. Timers of the
+ * task framework trigger the pipeline by touching the ideal state of the workflow or job, so the
+ * workflows due are dispatched.</li>
+ * <li>a timer of the workflow or of one of its jobs is due, when the timers are batched into
+ * OnDemandRebalance events instead</li>
+ * <li>the context of the workflow or of one of its jobs was changed by others</li>
+ * <li>the current states of one of its jobs, or of the target resource of a targeted job, changed
+ * </li>
+ * <li>its last dispatch changed the state of the workflow or of one of its jobs</li>
+ * <li>the task capacity of the cluster changed, and the workflow may be waiting for it</li>
+ * <li>its last dispatch failed, or it was never dispatched</li>
+ * </ul>
+ * All the workflows are dispatched when the live instances, instance configs or cluster config
+ * change, and at least once per full dispatch interval.
+ */
+class WorkflowDispatchTracker {
+  private final long _fullDispatchInterval;
+  private long _lastFullDispatchTime = -1L;
+
+  private CurrentStateOutput _lastCurrentStateOutput;
+  private int _lastClusterConfigVersion = -1;
+  private Map<String, LiveInstance> _lastLiveInstances = new HashMap<>();
+  private Map<String, InstanceConfig> _lastInstanceConfigs = new HashMap<>();
+  private Map<String, Integer> _lastCapacityUsage = new HashMap<>();
+
+  // Resource name -> config and ideal state when its workflow was last dispatched. The objects are
+  // reused by the cache until they are reloaded, so they are compared by identity.
+  private final Map<String, ResourceConfig> _resourceConfigs = new HashMap<>();
+  private final Map<String, IdealState> _idealStates = new HashMap<>();
+  // Workflow -> job -> the job assignment computed by the last dispatch of the workflow
+  private final Map<String, Map<String, PartitionStateMap>> _jobAssignments = new HashMap<>();
+  // Workflows whose last dispatch changed the workflow or job states
+  private final Set<String> _progressedWorkflows = new HashSet<>();
+
+  WorkflowDispatchTracker(long fullDispatchInterval) {
+    _fullDispatchInterval = fullDispatchInterval;
+  }
+
+  /**
+   * Compute the workflows to dispatch in this pipeline.
+   * @param cache
+   * @param currentStateOutput
+   * @param dueTimerResources the workflows and jobs whose timers are due
+   * @return the names of the workflows to dispatch, or null if all of them are to be dispatched
+   */
+  Set<String> getWorkflowsToDispatch(WorkflowControllerDataProvider cache,
+      CurrentStateOutput currentStateOutput, Set<String> dueTimerResources) {
+    CurrentStateOutput lastCurrentStateOutput = _lastCurrentStateOutput;
+    _lastCurrentStateOutput = currentStateOutput;
+    boolean capacityChanged = updateCapacityUsage(cache);
+    long currentTime = System.currentTimeMillis();
+    if (updateInstances(cache) || lastCurrentStateOutput == null
+        || currentTime - _lastFullDispatchTime >= _fullDispatchInterval) {
+      _lastFullDispatchTime = currentTime;
+      return null;
+    }
+
+    Map<String, List<JobConfig>> workflowJobs = getWorkflowJobs(cache);
+    Set<String> changedContexts = cache.getTaskDataCache().getContextsChangedOnRefresh();
+    Set<String> workflowsToDispatch = new HashSet<>();
+    for (String resource : dueTimerResources) {
+      JobConfig jobConfig = cache.getJobConfig(resource);
+      workflowsToDispatch.add(jobConfig == null ? resource : jobConfig.getWorkflow());
+    }
+    for (Map.Entry<String, WorkflowConfig> entry : cache.getWorkflowConfigMap().entrySet()) {
+      String workflow = entry.getKey();
+      if (!_jobAssignments.containsKey(workflow) || _progressedWorkflows.contains(workflow)
+          || hasResourceChanged(workflow, cache, changedContexts)
+          || capacityChanged && isWaitingForCapacity(entry.getValue(), cache)) {
+        workflowsToDispatch.add(workflow);
+        continue;
+      }
+      List<JobConfig> jobConfigs = workflowJobs.get(workflow);
+      if (jobConfigs == null) {
+        continue;
+      }
+      for (JobConfig jobConfig : jobConfigs) {
+        String job = jobConfig.getJobId();
+        String targetResource = jobConfig.getTargetResource();
+        if (hasResourceChanged(job, cache, changedContexts)
+            || !currentStateOutput.hasSameResourceState(job, lastCurrentStateOutput)
+            || targetResource != null
+            && !currentStateOutput.hasSameResourceState(targetResource, lastCurrentStateOutput)) {
+          workflowsToDispatch.add(workflow);
+          break;
+        }
+      }
+    }
+    return workflowsToDispatch;
+  }
+
+  /**
+   * Reuse the job assignments of the last dispatch of the workflow.
+   * @return false if the workflow has no job assignments to reuse
+   */
+  boolean reuseJobAssignments(String workflow, WorkflowControllerDataProvider cache,
+      BestPossibleStateOutput output) {
+    Map<String, PartitionStateMap> jobAssignments = _jobAssignments.get(workflow);
+    if (jobAssignments == null) {
+      return false;
+    }
+    for (Map.Entry<String, PartitionStateMap> entry : jobAssignments.entrySet()) {
+      cache.getTaskDataCache().dispatchJob(entry.getKey());
+      // Copy the state maps, since the later stages may change the output
+      for (Map.Entry<Partition, Map<String, String>> partitionEntry : entry.getValue()
+          .getStateMap().entrySet()) {
+        output.setState(entry.getKey(), partitionEntry.getKey(),
+            new HashMap<>(partitionEntry.getValue()));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Take the states of the workflow before it is dispatched.
+   */
+  Map<String, String> getWorkflowStates(String workflow, WorkflowControllerDataProvider cache) {
+    WorkflowContext workflowContext = cache.getWorkflowContext(workflow);
+    Map<String, String> states = new HashMap<>();
+    if (workflowContext != null) {
+      for (Map.Entry<String, TaskState> entry : workflowContext.getJobStates().entrySet()) {
+        states.put(entry.getKey(), entry.getValue().name());
+      }
+      states.put(workflow, workflowContext.getWorkflowState().name());
+    }
+    return states;
+  }
+
+  /**
+   * Record the inputs and the job assignments of a workflow that has been dispatched.
+   * @param workflowStates the states of the workflow before it was dispatched
+   */
+  void recordDispatch(String workflow, Map<String, String> workflowStates,
+      WorkflowControllerDataProvider cache, BestPossibleStateOutput output) {
+    recordResource(workflow, cache);
+    Map<String, PartitionStateMap> jobAssignments = new HashMap<>();
+    Set<String> dispatchedJobs = cache.getTaskDataCache().getDispatchedJobs();
+    WorkflowConfig workflowConfig = cache.getWorkflowConfig(workflow);
+    for (String job : workflowConfig.getJobDag().getAllNodes()) {
+      recordResource(job, cache);
+      if (dispatchedJobs.contains(job)) {
+        jobAssignments.put(job, output.getPartitionStateMap(job));
+      }
+    }
+    _jobAssignments.put(workflow, jobAssignments);
+    if (workflowStates.equals(getWorkflowStates(workflow, cache))) {
+      _progressedWorkflows.remove(workflow);
+    } else {
+      _progressedWorkflows.add(workflow);
+    }
+  }
+
+  /**
+   * Forget the workflow, so it is dispatched in the next pipeline.
+   */
+  void removeWorkflow(String workflow) {
+    _jobAssignments.remove(workflow);
+    _progressedWorkflows.remove(workflow);
+  }
+
+  /**
+   * Drop the records of the workflows and jobs that are gone.
+   */
+  void cleanUp(WorkflowControllerDataProvider cache) {
+    _jobAssignments.keySet().retainAll(cache.getWorkflowConfigMap().keySet());
+    _progressedWorkflows.retainAll(cache.getWorkflowConfigMap().keySet());
+    Set<String> resources = new HashSet<>(cache.getWorkflowConfigMap().keySet());
+    resources.addAll(cache.getJobConfigMap().keySet());
+    _resourceConfigs.keySet().retainAll(resources);
+    _idealStates.keySet().retainAll(resources);
+  }
+
+  private boolean hasResourceChanged(String resource, WorkflowControllerDataProvider cache,
+      Set<String> changedContexts) {
+    return changedContexts.contains(resource)
+        || cache.getResourceConfig(resource) != _resourceConfigs.get(resource)
+        || cache.getIdealState(resource) != _idealStates.get(resource);
+  }
+
+  private void recordResource(String resource, WorkflowControllerDataProvider cache) {
+    _resourceConfigs.put(resource, cache.getResourceConfig(resource));
+    _idealStates.put(resource, cache.getIdealState(resource));
+  }
+
+  private Map<String, List<JobConfig>> getWorkflowJobs(WorkflowControllerDataProvider cache) {
+    Map<String, List<JobConfig>> workflowJobs = new HashMap<>();
+    for (JobConfig jobConfig : cache.getJobConfigMap().values()) {
+      List<JobConfig> jobConfigs = workflowJobs.get(jobConfig.getWorkflow());
+      if (jobConfigs == null) {
+        jobConfigs = new ArrayList<>();
+        workflowJobs.put(jobConfig.getWorkflow(), jobConfigs);
+      }
+      jobConfigs.add(jobConfig);
+    }
+    return workflowJobs;
+  }
+
+  /**
+   * Recurring workflows only schedule new workflows, and workflows in final states do not assign
+   * tasks, so only the others may be waiting for task capacity.
+   */
+  private boolean isWaitingForCapacity(WorkflowConfig workflowConfig,
+      WorkflowControllerDataProvider cache) {
+    if (workflowConfig.getScheduleConfig() != null
+        && workflowConfig.getScheduleConfig().isRecurring()) {
+      return false;
+    }
+    WorkflowContext workflowContext = cache.getWorkflowContext(workflowConfig.getWorkflowId());
+    if (workflowContext == null) {
+      return true;
+    }
+    switch (workflowContext.getWorkflowState()) {
+    case COMPLETED:
+    case FAILED:
+    case ABORTED:
+    case TIMED_OUT:
+    case STOPPED:
+      return false;
+    default:
+      return true;
+    }
+  }
+
+  /**
+   * @return true if the live instances, instance configs or cluster config have been reloaded
+   */
+  private boolean updateInstances(WorkflowControllerDataProvider cache) {
+    // The cluster config is read on every refresh, so it is compared by its znode version
+    ClusterConfig clusterConfig = cache.getClusterConfig();
+    int clusterConfigVersion = clusterConfig == null ? -1 : clusterConfig.getRecord().getVersion();
+    boolean changed = clusterConfigVersion != _lastClusterConfigVersion
+        || !isSameObjects(cache.getLiveInstances(), _lastLiveInstances)
+        || !isSameObjects(cache.getInstanceConfigMap(), _lastInstanceConfigs);
+    if (changed) {
+      _lastClusterConfigVersion = clusterConfigVersion;
+      _lastLiveInstances = new HashMap<>(cache.getLiveInstances());
+      _lastInstanceConfigs = new HashMap<>(cache.getInstanceConfigMap());
+    }
+    return changed;
+  }
+
+  private static <T> boolean isSameObjects(Map<String, T> map, Map<String, T> lastMap) {
+    if (map.size() != lastMap.size()) {
+      return false;
+    }
+    for (Map.Entry<String, T> entry : map.entrySet()) {
+      if (entry.getValue() != lastMap.get(entry.getKey())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Task capacity is freed or taken when tasks of any workflow start or finish. The used threads
+   * per quota type are restored from the contexts on refresh, and the active tasks per participant
+   * from the current states.
+   * @return true if the capacity usage changed since the last pipeline
+   */
+  private boolean updateCapacityUsage(WorkflowControllerDataProvider cache) {
+    Map<String, Integer> capacityUsage = new HashMap<>();
+    for (AssignableInstance assignableInstance : cache.getAssignableInstanceManager()
+        .getAssignableInstanceMap().values()) {
+      for (Map<String, Integer> usage : assignableInstance.getUsedCapacity().values()) {
+        for (Map.Entry<String, Integer> entry : usage.entrySet()) {
+          Integer used = capacityUsage.get(entry.getKey());
+          capacityUsage.put(entry.getKey(), (used == null ? 0 : used) + entry.getValue());
+        }
+      }
+    }
+    for (String instance : cache.getLiveInstances().keySet()) {
+      Integer activeTaskCount = cache.getParticipantActiveTaskCount(instance);
+      if (activeTaskCount != null) {
+        capacityUsage.put(instance, activeTaskCount);
+      }
+    }
+    boolean changed = !capacityUsage.equals(_lastCapacityUsage);
+    _lastCapacityUsage = capacityUsage;
+    return changed;
+  }
+}
@@ -24,9 +24,16 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.I0Itec.zkclient.IZkChildListener;
@@ -91,6 +98,13 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
   // processor to handle async zk event resubscription.
   private static DedupEventProcessor SubscribeChangeEventProcessor;
 
+  private static final int DEFAULT_CALLBACK_DISPATCH_POOL_SIZE = 8;
+  // executor shared by all the handlers to invoke callbacks in concurrent dispatch mode. It is
+  // created by the first handler dispatching a callback and shut down once all the handlers using
+  // it have been shut down with their managers.
+  private static ExecutorService CallbackDispatchExecutor;
+  private static int CallbackDispatchExecutorUsers = 0;
+
   private final String _path;
   private final Object _listener;
   private final Set<EventType> _eventTypes;
@@ -107,6 +121,16 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
   // TODO: make this be per _manager or per _listener instaed of per callbackHandler -- Lei
   private CallbackProcessor _batchCallbackProcessor;
   private boolean _watchChild = true;  // Whether we should subscribe to the child znode's data change.
+  // Paths changed by the callbacks queued in batch mode, guarded by this handler
+  private Set<String> _batchedChangedPaths = new HashSet<>();
+
+  // In concurrent dispatch mode, callbacks are invoked on a shared executor holding the listener
+  // lock instead of the manager lock. Callbacks of this handler are queued and invoked in order.
+  private boolean _concurrentDispatchEnabled = false;
+  private final Queue<NotificationContext> _dispatchQueue = new LinkedList<>();
+  private boolean _dispatchScheduled = false;  // guarded by _dispatchQueue
+  // Whether this handler is counted as a user of the shared dispatch executor, guarded by the class
+  private boolean _usingDispatchExecutor = false;
 
   // indicated whether this CallbackHandler is ready to serve event callback from ZkClient.
   private boolean _ready = false;
@@ -167,6 +191,8 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
     @Override
     protected void handleEvent(NotificationContext event) {
       try {
+        // Earlier callbacks may have been deduplicated into this one, so carry their paths too
+        event.setPathsChanged(_handler.takeBatchedChangedPaths(event));
         _handler.invoke(event);
       } catch (Exception e) {
         logger.warn("Exception in callback processing thread. Skipping callback", e);
@@ -240,6 +266,13 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
     if (batchMode != null) {
       _batchModeEnabled = batchMode.enabled();
     }
+
+    _concurrentDispatchEnabled =
+        Boolean.getBoolean(SystemPropertyKeys.CONCURRENT_CALLBACK_DISPATCH_ENABLED);
+    if (_concurrentDispatchEnabled && _batchModeEnabled) {
+      logger.info("Listener {} is in batch mode, its callbacks are invoked on its batch processing "
+          + "thread instead of the concurrent dispatch executor.", _listener);
+    }
     if (preFetch != null) {
       _preFetchEnabled = preFetch.enabled();
     }
@@ -311,6 +344,18 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
     return _path;
   }
 
+  /**
+   * Get and clear the paths changed since the last batched callback was processed
+   */
+  private synchronized Set<String> takeBatchedChangedPaths(NotificationContext changeContext) {
+    Set<String> changedPaths = _batchedChangedPaths;
+    _batchedChangedPaths = new HashSet<>();
+    if (changeContext.getPathChanged() != null) {
+      changedPaths.add(changeContext.getPathChanged());
+    }
+    return changedPaths;
+  }
+
   public void enqueueTask(NotificationContext changeContext)
       throws Exception {
     //async mode only applicable to CALLBACK from ZK, During INIT and FINALIZE invoke the callback's immediately.
@@ -323,12 +368,23 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
       } else {
         synchronized (this) {
           if (_batchCallbackProcessor != null) {
+            if (changeContext.getPathChanged() != null) {
+              _batchedChangedPaths.add(changeContext.getPathChanged());
+            }
             _batchCallbackProcessor.queueEvent(changeContext.getType(), changeContext);
           } else {
             throw new HelixException("Failed to process callback in batch mode. Batch Callback Processor does not exist.");
           }
         }
       }
+    } else if (_concurrentDispatchEnabled
+        && changeContext.getType() == NotificationContext.Type.CALLBACK) {
+      if (!isReady()) {
+        logger.info("CallbackHandler is not ready, ignore change callback from path: " + _path
+            + ", for listener: " + _listener);
+      } else {
+        dispatch(changeContext);
+      }
     } else {
       invoke(changeContext);
     }
@@ -338,109 +394,244 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
     }
   }
 
-  public void invoke(NotificationContext changeContext) throws Exception {
-    Type type = changeContext.getType();
-    long start = System.currentTimeMillis();
-
-    // This allows the listener to work with one change at a time
-    synchronized (_manager) {
-      if (logger.isInfoEnabled()) {
-        logger.info(
-            Thread.currentThread().getId() + " START:INVOKE " + _path + " listener:" + _listener
-                + " type: " + type);
+  /**
+   * Queue the callback to be invoked on the shared dispatch executor. At most one task per handler
+   * runs at a time, so the callbacks of this handler are invoked in order.
+   */
+  private void dispatch(NotificationContext changeContext) {
+    synchronized (_dispatchQueue) {
+      _dispatchQueue.offer(changeContext);
+      if (_dispatchScheduled) {
+        return;
       }
+      _dispatchScheduled = true;
+    }
+    try {
+      acquireCallbackDispatchExecutor().submit(new Runnable() {
+        @Override
+        public void run() {
+          processDispatchQueue();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // The executor is being shut down. Let the next callback schedule the queue again.
+      synchronized (_dispatchQueue) {
+        _dispatchScheduled = false;
+      }
+      logger.warn("Failed to dispatch callback, path: " + _path + ", listener: " + _listener, e);
+    }
+  }
 
-      if (!_expectTypes.contains(type)) {
-        logger.warn(
-            "Callback handler received event in wrong order. Listener: " + _listener + ", path: "
-                + _path + ", expected types: " + _expectTypes + " but was " + type);
-        return;
+  private void processDispatchQueue() {
+    while (true) {
+      NotificationContext changeContext;
+      synchronized (_dispatchQueue) {
+        changeContext = _dispatchQueue.poll();
+        if (changeContext == null) {
+          _dispatchScheduled = false;
+          return;
+        }
+      }
+      try {
+        invoke(changeContext);
+      } catch (Exception e) {
+        logger.warn("Exception in callback dispatch thread. Skipping callback, path: " + _path
+            + ", listener: " + _listener, e);
+      }
+    }
+  }
 
+  private ExecutorService acquireCallbackDispatchExecutor() {
+    synchronized (CallbackHandler.class) {
+      if (!_usingDispatchExecutor) {
+        _usingDispatchExecutor = true;
+        CallbackDispatchExecutorUsers++;
+      }
+      if (CallbackDispatchExecutor == null) {
+        int poolSize = Integer.getInteger(
+            SystemPropertyKeys.CONCURRENT_CALLBACK_DISPATCH_POOL_SIZE,
+            DEFAULT_CALLBACK_DISPATCH_POOL_SIZE);
+        CallbackDispatchExecutor =
+            Executors.newFixedThreadPool(Math.max(poolSize, 1), new ThreadFactory() {
+              private final AtomicInteger _threadCount = new AtomicInteger(0);
+
+              @Override
+              public Thread newThread(Runnable r) {
+                Thread thread =
+                    new Thread(r, "CallbackHandler-Dispatch-" + _threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
       }
-      _expectTypes = nextNotificationType.get(type);
+      return CallbackDispatchExecutor;
+    }
+  }
 
-      if (type == Type.INIT || type == Type.FINALIZE) {
-        subscribeForChanges(changeContext.getType(), _path, _watchChild);
-      } else {
-        // put SubscribeForChange run in async thread to reduce the latency of zk callback handling.
-        subscribeForChangesAsyn(changeContext.getType(), _path, _watchChild);
+  /**
+   * Stop using the shared dispatch executor, and shut it down if no other handler uses it. The
+   * callbacks already being invoked are completed.
+   */
+  private void releaseCallbackDispatchExecutor() {
+    synchronized (CallbackHandler.class) {
+      if (!_usingDispatchExecutor) {
+        return;
       }
+      _usingDispatchExecutor = false;
+      if (--CallbackDispatchExecutorUsers == 0 && CallbackDispatchExecutor != null) {
+        CallbackDispatchExecutor.shutdown();
+        CallbackDispatchExecutor = null;
+      }
+    }
+  }
 
-      if (_changeType == IDEAL_STATE) {
-        IdealStateChangeListener idealStateChangeListener = (IdealStateChangeListener) _listener;
-        List<IdealState> idealStates = preFetch(_propertyKey);
-        idealStateChangeListener.onIdealStateChange(idealStates, changeContext);
-      } else if (_changeType == INSTANCE_CONFIG) {
-        if (_listener instanceof ConfigChangeListener) {
-          ConfigChangeListener configChangeListener = (ConfigChangeListener) _listener;
-          List<InstanceConfig> configs = preFetch(_propertyKey);
-          configChangeListener.onConfigChange(configs, changeContext);
-        } else if (_listener instanceof InstanceConfigChangeListener) {
-          InstanceConfigChangeListener listener = (InstanceConfigChangeListener) _listener;
-          List<InstanceConfig> configs = preFetch(_propertyKey);
-          listener.onInstanceConfigChange(configs, changeContext);
-        }
-      } else if (_changeType == RESOURCE_CONFIG) {
-        ResourceConfigChangeListener listener = (ResourceConfigChangeListener) _listener;
-        List<ResourceConfig> configs = preFetch(_propertyKey);
-        listener.onResourceConfigChange(configs, changeContext);
-
-      } else if (_changeType == CLUSTER_CONFIG) {
-        ClusterConfigChangeListener listener = (ClusterConfigChangeListener) _listener;
-        ClusterConfig config = null;
-        if (_preFetchEnabled) {
-          config = _accessor.getProperty(_propertyKey);
+  /**
+   * @return true if the shared concurrent dispatch executor is running
+   */
+  public static boolean isCallbackDispatchExecutorRunning() {
+    synchronized (CallbackHandler.class) {
+      return CallbackDispatchExecutor != null;
+    }
+  }
+
+  public void invoke(NotificationContext changeContext) throws Exception {
+    Type type = changeContext.getType();
+    long start = System.currentTimeMillis();
+
+    if (!_concurrentDispatchEnabled) {
+      // This allows the listener to work with one change at a time
+      synchronized (_manager) {
+        doInvoke(changeContext, start);
+      }
+    } else if (type == Type.CALLBACK) {
+      // This allows the listener to work with one change at a time, while the callbacks of other
+      // listeners are invoked concurrently
+      synchronized (_listener) {
+        doInvoke(changeContext, start);
+      }
+    } else {
+      // INIT and FINALIZE also hold the listener lock, so they wait for the running callback.
+      // A callback waiting for them is dropped once FINALIZE is done, as INIT is expected next.
+      synchronized (_manager) {
+        synchronized (_listener) {
+          doInvoke(changeContext, start);
         }
-        listener.onClusterConfigChange(config, changeContext);
-
-      } else if (_changeType == CONFIG) {
-        ScopedConfigChangeListener listener = (ScopedConfigChangeListener) _listener;
-        List<HelixProperty> configs = preFetch(_propertyKey);
-        listener.onConfigChange(configs, changeContext);
-
-      } else if (_changeType == LIVE_INSTANCE) {
-        LiveInstanceChangeListener liveInstanceChangeListener = (LiveInstanceChangeListener) _listener;
-        List<LiveInstance> liveInstances = preFetch(_propertyKey);
-        liveInstanceChangeListener.onLiveInstanceChange(liveInstances, changeContext);
-
-      } else if (_changeType == CURRENT_STATE) {
-        CurrentStateChangeListener currentStateChangeListener = (CurrentStateChangeListener) _listener;
-        String instanceName = PropertyPathConfig.getInstanceNameFromPath(_path);
-        List<CurrentState> currentStates = preFetch(_propertyKey);
-        currentStateChangeListener.onStateChange(instanceName, currentStates, changeContext);
-
-      } else if (_changeType == MESSAGE) {
-        MessageListener messageListener = (MessageListener) _listener;
-        String instanceName = PropertyPathConfig.getInstanceNameFromPath(_path);
-        List<Message> messages = preFetch(_propertyKey);
-        messageListener.onMessage(instanceName, messages, changeContext);
-
-      } else if (_changeType == MESSAGES_CONTROLLER) {
-        MessageListener messageListener = (MessageListener) _listener;
-        List<Message> messages = preFetch(_propertyKey);
-        messageListener.onMessage(_manager.getInstanceName(), messages, changeContext);
-
-      } else if (_changeType == EXTERNAL_VIEW || _changeType == TARGET_EXTERNAL_VIEW) {
-        ExternalViewChangeListener externalViewListener = (ExternalViewChangeListener) _listener;
-        List<ExternalView> externalViewList = preFetch(_propertyKey);
-        externalViewListener.onExternalViewChange(externalViewList, changeContext);
-
-      } else if (_changeType == CONTROLLER) {
-        ControllerChangeListener controllerChangelistener = (ControllerChangeListener) _listener;
-        controllerChangelistener.onControllerChange(changeContext);
-      } else {
-        logger.warn("Unknown change type: " + _changeType);
       }
+    }
+  }
 
-      long end = System.currentTimeMillis();
-      if (logger.isInfoEnabled()) {
-        logger.info(
-            Thread.currentThread().getId() + " END:INVOKE " + _path + " listener:" + _listener
-                + " type: " + type + " Took: " + (end - start) + "ms");
+  /**
+   * Move to the state after the given notification type if it is expected.
+   * @return false if the notification is received in wrong order
+   */
+  private synchronized boolean transitNotificationType(Type type) {
+    if (!_expectTypes.contains(type)) {
+      logger.warn(
+          "Callback handler received event in wrong order. Listener: " + _listener + ", path: "
+              + _path + ", expected types: " + _expectTypes + " but was " + type);
+      return false;
+    }
+    _expectTypes = nextNotificationType.get(type);
+    return true;
+  }
+
+  private void doInvoke(NotificationContext changeContext, long start) throws Exception {
+    Type type = changeContext.getType();
+    if (logger.isInfoEnabled()) {
+      logger.info(
+          Thread.currentThread().getId() + " START:INVOKE " + _path + " listener:" + _listener
+              + " type: " + type);
+    }
+
+    if (!transitNotificationType(type)) {
+      return;
+    }
+    if (type == Type.CALLBACK && _monitor != null) {
+      _monitor.recordQueueWaitTime(
+          Math.max(System.currentTimeMillis() - changeContext.getCreationTime(), 0));
+    }
+
+    if (type == Type.INIT || type == Type.FINALIZE) {
+      subscribeForChanges(changeContext.getType(), _path, _watchChild);
+    } else {
+      // put SubscribeForChange run in async thread to reduce the latency of zk callback handling.
+      subscribeForChangesAsyn(changeContext.getType(), _path, _watchChild);
+    }
+
+    if (_changeType == IDEAL_STATE) {
+      IdealStateChangeListener idealStateChangeListener = (IdealStateChangeListener) _listener;
+      List<IdealState> idealStates = preFetch(_propertyKey);
+      idealStateChangeListener.onIdealStateChange(idealStates, changeContext);
+    } else if (_changeType == INSTANCE_CONFIG) {
+      if (_listener instanceof ConfigChangeListener) {
+        ConfigChangeListener configChangeListener = (ConfigChangeListener) _listener;
+        List<InstanceConfig> configs = preFetch(_propertyKey);
+        configChangeListener.onConfigChange(configs, changeContext);
+      } else if (_listener instanceof InstanceConfigChangeListener) {
+        InstanceConfigChangeListener listener = (InstanceConfigChangeListener) _listener;
+        List<InstanceConfig> configs = preFetch(_propertyKey);
+        listener.onInstanceConfigChange(configs, changeContext);
       }
-      if (_monitor != null) {
-        _monitor.increaseCallbackCounters(end - start);
+    } else if (_changeType == RESOURCE_CONFIG) {
+      ResourceConfigChangeListener listener = (ResourceConfigChangeListener) _listener;
+      List<ResourceConfig> configs = preFetch(_propertyKey);
+      listener.onResourceConfigChange(configs, changeContext);
+
+    } else if (_changeType == CLUSTER_CONFIG) {
+      ClusterConfigChangeListener listener = (ClusterConfigChangeListener) _listener;
+      ClusterConfig config = null;
+      if (_preFetchEnabled) {
+        config = _accessor.getProperty(_propertyKey);
       }
+      listener.onClusterConfigChange(config, changeContext);
+
+    } else if (_changeType == CONFIG) {
+      ScopedConfigChangeListener listener = (ScopedConfigChangeListener) _listener;
+      List<HelixProperty> configs = preFetch(_propertyKey);
+      listener.onConfigChange(configs, changeContext);
+
+    } else if (_changeType == LIVE_INSTANCE) {
+      LiveInstanceChangeListener liveInstanceChangeListener = (LiveInstanceChangeListener) _listener;
+      List<LiveInstance> liveInstances = preFetch(_propertyKey);
+      liveInstanceChangeListener.onLiveInstanceChange(liveInstances, changeContext);
+
+    } else if (_changeType == CURRENT_STATE) {
+      CurrentStateChangeListener currentStateChangeListener = (CurrentStateChangeListener) _listener;
+      String instanceName = PropertyPathConfig.getInstanceNameFromPath(_path);
+      List<CurrentState> currentStates = preFetch(_propertyKey);
+      currentStateChangeListener.onStateChange(instanceName, currentStates, changeContext);
+
+    } else if (_changeType == MESSAGE) {
+      MessageListener messageListener = (MessageListener) _listener;
+      String instanceName = PropertyPathConfig.getInstanceNameFromPath(_path);
+      List<Message> messages = preFetch(_propertyKey);
+      messageListener.onMessage(instanceName, messages, changeContext);
+
+    } else if (_changeType == MESSAGES_CONTROLLER) {
+      MessageListener messageListener = (MessageListener) _listener;
+      List<Message> messages = preFetch(_propertyKey);
+      messageListener.onMessage(_manager.getInstanceName(), messages, changeContext);
+
+    } else if (_changeType == EXTERNAL_VIEW || _changeType == TARGET_EXTERNAL_VIEW) {
+      ExternalViewChangeListener externalViewListener = (ExternalViewChangeListener) _listener;
+      List<ExternalView> externalViewList = preFetch(_propertyKey);
+      externalViewListener.onExternalViewChange(externalViewList, changeContext);
+
+    } else if (_changeType == CONTROLLER) {
+      ControllerChangeListener controllerChangelistener = (ControllerChangeListener) _listener;
+      controllerChangelistener.onControllerChange(changeContext);
+    } else {
+      logger.warn("Unknown change type: " + _changeType);
+    }
+
+    long end = System.currentTimeMillis();
+    if (logger.isInfoEnabled()) {
+      logger.info(
+          Thread.currentThread().getId() + " END:INVOKE " + _path + " listener:" + _listener
+              + " type: " + type + " Took: " + (end - start) + "ms");
+    }
+    if (_monitor != null) {
+      _monitor.increaseCallbackCounters(end - start);
     }
   }
 
@@ -694,6 +885,9 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
         isShutdown);
     try {
       _ready = false;
+      synchronized (_dispatchQueue) {
+        _dispatchQueue.clear();
+      }
       synchronized (this) {
         if (_batchCallbackProcessor != null) {
           if (isShutdown) {
@@ -704,6 +898,9 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
           }
         }
       }
+      if (isShutdown) {
+        releaseCallbackDispatchExecutor();
+      }
       NotificationContext changeContext = new NotificationContext(_manager);
       changeContext.setType(NotificationContext.Type.FINALIZE);
       changeContext.setChangeType(_changeType);
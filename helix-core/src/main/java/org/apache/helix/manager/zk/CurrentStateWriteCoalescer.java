@@ -0,0 +1,249 @@
+package org.apache.helix.manager.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.I0Itec.zkclient.exception.ZkBadVersionException;
+import org.I0Itec.zkclient.exception.ZkNoNodeException;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.GroupCommit;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.monitoring.mbeans.CurrentStateWriteMonitor;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link GroupCommit} for the current states of a participant, which merges the concurrent
+ * partition updates of the same current state, that is of the same session and resource, into one
+ * ZK write.
+ * <p>
+ * The thread committing the first update of a current state waits for the coalescing window, so
+ * the updates committed meanwhile by other state transitions join its write. The last written
+ * record and its version are kept, so a write does not read the current state back from ZK, and it
+ * is a conditional set: if the current state was changed by another writer, it is read again and
+ * the updates are merged and written again.
+ */
+public class CurrentStateWriteCoalescer extends GroupCommit {
+  private static final Logger LOG = LoggerFactory.getLogger(CurrentStateWriteCoalescer.class);
+  private static final int MAX_RETRY = 3;
+  // Keys kept before the idle ones, with the records they hold, are dropped
+  private static final int MAX_KEYS = 10000;
+
+  private final long _windowMs;
+  private final CurrentStateWriteMonitor _monitor;
+  private final ConcurrentHashMap<String, KeyQueue> _queues = new ConcurrentHashMap<>();
+
+  private static class Update {
+    final ZNRecord _record;
+    boolean _done = false;
+    boolean _success = false;
+
+    Update(ZNRecord record) {
+      _record = record;
+    }
+  }
+
+  private static class KeyQueue {
+    final List<Update> _pending = new ArrayList<>();
+    boolean _writing = false;
+    // The last written record and its version, only used by the writing thread
+    ZNRecord _record = null;
+    int _version = -1;
+  }
+
+  /**
+   * @param windowMs the time in ms the first update of a current state waits for others to join
+   * @param monitor the monitor of the writes, may be null
+   */
+  public CurrentStateWriteCoalescer(long windowMs, CurrentStateWriteMonitor monitor) {
+    _windowMs = windowMs;
+    _monitor = monitor;
+  }
+
+  @Override
+  public boolean commit(BaseDataAccessor<ZNRecord> accessor, int options, String key,
+      ZNRecord record, boolean removeIfEmpty) {
+    KeyQueue queue = getQueue(key);
+    Update update = new Update(record);
+    if (_monitor != null) {
+      _monitor.increaseUpdateCounter();
+    }
+
+    synchronized (queue) {
+      queue._pending.add(update);
+      // Wait while another thread writes. It either writes this update too, or hands the writing
+      // over to one of the waiting threads when it is done.
+      while (queue._writing && !update._done) {
+        try {
+          queue.wait();
+        } catch (InterruptedException e) {
+          LOG.error("Interrupted while committing change, key: " + key + ", record: " + record, e);
+          queue._pending.remove(update);
+          // Restore interrupt status
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+      if (update._done) {
+        return update._success;
+      }
+      queue._writing = true;
+    }
+
+    List<Update> updates = null;
+    boolean success = false;
+    try {
+      if (_windowMs > 0) {
+        try {
+          Thread.sleep(_windowMs);
+        } catch (InterruptedException e) {
+          // Write what is pending without waiting any longer
+          Thread.currentThread().interrupt();
+        }
+      }
+      synchronized (queue) {
+        updates = new ArrayList<>(queue._pending);
+        queue._pending.clear();
+      }
+      success = write(accessor, options, key, queue, updates, removeIfEmpty);
+    } finally {
+      synchronized (queue) {
+        if (updates != null) {
+          for (Update u : updates) {
+            u._done = true;
+            u._success = success;
+          }
+        }
+        queue._writing = false;
+        queue.notifyAll();
+      }
+    }
+    return update._success;
+  }
+
+  private boolean write(BaseDataAccessor<ZNRecord> accessor, int options, String key,
+      KeyQueue queue, List<Update> updates, boolean removeIfEmpty) {
+    for (int retry = 0; retry <= MAX_RETRY; retry++) {
+      if (retry > 0) {
+        // The current state was changed by another writer, or the write failed
+        queue._record = null;
+        if (_monitor != null) {
+          _monitor.increaseConflictRetryCounter();
+        }
+      }
+
+      ZNRecord base = queue._record;
+      int version = queue._version;
+      if (base == null) {
+        Stat stat = new Stat();
+        try {
+          base = accessor.get(key, stat, options);
+        } catch (ZkNoNodeException e) {
+          // OK.
+        }
+        version = base == null ? -1 : stat.getVersion();
+      }
+
+      // Merge in the same way as GroupCommit does
+      ZNRecord merged = base == null ? null : new ZNRecord(base);
+      for (Update u : updates) {
+        if (merged == null) {
+          merged = new ZNRecord(u._record);
+        }
+        merged.merge(u._record);
+      }
+
+      if (_monitor != null) {
+        _monitor.increaseWriteCounter();
+      }
+      if (removeIfEmpty && merged.getMapFields().isEmpty()) {
+        if (accessor.remove(key, options)) {
+          LOG.info("Removed " + key);
+          queue._record = null;
+          _queues.remove(key);
+          recordWrite(updates.size());
+          return true;
+        }
+        LOG.error("Fails to remove " + key + " from ZK, retry it!");
+        continue;
+      }
+
+      boolean success;
+      try {
+        success = base == null ? accessor.create(key, merged, options)
+            : accessor.set(key, merged, version, options);
+      } catch (ZkBadVersionException e) {
+        success = false;
+      }
+      if (success) {
+        queue._record = merged;
+        queue._version = base == null ? 0 : version + 1;
+        recordWrite(updates.size());
+        return true;
+      }
+      LOG.warn("Fails to update " + key + " to ZK at version " + version + ", retry it!");
+    }
+    queue._record = null;
+    LOG.error("Fails to update " + key + " to ZK after " + MAX_RETRY + " retries");
+    return false;
+  }
+
+  private void recordWrite(int updates) {
+    if (_monitor != null) {
+      _monitor.recordUpdatesPerWrite(updates);
+    }
+  }
+
+  private KeyQueue getQueue(String key) {
+    KeyQueue queue = _queues.get(key);
+    if (queue == null) {
+      if (_queues.size() >= MAX_KEYS) {
+        evictIdleQueues();
+      }
+      queue = new KeyQueue();
+      KeyQueue existing = _queues.putIfAbsent(key, queue);
+      if (existing != null) {
+        queue = existing;
+      }
+    }
+    return queue;
+  }
+
+  /**
+   * Drop the queues no thread is using, typically the ones of the expired sessions. A thread that
+   * got a dropped queue still writes correctly, since the writes are conditional on the version.
+   */
+  private void evictIdleQueues() {
+    Iterator<Map.Entry<String, KeyQueue>> it = _queues.entrySet().iterator();
+    while (it.hasNext()) {
+      KeyQueue queue = it.next().getValue();
+      synchronized (queue) {
+        if (!queue._writing && queue._pending.isEmpty()) {
+          it.remove();
+        }
+      }
+    }
+  }
+}
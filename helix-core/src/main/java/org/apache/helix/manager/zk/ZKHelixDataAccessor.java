@@ -58,7 +58,7 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
   final InstanceType _instanceType;
   private final String _clusterName;
   private final Builder _propertyKeyBuilder;
-  private final GroupCommit _groupCommit = new GroupCommit();
+  private final GroupCommit _groupCommit;
 
   public ZKHelixDataAccessor(String clusterName, BaseDataAccessor<ZNRecord> baseDataAccessor) {
     this(clusterName, null, baseDataAccessor);
@@ -66,9 +66,21 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
 
   public ZKHelixDataAccessor(String clusterName, InstanceType instanceType,
       BaseDataAccessor<ZNRecord> baseDataAccessor) {
+    this(clusterName, instanceType, baseDataAccessor, new GroupCommit());
+  }
+
+  /**
+   * @param clusterName
+   * @param instanceType
+   * @param baseDataAccessor
+   * @param groupCommit the group commit of the current state updates
+   */
+  public ZKHelixDataAccessor(String clusterName, InstanceType instanceType,
+      BaseDataAccessor<ZNRecord> baseDataAccessor, GroupCommit groupCommit) {
     _clusterName = clusterName;
     _instanceType = instanceType;
     _baseDataAccessor = baseDataAccessor;
+    _groupCommit = groupCommit;
     _propertyKeyBuilder = new PropertyKey.Builder(_clusterName);
   }
 
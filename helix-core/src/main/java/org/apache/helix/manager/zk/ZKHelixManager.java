@@ -32,9 +32,11 @@ import java.util.concurrent.TimeUnit;
 import javax.management.JMException;
 import org.I0Itec.zkclient.IZkStateListener;
 import org.I0Itec.zkclient.exception.ZkInterruptedException;
+import org.I0Itec.zkclient.serialize.ZkSerializer;
 import org.apache.helix.BaseDataAccessor;
 import org.apache.helix.ClusterMessagingService;
 import org.apache.helix.ConfigAccessor;
+import org.apache.helix.GroupCommit;
 import org.apache.helix.HelixAdmin;
 import org.apache.helix.HelixConstants.ChangeType;
 import org.apache.helix.HelixDataAccessor;
@@ -75,6 +77,7 @@ import org.apache.helix.model.BuiltInStateModelDefinitions;
 import org.apache.helix.model.HelixConfigScope.ConfigScopeProperty;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.monitoring.ZKPathDataDumpTask;
+import org.apache.helix.monitoring.mbeans.CurrentStateWriteMonitor;
 import org.apache.helix.monitoring.mbeans.HelixCallbackMonitor;
 import org.apache.helix.monitoring.mbeans.MonitorLevel;
 import org.apache.helix.participant.HelixStateMachineEngine;
@@ -94,6 +97,7 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
   private static final int FLAPPING_TIME_WINDOW = 300000; // Default to 300 sec
   public static final int DEFAULT_MAX_DISCONNECT_THRESHOLD = 600; // Default to be a large number
   private static final int DEFAULT_WAIT_CONNECTED_TIMEOUT = 10 * 1000;  // wait until connected for up to 10 seconds.
+  private static final long DEFAULT_CURRENT_STATE_COALESCING_WINDOW = 5L;
 
   protected final String _zkAddress;
   private final String _clusterName;
@@ -116,6 +120,7 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
   protected HelixZkClient _zkclient = null;
   private final DefaultMessagingService _messagingService;
   private Map<ChangeType, HelixCallbackMonitor> _callbackMonitors;
+  private CurrentStateWriteMonitor _currentStateWriteMonitor;
 
   private final MonitorLevel _monitorLevel;
 
@@ -649,8 +654,11 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
   }
 
   void createClient() throws Exception {
+    ZkSerializer defaultSerializer =
+        Boolean.getBoolean(SystemPropertyKeys.ZNRECORD_BINARY_FORMAT_ENABLED)
+            ? new ZNRecordBinarySerializer() : new ZNRecordSerializer();
     PathBasedZkSerializer zkSerializer =
-        ChainedPathZkSerializer.builder(new ZNRecordSerializer()).build();
+        ChainedPathZkSerializer.builder(defaultSerializer).build();
 
     HelixZkClient.ZkConnectionConfig connectionConfig = new HelixZkClient.ZkConnectionConfig(_zkAddress);
     connectionConfig.setSessionTimeout(_sessionTimeout);
@@ -682,7 +690,8 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
 
       _baseDataAccessor = createBaseDataAccessor();
 
-      _dataAccessor = new ZKHelixDataAccessor(_clusterName, _instanceType, _baseDataAccessor);
+      _dataAccessor = new ZKHelixDataAccessor(_clusterName, _instanceType, _baseDataAccessor,
+          createCurrentStateGroupCommit());
       _configAccessor = new ConfigAccessor(_zkclient);
 
       if (_instanceType == InstanceType.CONTROLLER
@@ -768,6 +777,7 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
        * transition
        */
       _messagingService.getExecutor().shutdown();
+      _messagingService.onDisconnected();
 
       // TODO reset user defined handlers only
       // TODO Fix the issue that when connection disconnected, reset handlers will be blocked. -- JJ
@@ -797,6 +807,13 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
         callbackMonitor.unregister();
       }
 
+      synchronized (this) {
+        if (_currentStateWriteMonitor != null) {
+          _currentStateWriteMonitor.unregister();
+          _currentStateWriteMonitor = null;
+        }
+      }
+
       _helixPropertyStore = null;
 
       synchronized (this) {
@@ -818,6 +835,30 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
     }
   }
 
+  /**
+   * Create the group commit of the current state updates. Participants coalesce the concurrent
+   * updates of the same current state if enabled.
+   */
+  private GroupCommit createCurrentStateGroupCommit() {
+    if (!Boolean.getBoolean(SystemPropertyKeys.PARTICIPANT_CURRENT_STATE_COALESCING_ENABLED)
+        || (_instanceType != InstanceType.PARTICIPANT
+        && _instanceType != InstanceType.CONTROLLER_PARTICIPANT)) {
+      return new GroupCommit();
+    }
+    if (_currentStateWriteMonitor == null) {
+      CurrentStateWriteMonitor monitor =
+          new CurrentStateWriteMonitor(_clusterName + "." + _instanceName);
+      try {
+        _currentStateWriteMonitor = monitor.register();
+      } catch (JMException e) {
+        LOG.error("Error in creating current state write monitor.", e);
+      }
+    }
+    return new CurrentStateWriteCoalescer(
+        Long.getLong(SystemPropertyKeys.PARTICIPANT_CURRENT_STATE_COALESCING_WINDOW,
+            DEFAULT_CURRENT_STATE_COALESCING_WINDOW), _currentStateWriteMonitor);
+  }
+
   @Override
   public String getSessionId() {
     checkConnected(_waitForConnectedTimeout);
@@ -0,0 +1,394 @@
+package org.apache.helix.manager.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.I0Itec.zkclient.serialize.ZkSerializer;
+import org.apache.helix.HelixException;
+import org.apache.helix.ZNRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serializes ZNRecord into a compact, versioned binary encoding.
+ *
+ * Layout: magic (4 bytes), format version (1 byte), flags (1 byte), then the body, which is
+ * optionally deflated. The body starts with a dictionary holding every distinct string of the
+ * record once, followed by the id, simple, list and map fields and the raw payload, where strings
+ * are varint references into the dictionary.
+ *
+ * Deserialization detects the format of the data, so records written as JSON by
+ * {@link ZNRecordSerializer} can still be read. This allows JSON and binary znodes to coexist while
+ * the binary format is rolled out. Since {@link ZNRecordSerializer} also reads the binary format,
+ * all readers should be upgraded before any writer switches to this serializer.
+ */
+public class ZNRecordBinarySerializer implements ZkSerializer {
+  private static Logger logger = LoggerFactory.getLogger(ZNRecordBinarySerializer.class);
+
+  // The first byte is never the first byte of a JSON document or of a gzip stream
+  private static final byte[] MAGIC = new byte[] { 0x00, 'H', 'Z', 'B' };
+  private static final byte FORMAT_VERSION = 1;
+  private static final byte FLAG_COMPRESSED = 0x01;
+  private static final int HEADER_LENGTH = MAGIC.length + 2;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final ZNRecordSerializer _jsonSerializer = new ZNRecordSerializer();
+
+  /**
+   * Check whether the given bytes are encoded by this serializer
+   * @param bytes
+   * @return true if the bytes start with the binary format header
+   */
+  public static boolean isBinaryFormat(byte[] bytes) {
+    if (bytes == null || bytes.length < HEADER_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (bytes[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int getListFieldBound(ZNRecord record) {
+    int max = Integer.MAX_VALUE;
+    if (record.getSimpleFields().containsKey(ZNRecord.LIST_FIELD_BOUND)) {
+      String maxStr = record.getSimpleField(ZNRecord.LIST_FIELD_BOUND);
+      try {
+        max = Integer.parseInt(maxStr);
+      } catch (Exception e) {
+        logger.error("IllegalNumberFormat for list field bound: " + maxStr);
+      }
+    }
+    return max;
+  }
+
+  @Override
+  public byte[] serialize(Object data) {
+    if (!(data instanceof ZNRecord)) {
+      // null is NOT an instance of any class
+      logger.error("Input object must be of type ZNRecord but it is " + data
+          + ". Will not write to zk");
+      throw new HelixException("Input object is not of type ZNRecord (was " + data + ")");
+    }
+
+    ZNRecord record = (ZNRecord) data;
+
+    // apply retention policy
+    int max = getListFieldBound(record);
+    if (max < Integer.MAX_VALUE) {
+      Map<String, List<String>> listMap = record.getListFields();
+      for (String key : listMap.keySet()) {
+        List<String> list = listMap.get(key);
+        if (list.size() > max) {
+          listMap.put(key, list.subList(0, max));
+        }
+      }
+    }
+
+    byte[] body = encode(record);
+    byte flags = 0;
+    if (record.getBooleanField("enableCompression", false)
+        || body.length + HEADER_LENGTH > ZNRecord.SIZE_LIMIT) {
+      body = compress(body);
+      flags |= FLAG_COMPRESSED;
+    }
+
+    if (body.length + HEADER_LENGTH > ZNRecord.SIZE_LIMIT) {
+      logger.error("Data size larger than 1M, ZNRecord.id: " + record.getId()
+          + ". Will not write to zk.");
+      throw new HelixException("Data size larger than 1M, ZNRecord.id: " + record.getId());
+    }
+
+    byte[] serializedBytes = new byte[body.length + HEADER_LENGTH];
+    System.arraycopy(MAGIC, 0, serializedBytes, 0, MAGIC.length);
+    serializedBytes[MAGIC.length] = FORMAT_VERSION;
+    serializedBytes[MAGIC.length + 1] = flags;
+    System.arraycopy(body, 0, serializedBytes, HEADER_LENGTH, body.length);
+    return serializedBytes;
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    if (bytes == null || bytes.length == 0) {
+      // reading a parent/null node
+      return null;
+    }
+
+    if (!isBinaryFormat(bytes)) {
+      return _jsonSerializer.deserialize(bytes);
+    }
+
+    try {
+      byte version = bytes[MAGIC.length];
+      if (version != FORMAT_VERSION) {
+        throw new HelixException("Unsupported ZNRecord binary format version: " + version);
+      }
+      Reader reader = new Reader(bytes, HEADER_LENGTH);
+      if ((bytes[MAGIC.length + 1] & FLAG_COMPRESSED) != 0) {
+        reader = new Reader(uncompress(reader), 0);
+      }
+      return decode(reader);
+    } catch (Exception e) {
+      logger.error("Exception during deserialization of binary ZNRecord of " + bytes.length
+          + " bytes", e);
+      return null;
+    }
+  }
+
+  private static byte[] encode(ZNRecord record) {
+    Writer fields = new Writer();
+    Map<String, Integer> dictionary = new HashMap<>();
+    List<String> strings = new ArrayList<>();
+
+    writeString(fields, record.getId(), dictionary, strings);
+
+    Map<String, String> simpleFields = record.getSimpleFields();
+    fields.writeVarInt(simpleFields.size());
+    for (Map.Entry<String, String> entry : simpleFields.entrySet()) {
+      writeString(fields, entry.getKey(), dictionary, strings);
+      writeString(fields, entry.getValue(), dictionary, strings);
+    }
+
+    Map<String, List<String>> listFields = record.getListFields();
+    fields.writeVarInt(listFields.size());
+    for (Map.Entry<String, List<String>> entry : listFields.entrySet()) {
+      writeString(fields, entry.getKey(), dictionary, strings);
+      List<String> list = entry.getValue();
+      // 0 stands for a null list, otherwise size + 1
+      fields.writeVarInt(list == null ? 0 : list.size() + 1);
+      if (list != null) {
+        for (String value : list) {
+          writeString(fields, value, dictionary, strings);
+        }
+      }
+    }
+
+    Map<String, Map<String, String>> mapFields = record.getMapFields();
+    fields.writeVarInt(mapFields.size());
+    for (Map.Entry<String, Map<String, String>> entry : mapFields.entrySet()) {
+      writeString(fields, entry.getKey(), dictionary, strings);
+      Map<String, String> map = entry.getValue();
+      // 0 stands for a null map, otherwise size + 1
+      fields.writeVarInt(map == null ? 0 : map.size() + 1);
+      if (map != null) {
+        for (Map.Entry<String, String> mapEntry : map.entrySet()) {
+          writeString(fields, mapEntry.getKey(), dictionary, strings);
+          writeString(fields, mapEntry.getValue(), dictionary, strings);
+        }
+      }
+    }
+
+    byte[] rawPayload = record.getRawPayload();
+    fields.writeVarInt(rawPayload == null ? 0 : rawPayload.length + 1);
+    if (rawPayload != null) {
+      fields.write(rawPayload, 0, rawPayload.length);
+    }
+
+    Writer body = new Writer();
+    body.writeVarInt(strings.size());
+    for (String str : strings) {
+      byte[] utf8 = str.getBytes(UTF8);
+      body.writeVarInt(utf8.length);
+      body.write(utf8, 0, utf8.length);
+    }
+    body.write(fields.buffer(), 0, fields.size());
+    return body.toByteArray();
+  }
+
+  private static ZNRecord decode(Reader reader) {
+    int dictionarySize = reader.readVarInt();
+    String[] dictionary = new String[dictionarySize];
+    for (int i = 0; i < dictionarySize; i++) {
+      dictionary[i] = reader.readUtf8(reader.readVarInt());
+    }
+
+    ZNRecord record = new ZNRecord(readString(reader, dictionary));
+
+    int simpleFieldCount = reader.readVarInt();
+    Map<String, String> simpleFields = record.getSimpleFields();
+    for (int i = 0; i < simpleFieldCount; i++) {
+      String key = readString(reader, dictionary);
+      simpleFields.put(key, readString(reader, dictionary));
+    }
+
+    int listFieldCount = reader.readVarInt();
+    Map<String, List<String>> listFields = record.getListFields();
+    for (int i = 0; i < listFieldCount; i++) {
+      String key = readString(reader, dictionary);
+      int size = reader.readVarInt() - 1;
+      List<String> list = null;
+      if (size >= 0) {
+        list = new ArrayList<>(size);
+        for (int j = 0; j < size; j++) {
+          list.add(readString(reader, dictionary));
+        }
+      }
+      listFields.put(key, list);
+    }
+
+    int mapFieldCount = reader.readVarInt();
+    Map<String, Map<String, String>> mapFields = record.getMapFields();
+    for (int i = 0; i < mapFieldCount; i++) {
+      String key = readString(reader, dictionary);
+      int size = reader.readVarInt() - 1;
+      Map<String, String> map = null;
+      if (size >= 0) {
+        map = new HashMap<>(size * 4 / 3 + 1);
+        for (int j = 0; j < size; j++) {
+          String mapKey = readString(reader, dictionary);
+          map.put(mapKey, readString(reader, dictionary));
+        }
+      }
+      mapFields.put(key, map);
+    }
+
+    int payloadLength = reader.readVarInt() - 1;
+    if (payloadLength >= 0) {
+      record.setRawPayload(reader.readBytes(payloadLength));
+    }
+    return record;
+  }
+
+  /**
+   * Write a string as a reference into the dictionary. 0 stands for null, otherwise the reference
+   * is the dictionary index + 1.
+   */
+  private static void writeString(Writer writer, String str, Map<String, Integer> dictionary,
+      List<String> strings) {
+    if (str == null) {
+      writer.writeVarInt(0);
+      return;
+    }
+    Integer index = dictionary.get(str);
+    if (index == null) {
+      index = strings.size();
+      dictionary.put(str, index);
+      strings.add(str);
+    }
+    writer.writeVarInt(index + 1);
+  }
+
+  private static String readString(Reader reader, String[] dictionary) {
+    int ref = reader.readVarInt();
+    return ref == 0 ? null : dictionary[ref - 1];
+  }
+
+  private static byte[] compress(byte[] body) {
+    Deflater deflater = new Deflater();
+    try {
+      deflater.setInput(body);
+      deflater.finish();
+      Writer writer = new Writer();
+      writer.writeVarInt(body.length);
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        int length = deflater.deflate(buffer);
+        writer.write(buffer, 0, length);
+      }
+      return writer.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] uncompress(Reader reader) throws DataFormatException {
+    int length = reader.readVarInt();
+    byte[] body = new byte[length];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(reader._bytes, reader._pos, reader._bytes.length - reader._pos);
+      int offset = 0;
+      while (offset < length) {
+        int inflated = inflater.inflate(body, offset, length - offset);
+        if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new DataFormatException("Truncated compressed ZNRecord");
+        }
+        offset += inflated;
+      }
+      return body;
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static class Writer extends ByteArrayOutputStream {
+    Writer() {
+      super(256);
+    }
+
+    void writeVarInt(int value) {
+      while ((value & ~0x7F) != 0) {
+        write((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      write(value);
+    }
+
+    byte[] buffer() {
+      return buf;
+    }
+  }
+
+  private static class Reader {
+    private final byte[] _bytes;
+    private int _pos;
+
+    Reader(byte[] bytes, int pos) {
+      _bytes = bytes;
+      _pos = pos;
+    }
+
+    int readVarInt() {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        byte b = _bytes[_pos++];
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new HelixException("Malformed varint in binary ZNRecord");
+    }
+
+    String readUtf8(int length) {
+      String str = new String(_bytes, _pos, length, UTF8);
+      _pos += length;
+      return str;
+    }
+
+    byte[] readBytes(int length) {
+      byte[] bytes = new byte[length];
+      System.arraycopy(_bytes, _pos, bytes, 0, length);
+      _pos += length;
+      return bytes;
+    }
+  }
+}
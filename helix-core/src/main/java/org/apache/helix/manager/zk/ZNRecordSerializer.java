@@ -26,17 +26,41 @@ import java.util.Map;
 
 import org.I0Itec.zkclient.serialize.ZkSerializer;
 import org.apache.helix.HelixException;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.util.GZipCompressionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.codehaus.jackson.map.DeserializationConfig;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectReader;
+import org.codehaus.jackson.map.ObjectWriter;
 import org.codehaus.jackson.map.SerializationConfig;
 
 public class ZNRecordSerializer implements ZkSerializer {
   private static Logger logger = LoggerFactory.getLogger(ZNRecordSerializer.class);
 
+  // ObjectMapper, ObjectReader and ObjectWriter are thread-safe once configured, so they are
+  // created once and shared by all serializer instances instead of being rebuilt on every call.
+  private static final ObjectMapper MAPPER = createObjectMapper();
+  private static final ObjectReader READER = MAPPER.reader(ZNRecord.class);
+  private static final ObjectWriter WRITER =
+      Boolean.getBoolean(SystemPropertyKeys.ZNRECORD_SERIALIZER_INDENT_OUTPUT)
+          ? MAPPER.writer().withDefaultPrettyPrinter() : MAPPER.writer();
+  private static final ZNRecordBinarySerializer BINARY_SERIALIZER =
+      new ZNRecordBinarySerializer();
+
+  private static ObjectMapper createObjectMapper() {
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.configure(SerializationConfig.Feature.INDENT_OUTPUT, false);
+    mapper.configure(SerializationConfig.Feature.AUTO_DETECT_FIELDS, true);
+    mapper.configure(SerializationConfig.Feature.CAN_OVERRIDE_ACCESS_MODIFIERS, true);
+    mapper.configure(DeserializationConfig.Feature.AUTO_DETECT_FIELDS, true);
+    mapper.configure(DeserializationConfig.Feature.AUTO_DETECT_SETTERS, true);
+    mapper.configure(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, true);
+    return mapper;
+  }
+
   private static int getListFieldBound(ZNRecord record) {
     int max = Integer.MAX_VALUE;
     if (record.getSimpleFields().containsKey(ZNRecord.LIST_FIELD_BOUND)) {
@@ -74,15 +98,10 @@ public class ZNRecordSerializer implements ZkSerializer {
     }
 
     // do serialization
-    ObjectMapper mapper = new ObjectMapper();
-    SerializationConfig serializationConfig = mapper.getSerializationConfig();
-    serializationConfig.set(SerializationConfig.Feature.INDENT_OUTPUT, true);
-    serializationConfig.set(SerializationConfig.Feature.AUTO_DETECT_FIELDS, true);
-    serializationConfig.set(SerializationConfig.Feature.CAN_OVERRIDE_ACCESS_MODIFIERS, true);
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     byte[] serializedBytes;
     try {
-      mapper.writeValue(baos, data);
+      WRITER.writeValue(baos, data);
       serializedBytes = baos.toByteArray();
       // apply compression if needed
       if (record.getBooleanField("enableCompression", false) || serializedBytes.length > ZNRecord.SIZE_LIMIT) {
@@ -109,20 +128,20 @@ public class ZNRecordSerializer implements ZkSerializer {
       return null;
     }
 
+    if (ZNRecordBinarySerializer.isBinaryFormat(bytes)) {
+      // the znode is written in the binary format, e.g. during its rollout
+      return BINARY_SERIALIZER.deserialize(bytes);
+    }
+
     ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
 
-    ObjectMapper mapper = new ObjectMapper();
-    DeserializationConfig deserializationConfig = mapper.getDeserializationConfig();
-    deserializationConfig.set(DeserializationConfig.Feature.AUTO_DETECT_FIELDS, true);
-    deserializationConfig.set(DeserializationConfig.Feature.AUTO_DETECT_SETTERS, true);
-    deserializationConfig.set(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, true);
     try {
       //decompress the data if its already compressed
       if (GZipCompressionUtil.isCompressed(bytes)) {
         byte[] uncompressedBytes = GZipCompressionUtil.uncompress(bais);
         bais = new ByteArrayInputStream(uncompressedBytes);
       }
-      ZNRecord zn = mapper.readValue(bais, ZNRecord.class);
+      ZNRecord zn = READER.readValue(bais);
 
       return zn;
     } catch (Exception e) {
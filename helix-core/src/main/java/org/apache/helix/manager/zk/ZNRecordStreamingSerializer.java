@@ -46,6 +46,10 @@ import com.google.common.collect.Maps;
 
 public class ZNRecordStreamingSerializer implements ZkSerializer {
   private static Logger LOG = LoggerFactory.getLogger(ZNRecordStreamingSerializer.class);
+  // JsonFactory is thread-safe and expensive to create, share it across calls
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final ZNRecordBinarySerializer BINARY_SERIALIZER =
+      new ZNRecordBinarySerializer();
 
   private static int getListFieldBound(ZNRecord record) {
     int max = Integer.MAX_VALUE;
@@ -84,8 +88,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     byte[] serializedBytes = null;
     try {
-      JsonFactory f = new JsonFactory();
-      JsonGenerator g = f.createJsonGenerator(baos);
+      JsonGenerator g = JSON_FACTORY.createJsonGenerator(baos);
 
       g.writeStartObject();
 
@@ -183,6 +186,11 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
       return null;
     }
 
+    if (ZNRecordBinarySerializer.isBinaryFormat(bytes)) {
+      // the znode is written in the binary format, e.g. during its rollout
+      return BINARY_SERIALIZER.deserialize(bytes);
+    }
+
     ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
 
     ZNRecord record = null;
@@ -198,8 +206,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
         byte[] uncompressedBytes = GZipCompressionUtil.uncompress(bais);
         bais = new ByteArrayInputStream(uncompressedBytes);
       }
-      JsonFactory f = new JsonFactory();
-      JsonParser jp = f.createJsonParser(bais);
+      JsonParser jp = JSON_FACTORY.createJsonParser(bais);
 
       jp.nextToken(); // will return JsonToken.START_OBJECT (verify?)
       while (jp.nextToken() != JsonToken.END_OBJECT) {
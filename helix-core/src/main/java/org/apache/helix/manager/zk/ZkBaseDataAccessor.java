@@ -19,13 +19,23 @@ package org.apache.helix.manager.zk;
  * under the License.
  */
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.I0Itec.zkclient.DataUpdater;
 import org.I0Itec.zkclient.IZkChildListener;
 import org.I0Itec.zkclient.IZkDataListener;
@@ -35,7 +45,10 @@ import org.I0Itec.zkclient.exception.ZkNoNodeException;
 import org.I0Itec.zkclient.exception.ZkNodeExistsException;
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.BatchWriteDataAccessor;
+import org.apache.helix.BatchWriteOp;
 import org.apache.helix.HelixException;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.api.exceptions.HelixMetaDataAccessException;
 import org.apache.helix.manager.zk.ZkAsyncCallbacks.CreateCallbackHandler;
 import org.apache.helix.manager.zk.ZkAsyncCallbacks.DeleteCallbackHandler;
@@ -46,13 +59,20 @@ import org.apache.helix.manager.zk.client.HelixZkClient;
 import org.apache.helix.store.zk.ZNode;
 import org.apache.helix.util.HelixUtil;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.ZooDefs;
 import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.proto.CheckVersionRequest;
+import org.apache.zookeeper.proto.DeleteRequest;
+import org.apache.zookeeper.proto.SetDataRequest;
 import org.apache.zookeeper.server.DataTree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
+public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T>, BatchWriteDataAccessor<T> {
   enum RetCode {
     OK,
     NODE_EXISTS,
@@ -83,13 +103,28 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
 
   private static Logger LOG = LoggerFactory.getLogger(ZkBaseDataAccessor.class);
 
+  // half of the default jute.maxbuffer of the ZooKeeper servers
+  private static final int DEFAULT_MULTI_MAX_BYTES = 512 * 1024;
+  // estimated bytes of an op in a multi-op besides its path and data
+  private static final int MULTI_OP_OVERHEAD_BYTES = 64;
+  // executor shared by all the accessors to deserialize the results of async batch reads.
+  private static ExecutorService AsyncReadDeserializer;
+
   private final HelixZkClient _zkClient;
+  private final int _asyncReadWindowSize;
+  private final int _asyncReadDeserializerPoolSize;
+  private final int _multiMaxBytes;
 
   public ZkBaseDataAccessor(HelixZkClient zkClient) {
     if (zkClient == null) {
       throw new NullPointerException("zkclient is null");
     }
     _zkClient = zkClient;
+    _asyncReadWindowSize = Integer.getInteger(SystemPropertyKeys.ZK_ASYNC_READ_WINDOW_SIZE, 0);
+    _asyncReadDeserializerPoolSize =
+        Integer.getInteger(SystemPropertyKeys.ZK_ASYNC_READ_DESERIALIZER_POOL_SIZE, 0);
+    _multiMaxBytes =
+        Integer.getInteger(SystemPropertyKeys.ZK_MULTI_MAX_BYTES, DEFAULT_MULTI_MAX_BYTES);
   }
 
   /**
@@ -363,30 +398,50 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
     }
 
     long startT = System.nanoTime();
+    long startTimeMilliSec = System.currentTimeMillis();
 
     try {
-      // issue asyn get requests
       GetDataCallbackHandler[] cbList = new GetDataCallbackHandler[paths.size()];
+      List<T> records = new ArrayList<T>(Collections.<T> nCopies(paths.size(), null));
+      List<Future<T>> deserializeFutures = null;
+      if (_asyncReadDeserializerPoolSize > 0 && paths.size() > 1) {
+        deserializeFutures =
+            new ArrayList<Future<T>>(Collections.<Future<T>> nCopies(paths.size(), null));
+      }
+
+      // issue asyn get requests. ZooKeeper responds to the requests in order, so completing the
+      // oldest request before issuing a new one bounds the number of in-flight requests, while the
+      // completed results are deserialized as the later ones are still being read.
+      Deque<Integer> pendingReads = new ArrayDeque<>();
+      int readCount = 0;
       for (int i = 0; i < paths.size(); i++) {
         if (!needRead[i])
           continue;
 
+        if (_asyncReadWindowSize > 0 && pendingReads.size() >= _asyncReadWindowSize) {
+          completeRead(pendingReads.poll(), paths, cbList, records, deserializeFutures);
+        }
         String path = paths.get(i);
         cbList[i] = new GetDataCallbackHandler();
         _zkClient.asyncGetData(path, cbList[i]);
+        pendingReads.add(i);
+        readCount++;
       }
 
       // wait for completion
-      for (int i = 0; i < cbList.length; i++) {
-        if (!needRead[i])
-          continue;
-
-        GetDataCallbackHandler cb = cbList[i];
-        cb.waitForSuccess();
+      while (!pendingReads.isEmpty()) {
+        completeRead(pendingReads.poll(), paths, cbList, records, deserializeFutures);
+      }
+      if (deserializeFutures != null) {
+        for (int i = 0; i < paths.size(); i++) {
+          Future<T> future = deserializeFutures.get(i);
+          if (future != null) {
+            records.set(i, future.get());
+          }
+        }
       }
 
       // construct return results
-      List<T> records = new ArrayList<T>(Collections.<T> nCopies(paths.size(), null));
       Map<String, Integer> pathFailToRead = new HashMap<>();
       for (int i = 0; i < paths.size(); i++) {
         if (!needRead[i])
@@ -394,9 +449,6 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
 
         GetDataCallbackHandler cb = cbList[i];
         if (Code.get(cb.getRc()) == Code.OK) {
-          @SuppressWarnings("unchecked")
-          T record = (T) _zkClient.deserialize(cb._data, paths.get(i));
-          records.set(i, record);
           if (stats != null) {
             stats.set(i, cb._stat);
           }
@@ -409,6 +461,9 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
       if (pathFailToRead.size() > 0) {
         LOG.warn("Fail to read record for paths: " + pathFailToRead);
       }
+      if (readCount > 0 && _zkClient instanceof ZkClient) {
+        ((ZkClient) _zkClient).recordAsyncBatchRead(paths.get(0), readCount, startTimeMilliSec);
+      }
       return records;
     } catch (Exception e) {
       throw new HelixMetaDataAccessException(String.format("Fail to read nodes for %s", paths));
@@ -421,6 +476,51 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
     }
   }
 
+  /**
+   * Wait for the async get request of the given index to complete, and deserialize its result either
+   * in place or on the deserializer pool if deserializeFutures is not null.
+   */
+  private void completeRead(int index, final List<String> paths, GetDataCallbackHandler[] cbList,
+      List<T> records, List<Future<T>> deserializeFutures) {
+    final GetDataCallbackHandler cb = cbList[index];
+    cb.waitForSuccess();
+    if (Code.get(cb.getRc()) != Code.OK) {
+      return;
+    }
+    final String path = paths.get(index);
+    if (deserializeFutures == null) {
+      @SuppressWarnings("unchecked")
+      T record = (T) _zkClient.deserialize(cb._data, path);
+      records.set(index, record);
+    } else {
+      deserializeFutures.set(index, getAsyncReadDeserializer().submit(new Callable<T>() {
+        @Override
+        public T call() throws Exception {
+          return _zkClient.deserialize(cb._data, path);
+        }
+      }));
+    }
+  }
+
+  private static synchronized ExecutorService getAsyncReadDeserializer() {
+    if (AsyncReadDeserializer == null) {
+      int poolSize = Integer.getInteger(SystemPropertyKeys.ZK_ASYNC_READ_DESERIALIZER_POOL_SIZE, 0);
+      AsyncReadDeserializer =
+          Executors.newFixedThreadPool(Math.max(poolSize, 1), new ThreadFactory() {
+            private final AtomicInteger _threadCount = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+              Thread thread =
+                  new Thread(r, "ZkBaseDataAccessor-Deserializer-" + _threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+    }
+    return AsyncReadDeserializer;
+  }
+
   /**
    * asyn getChildren
    * The retryCount and retryInterval will be ignored.
@@ -1073,6 +1173,399 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
     }
   }
 
+  /**
+   * Check whether the znodes still have the expected versions. The checks are sent as multi-ops,
+   * so when no znode changed, all of them take a single round trip instead of one request per path.
+   * @param paths paths of the znodes
+   * @param expectedVersions expected version of each znode
+   * @return true for each znode that exists with the expected version
+   */
+  public boolean[] checkVersions(List<String> paths, List<Integer> expectedVersions) {
+    boolean[] unchanged = new boolean[paths.size()];
+    List<Integer> chunk = new ArrayList<>();
+    List<Op> chunkOps = new ArrayList<>();
+    int chunkBytes = 0;
+    for (int i = 0; i < paths.size(); i++) {
+      int bytes = paths.get(i).length() + MULTI_OP_OVERHEAD_BYTES;
+      if (!chunk.isEmpty() && chunkBytes + bytes > _multiMaxBytes) {
+        checkChunk(chunk, chunkOps, unchanged);
+        chunk.clear();
+        chunkOps.clear();
+        chunkBytes = 0;
+      }
+      chunk.add(i);
+      chunkOps.add(Op.check(paths.get(i), expectedVersions.get(i)));
+      chunkBytes += bytes;
+    }
+    if (!chunk.isEmpty()) {
+      checkChunk(chunk, chunkOps, unchanged);
+    }
+    return unchanged;
+  }
+
+  private void checkChunk(List<Integer> chunk, List<Op> chunkOps, boolean[] unchanged) {
+    Code[] results = multiIsolatingFailures(chunkOps, null);
+    for (int i = 0; i < chunk.size(); i++) {
+      unchanged[chunk.get(i)] = results[i] == Code.OK;
+    }
+  }
+
+  /**
+   * Send the ops as multi-ops until every op is either applied or failed. A multi-op fails as a
+   * whole at its first failing op, so that op is identified from the results of the multi-op and
+   * the other ops are sent again in another multi-op. Since one failure hints that the ZNodes
+   * changed since the ops were built, the first one also has the failures of the other ops
+   * predicted from the stats of their ZNodes, read in one round trip, so that a chunk with many
+   * conflicts does not take one multi-op per conflict.
+   * @param stats if not null, filled with the stat of each ZNode set by an op
+   * @return the result code of each op
+   */
+  private Code[] multiIsolatingFailures(List<Op> ops, Stat[] stats) {
+    Code[] results = new Code[ops.size()];
+    List<Integer> remaining = new ArrayList<>();
+    for (int i = 0; i < ops.size(); i++) {
+      remaining.add(i);
+    }
+    boolean predicted = false;
+    while (!remaining.isEmpty()) {
+      List<Op> remainingOps = new ArrayList<>(remaining.size());
+      for (int index : remaining) {
+        remainingOps.add(ops.get(index));
+      }
+      try {
+        List<OpResult> opResults = _zkClient.multi(remainingOps);
+        for (int i = 0; i < remaining.size(); i++) {
+          int index = remaining.get(i);
+          results[index] = Code.OK;
+          if (stats != null && opResults.get(i) instanceof OpResult.SetDataResult) {
+            stats[index] = ((OpResult.SetDataResult) opResults.get(i)).getStat();
+          }
+        }
+        return results;
+      } catch (Exception e) {
+        List<OpResult> opResults = getMultiResults(e);
+        int failedOp = getFailedOp(opResults);
+        if (failedOp < 0 || failedOp >= remaining.size()) {
+          LOG.warn("Failed to send {} ops in a multi-op", remaining.size(), e);
+          for (int index : remaining) {
+            results[index] = Code.SYSTEMERROR;
+          }
+          return results;
+        }
+        results[remaining.remove(failedOp)] =
+            Code.get(((OpResult.ErrorResult) opResults.get(failedOp)).getErr());
+        if (!predicted && !remaining.isEmpty()) {
+          predicted = true;
+          removePredictedFailures(ops, remaining, results);
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Remove from the remaining ops those that would fail given the current stats of their ZNodes,
+   * and record their result codes. An op is kept if another remaining op writes its ZNode, its
+   * parent or one of its children before it, since its stat does not tell its result then.
+   */
+  private void removePredictedFailures(List<Op> ops, List<Integer> remaining, Code[] results) {
+    List<String> paths = new ArrayList<>(remaining.size());
+    for (int index : remaining) {
+      paths.add(ops.get(index).getPath());
+    }
+    Stat[] stats = getStats(paths, 0);
+
+    Set<String> writtenPaths = new HashSet<>();
+    Set<String> writtenParents = new HashSet<>();
+    Iterator<Integer> iter = remaining.iterator();
+    for (int i = 0; i < paths.size(); i++) {
+      int index = iter.next();
+      String path = paths.get(i);
+      String parentPath = HelixUtil.getZkParentPath(path);
+      boolean dependent = writtenPaths.contains(path) || writtenPaths.contains(parentPath)
+          || writtenParents.contains(path);
+      writtenPaths.add(path);
+      writtenParents.add(parentPath);
+
+      Code result = dependent ? Code.OK : predictResult(ops.get(index), stats[i]);
+      if (result != Code.OK) {
+        results[index] = result;
+        iter.remove();
+      }
+    }
+  }
+
+  /**
+   * @return the result code the op gets if it is applied to a ZNode of the given stat, which is
+   *         null if the ZNode does not exist
+   */
+  private static Code predictResult(Op op, Stat stat) {
+    int expectedVersion;
+    switch (op.getType()) {
+    case ZooDefs.OpCode.create:
+      return stat == null ? Code.OK : Code.NODEEXISTS;
+    case ZooDefs.OpCode.setData:
+      expectedVersion = ((SetDataRequest) op.toRequestRecord()).getVersion();
+      break;
+    case ZooDefs.OpCode.delete:
+      expectedVersion = ((DeleteRequest) op.toRequestRecord()).getVersion();
+      break;
+    case ZooDefs.OpCode.check:
+      expectedVersion = ((CheckVersionRequest) op.toRequestRecord()).getVersion();
+      break;
+    default:
+      return Code.OK;
+    }
+    if (stat == null) {
+      return Code.NONODE;
+    }
+    if (expectedVersion != -1 && expectedVersion != stat.getVersion()) {
+      return Code.BADVERSION;
+    }
+    if (op.getType() == ZooDefs.OpCode.delete && stat.getNumChildren() > 0) {
+      return Code.NOTEMPTY;
+    }
+    return Code.OK;
+  }
+
+  /**
+   * @return the index of the op that failed the multi-op, or -1 if it is unknown
+   */
+  private static int getFailedOp(List<OpResult> opResults) {
+    if (opResults == null) {
+      return -1;
+    }
+    for (int i = 0; i < opResults.size(); i++) {
+      OpResult opResult = opResults.get(i);
+      if (opResult instanceof OpResult.ErrorResult) {
+        int err = ((OpResult.ErrorResult) opResult).getErr();
+        if (err != Code.OK.intValue() && err != Code.RUNTIMEINCONSISTENCY.intValue()) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static List<OpResult> getMultiResults(Exception e) {
+    Throwable cause = e;
+    while (cause != null && !(cause instanceof KeeperException)) {
+      cause = cause.getCause();
+    }
+    return cause == null ? null : ((KeeperException) cause).getResults();
+  }
+
+  /**
+   * batch write with multi-ops, each of which holds as many ops as fit in one request
+   */
+  @Override
+  public boolean[] batchWrite(List<BatchWriteOp<T>> ops) {
+    return batchWrite(ops, null, null);
+  }
+
+  /**
+   * batch write with multi-ops, each of which holds as many ops as fit in one request
+   * @param ops the writes, applied in order
+   * @param pathsCreated if not null, filled with the paths created by each op
+   * @param stats if not null, filled with the stat of the ZNode set by each op, or null if the op
+   *          did not set a ZNode or its stat is unknown
+   * @return For each op, true if it is applied, false otherwise
+   */
+  boolean[] batchWrite(List<BatchWriteOp<T>> ops, List<List<String>> pathsCreated,
+      List<Stat> stats) {
+    if (ops == null || ops.isEmpty()) {
+      return new boolean[0];
+    }
+
+    BatchWriteResult result = new BatchWriteResult(ops.size());
+    List<Integer> chunk = new ArrayList<>();
+    List<Op> chunkOps = new ArrayList<>();
+    List<byte[]> chunkData = new ArrayList<>();
+    int chunkBytes = 0;
+    for (int i = 0; i < ops.size(); i++) {
+      Op zkOp;
+      byte[] data;
+      int bytes;
+      try {
+        BatchWriteOp<T> op = ops.get(i);
+        data = op.getType() == BatchWriteOp.Type.DELETE ? null
+            : _zkClient.serialize(op.getRecord(), op.getPath());
+        zkOp = toZkOp(op, data);
+        bytes = op.getPath().length() + (data == null ? 0 : data.length) + MULTI_OP_OVERHEAD_BYTES;
+      } catch (Exception e) {
+        LOG.error("Invalid batch write op: " + ops.get(i), e);
+        continue;
+      }
+
+      if (!chunk.isEmpty() && chunkBytes + bytes > _multiMaxBytes) {
+        writeChunk(ops, chunk, chunkOps, chunkData, result);
+        chunk.clear();
+        chunkOps.clear();
+        chunkData.clear();
+        chunkBytes = 0;
+      }
+      chunk.add(i);
+      chunkOps.add(zkOp);
+      chunkData.add(data);
+      chunkBytes += bytes;
+    }
+    if (!chunk.isEmpty()) {
+      writeChunk(ops, chunk, chunkOps, chunkData, result);
+    }
+
+    if (pathsCreated != null) {
+      pathsCreated.clear();
+      pathsCreated.addAll(result._pathsCreated);
+    }
+    if (stats != null) {
+      stats.clear();
+      stats.addAll(Arrays.asList(result._stats));
+    }
+    return result._success;
+  }
+
+  /**
+   * The results of the ops of a batch write
+   */
+  private static class BatchWriteResult {
+    final boolean[] _success;
+    final List<List<String>> _pathsCreated;
+    final Stat[] _stats;
+
+    BatchWriteResult(int size) {
+      _success = new boolean[size];
+      _pathsCreated = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        _pathsCreated.add(new ArrayList<String>());
+      }
+      _stats = new Stat[size];
+    }
+  }
+
+  private Op toZkOp(BatchWriteOp<T> op, byte[] data) {
+    switch (op.getType()) {
+    case CREATE:
+      return toCreateOp(op, data);
+    case SET:
+      return Op.setData(op.getPath(), data, op.getExpectedVersion());
+    case DELETE:
+      return Op.delete(op.getPath(), op.getExpectedVersion());
+    default:
+      throw new IllegalArgumentException("Unknown op type: " + op.getType());
+    }
+  }
+
+  private Op toCreateOp(BatchWriteOp<T> op, byte[] data) {
+    CreateMode mode = AccessOption.getMode(op.getOptions());
+    if (mode == null) {
+      throw new IllegalArgumentException("Invalid create mode. options: " + op.getOptions());
+    }
+    return Op.create(op.getPath(), data, ZooDefs.Ids.OPEN_ACL_UNSAFE, mode);
+  }
+
+  /**
+   * Write the ops of a chunk in multi-ops. The ops failing in the multi-ops are completed if their
+   * single-write semantics allow it: a set of any version of a missing ZNode creates it, a delete
+   * of any version of a missing ZNode succeeds, and the ops that need the parents created or the
+   * children deleted, or that failed for another reason than their own data, are written on their
+   * own.
+   */
+  private void writeChunk(List<BatchWriteOp<T>> ops, List<Integer> chunk, List<Op> chunkOps,
+      List<byte[]> chunkData, BatchWriteResult result) {
+    Stat[] chunkStats = new Stat[chunk.size()];
+    Code[] results = multiIsolatingFailures(chunkOps, chunkStats);
+    List<Integer> upserts = new ArrayList<>();
+    List<Op> upsertOps = new ArrayList<>();
+    for (int i = 0; i < chunk.size(); i++) {
+      int index = chunk.get(i);
+      BatchWriteOp<T> op = ops.get(index);
+      switch (results[i]) {
+      case OK:
+        result._success[index] = true;
+        result._stats[index] = chunkStats[i];
+        if (op.getType() == BatchWriteOp.Type.CREATE) {
+          result._pathsCreated.get(index).add(op.getPath());
+        }
+        break;
+      case NONODE:
+        if (op.getType() == BatchWriteOp.Type.SET && op.getExpectedVersion() == -1) {
+          upserts.add(index);
+          upsertOps.add(toCreateOp(op, chunkData.get(i)));
+        } else if (op.getType() == BatchWriteOp.Type.DELETE && op.getExpectedVersion() == -1) {
+          result._success[index] = true;
+        } else if (op.getType() == BatchWriteOp.Type.CREATE) {
+          // the parent does not exist
+          writeOne(op, index, result);
+        }
+        break;
+      case NOTEMPTY:
+        if (op.getType() == BatchWriteOp.Type.DELETE && op.getExpectedVersion() == -1) {
+          writeOne(op, index, result);
+        }
+        break;
+      case NODEEXISTS:
+      case BADVERSION:
+        break;
+      default:
+        writeOne(op, index, result);
+        break;
+      }
+    }
+
+    if (!upserts.isEmpty()) {
+      // The missing ZNodes are created in multi-ops as well. If their parents are missing too, or
+      // they have been created by others in between, they are set on their own.
+      results = multiIsolatingFailures(upsertOps, null);
+      for (int i = 0; i < upserts.size(); i++) {
+        int index = upserts.get(i);
+        if (results[i] == Code.OK) {
+          result._success[index] = true;
+          result._pathsCreated.get(index).add(ops.get(index).getPath());
+        } else {
+          writeOne(ops.get(index), index, result);
+        }
+      }
+    }
+  }
+
+  private void writeOne(BatchWriteOp<T> op, int index, BatchWriteResult result) {
+    switch (op.getType()) {
+    case CREATE:
+      AccessResult createResult = doCreate(op.getPath(), op.getRecord(), op.getOptions());
+      result._success[index] = createResult._retCode == RetCode.OK;
+      result._pathsCreated.get(index).addAll(createResult._pathCreated);
+      break;
+    case SET:
+      try {
+        AccessResult setResult =
+            doSet(op.getPath(), op.getRecord(), op.getExpectedVersion(), op.getOptions());
+        result._success[index] = setResult._retCode == RetCode.OK;
+        result._pathsCreated.get(index).addAll(setResult._pathCreated);
+        if (setResult._pathCreated.isEmpty()) {
+          result._stats[index] = setResult._stat;
+        }
+      } catch (ZkBadVersionException e) {
+        LOG.warn("Failed to set path: " + op.getPath() + ", version mismatch");
+      }
+      break;
+    case DELETE:
+      if (op.getExpectedVersion() == -1) {
+        result._success[index] = remove(op.getPath(), op.getOptions());
+        break;
+      }
+      try {
+        _zkClient
+            .multi(Collections.singletonList(Op.delete(op.getPath(), op.getExpectedVersion())));
+        result._success[index] = true;
+      } catch (Exception e) {
+        LOG.warn("Failed to delete path: " + op.getPath() + ", error: " + e.getMessage());
+      }
+      break;
+    default:
+      break;
+    }
+  }
+
   /**
    * Subscribe to zookeeper data changes
    */
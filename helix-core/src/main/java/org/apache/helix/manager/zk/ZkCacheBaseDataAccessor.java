@@ -35,6 +35,8 @@ import org.I0Itec.zkclient.IZkDataListener;
 import org.I0Itec.zkclient.exception.ZkNoNodeException;
 import org.I0Itec.zkclient.serialize.ZkSerializer;
 import org.apache.helix.AccessOption;
+import org.apache.helix.BatchWriteDataAccessor;
+import org.apache.helix.BatchWriteOp;
 import org.apache.helix.HelixException;
 import org.apache.helix.manager.zk.ZkAsyncCallbacks.CreateCallbackHandler;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor.RetCode;
@@ -50,7 +52,8 @@ import org.apache.zookeeper.server.DataTree;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
+public class ZkCacheBaseDataAccessor<T>
+    implements HelixPropertyStore<T>, BatchWriteDataAccessor<T> {
   private static final Logger LOG = LoggerFactory.getLogger(ZkCacheBaseDataAccessor.class);
 
   protected WriteThroughCache<T> _wtCache;
@@ -564,6 +567,55 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
     return _baseAccessor.remove(serverPaths, options);
   }
 
+  @Override
+  public boolean[] batchWrite(List<BatchWriteOp<T>> ops) {
+    final int size = ops.size();
+    List<BatchWriteOp<T>> serverOps = new ArrayList<BatchWriteOp<T>>(size);
+    List<String> serverPaths = new ArrayList<String>(size);
+    for (BatchWriteOp<T> op : ops) {
+      String serverPath = prependChroot(op.getPath());
+      serverOps.add(op.withPath(serverPath));
+      serverPaths.add(serverPath);
+    }
+
+    Cache<T> cache = getCache(serverPaths);
+    if (cache != null) {
+      try {
+        cache.lockWrite();
+
+        List<List<String>> pathsCreated = new ArrayList<List<String>>();
+        List<Stat> stats = new ArrayList<Stat>();
+        boolean[] success = _baseAccessor.batchWrite(serverOps, pathsCreated, stats);
+
+        for (int i = 0; i < size; i++) {
+          if (!success[i]) {
+            continue;
+          }
+          String serverPath = serverPaths.get(i);
+          List<String> createPaths = pathsCreated.get(i);
+          if (ops.get(i).getType() == BatchWriteOp.Type.DELETE) {
+            cache.purgeRecursive(serverPath);
+          } else if (createPaths.size() > 1) {
+            // its parents have been created with it, so they are read into the cache
+            updateCache(cache, createPaths, true, serverPath, null, null);
+          } else if (!createPaths.isEmpty()) {
+            cache.update(serverPath, ops.get(i).getRecord(), ZNode.ZERO_STAT);
+          } else if (stats.get(i) != null) {
+            cache.update(serverPath, ops.get(i).getRecord(), stats.get(i));
+          } else {
+            cache.purgeRecursive(serverPath);
+          }
+        }
+        return success;
+      } finally {
+        cache.unlockWrite();
+      }
+    }
+
+    // no cache
+    return _baseAccessor.batchWrite(serverOps);
+  }
+
   @Override
   public List<T> get(List<String> paths, List<Stat> stats, int options) {
     return get(paths, stats, options, false);
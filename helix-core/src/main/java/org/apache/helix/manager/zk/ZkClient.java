@@ -164,6 +164,14 @@ public class ZkClient extends org.apache.helix.manager.zk.zookeeper.ZkClient imp
         new BasicZkSerializer(zkSerializer), null, null, null, false);
   }
 
+  /**
+   * Record the metrics of an async batch read of {@link ZkBaseDataAccessor}.
+   */
+  @Override
+  protected void recordAsyncBatchRead(String path, int batchSize, long startTimeMilliSec) {
+    super.recordAsyncBatchRead(path, batchSize, startTimeMilliSec);
+  }
+
   public static class Builder {
     IZkConnection _connection;
     String _zkServer;
@@ -13,6 +13,7 @@ package org.apache.helix.manager.zk.zookeeper;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -37,6 +38,7 @@ import org.I0Itec.zkclient.exception.ZkNodeExistsException;
 import org.I0Itec.zkclient.exception.ZkTimeoutException;
 import org.I0Itec.zkclient.serialize.ZkSerializer;
 import org.apache.helix.HelixException;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.api.listeners.PreFetch;
 import org.apache.helix.manager.zk.BasicZkSerializer;
@@ -970,7 +972,7 @@ public class ZkClient implements Watcher {
             listener.getDataListener().handleDataDeleted(path);
           }
         }
-      });
+      }, path);
     }
   }
 
@@ -990,7 +992,7 @@ public class ZkClient implements Watcher {
               listener.handleChildChange(path, null);
             }
           }
-        });
+        }, path);
       }
     } catch (Exception e) {
       LOG.error("Failed to fire child changed event. Unable to getChildren.  ", e);
@@ -1381,6 +1383,18 @@ public class ZkClient implements Watcher {
     });
   }
 
+  /**
+   * Record the metrics of an async batch read that is composed of multiple asyncGetData calls.
+   * @param path one of the paths of the batch, used to find the monitored path
+   * @param batchSize number of the paths in the batch
+   * @param startTimeMilliSec the time when the batch read started
+   */
+  protected void recordAsyncBatchRead(String path, int batchSize, long startTimeMilliSec) {
+    if (_monitor != null) {
+      _monitor.recordBatchRead(path, batchSize, startTimeMilliSec);
+    }
+  }
+
   public void asyncExists(final String path, final ZkAsyncCallbacks.ExistsCallbackHandler cb) {
     final long startT = System.currentTimeMillis();
     retryUntilConnected(new Callable<Object>() {
@@ -1482,7 +1496,8 @@ public class ZkClient implements Watcher {
       setShutdownTrigger(false);
 
       IZkConnection zkConnection = getConnection();
-      _eventThread = new ZkEventThread(zkConnection.getServers());
+      _eventThread = new ZkEventThread(zkConnection.getServers(),
+          Integer.getInteger(SystemPropertyKeys.ZK_EVENT_THREAD_PARTITIONS, 1));
       _eventThread.start();
 
       if (isManagingZkConnection()) {
@@ -1637,12 +1652,31 @@ public class ZkClient implements Watcher {
       throw new NullPointerException("ops must not be null.");
     }
 
-    return retryUntilConnected(new Callable<List<OpResult>>() {
+    final long startT = System.currentTimeMillis();
+    List<OpResult> results = retryUntilConnected(new Callable<List<OpResult>>() {
 
       @Override public List<OpResult> call() throws Exception {
         return getConnection().multi(ops);
       }
     });
+    // A failed multi-op applies none of its ops, so only the applied ones are recorded
+    recordMultiWrite(ops, startT);
+    return results;
+  }
+
+  private void recordMultiWrite(Iterable<Op> ops, long startT) {
+    if (_monitor != null) {
+      Iterator<Op> iterator = ops.iterator();
+      if (!iterator.hasNext()) {
+        return;
+      }
+      String path = iterator.next().getPath();
+      int numOps = 1;
+      for (; iterator.hasNext(); iterator.next()) {
+        numOps++;
+      }
+      _monitor.recordMultiWrite(path, numOps, startT);
+    }
   }
 
   /**
@@ -10,9 +10,13 @@
  */
 package org.apache.helix.manager.zk.zookeeper;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.I0Itec.zkclient.exception.ZkInterruptedException;
 import org.slf4j.Logger;
@@ -25,14 +29,21 @@ import org.slf4j.LoggerFactory;
  * would stop the ZkClient from receiving events from {@link ZooKeeper} as soon as one of the listeners blocks (because
  * it is waiting for something). {@link ZkClient} would then for instance not be able to maintain it's connection state
  * anymore.
+ *
+ * When created with more than one partition, the events sent with a path are hashed by the path onto one of the
+ * partition threads, so events of the same path are still delivered in order while events of different paths can be
+ * delivered concurrently. Events sent without a path (e.g. state change events) are globally ordered: such an event is
+ * delivered only after all the events sent before it, and before any event sent after it. If a partition thread
+ * terminates, e.g. because a listener is interrupted, its pending and future events are delivered by this thread.
  */
 public class ZkEventThread extends Thread {
   private static Logger LOG = LoggerFactory.getLogger(ZkClient.class);
 
   private BlockingQueue<ZkEvent> _events = new LinkedBlockingQueue<>();
+  private final PartitionThread[] _partitionThreads;
 
-  private long _totalEventCount = 0L;
-  private long _totalEventCountHandled = 0L;
+  private final AtomicLong _totalEventCount = new AtomicLong(0L);
+  private final AtomicLong _totalEventCountHandled = new AtomicLong(0L);
 
   private static AtomicInteger _eventId = new AtomicInteger(0);
 
@@ -51,9 +62,96 @@ public class ZkEventThread extends Thread {
     }
   }
 
+  /**
+   * Wraps a globally ordered event. Every partition thread blocks on the barrier until the event
+   * has been delivered by the main event thread.
+   */
+  private static class BarrierEvent extends ZkEvent {
+    private final ZkEvent _event;
+    private final CountDownLatch _arrived;
+    private final CountDownLatch _done = new CountDownLatch(1);
+
+    BarrierEvent(ZkEvent event, int partitions) {
+      super(event.toString());
+      _event = event;
+      _arrived = new CountDownLatch(partitions);
+    }
+
+    @Override public void run() throws Exception {
+      _arrived.await();
+      try {
+        _event.run();
+      } finally {
+        _done.countDown();
+      }
+    }
+
+    void awaitDelivered() throws InterruptedException {
+      _arrived.countDown();
+      _done.await();
+    }
+
+    /**
+     * Arrive at the barrier without waiting for the event to be delivered.
+     */
+    void arrive() {
+      _arrived.countDown();
+    }
+  }
+
+  private class PartitionThread extends Thread {
+    private final BlockingQueue<ZkEvent> _partitionEvents = new LinkedBlockingQueue<>();
+    // Set once the thread stops delivering events, guarded by the event thread
+    private boolean _terminated = false;
+
+    PartitionThread(int partition) {
+      setDaemon(true);
+      setName(ZkEventThread.this.getName() + "-" + partition);
+    }
+
+    @Override public void run() {
+      try {
+        while (!isInterrupted()) {
+          ZkEvent zkEvent = _partitionEvents.take();
+          if (zkEvent instanceof BarrierEvent) {
+            ((BarrierEvent) zkEvent).awaitDelivered();
+          } else if (!deliver(zkEvent)) {
+            interrupt();
+          }
+        }
+      } catch (InterruptedException e) {
+        LOG.info("Terminate ZkClient event partition thread.");
+      } finally {
+        failOver(this);
+      }
+    }
+  }
+
   ZkEventThread(String name) {
+    this(name, 1);
+  }
+
+  ZkEventThread(String name, int partitions) {
     setDaemon(true);
     setName("ZkClient-EventThread-" + getId() + "-" + name);
+    _partitionThreads = new PartitionThread[partitions > 1 ? partitions : 0];
+    for (int i = 0; i < _partitionThreads.length; i++) {
+      _partitionThreads[i] = new PartitionThread(i);
+    }
+  }
+
+  @Override public synchronized void start() {
+    for (PartitionThread partitionThread : _partitionThreads) {
+      partitionThread.start();
+    }
+    super.start();
+  }
+
+  @Override public void interrupt() {
+    for (PartitionThread partitionThread : _partitionThreads) {
+      partitionThread.interrupt();
+    }
+    super.interrupt();
   }
 
   @Override public void run() {
@@ -61,22 +159,8 @@ public class ZkEventThread extends Thread {
     try {
       while (!isInterrupted()) {
         ZkEvent zkEvent = _events.take();
-        int eventId = _eventId.incrementAndGet();
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("Delivering event #" + eventId + " " + zkEvent);
-        }
-        try {
-          zkEvent.run();
-          _totalEventCountHandled ++;
-        } catch (InterruptedException e) {
+        if (!deliver(zkEvent)) {
           interrupt();
-        } catch (ZkInterruptedException e) {
-          interrupt();
-        } catch (Throwable e) {
-          LOG.error("Error handling event " + zkEvent, e);
-        }
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("Delivering event #" + eventId + " done");
         }
       }
     } catch (InterruptedException e) {
@@ -86,21 +170,126 @@ public class ZkEventThread extends Thread {
     LOG.info("Terminate ZkClient event thread.");
   }
 
+  /**
+   * @return false if the delivery is interrupted
+   */
+  private boolean deliver(ZkEvent zkEvent) {
+    int eventId = _eventId.incrementAndGet();
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Delivering event #" + eventId + " " + zkEvent);
+    }
+    try {
+      zkEvent.run();
+      _totalEventCountHandled.incrementAndGet();
+    } catch (InterruptedException e) {
+      return false;
+    } catch (ZkInterruptedException e) {
+      return false;
+    } catch (Throwable e) {
+      LOG.error("Error handling event " + zkEvent, e);
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Delivering event #" + eventId + " done");
+    }
+    return true;
+  }
+
+  /**
+   * Send a globally ordered event.
+   */
   public void send(ZkEvent event) {
+    send(event, null);
+  }
+
+  /**
+   * Send an event of the given path. Events of the same path are delivered in order.
+   * @param event the event
+   * @param path the path of the event, or null if the event should be globally ordered
+   */
+  public synchronized void send(ZkEvent event, String path) {
     if (!isInterrupted()) {
       if (LOG.isDebugEnabled()) {
         LOG.debug("New event: " + event);
       }
-      _events.add(event);
-      _totalEventCount ++;
+      if (_partitionThreads.length == 0) {
+        _events.add(event);
+      } else if (path == null) {
+        BarrierEvent barrierEvent = new BarrierEvent(event, _partitionThreads.length);
+        for (PartitionThread partitionThread : _partitionThreads) {
+          if (partitionThread._terminated) {
+            barrierEvent.arrive();
+          } else {
+            partitionThread._partitionEvents.add(barrierEvent);
+          }
+        }
+        _events.add(barrierEvent);
+      } else {
+        PartitionThread partitionThread = _partitionThreads[getPartition(path)];
+        if (partitionThread._terminated) {
+          _events.add(event);
+        } else {
+          partitionThread._partitionEvents.add(event);
+        }
+      }
+      _totalEventCount.incrementAndGet();
     }
   }
 
+  /**
+   * Hand the pending events of a terminated partition thread over to this thread, so the globally
+   * ordered events never wait for the partition and the events of its paths are still delivered in
+   * order.
+   */
+  private synchronized void failOver(PartitionThread partitionThread) {
+    partitionThread._terminated = true;
+    if (!isInterrupted()) {
+      LOG.warn("ZkClient event partition thread " + partitionThread.getName()
+          + " terminated, its events are delivered by " + getName());
+    }
+    List<ZkEvent> pendingEvents = new ArrayList<>();
+    partitionThread._partitionEvents.drainTo(pendingEvents);
+    for (ZkEvent event : pendingEvents) {
+      if (event instanceof BarrierEvent) {
+        ((BarrierEvent) event).arrive();
+      } else {
+        _events.add(event);
+      }
+    }
+  }
+
+  private int getPartition(String path) {
+    return (path.hashCode() & Integer.MAX_VALUE) % _partitionThreads.length;
+  }
+
   public long getPendingEventsCount() {
-    return _events.size();
+    long pendingEventsCount = _events.size();
+    for (PartitionThread partitionThread : _partitionThreads) {
+      for (ZkEvent event : partitionThread._partitionEvents) {
+        // Barriers are already counted in the main event queue
+        if (!(event instanceof BarrierEvent)) {
+          pendingEventsCount++;
+        }
+      }
+    }
+    return pendingEventsCount;
+  }
+
+  /**
+   * @return the number of the partition threads, 0 if all the events are delivered by this thread
+   */
+  public int getPartitionCount() {
+    return _partitionThreads.length;
+  }
+
+  /**
+   * @return the number of the events, including the barriers of the globally ordered events,
+   * pending in the queue of the given partition
+   */
+  public long getPendingEventsCount(int partition) {
+    return _partitionThreads[partition]._partitionEvents.size();
   }
 
-  public long getTotalEventCount() { return _totalEventCount; }
+  public long getTotalEventCount() { return _totalEventCount.get(); }
 
-  public long getTotalHandledEventCount() { return _totalEventCountHandled; }
+  public long getTotalHandledEventCount() { return _totalEventCountHandled.get(); }
 }
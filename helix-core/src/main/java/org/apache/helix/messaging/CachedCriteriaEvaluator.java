@@ -0,0 +1,98 @@
+package org.apache.helix.messaging;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.helix.Criteria;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixException;
+
+/**
+ * A {@link CriteriaEvaluator} that evaluates criteria against an in-memory snapshot of the data of
+ * each cluster, kept up to date by ZooKeeper watches, instead of reading all the data from
+ * ZooKeeper on every evaluation. The records are flattened and indexed once per change.
+ * <p>
+ * As the watches are notified asynchronously, the snapshot may briefly lag behind the latest
+ * writes to ZooKeeper.
+ */
+public class CachedCriteriaEvaluator extends CriteriaEvaluator {
+  // live instances path of the cluster -> data of the cluster
+  private final Map<String, CriteriaDataCache> _caches = new HashMap<>();
+
+  @Override
+  Collection<CriteriaRecord> getRecords(Criteria recipientCriteria, HelixDataAccessor accessor) {
+    switch (recipientCriteria.getDataSource()) {
+    case EXTERNALVIEW:
+    case IDEALSTATES:
+    case LIVEINSTANCES:
+    case INSTANCES:
+      break;
+    default:
+      return null;
+    }
+
+    Map<String, CriteriaRecord> records =
+        getCache(accessor).getRecords(recipientCriteria.getDataSource());
+    String dataSpec = getDataSpec(recipientCriteria);
+    if (dataSpec == null) {
+      return records.values();
+    }
+    CriteriaRecord record = records.get(dataSpec);
+    if (record == null) {
+      throw new HelixException(String.format("Specified %s %s is not found!",
+          recipientCriteria.getDataSource().name(), dataSpec));
+    }
+    return Collections.singletonList(record);
+  }
+
+  @Override
+  Set<String> getLiveParticipants(HelixDataAccessor accessor) {
+    return getCache(accessor).getLiveInstanceNames();
+  }
+
+  /**
+   * Stop watching the data of all the clusters.
+   */
+  public synchronized void close() {
+    for (CriteriaDataCache cache : _caches.values()) {
+      cache.close();
+    }
+    _caches.clear();
+  }
+
+  private synchronized CriteriaDataCache getCache(HelixDataAccessor accessor) {
+    String clusterPath = accessor.keyBuilder().liveInstances().getPath();
+    CriteriaDataCache cache = _caches.get(clusterPath);
+    // The manager creates a new accessor when it reconnects
+    if (cache != null && cache.getBaseDataAccessor() != accessor.getBaseDataAccessor()) {
+      cache.close();
+      cache = null;
+    }
+    if (cache == null) {
+      cache = new CriteriaDataCache(accessor);
+      _caches.put(clusterPath, cache);
+    }
+    return cache;
+  }
+}
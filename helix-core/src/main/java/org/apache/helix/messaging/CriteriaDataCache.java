@@ -0,0 +1,265 @@
+package org.apache.helix.messaging;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.I0Itec.zkclient.IZkChildListener;
+import org.I0Itec.zkclient.IZkDataListener;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.Criteria.DataSource;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixProperty;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.ZNRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The data of a cluster that criteria are evaluated against, kept in memory and refreshed by
+ * ZooKeeper watches.
+ * <p>
+ * Watches only mark the changed records, which are read again when the data is used next. Only
+ * the data sources that were used are watched, and the data of the live instances is only read if
+ * they are used as a data source, as their names are enough to know which participants are live.
+ * Records split into buckets are read on every use, as the changes of their buckets are not
+ * watched.
+ */
+class CriteriaDataCache {
+  private static final Logger LOG = LoggerFactory.getLogger(CriteriaDataCache.class);
+
+  private final HelixDataAccessor _accessor;
+  private final BaseDataAccessor<ZNRecord> _baseAccessor;
+  private final Map<DataSource, WatchedRecords> _watchedRecords = new EnumMap<>(DataSource.class);
+
+  CriteriaDataCache(HelixDataAccessor accessor) {
+    _accessor = accessor;
+    _baseAccessor = accessor.getBaseDataAccessor();
+  }
+
+  BaseDataAccessor<ZNRecord> getBaseDataAccessor() {
+    return _baseAccessor;
+  }
+
+  /**
+   * @param dataSource
+   * @return the up to date records of a data source by name
+   */
+  synchronized Map<String, CriteriaRecord> getRecords(DataSource dataSource) {
+    WatchedRecords watchedRecords = getWatchedRecords(dataSource);
+    watchedRecords.refresh(true);
+    return watchedRecords._records;
+  }
+
+  /**
+   * @return the up to date names of the live instances
+   */
+  synchronized Set<String> getLiveInstanceNames() {
+    WatchedRecords watchedRecords = getWatchedRecords(DataSource.LIVEINSTANCES);
+    watchedRecords.refresh(false);
+    return watchedRecords._names;
+  }
+
+  /**
+   * Stop watching the data.
+   */
+  synchronized void close() {
+    for (WatchedRecords watchedRecords : _watchedRecords.values()) {
+      watchedRecords.unsubscribe();
+    }
+    _watchedRecords.clear();
+  }
+
+  private WatchedRecords getWatchedRecords(DataSource dataSource) {
+    WatchedRecords watchedRecords = _watchedRecords.get(dataSource);
+    if (watchedRecords == null) {
+      watchedRecords = new WatchedRecords(dataSource);
+      _watchedRecords.put(dataSource, watchedRecords);
+    }
+    return watchedRecords;
+  }
+
+  private PropertyKey getParentKey(DataSource dataSource) {
+    PropertyKey.Builder keyBuilder = _accessor.keyBuilder();
+    switch (dataSource) {
+    case EXTERNALVIEW:
+      return keyBuilder.externalViews();
+    case IDEALSTATES:
+      return keyBuilder.idealStates();
+    case LIVEINSTANCES:
+      return keyBuilder.liveInstances();
+    case INSTANCES:
+      return keyBuilder.instances();
+    default:
+      throw new IllegalArgumentException("Unsupported data source: " + dataSource);
+    }
+  }
+
+  private PropertyKey getKey(DataSource dataSource, String name) {
+    PropertyKey.Builder keyBuilder = _accessor.keyBuilder();
+    switch (dataSource) {
+    case EXTERNALVIEW:
+      return keyBuilder.externalView(name);
+    case IDEALSTATES:
+      return keyBuilder.idealStates(name);
+    case LIVEINSTANCES:
+      return keyBuilder.liveInstance(name);
+    case INSTANCES:
+      return keyBuilder.instance(name);
+    default:
+      throw new IllegalArgumentException("Unsupported data source: " + dataSource);
+    }
+  }
+
+  /**
+   * The records under the parent path of a data source. The maps are replaced instead of modified,
+   * so the returned snapshots do not change.
+   */
+  private class WatchedRecords implements IZkChildListener, IZkDataListener {
+    private final DataSource _dataSource;
+    private final String _parentPath;
+    private volatile boolean _childrenChanged = true;
+    private final Set<String> _changedNames =
+        Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private boolean _recordsWatched = false;
+    private Set<String> _names = Collections.emptySet();
+    private Map<String, CriteriaRecord> _records = Collections.emptyMap();
+    // names of the records split into buckets
+    private final Set<String> _bucketizedNames = new HashSet<>();
+
+    WatchedRecords(DataSource dataSource) {
+      _dataSource = dataSource;
+      _parentPath = getParentKey(dataSource).getPath();
+      _baseAccessor.subscribeChildChanges(_parentPath, this);
+    }
+
+    void refresh(boolean withRecords) {
+      if (withRecords && !_recordsWatched) {
+        _recordsWatched = true;
+        for (String name : _names) {
+          _baseAccessor.subscribeDataChanges(getChildPath(name), this);
+          _changedNames.add(name);
+        }
+      }
+
+      boolean namesChanged = false;
+      if (_childrenChanged) {
+        // Reset before reading, so a change during the read is read next time
+        _childrenChanged = false;
+        List<String> childNames = _baseAccessor.getChildNames(_parentPath, 0);
+        Set<String> names =
+            childNames == null ? Collections.<String>emptySet() : new HashSet<>(childNames);
+        if (_recordsWatched) {
+          for (String name : names) {
+            if (!_names.contains(name)) {
+              _baseAccessor.subscribeDataChanges(getChildPath(name), this);
+              _changedNames.add(name);
+            }
+          }
+          for (String name : _names) {
+            if (!names.contains(name)) {
+              _baseAccessor.unsubscribeDataChanges(getChildPath(name), this);
+              _bucketizedNames.remove(name);
+            }
+          }
+        }
+        namesChanged = !names.equals(_names);
+        _names = Collections.unmodifiableSet(names);
+      }
+
+      if (!_recordsWatched) {
+        return;
+      }
+      Set<String> namesToRead = new HashSet<>(_bucketizedNames);
+      for (String name : new ArrayList<>(_changedNames)) {
+        _changedNames.remove(name);
+        namesToRead.add(name);
+      }
+      if (!namesToRead.isEmpty() || namesChanged) {
+        readRecords(namesToRead);
+      }
+    }
+
+    private void readRecords(Set<String> namesToRead) {
+      Map<String, CriteriaRecord> records = new HashMap<>(_records);
+      records.keySet().retainAll(_names);
+      List<PropertyKey> keys = new ArrayList<>();
+      for (String name : namesToRead) {
+        if (_names.contains(name)) {
+          keys.add(getKey(_dataSource, name));
+        }
+      }
+      List<HelixProperty> properties = _accessor.getProperty(keys, false);
+      for (int i = 0; i < keys.size(); i++) {
+        String name = keys.get(i).getPath().substring(_parentPath.length() + 1);
+        HelixProperty property = properties.get(i);
+        if (property == null) {
+          records.remove(name);
+          _bucketizedNames.remove(name);
+        } else {
+          records.put(name, new CriteriaRecord(property.getRecord()));
+          if (property.getBucketSize() > 0) {
+            _bucketizedNames.add(name);
+          } else {
+            _bucketizedNames.remove(name);
+          }
+        }
+      }
+      LOG.debug("Read {} {} records for criteria evaluation", keys.size(), _dataSource);
+      _records = Collections.unmodifiableMap(records);
+    }
+
+    void unsubscribe() {
+      _baseAccessor.unsubscribeChildChanges(_parentPath, this);
+      if (_recordsWatched) {
+        for (String name : _names) {
+          _baseAccessor.unsubscribeDataChanges(getChildPath(name), this);
+        }
+      }
+    }
+
+    private String getChildPath(String name) {
+      return _parentPath + "/" + name;
+    }
+
+    @Override
+    public void handleChildChange(String parentPath, List<String> currentChildren) {
+      _childrenChanged = true;
+    }
+
+    @Override
+    public void handleDataChange(String dataPath, Object data) {
+      _changedNames.add(dataPath.substring(_parentPath.length() + 1));
+    }
+
+    @Override
+    public void handleDataDeleted(String dataPath) {
+      _changedNames.add(dataPath.substring(_parentPath.length() + 1));
+      _childrenChanged = true;
+    }
+  }
+}
@@ -19,6 +19,8 @@ package org.apache.helix.messaging;
  * under the License.
  */
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -36,6 +38,7 @@ import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
 import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
+import org.apache.helix.ZNRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,6 +67,72 @@ public class CriteriaEvaluator {
   public List<Map<String, String>> evaluateCriteria(Criteria recipientCriteria,
       HelixDataAccessor accessor) {
     // get the data
+    Collection<CriteriaRecord> records = getRecords(recipientCriteria, accessor);
+    if (records == null) {
+      return Lists.newArrayList();
+    }
+    Set<String> liveParticipants = getLiveParticipants(accessor);
+
+    // The patterns are compiled once, and each distinct value is matched once
+    CriteriaPattern instancePattern = new CriteriaPattern(recipientCriteria.getInstanceName());
+    CriteriaPattern resourcePattern = new CriteriaPattern(recipientCriteria.getResource());
+    CriteriaPattern partitionPattern = new CriteriaPattern(recipientCriteria.getPartition());
+    CriteriaPattern statePattern = new CriteriaPattern(recipientCriteria.getPartitionState());
+    boolean returnInstance = !recipientCriteria.getInstanceName().equals("");
+    boolean returnResource = !recipientCriteria.getResource().equals("");
+    boolean returnPartition = !recipientCriteria.getPartition().equals("");
+    boolean returnState = !recipientCriteria.getPartitionState().equals("");
+
+    // save the deduplicated matches in the required format
+    Set<Map<String, String>> selected = Sets.newHashSet();
+    for (CriteriaRecord record : records) {
+      String recordId = Strings.nullToEmpty(record.getId());
+      if (!resourcePattern.matches(recordId)) {
+        continue;
+      }
+      // The participant instance name is stored in either the record id or the map sub key
+      boolean recordIdMatchesInstance = instancePattern.matches(recordId);
+      boolean recordIdIsLive = liveParticipants.contains(record.getId());
+
+      // The simple and list field rows have no map key, sub key or value
+      if (record.hasRecordRow() && recordIdIsLive && partitionPattern.matches("")
+          && statePattern.matches("") && (recordIdMatchesInstance || instancePattern.matches(""))) {
+        selected.add(toResultRow(returnInstance ? record.getId() : "",
+            returnResource ? record.getId() : "", "", ""));
+      }
+
+      List<CriteriaRecord.Row> rows;
+      if (partitionPattern.getLiteral() != null) {
+        rows = record.getRowsByPartition(partitionPattern.getLiteral());
+      } else if (statePattern.getLiteral() != null) {
+        rows = record.getRowsByState(statePattern.getLiteral());
+      } else {
+        rows = record.getRows();
+      }
+      for (CriteriaRecord.Row row : rows) {
+        String instance = Strings.nullToEmpty(row._instance);
+        if (partitionPattern.matches(row._partition)
+            && statePattern.matches(Strings.nullToEmpty(row._state))
+            && (recordIdMatchesInstance || instancePattern.matches(instance))
+            && (recordIdIsLive || liveParticipants.contains(row._instance))) {
+          selected.add(toResultRow(
+              returnInstance ? (!instance.isEmpty() ? instance : record.getId()) : "",
+              returnResource ? record.getId() : "", returnPartition ? row._partition : "",
+              returnState ? row._state : ""));
+        }
+      }
+    }
+    logger.info("Query returned " + selected.size() + " rows");
+    return Lists.newArrayList(selected);
+  }
+
+  /**
+   * Get the records of the data source of the criteria
+   * @param recipientCriteria Criteria specifying the message destinations
+   * @param accessor connection to the persisted data
+   * @return the records, or null if the data source is not supported
+   */
+  Collection<CriteriaRecord> getRecords(Criteria recipientCriteria, HelixDataAccessor accessor) {
     PropertyKey.Builder keyBuilder = accessor.keyBuilder();
 
     List<HelixProperty> properties;
@@ -89,58 +158,51 @@ public class CriteriaEvaluator {
           keyBuilder.instance(instanceName), DataSource.INSTANCES.name());
       break;
     default:
-      return Lists.newArrayList();
-    }
-    // flatten the data
-    List<ZNRecordRow> allRows = ZNRecordRow.flatten(HelixProperty.convertToList(properties));
-
-    // save the matches
-    Set<String> liveParticipants = accessor.getChildValuesMap(keyBuilder.liveInstances()).keySet();
-    List<ZNRecordRow> result = Lists.newArrayList();
-    for (ZNRecordRow row : allRows) {
-      // The participant instance name is stored in the return value of either getRecordId() or getMapSubKey()
-      if (rowMatches(recipientCriteria, row) &&
-          (liveParticipants.contains(row.getRecordId()) || liveParticipants.contains(row.getMapSubKey()))) {
-        result.add(row);
-      }
+      return null;
     }
 
-    Set<Map<String, String>> selected = Sets.newHashSet();
-
-    // deduplicate and convert the matches into the required format
-    for (ZNRecordRow row : result) {
-      Map<String, String> resultRow = new HashMap<String, String>();
-      resultRow.put("instanceName", !recipientCriteria.getInstanceName().equals("") ?
-          (!Strings.isNullOrEmpty(row.getMapSubKey()) ? row.getMapSubKey() : row.getRecordId()) :
-          "");
-      resultRow.put("resourceName", !recipientCriteria.getResource().equals("") ? row.getRecordId()
-          : "");
-      resultRow.put("partitionName", !recipientCriteria.getPartition().equals("") ? row.getMapKey()
-          : "");
-      resultRow.put("partitionState",
-          !recipientCriteria.getPartitionState().equals("") ? row.getMapValue() : "");
-      selected.add(resultRow);
+    List<CriteriaRecord> records = new ArrayList<>(properties.size());
+    for (ZNRecord record : HelixProperty.convertToList(properties)) {
+      records.add(new CriteriaRecord(record));
     }
-    logger.info("Query returned " + selected.size() + " rows");
-    return Lists.newArrayList(selected);
+    return records;
+  }
+
+  /**
+   * Get the names of the live participants
+   * @param accessor connection to the persisted data
+   * @return the names of the live participants
+   */
+  Set<String> getLiveParticipants(HelixDataAccessor accessor) {
+    return accessor.getChildValuesMap(accessor.keyBuilder().liveInstances()).keySet();
   }
 
   /**
-   * Check if a given row matches the specified criteria
-   * @param criteria the criteria
-   * @param row row of currently persisted data
-   * @return true if it matches, false otherwise
+   * Get the name of the record a criteria is limited to
+   * @param recipientCriteria Criteria specifying the message destinations
+   * @return the resource or instance name, or null if the criteria is not limited to one record
    */
-  private boolean rowMatches(Criteria criteria, ZNRecordRow row) {
-    String instanceName = normalizePattern(criteria.getInstanceName());
-    String resourceName = normalizePattern(criteria.getResource());
-    String partitionName = normalizePattern(criteria.getPartition());
-    String partitionState = normalizePattern(criteria.getPartitionState());
-    return (stringMatches(instanceName, Strings.nullToEmpty(row.getMapSubKey())) ||
-            stringMatches(instanceName, Strings.nullToEmpty(row.getRecordId())))
-        && stringMatches(resourceName, Strings.nullToEmpty(row.getRecordId()))
-        && stringMatches(partitionName, Strings.nullToEmpty(row.getMapKey()))
-        && stringMatches(partitionState, Strings.nullToEmpty(row.getMapValue()));
+  static String getDataSpec(Criteria recipientCriteria) {
+    String dataSpec;
+    switch (recipientCriteria.getDataSource()) {
+    case EXTERNALVIEW:
+    case IDEALSTATES:
+      dataSpec = recipientCriteria.getResource();
+      break;
+    default:
+      dataSpec = recipientCriteria.getInstanceName();
+    }
+    return Strings.isNullOrEmpty(dataSpec) || dataSpec.equals(MATCH_ALL_SYM) ? null : dataSpec;
+  }
+
+  private static Map<String, String> toResultRow(String instanceName, String resourceName,
+      String partitionName, String partitionState) {
+    Map<String, String> resultRow = new HashMap<String, String>();
+    resultRow.put("instanceName", instanceName);
+    resultRow.put("resourceName", resourceName);
+    resultRow.put("partitionName", partitionName);
+    resultRow.put("partitionState", partitionState);
+    return resultRow;
   }
 
   /**
@@ -148,10 +210,7 @@ public class CriteriaEvaluator {
    * @param pattern SQL like match pattern (i.e. contains '%'s and '_'s)
    * @return Java matches expression (i.e. contains ".*?"s and '.'s)
    */
-  private String normalizePattern(String pattern) {
-    if (pattern == null || pattern.equals("") || pattern.equals("*")) {
-      pattern = "%";
-    }
+  private static String normalizePattern(String pattern) {
     StringBuilder builder = new StringBuilder();
     for (int i = 0; i < pattern.length(); i++) {
       char ch = pattern.charAt(i);
@@ -166,17 +225,6 @@ public class CriteriaEvaluator {
     return pattern;
   }
 
-  /**
-   * Check if a string matches a pattern
-   * @param pattern pattern allowed by Java regex matching
-   * @param value the string to check
-   * @return true if they match, false otherwise
-   */
-  private boolean stringMatches(String pattern, String value) {
-    Pattern p = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    return p.matcher(value).matches();
-  }
-
   private List<HelixProperty> getProperty(HelixDataAccessor accessor, String dataSpec,
       PropertyKey propertyKeys, PropertyKey propertyKey, String dataType) {
     List<HelixProperty> properties;
@@ -192,4 +240,42 @@ public class CriteriaEvaluator {
     }
     return properties;
   }
+
+  /**
+   * A criteria field compiled once per evaluation, which remembers the values it matched
+   */
+  private static class CriteriaPattern {
+    // null if the pattern matches everything
+    private final Pattern _pattern;
+    // the lower case pattern if it has no wildcard
+    private final String _literal;
+    private final Map<String, Boolean> _matches = new HashMap<>();
+
+    CriteriaPattern(String pattern) {
+      if (pattern == null || pattern.equals("") || pattern.equals("*")) {
+        pattern = MATCH_ALL_SYM;
+      }
+      String normalized = normalizePattern(pattern);
+      _pattern = normalized.replace(".*?", "").isEmpty() ? null
+          : Pattern.compile(normalized, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+      _literal = pattern.contains(MATCH_ALL_SYM) || pattern.contains("_") ? null
+          : pattern.toLowerCase();
+    }
+
+    boolean matches(String value) {
+      if (_pattern == null) {
+        return true;
+      }
+      Boolean match = _matches.get(value);
+      if (match == null) {
+        match = _pattern.matcher(value).matches();
+        _matches.put(value, match);
+      }
+      return match;
+    }
+
+    String getLiteral() {
+      return _literal;
+    }
+  }
 }
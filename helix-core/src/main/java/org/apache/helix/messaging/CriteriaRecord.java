@@ -0,0 +1,118 @@
+package org.apache.helix.messaging;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.google.common.base.Strings;
+import org.apache.helix.ZNRecord;
+
+/**
+ * A record flattened into the rows criteria are matched against, as {@link ZNRecordRow} does, with
+ * its map field rows indexed by partition and by state.
+ * <p>
+ * All the simple and list field rows of a record have the same values for the columns used by the
+ * criteria, so they are kept as a single record row.
+ */
+class CriteriaRecord {
+  /**
+   * A map field row: the instance and state of a partition
+   */
+  static class Row {
+    final String _partition;
+    final String _instance;
+    final String _state;
+
+    Row(String partition, String instance, String state) {
+      _partition = partition;
+      _instance = instance;
+      _state = state;
+    }
+  }
+
+  private final String _id;
+  private final boolean _hasRecordRow;
+  private final List<Row> _rows;
+  // lower case partition -> rows
+  private final Map<String, List<Row>> _rowsByPartition;
+  // lower case state -> rows
+  private final Map<String, List<Row>> _rowsByState;
+
+  CriteriaRecord(ZNRecord record) {
+    _id = record.getId();
+    boolean hasRecordRow = !record.getSimpleFields().isEmpty();
+    for (List<String> listField : record.getListFields().values()) {
+      hasRecordRow |= !listField.isEmpty();
+    }
+    _hasRecordRow = hasRecordRow;
+
+    _rows = new ArrayList<>();
+    _rowsByPartition = new HashMap<>();
+    _rowsByState = new HashMap<>();
+    for (Map.Entry<String, Map<String, String>> mapField : record.getMapFields().entrySet()) {
+      for (Map.Entry<String, String> entry : mapField.getValue().entrySet()) {
+        Row row = new Row(mapField.getKey(), entry.getKey(), entry.getValue());
+        _rows.add(row);
+        index(_rowsByPartition, row._partition, row);
+        index(_rowsByState, Strings.nullToEmpty(row._state), row);
+      }
+    }
+  }
+
+  String getId() {
+    return _id;
+  }
+
+  /**
+   * @return true if the record has simple or list field rows
+   */
+  boolean hasRecordRow() {
+    return _hasRecordRow;
+  }
+
+  List<Row> getRows() {
+    return _rows;
+  }
+
+  List<Row> getRowsByPartition(String lowerCasePartition) {
+    return nullToEmpty(_rowsByPartition.get(lowerCasePartition));
+  }
+
+  List<Row> getRowsByState(String lowerCaseState) {
+    return nullToEmpty(_rowsByState.get(lowerCaseState));
+  }
+
+  private static void index(Map<String, List<Row>> index, String key, Row row) {
+    String lowerCaseKey = key.toLowerCase();
+    List<Row> rows = index.get(lowerCaseKey);
+    if (rows == null) {
+      rows = new ArrayList<>();
+      index.put(lowerCaseKey, rows);
+    }
+    rows.add(row);
+  }
+
+  private static List<Row> nullToEmpty(List<Row> rows) {
+    return rows == null ? Collections.<Row>emptyList() : rows;
+  }
+}
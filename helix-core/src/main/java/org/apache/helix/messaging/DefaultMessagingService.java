@@ -34,6 +34,7 @@ import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixManager;
 import org.apache.helix.InstanceType;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.manager.zk.ZKHelixDataAccessor;
 import org.apache.helix.messaging.handling.AsyncCallbackService;
 import org.apache.helix.messaging.handling.HelixTaskExecutor;
@@ -61,7 +62,8 @@ public class DefaultMessagingService implements ClusterMessagingService {
 
   public DefaultMessagingService(HelixManager manager) {
     _manager = manager;
-    _evaluator = new CriteriaEvaluator();
+    _evaluator = Boolean.getBoolean(SystemPropertyKeys.MESSAGING_CRITERIA_CACHE_ENABLED)
+        ? new CachedCriteriaEvaluator() : new CriteriaEvaluator();
 
     boolean isParticipant = false;
     if (manager.getInstanceType() == InstanceType.PARTICIPANT || manager.getInstanceType() == InstanceType.CONTROLLER_PARTICIPANT) {
@@ -252,6 +254,16 @@ public class DefaultMessagingService implements ClusterMessagingService {
     _messageHandlerFactoriestobeAdded.clear();
   }
 
+  /**
+   * Stop watching the cluster data cached to evaluate the recipient criteria. The data is read and
+   * watched again if messages are sent after the manager reconnects.
+   */
+  public void onDisconnected() {
+    if (_evaluator instanceof CachedCriteriaEvaluator) {
+      ((CachedCriteriaEvaluator) _evaluator).close();
+    }
+  }
+
   void registerMessageHandlerFactoryInternal(String type, MessageHandlerFactory factory) {
     _logger.info("registering msg factory for type " + type);
     int threadpoolSize = HelixTaskExecutor.DEFAULT_PARALLEL_TASKS;
@@ -70,6 +70,8 @@ public class HelixStateTransitionHandler extends MessageHandler {
   }
 
   private static final Logger logger = LoggerFactory.getLogger(HelixStateTransitionHandler.class);
+  private static final Class<?>[] TRANSITION_METHOD_PARAM_TYPES =
+      new Class[] { Message.class, NotificationContext.class };
   private final StateModel _stateModel;
   StatusUpdateUtil _statusUpdateUtil;
   private final StateModelParser _transitionMethodFinder;
@@ -402,8 +404,7 @@ public class HelixStateTransitionHandler extends MessageHandler {
         _transitionMethodFinder.getMethodForTransition(_stateModel.getClass(),
                                                        fromState,
                                                        toState,
-                                                       new Class[] { Message.class,
-                                                           NotificationContext.class });
+                                                       TRANSITION_METHOD_PARAM_TYPES);
     if (methodToInvoke != null) {
       logger.info(String.format("Instance %s, partition %s received state transition from %s to %s on session %s, message id: %s",
                                 message.getTgtName(),
@@ -64,6 +64,9 @@ public class HelixTask implements MessageTask {
     this._handler = handler;
     this._manager = notificationContext.getManager();
     _statusUpdateUtil = new StatusUpdateUtil();
+    if (executor != null) {
+      _statusUpdateUtil.setWriteCoalescer(executor.getWriteCoalescer());
+    }
     _executor = executor;
   }
 
@@ -216,6 +219,12 @@ public class HelixTask implements MessageTask {
   }
 
   private void removeMessageFromZk(HelixDataAccessor accessor, Message message) {
+    ParticipantWriteCoalescer writeCoalescer =
+        _executor == null ? null : _executor.getWriteCoalescer();
+    if (writeCoalescer != null) {
+      writeCoalescer.removeMessage(accessor, message, _manager.getInstanceName());
+      return;
+    }
     if (!HelixUtil.removeMessageFromZK(accessor, message, _manager.getInstanceName())) {
       logger.warn("Failed to delete message " + message.getId() + " from zk!");
     } else {
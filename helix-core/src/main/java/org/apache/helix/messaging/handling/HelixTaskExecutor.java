@@ -48,6 +48,7 @@ import org.apache.helix.NotificationContext.MapKey;
 import org.apache.helix.NotificationContext.Type;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.api.listeners.MessageListener;
 import org.apache.helix.api.listeners.PreFetch;
 import org.apache.helix.controller.GenericHelixController;
@@ -66,6 +67,7 @@ import org.apache.helix.monitoring.mbeans.ParticipantStatusMonitor;
 import org.apache.helix.participant.HelixStateMachineEngine;
 import org.apache.helix.participant.statemachine.StateModel;
 import org.apache.helix.participant.statemachine.StateModelFactory;
+import org.apache.helix.util.BoundedElasticExecutor;
 import org.apache.helix.util.HelixUtil;
 import org.apache.helix.util.StatusUpdateUtil;
 import org.slf4j.Logger;
@@ -113,6 +115,8 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
   private final StatusUpdateUtil _statusUpdateUtil;
   private final ParticipantStatusMonitor _monitor;
   public static final String MAX_THREADS = "maxThreads";
+  private static final long DEFAULT_WRITE_COALESCING_INTERVAL = 20L;
+  private static final int DEFAULT_WRITE_COALESCING_BATCH_SIZE = 1000;
 
   private MessageQueueMonitor _messageQueueMonitor;
   private GenericHelixController _controller;
@@ -139,6 +143,9 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
   // timer for schedule timeout tasks
   final Timer _timer;
 
+  // Batches the removals of handled messages and the error records, null if not enabled
+  private final ParticipantWriteCoalescer _writeCoalescer;
+
   private boolean _isShuttingDown;
 
   public HelixTaskExecutor() {
@@ -173,6 +180,17 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
 
     _timer = new Timer(true); // created as a daemon timer thread to handle task timeout
 
+    if (Boolean.getBoolean(SystemPropertyKeys.PARTICIPANT_WRITE_COALESCING_ENABLED)) {
+      _writeCoalescer = new ParticipantWriteCoalescer(
+          Long.getLong(SystemPropertyKeys.PARTICIPANT_WRITE_COALESCING_INTERVAL,
+              DEFAULT_WRITE_COALESCING_INTERVAL),
+          Integer.getInteger(SystemPropertyKeys.PARTICIPANT_WRITE_COALESCING_BATCH_SIZE,
+              DEFAULT_WRITE_COALESCING_BATCH_SIZE));
+      _statusUpdateUtil.setWriteCoalescer(_writeCoalescer);
+    } else {
+      _writeCoalescer = null;
+    }
+
     _isShuttingDown = false;
 
     startMonitorThread();
@@ -203,7 +221,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     MsgHandlerFactoryRegistryItem newItem = new MsgHandlerFactoryRegistryItem(factory, threadpoolSize);
     MsgHandlerFactoryRegistryItem prevItem = _hdlrFtyRegistry.putIfAbsent(type, newItem);
     if (prevItem == null) {
-      ExecutorService newPool = Executors.newFixedThreadPool(threadpoolSize, new ThreadFactory() {
+      ExecutorService newPool = createMessageHandlePool(threadpoolSize, new ThreadFactory() {
         @Override public Thread newThread(Runnable r) {
           return new Thread(r, "HelixTaskExecutor-message_handle_thread");
         }
@@ -227,6 +245,18 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     }
   }
 
+  /**
+   * Create the pool handling messages, which is a fixed thread pool, or in the elastic execution
+   * mode an executor creating threads on demand with the pool size as its concurrency limit.
+   */
+  private static ExecutorService createMessageHandlePool(int poolSize,
+      ThreadFactory threadFactory) {
+    if (Boolean.getBoolean(SystemPropertyKeys.PARTICIPANT_ELASTIC_EXECUTION_ENABLED)) {
+      return new BoundedElasticExecutor(poolSize, threadFactory);
+    }
+    return Executors.newFixedThreadPool(poolSize, threadFactory);
+  }
+
   public void setController(GenericHelixController controller) {
     _controller = controller;
   }
@@ -297,7 +327,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
       }
       final String key = getPerResourceStateTransitionPoolName(resourceName);
       if (threadpoolSize > 0) {
-        _executorMap.put(key, Executors.newFixedThreadPool(threadpoolSize, new ThreadFactory() {
+        _executorMap.put(key, createMessageHandlePool(threadpoolSize, new ThreadFactory() {
           @Override public Thread newThread(Runnable r) {
             return new Thread(r, "GerenricHelixController-message_handle_" + key);
           }
@@ -617,6 +647,11 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     _knownMessageIds.clear();
 
     _lastSessionSyncTime = null;
+
+    // Write the bookkeeping of the tasks finished before the reset
+    if (_writeCoalescer != null) {
+      _writeCoalescer.flush();
+    }
   }
 
   void init() {
@@ -632,7 +667,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     for (final String msgType : _hdlrFtyRegistry.keySet()) {
       MsgHandlerFactoryRegistryItem item = _hdlrFtyRegistry.get(msgType);
       ExecutorService newPool =
-          Executors.newFixedThreadPool(item.threadPoolSize(), new ThreadFactory() {
+          createMessageHandlePool(item.threadPoolSize(), new ThreadFactory() {
             @Override public Thread newThread(Runnable r) {
               return new Thread(r, "HelixTaskExecutor-message_handle_" + msgType);
             }
@@ -1125,8 +1160,19 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     return MessageType.STATE_TRANSITION.name() + "." + resourceName;
   }
 
+  /**
+   * @return the coalescer of the bookkeeping writes, or null if the writes are not coalesced
+   */
+  ParticipantWriteCoalescer getWriteCoalescer() {
+    return _writeCoalescer;
+  }
+
   private void removeMessageFromZK(HelixDataAccessor accessor, Message message,
       String instanceName) {
+    if (_writeCoalescer != null) {
+      _writeCoalescer.removeMessage(accessor, message, instanceName);
+      return;
+    }
     if (HelixUtil.removeMessageFromZK(accessor, message, instanceName)) {
       LOG.info("Successfully removed message {} from ZK.", message.getMsgId());
     } else {
@@ -1141,6 +1187,9 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     _timer.cancel();
 
     reset();
+    if (_writeCoalescer != null) {
+      _writeCoalescer.shutdown();
+    }
     _monitor.shutDown();
     LOG.info("Shutdown HelixTaskExecutor finished");
   }
@@ -0,0 +1,216 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.apache.helix.AccessOption;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.ZNRecordUpdater;
+import org.apache.helix.model.Message;
+import org.I0Itec.zkclient.DataUpdater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces the bookkeeping writes of a participant, the removal of handled messages and the
+ * updates of its error records, into batched async writes.
+ * <p>
+ * The writes are flushed every flush interval, or as soon as the number of pending writes reaches
+ * the batch size. The updates of the same record are merged before being written, and the writes
+ * of each data accessor are issued as one multi-path remove and one multi-path update.
+ */
+public class ParticipantWriteCoalescer {
+  private static final Logger LOG = LoggerFactory.getLogger(ParticipantWriteCoalescer.class);
+
+  private final int _batchSize;
+  private final ScheduledExecutorService _flusher;
+  // Pending writes of each data accessor
+  private Map<HelixDataAccessor, PendingWrites> _pendingWrites = new IdentityHashMap<>();
+  private int _pendingCount = 0;
+  private boolean _flushScheduled = false;
+
+  /**
+   * @param flushInterval the maximum time in ms a write is delayed
+   * @param batchSize the number of pending writes that triggers a flush
+   */
+  public ParticipantWriteCoalescer(long flushInterval, int batchSize) {
+    _batchSize = batchSize;
+    _flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "ParticipantWriteCoalescer");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    _flusher.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        flush();
+      }
+    }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Queue the removal of a handled message.
+   * @param accessor
+   * @param message
+   * @param instanceName name of the instance on which the message sits
+   */
+  public void removeMessage(HelixDataAccessor accessor, Message message, String instanceName) {
+    String path = message.getKey(accessor.keyBuilder(), instanceName).getPath();
+    synchronized (this) {
+      if (getPendingWrites(accessor)._removals.add(path)) {
+        onWriteQueued();
+      }
+    }
+  }
+
+  /**
+   * Queue an update of a record, which is merged into the existing record as
+   * {@link HelixDataAccessor#updateProperty(PropertyKey, org.apache.helix.HelixProperty)} does.
+   * @param accessor
+   * @param key
+   * @param record
+   */
+  public void updateRecord(HelixDataAccessor accessor, PropertyKey key, ZNRecord record) {
+    synchronized (this) {
+      Map<String, ZNRecord> updates = getPendingWrites(accessor)._updates;
+      ZNRecord pending = updates.get(key.getPath());
+      if (pending == null) {
+        updates.put(key.getPath(), new ZNRecord(record));
+        onWriteQueued();
+      } else {
+        pending.merge(record);
+      }
+    }
+  }
+
+  /**
+   * Write all the pending writes.
+   */
+  public void flush() {
+    Map<HelixDataAccessor, PendingWrites> pendingWrites;
+    synchronized (this) {
+      if (_pendingCount == 0) {
+        return;
+      }
+      pendingWrites = _pendingWrites;
+      _pendingWrites = new IdentityHashMap<>();
+      _pendingCount = 0;
+      _flushScheduled = false;
+    }
+
+    // One accessor failing, for example because its session expired, does not stop the others,
+    // and the removals, which hold back the next messages, do not depend on the record updates
+    for (Map.Entry<HelixDataAccessor, PendingWrites> entry : pendingWrites.entrySet()) {
+      PendingWrites writes = entry.getValue();
+      if (!writes._removals.isEmpty()) {
+        try {
+          removeMessages(entry.getKey(), new ArrayList<>(writes._removals));
+        } catch (Exception e) {
+          LOG.error("Failed to remove {} messages from ZK.", writes._removals.size(), e);
+        }
+      }
+      if (!writes._updates.isEmpty()) {
+        try {
+          updateRecords(entry.getKey(), writes._updates);
+        } catch (Exception e) {
+          LOG.error("Failed to write {} record updates.", writes._updates.size(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Flush the pending writes and stop flushing.
+   */
+  public void shutdown() {
+    _flusher.shutdown();
+    flush();
+  }
+
+  private void removeMessages(HelixDataAccessor accessor, List<String> paths) {
+    boolean[] success = accessor.getBaseDataAccessor().remove(paths, 0);
+    int removed = 0;
+    for (int i = 0; i < success.length; i++) {
+      if (success[i]) {
+        removed++;
+      } else {
+        LOG.warn("Failed to remove message {} from ZK.", paths.get(i));
+      }
+    }
+    LOG.info("Removed {} messages from ZK in one batch.", removed);
+  }
+
+  private void updateRecords(HelixDataAccessor accessor, Map<String, ZNRecord> updates) {
+    List<String> paths = new ArrayList<>(updates.size());
+    List<DataUpdater<ZNRecord>> updaters = new ArrayList<>(updates.size());
+    for (Map.Entry<String, ZNRecord> update : updates.entrySet()) {
+      paths.add(update.getKey());
+      updaters.add(new ZNRecordUpdater(update.getValue()));
+    }
+    boolean[] success = accessor.updateChildren(paths, updaters, AccessOption.PERSISTENT);
+    for (int i = 0; i < success.length; i++) {
+      if (!success[i]) {
+        LOG.warn("Failed to update record {}.", paths.get(i));
+      }
+    }
+  }
+
+  private PendingWrites getPendingWrites(HelixDataAccessor accessor) {
+    PendingWrites writes = _pendingWrites.get(accessor);
+    if (writes == null) {
+      writes = new PendingWrites();
+      _pendingWrites.put(accessor, writes);
+    }
+    return writes;
+  }
+
+  private void onWriteQueued() {
+    _pendingCount++;
+    if (_pendingCount >= _batchSize && !_flushScheduled && !_flusher.isShutdown()) {
+      _flushScheduled = true;
+      _flusher.execute(new Runnable() {
+        @Override
+        public void run() {
+          flush();
+        }
+      });
+    }
+  }
+
+  private static class PendingWrites {
+    final Set<String> _removals = new LinkedHashSet<>();
+    final Map<String, ZNRecord> _updates = new LinkedHashMap<>();
+  }
+}
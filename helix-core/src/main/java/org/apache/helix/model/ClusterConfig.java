@@ -84,7 +84,13 @@ public class ClusterConfig extends HelixProperty {
     VIEW_CLUSTER_REFRESH_PERIOD, // In second
 
     // Specifies job types and used for quota allocation
-    QUOTA_TYPES
+    QUOTA_TYPES,
+
+    // Number of threads used to compute best possible states for resources in parallel
+    BEST_POSSIBLE_CALC_PARALLELISM,
+
+    // Number of threads used to compute intermediate states for resources in parallel
+    INTERMEDIATE_STATE_CALC_PARALLELISM
   }
 
   private final static int DEFAULT_MAX_CONCURRENT_TASK_PER_INSTANCE = 40;
@@ -96,6 +102,10 @@ public class ClusterConfig extends HelixProperty {
   private final static int DEFAULT_ERROR_OR_RECOVERY_PARTITION_THRESHOLD_FOR_LOAD_BALANCE = -1;
   private static final String IDEAL_STATE_RULE_PREFIX = "IdealStateRule!";
   private final static int DEFAULT_VIEW_CLUSTER_REFRESH_PERIOD = 30;
+  // By default, best possible states are computed resource by resource on the pipeline thread
+  private final static int DEFAULT_BEST_POSSIBLE_CALC_PARALLELISM = 1;
+  // By default, intermediate states are computed resource by resource on the pipeline thread
+  private final static int DEFAULT_INTERMEDIATE_STATE_CALC_PARALLELISM = 1;
 
   public final static String TASK_QUOTA_RATIO_NOT_SET = "-1";
 
@@ -473,6 +483,47 @@ public class ClusterConfig extends HelixProperty {
     return _record.getLongField(ClusterConfigProperty.REBALANCE_TIMER_PERIOD.name(), -1);
   }
 
+  /**
+   * Set the number of threads the controller uses to compute best possible states of resources
+   * in parallel. Values less than or equal to 1 keep the sequential calculation.
+   * @param parallelism
+   */
+  public void setBestPossibleCalcParallelism(int parallelism) {
+    _record.setIntField(ClusterConfigProperty.BEST_POSSIBLE_CALC_PARALLELISM.name(), parallelism);
+  }
+
+  /**
+   * Get the number of threads the controller uses to compute best possible states of resources.
+   * By default, it is 1, which means resources are calculated sequentially.
+   * @return
+   */
+  public int getBestPossibleCalcParallelism() {
+    return _record.getIntField(ClusterConfigProperty.BEST_POSSIBLE_CALC_PARALLELISM.name(),
+        DEFAULT_BEST_POSSIBLE_CALC_PARALLELISM);
+  }
+
+  /**
+   * Set the number of threads the controller uses to analyze the current and best possible
+   * states of resources in parallel when computing intermediate states. State transitions are
+   * still throttled resource by resource in priority order. Values less than or equal to 1 keep
+   * the sequential calculation.
+   * @param parallelism
+   */
+  public void setIntermediateStateCalcParallelism(int parallelism) {
+    _record.setIntField(ClusterConfigProperty.INTERMEDIATE_STATE_CALC_PARALLELISM.name(),
+        parallelism);
+  }
+
+  /**
+   * Get the number of threads the controller uses to compute intermediate states of resources.
+   * By default, it is 1, which means resources are calculated sequentially.
+   * @return
+   */
+  public int getIntermediateStateCalcParallelism() {
+    return _record.getIntField(ClusterConfigProperty.INTERMEDIATE_STATE_CALC_PARALLELISM.name(),
+        DEFAULT_INTERMEDIATE_STATE_CALC_PARALLELISM);
+  }
+
   public boolean isStateTransitionCancelEnabled() {
     return _record
         .getBooleanField(ClusterConfigProperty.STATE_TRANSITION_CANCELLATION_ENABLED.name(), false);
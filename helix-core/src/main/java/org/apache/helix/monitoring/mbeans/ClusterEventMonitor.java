@@ -35,7 +35,12 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
   public enum PhaseName {
     Callback,
     InQueue,
-    TotalProcessed
+    TotalProcessed,
+    // From the deadline of a task framework timer until the task pipeline handles it
+    TaskTimerLag,
+    // From the earliest change notification handled by a pipeline until it dispatched messages.
+    // Pipelines that dispatch no message do not report it.
+    NotificationToDispatch
   }
 
   private static final String CLUSTEREVENT_DN_KEY = "ClusterEventStatus";
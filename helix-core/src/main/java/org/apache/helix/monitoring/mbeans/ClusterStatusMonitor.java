@@ -24,6 +24,7 @@ import javax.management.MBeanServer;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -48,6 +49,10 @@ import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
 import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.monitoring.metrics.GaugeTable;
+import org.apache.helix.monitoring.metrics.MetricsCollector;
+import org.apache.helix.monitoring.metrics.MetricsRegistry;
+import org.apache.helix.monitoring.metrics.MetricsWriter;
 import org.apache.helix.task.JobConfig;
 import org.apache.helix.task.TaskState;
 import org.apache.helix.task.WorkflowConfig;
@@ -56,7 +61,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
-public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
+public class ClusterStatusMonitor implements ClusterStatusMonitorMBean, MetricsCollector {
   private static final Logger LOG = LoggerFactory.getLogger(ClusterStatusMonitor.class);
 
   static final String MESSAGE_QUEUE_STATUS_KEY = "MessageQueueStatus";
@@ -73,6 +78,7 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
 
   private final String _clusterName;
   private final MBeanServer _beanServer;
+  private final MetricsRegistry _metricsRegistry;
 
   private boolean _enabled = true;
   private boolean _inMaintenance = false;
@@ -86,6 +92,12 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   private Map<String, Long> _instanceMsgQueueSizes = Maps.newConcurrentMap();
   private boolean _rebalanceFailure = false;
   private AtomicLong _rebalanceFailureCount = new AtomicLong(0L);
+  private long _dataRefreshReloadedPropertyCount = 0L;
+  private long _dataRefreshSkippedPropertyCount = 0L;
+  private long _taskDataCacheHitCount = 0L;
+  private long _taskDataZkReadCount = 0L;
+  private long _externalViewRecomputedResourceCount = 0L;
+  private long _externalViewSkippedResourceCount = 0L;
 
   private final ConcurrentHashMap<String, ResourceMonitor> _resourceMonitorMap =
       new ConcurrentHashMap<>();
@@ -106,9 +118,29 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
 
   private final Map<String, JobMonitor> _perTypeJobMonitorMap = new ConcurrentHashMap<>();
 
+  /**
+   * PerInstanceResource partition gauges, kept instead of the PerInstanceResource MBeans when the
+   * MBeans of level ALL are not registered
+   */
+  private final GaugeTable _perInstanceResourceGauges =
+      new GaugeTable(MonitorDomainNames.ClusterStatus.name() + "_PerInstanceResource",
+          Arrays.asList(CLUSTER_DN_KEY, INSTANCE_DN_KEY, RESOURCE_DN_KEY),
+          Arrays.asList("PartitionGauge"));
+  private volatile boolean _perInstanceResourceStatusSkipLogged = false;
+
   public ClusterStatusMonitor(String clusterName) {
+    this(clusterName, MetricsRegistry.getDefault());
+  }
+
+  /**
+   * @param clusterName
+   * @param metricsRegistry the registry the metrics are exported to once active, or null to only
+   *          export them as MBeans
+   */
+  public ClusterStatusMonitor(String clusterName, MetricsRegistry metricsRegistry) {
     _clusterName = clusterName;
     _beanServer = ManagementFactory.getPlatformMBeanServer();
+    _metricsRegistry = metricsRegistry;
   }
 
   public ObjectName getObjectName(String name) throws MalformedObjectNameException {
@@ -374,6 +406,14 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   public void setPerInstanceResourceStatus(BestPossibleStateOutput bestPossibleStates,
       Map<String, InstanceConfig> instanceConfigMap, Map<String, Resource> resourceMap,
       Map<String, StateModelDefinition> stateModelDefMap) {
+    if (!MBeanRegistrar.isEnabled(MonitorLevel.ALL) && _metricsRegistry == null) {
+      if (!_perInstanceResourceStatusSkipLogged) {
+        _perInstanceResourceStatusSkipLogged = true;
+        LOG.info("The PerInstanceResource metrics of cluster {} are not exported, since their "
+            + "MBeans are disabled and the metrics exporter is not enabled", _clusterName);
+      }
+      return;
+    }
 
     // Convert to perInstanceResource beanName->partition->state
     Map<PerInstanceResourceMonitor.BeanName, Map<Partition, String>> beanMap =
@@ -394,6 +434,22 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
         }
       }
     }
+    if (!MBeanRegistrar.isEnabled(MonitorLevel.ALL)) {
+      // Only keep the gauges for the metrics exporter
+      Set<List<String>> rows = new HashSet<>();
+      for (Map.Entry<PerInstanceResourceMonitor.BeanName, Map<Partition, String>> entry : beanMap
+          .entrySet()) {
+        PerInstanceResourceMonitor.BeanName beanName = entry.getKey();
+        String stateModelDefName = resourceMap.get(beanName.resourceName()).getStateModelDefRef();
+        List<String> row =
+            Arrays.asList(_clusterName, beanName.instanceName(), beanName.resourceName());
+        _perInstanceResourceGauges.setRow(row, PerInstanceResourceMonitor
+            .countPartitions(entry.getValue(), stateModelDefMap.get(stateModelDefName)));
+        rows.add(row);
+      }
+      _perInstanceResourceGauges.retainRows(rows);
+      return;
+    }
     synchronized (_perInstanceResourceMonitorMap) {
       // Unregister beans for per-instance resources that no longer exist
       Set<PerInstanceResourceMonitor.BeanName> toUnregister = Sets.newHashSet(
@@ -530,6 +586,12 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     } catch (Exception e) {
       LOG.error("Fail to register ClusterStatusMonitor", e);
     }
+    // Unlike the other phases, which every pipeline reports, this one is only reported by the
+    // pipelines that dispatch messages, so it is registered upfront
+    getOrCreateClusterEventMonitor(ClusterEventMonitor.PhaseName.NotificationToDispatch.name());
+    if (_metricsRegistry != null) {
+      _metricsRegistry.register(this);
+    }
   }
 
   public void reset() {
@@ -543,6 +605,10 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
       unregisterAllEventMonitors();
       unregisterAllWorkflowsMonitor();
       unregisterAllJobs();
+      _perInstanceResourceGauges.clear();
+      if (_metricsRegistry != null) {
+        _metricsRegistry.unregister(this);
+      }
 
       _rebalanceFailure = false;
     } catch (Exception e) {
@@ -695,8 +761,10 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     synchronized (_instanceMonitorMap) {
       for (InstanceMonitor monitor : instances) {
         String instanceName = monitor.getInstanceName();
-        String beanName = getInstanceBeanName(instanceName);
-        register(monitor, getObjectName(beanName));
+        if (MBeanRegistrar.isEnabled(MonitorLevel.DEFAULT)) {
+          String beanName = getInstanceBeanName(instanceName);
+          register(monitor, getObjectName(beanName));
+        }
         _instanceMonitorMap.put(instanceName, monitor);
       }
     }
@@ -816,6 +884,47 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     }
   }
 
+  /**
+   * Write the cluster metrics and the metrics of all the monitors of the cluster, whether or not
+   * their MBeans are registered. The metrics are named "ClusterStatus_{monitor type}_{attribute}".
+   */
+  @Override
+  public void collect(MetricsWriter writer) {
+    String prefix = MonitorDomainNames.ClusterStatus.name();
+    writer.metrics(prefix + "_Cluster", Collections.singletonMap(CLUSTER_DN_KEY, _clusterName),
+        ClusterStatusMonitorMBean.class, this);
+    for (InstanceMonitor monitor : _instanceMonitorMap.values()) {
+      Map<String, String> labels = new HashMap<>();
+      labels.put(CLUSTER_DN_KEY, _clusterName);
+      labels.put(INSTANCE_DN_KEY, monitor.getInstanceName());
+      writer.metrics(prefix + "_Instance", labels, InstanceMonitorMBean.class, monitor);
+    }
+    for (PerInstanceResourceMonitor monitor : _perInstanceResourceMonitorMap.values()) {
+      Map<String, String> labels = new HashMap<>();
+      labels.put(CLUSTER_DN_KEY, _clusterName);
+      labels.put(INSTANCE_DN_KEY, monitor.getInstanceName());
+      labels.put(RESOURCE_DN_KEY, monitor.getResourceName());
+      writer.metrics(prefix + "_PerInstanceResource", labels,
+          PerInstanceResourceMonitorMBean.class, monitor);
+    }
+    _perInstanceResourceGauges.collect(writer);
+    for (Map.Entry<String, WorkflowMonitor> entry : _perTypeWorkflowMonitorMap.entrySet()) {
+      Map<String, String> labels = new HashMap<>();
+      labels.put(CLUSTER_DN_KEY, _clusterName);
+      labels.put(WORKFLOW_TYPE_DN_KEY, entry.getKey());
+      writer.metrics(prefix + "_Workflow", labels, WorkflowMonitorMBean.class, entry.getValue());
+    }
+    for (ResourceMonitor monitor : _resourceMonitorMap.values()) {
+      monitor.collect(writer);
+    }
+    for (ClusterEventMonitor monitor : _clusterEventMonitorMap.values()) {
+      monitor.collect(writer);
+    }
+    for (JobMonitor monitor : _perTypeJobMonitorMap.values()) {
+      monitor.collect(writer);
+    }
+  }
+
   // For test only
   protected ResourceMonitor getResourceMonitor(String resourceName) {
     return _resourceMonitorMap.get(resourceName);
@@ -992,4 +1101,66 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     }
     return total;
   }
+
+  /**
+   * Update the number of properties reloaded and skipped in the last cluster data refresh
+   * @param reloadedCount
+   * @param skippedCount
+   */
+  public void updateDataRefreshPropertyCounts(long reloadedCount, long skippedCount) {
+    _dataRefreshReloadedPropertyCount = reloadedCount;
+    _dataRefreshSkippedPropertyCount = skippedCount;
+  }
+
+  @Override
+  public long getDataRefreshReloadedPropertyGauge() {
+    return _dataRefreshReloadedPropertyCount;
+  }
+
+  @Override
+  public long getDataRefreshSkippedPropertyGauge() {
+    return _dataRefreshSkippedPropertyCount;
+  }
+
+  /**
+   * Update the total number of task contexts and previous assignments reused from the cache and
+   * read from ZooKeeper by the task pipeline
+   * @param cacheHitCount
+   * @param zkReadCount
+   */
+  public void updateTaskDataCacheCounts(long cacheHitCount, long zkReadCount) {
+    _taskDataCacheHitCount = cacheHitCount;
+    _taskDataZkReadCount = zkReadCount;
+  }
+
+  @Override
+  public long getTaskDataCacheHitCounter() {
+    return _taskDataCacheHitCount;
+  }
+
+  @Override
+  public long getTaskDataZkReadCounter() {
+    return _taskDataZkReadCount;
+  }
+
+  /**
+   * Update the number of resources whose external views were computed and skipped in the last
+   * external view computation
+   * @param recomputedCount
+   * @param skippedCount
+   */
+  public void updateExternalViewComputeCounts(long recomputedCount, long skippedCount) {
+    _externalViewRecomputedResourceCount = recomputedCount;
+    _externalViewSkippedResourceCount = skippedCount;
+  }
+
+  @Override
+  public long getExternalViewRecomputedResourceGauge() {
+    return _externalViewRecomputedResourceCount;
+  }
+
+  @Override
+  public long getExternalViewSkippedResourceGauge() {
+    return _externalViewSkippedResourceCount;
+  }
 }
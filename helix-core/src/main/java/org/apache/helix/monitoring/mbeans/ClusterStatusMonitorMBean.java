@@ -125,4 +125,39 @@ public interface ClusterStatusMonitorMBean extends SensorNameProvider {
    * @return number of pending state transitions in this cluster
    */
   long getPendingStateTransitionGuage();
+
+  /**
+   * @return number of properties read from ZooKeeper in the last cluster data refresh
+   */
+  long getDataRefreshReloadedPropertyGauge();
+
+  /**
+   * @return number of cached properties reused without reading ZooKeeper in the last cluster
+   * data refresh
+   */
+  long getDataRefreshSkippedPropertyGauge();
+
+  /**
+   * @return total number of task contexts and previous assignments reused from the cache by the
+   * task pipeline
+   */
+  long getTaskDataCacheHitCounter();
+
+  /**
+   * @return total number of task contexts and previous assignments read from ZooKeeper by the task
+   * pipeline
+   */
+  long getTaskDataZkReadCounter();
+
+  /**
+   * @return number of resources whose external views were computed in the last external view
+   * computation
+   */
+  long getExternalViewRecomputedResourceGauge();
+
+  /**
+   * @return number of resources whose external views were skipped as unchanged in the last
+   * external view computation
+   */
+  long getExternalViewSkippedResourceGauge();
 }
@@ -0,0 +1,105 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * Monitors the current state writes of a participant. The ratio of the written updates to the ZK
+ * writes is the write amplification saved by coalescing the updates of the same current state.
+ */
+public class CurrentStateWriteMonitor extends DynamicMBeanProvider {
+  private static final String MBEAN_DESCRIPTION = "Helix Current State Write Monitor";
+  private final String _sensorName;
+  private final String _participantName;
+
+  private SimpleDynamicMetric<Long> _updateCounter;
+  private SimpleDynamicMetric<Long> _writeCounter;
+  private SimpleDynamicMetric<Long> _conflictRetryCounter;
+  private HistogramDynamicMetric _updatesPerWriteGauge;
+
+  public CurrentStateWriteMonitor(String participantName) {
+    _participantName = participantName;
+    _sensorName = String.format("%s.%s.%s", MonitorDomainNames.CLMParticipantReport.name(),
+        participantName, "CurrentStateWrite");
+
+    _updatesPerWriteGauge = new HistogramDynamicMetric("UpdatesPerWriteGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+    _updateCounter = new SimpleDynamicMetric("UpdateCounter", 0l);
+    _writeCounter = new SimpleDynamicMetric("WriteCounter", 0l);
+    _conflictRetryCounter = new SimpleDynamicMetric("ConflictRetryCounter", 0l);
+  }
+
+  @Override
+  public String getSensorName() {
+    return _sensorName;
+  }
+
+  /**
+   * Record a current state update requested by a state transition.
+   */
+  public synchronized void increaseUpdateCounter() {
+    _updateCounter.updateValue(_updateCounter.getValue() + 1);
+  }
+
+  /**
+   * Record a ZK write of a current state, including the writes failed on a version conflict.
+   */
+  public synchronized void increaseWriteCounter() {
+    _writeCounter.updateValue(_writeCounter.getValue() + 1);
+  }
+
+  /**
+   * Record a write retried because the current state was changed by another writer.
+   */
+  public synchronized void increaseConflictRetryCounter() {
+    _conflictRetryCounter.updateValue(_conflictRetryCounter.getValue() + 1);
+  }
+
+  /**
+   * Record the number of updates merged into one successful write.
+   * @param updates
+   */
+  public void recordUpdatesPerWrite(int updates) {
+    _updatesPerWriteGauge.updateValue((long) updates);
+  }
+
+  @Override
+  public CurrentStateWriteMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_updateCounter);
+    attributeList.add(_writeCounter);
+    attributeList.add(_conflictRetryCounter);
+    attributeList.add(_updatesPerWriteGauge);
+    doRegister(attributeList, MBEAN_DESCRIPTION, MonitorDomainNames.CLMParticipantReport.name(),
+        ParticipantMessageMonitor.PARTICIPANT_KEY, _participantName, "MonitorType",
+        CurrentStateWriteMonitor.class.getSimpleName());
+    return this;
+  }
+}
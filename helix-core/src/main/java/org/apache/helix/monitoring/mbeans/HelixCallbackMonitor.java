@@ -50,6 +50,7 @@ public class HelixCallbackMonitor extends DynamicMBeanProvider {
   private SimpleDynamicMetric<Long> _totalLatencyCounter;
 
   private HistogramDynamicMetric _latencyGauge;
+  private HistogramDynamicMetric _queueWaitTimeGauge;
 
   public HelixCallbackMonitor(InstanceType type, String clusterName, String instanceName,
       HelixConstants.ChangeType changeType) throws JMException {
@@ -65,6 +66,8 @@ public class HelixCallbackMonitor extends DynamicMBeanProvider {
 
     _latencyGauge = new HistogramDynamicMetric("LatencyGauge", new Histogram(
         new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+    _queueWaitTimeGauge = new HistogramDynamicMetric("QueueWaitTimeGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
     _totalLatencyCounter = new SimpleDynamicMetric("LatencyCounter", 0l);
     _unbatchedCounter = new SimpleDynamicMetric("UnbatchedCounter", 0l);
     _counter = new SimpleDynamicMetric("Counter", 0l);
@@ -85,6 +88,14 @@ public class HelixCallbackMonitor extends DynamicMBeanProvider {
     _latencyGauge.updateValue(time);
   }
 
+  /**
+   * Record the time from the change notification until the callback starts being processed.
+   * @param time
+   */
+  public void recordQueueWaitTime(long time) {
+    _queueWaitTimeGauge.updateValue(time);
+  }
+
   public void increaseCallbackUnbatchedCounters() {
     _unbatchedCounter.updateValue(_unbatchedCounter.getValue() + 1);
   }
@@ -96,6 +107,7 @@ public class HelixCallbackMonitor extends DynamicMBeanProvider {
     attributeList.add(_unbatchedCounter);
     attributeList.add(_totalLatencyCounter);
     attributeList.add(_latencyGauge);
+    attributeList.add(_queueWaitTimeGauge);
     doRegister(attributeList, MBEAN_DESCRIPTION, MonitorDomainNames.HelixCallback.name(),
         MONITOR_TYPE, _type.name(), MONITOR_KEY,
         _clusterName + (_instanceName == null ? "" : "." + _instanceName), MONITOR_CHANGE_TYPE,
@@ -19,6 +19,7 @@ package org.apache.helix.monitoring.mbeans;
  * under the License.
  */
 
+import org.apache.helix.SystemPropertyKeys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -89,6 +90,32 @@ public class MBeanRegistrar {
     }
   }
 
+  /**
+   * Check if the MBeans of the given level are registered, according to the configured
+   * {@link SystemPropertyKeys#MBEAN_MONITOR_LEVEL}. The default configuration registers all of
+   * them.
+   * @param metricLevel ALL for the most detailed metrics, DEFAULT for per-object metrics, or
+   *          AGGREGATED_ONLY for the metrics aggregated over the cluster
+   */
+  public static boolean isEnabled(MonitorLevel metricLevel) {
+    MonitorLevel configuredLevel;
+    try {
+      configuredLevel = MonitorLevel.valueOf(
+          System.getProperty(SystemPropertyKeys.MBEAN_MONITOR_LEVEL, MonitorLevel.ALL.name()));
+    } catch (IllegalArgumentException ex) {
+      LOG.warn("Unrecognizable MBean monitor level configuration. Register all the MBeans.", ex);
+      configuredLevel = MonitorLevel.ALL;
+    }
+    switch (configuredLevel) {
+    case AGGREGATED_ONLY:
+      return metricLevel == MonitorLevel.AGGREGATED_ONLY;
+    case DEFAULT:
+      return metricLevel != MonitorLevel.ALL;
+    default:
+      return true;
+    }
+  }
+
   public static ObjectName buildObjectName(String domain, String... keyValuePairs)
       throws MalformedObjectNameException {
     if (keyValuePairs.length < 2 || keyValuePairs.length % 2 != 0) {
@@ -22,6 +22,7 @@ package org.apache.helix.monitoring.mbeans;
 import org.apache.helix.model.Message;
 import org.apache.helix.monitoring.StateTransitionContext;
 import org.apache.helix.monitoring.StateTransitionDataPoint;
+import org.apache.helix.util.BoundedElasticExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -169,13 +170,14 @@ public class ParticipantStatusMonitor {
     if (_executorMonitors == null) {
       return;
     }
-    if (! (executor instanceof ThreadPoolExecutor)) {
-      return;
-    }
-
     try {
-      _executorMonitors.put(type,
-          new ThreadPoolExecutorMonitor(type, (ThreadPoolExecutor) executor));
+      if (executor instanceof ThreadPoolExecutor) {
+        _executorMonitors.put(type,
+            new ThreadPoolExecutorMonitor(type, (ThreadPoolExecutor) executor));
+      } else if (executor instanceof BoundedElasticExecutor) {
+        _executorMonitors.put(type,
+            new ThreadPoolExecutorMonitor(type, (BoundedElasticExecutor) executor));
+      }
     } catch (JMException e) {
       LOG.warn(String.format(
           "Error in creating ThreadPoolExecutorMonitor for type=%s", type), e);
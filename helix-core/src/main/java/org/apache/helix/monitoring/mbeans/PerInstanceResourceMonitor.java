@@ -129,6 +129,17 @@ public class PerInstanceResourceMonitor implements PerInstanceResourceMonitorMBe
       Collections.sort(_tags);
     }
 
+    _partitions = countPartitions(stateMap, stateModelDef);
+  }
+
+  /**
+   * Count the partitions of a per-instance resource
+   * @param stateMap partition->state
+   * @param stateModelDef
+   * @return the number of partitions that are neither DROPPED nor in the initial state
+   */
+  static long countPartitions(Map<Partition, String> stateMap,
+      StateModelDefinition stateModelDef) {
     int cnt = 0;
     for (String state : stateMap.values()) {
       // Skip DROPPED and initial state (e.g. OFFLINE)
@@ -138,7 +149,7 @@ public class PerInstanceResourceMonitor implements PerInstanceResourceMonitorMBe
       }
       cnt++;
     }
-    _partitions = cnt;
+    return cnt;
   }
 
 }
@@ -110,6 +110,11 @@ public class ResourceMonitor extends DynamicMBeanProvider {
     return this;
   }
 
+  @Override
+  protected boolean isMBeanEnabled() {
+    return MBeanRegistrar.isEnabled(MonitorLevel.DEFAULT);
+  }
+
   public enum MonitorState {
     TOP_STATE
   }
@@ -49,6 +49,7 @@ public class RoutingTableProviderMonitor extends DynamicMBeanProvider {
   private SimpleDynamicMetric<Long> _dataRefreshCounter;
   private HistogramDynamicMetric _dataRefreshLatencyGauge;
   private HistogramDynamicMetric _statePropLatencyGauge;
+  private HistogramDynamicMetric _routingTableUpdateLatencyGauge;
 
   public RoutingTableProviderMonitor(final PropertyType propertyType, String clusterName) {
     _propertyType = propertyType;
@@ -61,6 +62,9 @@ public class RoutingTableProviderMonitor extends DynamicMBeanProvider {
 
     _dataRefreshLatencyGauge = new HistogramDynamicMetric("DataRefreshLatencyGauge", new Histogram(
         new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+    _routingTableUpdateLatencyGauge = new HistogramDynamicMetric("RoutingTableUpdateLatencyGauge",
+        new Histogram(
+            new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
     _callbackCounter = new SimpleDynamicMetric("CallbackCounter", 0l);
     _eventQueueSizeGauge = new SimpleDynamicMetric("EventQueueSizeGauge", 0l);
     _dataRefreshCounter = new SimpleDynamicMetric("DataRefreshCounter", 0l);
@@ -97,6 +101,14 @@ public class RoutingTableProviderMonitor extends DynamicMBeanProvider {
     }
   }
 
+  /**
+   * Record the latency from a change notification until the updated routing table is visible.
+   * @param latency
+   */
+  public void recordRoutingTableUpdateLatency(long latency) {
+    _routingTableUpdateLatencyGauge.updateValue(latency);
+  }
+
   @Override
   public RoutingTableProviderMonitor register() throws JMException {
     List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
@@ -104,6 +116,7 @@ public class RoutingTableProviderMonitor extends DynamicMBeanProvider {
     attributeList.add(_callbackCounter);
     attributeList.add(_eventQueueSizeGauge);
     attributeList.add(_dataRefreshCounter);
+    attributeList.add(_routingTableUpdateLatencyGauge);
     if (_statePropLatencyGauge != null) {
       attributeList.add(_statePropLatencyGauge);
     }
@@ -4,12 +4,14 @@ import java.util.concurrent.ThreadPoolExecutor;
 import javax.management.JMException;
 import javax.management.ObjectName;
 import org.apache.helix.InstanceType;
+import org.apache.helix.util.BoundedElasticExecutor;
 
 public class ThreadPoolExecutorMonitor implements ThreadPoolExecutorMonitorMBean {
   public static final String TYPE = "Type";
 
   private ObjectName _objectName;
   private ThreadPoolExecutor _executor;
+  private BoundedElasticExecutor _elasticExecutor;
   private String _type;
 
   public ThreadPoolExecutorMonitor(String type, ThreadPoolExecutor executor)
@@ -20,6 +22,18 @@ public class ThreadPoolExecutorMonitor implements ThreadPoolExecutorMonitorMBean
         .register(this, MonitorDomainNames.HelixThreadPoolExecutor.name(), TYPE, type);
   }
 
+  /**
+   * Monitor an elastic executor. Both pool sizes report its concurrency limit, and the active
+   * threads report the work in flight.
+   */
+  public ThreadPoolExecutorMonitor(String type, BoundedElasticExecutor executor)
+      throws JMException {
+    _type = type;
+    _elasticExecutor = executor;
+    _objectName = MBeanRegistrar
+        .register(this, MonitorDomainNames.HelixThreadPoolExecutor.name(), TYPE, type);
+  }
+
   public void unregister() {
     MBeanRegistrar.unregister(_objectName);
   }
@@ -32,21 +46,33 @@ public class ThreadPoolExecutorMonitor implements ThreadPoolExecutorMonitorMBean
 
   @Override
   public int getThreadPoolCoreSizeGauge() {
+    if (_elasticExecutor != null) {
+      return _elasticExecutor.getConcurrencyLimit();
+    }
     return _executor.getCorePoolSize();
   }
 
   @Override
   public int getThreadPoolMaxSizeGauge() {
+    if (_elasticExecutor != null) {
+      return _elasticExecutor.getConcurrencyLimit();
+    }
     return _executor.getMaximumPoolSize();
   }
 
   @Override
   public int getQueueSizeGauge() {
+    if (_elasticExecutor != null) {
+      return _elasticExecutor.getQueueSize();
+    }
     return _executor.getQueue().size();
   }
 
   @Override
   public int getNumOfActiveThreadsGauge() {
+    if (_elasticExecutor != null) {
+      return _elasticExecutor.getInFlightCount();
+    }
     return _executor.getActiveCount();
   }
 }
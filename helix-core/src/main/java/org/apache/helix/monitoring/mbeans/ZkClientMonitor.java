@@ -178,6 +178,38 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
     }
   }
 
+  public void recordBatchRead(String path, int batchSize, long startTimeMilliSec) {
+    long latencyMilliSec = System.currentTimeMillis() - startTimeMilliSec;
+    for (ZkClientPathMonitor.PredefinedPath predefinedPath : ZkClientPathMonitor.PredefinedPath
+        .values()) {
+      if (predefinedPath.match(path)) {
+        ZkClientPathMonitor zkClientPathMonitor = _zkClientPathMonitorMap.get(predefinedPath);
+        if (zkClientPathMonitor != null) {
+          zkClientPathMonitor.recordBatchRead(batchSize, latencyMilliSec);
+        }
+      }
+    }
+  }
+
+  /**
+   * Record a multi-op write, which writes all its ops in one round trip.
+   * @param path one of the paths of the ops, used to find the monitored path
+   * @param numOps number of the ops in the multi-op
+   * @param startTimeMilliSec the time when the multi-op started
+   */
+  public void recordMultiWrite(String path, int numOps, long startTimeMilliSec) {
+    long latencyMilliSec = System.currentTimeMillis() - startTimeMilliSec;
+    for (ZkClientPathMonitor.PredefinedPath predefinedPath : ZkClientPathMonitor.PredefinedPath
+        .values()) {
+      if (predefinedPath.match(path)) {
+        ZkClientPathMonitor zkClientPathMonitor = _zkClientPathMonitorMap.get(predefinedPath);
+        if (zkClientPathMonitor != null) {
+          zkClientPathMonitor.recordMultiWrite(numOps, latencyMilliSec);
+        }
+      }
+    }
+  }
+
   public void recordFailure(String path, AccessType accessType) {
     switch (accessType) {
     case READ:
@@ -192,6 +224,8 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
   }
 
   class ZkThreadMetric extends DynamicMetric<ZkEventThread, ZkEventThread> {
+    private static final String PARTITION_PENDING_CALLBACK_GAUGE = "PendingCallbackGauge.Partition";
+
     public ZkThreadMetric(ZkEventThread eventThread) {
       super("ZkEventThead", eventThread);
     }
@@ -207,6 +241,11 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
       attributeInfoSet.add(
           new MBeanAttributeInfo("TotalCallbackHandledCounter", Long.TYPE.getName(),
               DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+      for (int i = 0; i < eventThread.getPartitionCount(); i++) {
+        attributeInfoSet.add(
+            new MBeanAttributeInfo(PARTITION_PENDING_CALLBACK_GAUGE + i, Long.TYPE.getName(),
+                DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+      }
       return attributeInfoSet;
     }
 
@@ -220,6 +259,10 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
       case "TotalCallbackHandledCounter":
         return getMetricObject().getTotalHandledEventCount();
       default:
+        if (attributeName.startsWith(PARTITION_PENDING_CALLBACK_GAUGE)) {
+          return getMetricObject().getPendingEventsCount(
+              Integer.parseInt(attributeName.substring(PARTITION_PENDING_CALLBACK_GAUGE.length())));
+        }
         throw new HelixException("Unknown attribute name: " + attributeName);
       }
     }
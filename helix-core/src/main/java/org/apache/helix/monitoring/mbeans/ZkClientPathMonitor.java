@@ -75,7 +75,11 @@ public class ZkClientPathMonitor extends DynamicMBeanProvider {
     ReadLatencyGauge,
     WriteLatencyGauge,
     ReadBytesGauge,
-    WriteBytesGauge
+    WriteBytesGauge,
+    ReadBatchLatencyGauge,
+    ReadBatchSizeGauge,
+    MultiWriteLatencyGauge,
+    MultiWriteOpsGauge
   }
 
   private SimpleDynamicMetric<Long> _readCounter;
@@ -91,6 +95,10 @@ public class ZkClientPathMonitor extends DynamicMBeanProvider {
   private HistogramDynamicMetric _writeLatencyGauge;
   private HistogramDynamicMetric _readBytesGauge;
   private HistogramDynamicMetric _writeBytesGauge;
+  private HistogramDynamicMetric _readBatchLatencyGauge;
+  private HistogramDynamicMetric _readBatchSizeGauge;
+  private HistogramDynamicMetric _multiWriteLatencyGauge;
+  private HistogramDynamicMetric _multiWriteOpsGauge;
 
   @Override
   public String getSensorName() {
@@ -124,6 +132,14 @@ public class ZkClientPathMonitor extends DynamicMBeanProvider {
         new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
     _writeBytesGauge = new HistogramDynamicMetric(PredefinedMetricDomains.WriteBytesGauge.name(), new Histogram(
         new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+    _readBatchLatencyGauge = new HistogramDynamicMetric(PredefinedMetricDomains.ReadBatchLatencyGauge.name(), new Histogram(
+        new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+    _readBatchSizeGauge = new HistogramDynamicMetric(PredefinedMetricDomains.ReadBatchSizeGauge.name(), new Histogram(
+        new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+    _multiWriteLatencyGauge = new HistogramDynamicMetric(PredefinedMetricDomains.MultiWriteLatencyGauge.name(), new Histogram(
+        new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+    _multiWriteOpsGauge = new HistogramDynamicMetric(PredefinedMetricDomains.MultiWriteOpsGauge.name(), new Histogram(
+        new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
   }
 
   public ZkClientPathMonitor register() throws JMException {
@@ -140,6 +156,10 @@ public class ZkClientPathMonitor extends DynamicMBeanProvider {
     attributeList.add(_writeLatencyGauge);
     attributeList.add(_readBytesGauge);
     attributeList.add(_writeBytesGauge);
+    attributeList.add(_readBatchLatencyGauge);
+    attributeList.add(_readBatchSizeGauge);
+    attributeList.add(_multiWriteLatencyGauge);
+    attributeList.add(_multiWriteOpsGauge);
 
     ObjectName objectName = new ObjectName(String
         .format("%s,%s=%s", ZkClientMonitor.getObjectName(_type, _key, _instanceName).toString(),
@@ -162,6 +182,16 @@ public class ZkClientPathMonitor extends DynamicMBeanProvider {
     }
   }
 
+  protected synchronized void recordBatchRead(int batchSize, long latencyMilliSec) {
+    _readBatchLatencyGauge.updateValue(latencyMilliSec);
+    _readBatchSizeGauge.updateValue((long) batchSize);
+  }
+
+  protected synchronized void recordMultiWrite(int numOps, long latencyMilliSec) {
+    _multiWriteLatencyGauge.updateValue(latencyMilliSec);
+    _multiWriteOpsGauge.updateValue((long) numOps);
+  }
+
   private void increaseFailureCounter(boolean isRead) {
     if (isRead) {
       _readFailureCounter.updateValue(_readFailureCounter.getValue() + 1);
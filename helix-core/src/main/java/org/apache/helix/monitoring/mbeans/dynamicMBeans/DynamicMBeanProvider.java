@@ -42,22 +42,28 @@ import java.util.Map;
 
 import org.apache.helix.monitoring.SensorNameProvider;
 import org.apache.helix.monitoring.mbeans.MBeanRegistrar;
+import org.apache.helix.monitoring.metrics.MetricsCollector;
+import org.apache.helix.monitoring.metrics.MetricsWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Dynamic MBean provider that reporting DynamicMetric attributes
  */
-public abstract class DynamicMBeanProvider implements DynamicMBean, SensorNameProvider {
+public abstract class DynamicMBeanProvider
+    implements DynamicMBean, SensorNameProvider, MetricsCollector {
   protected final Logger _logger = LoggerFactory.getLogger(getClass());
   protected static final long DEFAULT_RESET_INTERVAL_MS = 60 * 60 * 1000; // Reset time every hour
   private static String SENSOR_NAME_TAG = "SensorName";
   private static String DEFAULT_DESCRIPTION =
       "Information on the management interface of the MBean";
+  private static String MONITOR_SUFFIX = "Monitor";
 
   // Attribute name to the DynamicMetric object mapping
   private final Map<String, DynamicMetric> _attributeMap = new HashMap<>();
   private ObjectName _objectName = null;
+  // The proposed ObjectName of a registered provider, kept even if the MBean itself is disabled
+  private ObjectName _metricsObjectName = null;
   private MBeanInfo _mBeanInfo;
 
   /**
@@ -83,13 +89,16 @@ public abstract class DynamicMBeanProvider implements DynamicMBean, SensorNamePr
    */
   protected synchronized boolean doRegister(Collection<DynamicMetric<?, ?>> dynamicMetrics,
       String description, ObjectName objectName) throws JMException {
-    if (_objectName != null) {
+    if (_metricsObjectName != null) {
       _logger.debug("Mbean {} has already been registered. Ignore register request.",
           objectName.getCanonicalName());
       return false;
     }
     updateAttributtInfos(dynamicMetrics, description);
-    _objectName = MBeanRegistrar.register(this, objectName);
+    _metricsObjectName = objectName;
+    if (isMBeanEnabled()) {
+      _objectName = MBeanRegistrar.register(this, objectName);
+    }
     return true;
   }
 
@@ -143,6 +152,25 @@ public abstract class DynamicMBeanProvider implements DynamicMBean, SensorNamePr
         new MBeanNotificationInfo[0]);
   }
 
+  /**
+   * Override this method to change the monitor type in the names of the exported metrics.
+   * @return the class name without its "Monitor" suffix by default, e.g. "Resource"
+   */
+  protected String getMetricsType() {
+    String type = getClass().getSimpleName();
+    return type.endsWith(MONITOR_SUFFIX) ? type.substring(0,
+        type.length() - MONITOR_SUFFIX.length()) : type;
+  }
+
+  /**
+   * Override this method to skip the MBean registration of the monitors whose metrics are only
+   * served by the metrics exporter at the configured level.
+   * @return true if the MBean is registered on register()
+   */
+  protected boolean isMBeanEnabled() {
+    return true;
+  }
+
   /**
    * Call doRegister() to finish registration MBean and the attributes.
    */
@@ -155,6 +183,27 @@ public abstract class DynamicMBeanProvider implements DynamicMBean, SensorNamePr
   public synchronized void unregister() {
     MBeanRegistrar.unregister(_objectName);
     _objectName = null;
+    _metricsObjectName = null;
+  }
+
+  /**
+   * Write the numeric attributes of a registered provider as metrics named
+   * "{domain}_{type}_{attribute}", labeled with the key properties of its ObjectName. See
+   * {@link MetricsWriter#metric} for their types.
+   */
+  @Override
+  public synchronized void collect(MetricsWriter writer) {
+    if (_metricsObjectName == null) {
+      return;
+    }
+    String prefix = _metricsObjectName.getDomain() + "_" + getMetricsType();
+    Map<String, String> labels = _metricsObjectName.getKeyPropertyList();
+    for (Map.Entry<String, DynamicMetric> attribute : _attributeMap.entrySet()) {
+      Object value = attribute.getValue().getAttributeValue(attribute.getKey());
+      if (value instanceof Number) {
+        writer.metric(prefix + "_" + attribute.getKey(), labels, (Number) value);
+      }
+    }
   }
 
   @Override
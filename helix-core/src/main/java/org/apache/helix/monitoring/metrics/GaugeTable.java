@@ -0,0 +1,104 @@
+package org.apache.helix.monitoring.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.helix.HelixException;
+
+/**
+ * A table of gauges kept in memory for scraping only, as an alternative to registering one MBean
+ * per object. Each row is identified by its label values and holds one long per gauge.
+ */
+public class GaugeTable implements MetricsCollector {
+  private final String _prefix;
+  private final String[] _labelNames;
+  private final String[] _gaugeNames;
+  // label values -> gauge values
+  private final Map<List<String>, long[]> _rows = new ConcurrentHashMap<>();
+
+  /**
+   * @param prefix the metric name prefix, usually the MBean domain
+   * @param labelNames the names of the labels identifying a row
+   * @param gaugeNames the names of the gauges of a row
+   */
+  public GaugeTable(String prefix, List<String> labelNames, List<String> gaugeNames) {
+    _prefix = prefix;
+    _labelNames = labelNames.toArray(new String[labelNames.size()]);
+    _gaugeNames = gaugeNames.toArray(new String[gaugeNames.size()]);
+  }
+
+  /**
+   * Set all the gauges of a row.
+   * @param labelValues the label values of the row, in the order of the label names
+   * @param values the gauge values, in the order of the gauge names
+   */
+  public void setRow(List<String> labelValues, long... values) {
+    if (labelValues.size() != _labelNames.length || values.length != _gaugeNames.length) {
+      throw new HelixException(String.format(
+          "Row of %d labels and %d gauges doesn't match the table of %d labels and %d gauges",
+          labelValues.size(), values.length, _labelNames.length, _gaugeNames.length));
+    }
+    _rows.put(labelValues, Arrays.copyOf(values, values.length));
+  }
+
+  /**
+   * @return the gauge values of a row, or null if there is no such row
+   */
+  public long[] getRow(List<String> labelValues) {
+    long[] values = _rows.get(labelValues);
+    return values == null ? null : Arrays.copyOf(values, values.length);
+  }
+
+  /**
+   * Remove the rows that are not in the given ones.
+   * @param labelValues the label values of the rows to keep
+   */
+  public void retainRows(Set<List<String>> labelValues) {
+    _rows.keySet().retainAll(labelValues);
+  }
+
+  public void clear() {
+    _rows.clear();
+  }
+
+  public int size() {
+    return _rows.size();
+  }
+
+  @Override
+  public void collect(MetricsWriter writer) {
+    for (Map.Entry<List<String>, long[]> row : _rows.entrySet()) {
+      Map<String, String> labels = new HashMap<>();
+      for (int i = 0; i < _labelNames.length; i++) {
+        labels.put(_labelNames[i], row.getKey().get(i));
+      }
+      long[] values = row.getValue();
+      for (int i = 0; i < _gaugeNames.length; i++) {
+        writer.gauge(_prefix + "_" + _gaugeNames[i], labels, values[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package org.apache.helix.monitoring.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local HTTP server serving the metrics of a {@link MetricsRegistry} at {@value #METRICS_PATH}.
+ */
+public class MetricsHttpServer {
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsHttpServer.class);
+
+  public static final String METRICS_PATH = "/metrics";
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final HttpServer _server;
+  private final ExecutorService _executor;
+
+  public MetricsHttpServer(final MetricsRegistry registry, InetSocketAddress address)
+      throws IOException {
+    _server = HttpServer.create(address, 0);
+    _server.createContext(METRICS_PATH, new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        try {
+          StringWriter body = new StringWriter();
+          registry.scrape(body);
+          byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+          exchange.sendResponseHeaders(200, bytes.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+          }
+        } catch (IOException | RuntimeException e) {
+          LOG.warn("Failed to serve the metrics scrape", e);
+          throw e;
+        } finally {
+          exchange.close();
+        }
+      }
+    });
+    _executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "MetricsHttpServer");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    _server.setExecutor(_executor);
+  }
+
+  public void start() {
+    _server.start();
+    LOG.info("Metrics exporter started on {}", _server.getAddress());
+  }
+
+  public void stop() {
+    _server.stop(0);
+    _executor.shutdown();
+  }
+
+  public int getPort() {
+    return _server.getAddress().getPort();
+  }
+}
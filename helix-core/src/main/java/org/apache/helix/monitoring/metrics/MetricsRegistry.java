@@ -0,0 +1,99 @@
+package org.apache.helix.monitoring.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.util.HelixUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A registry of metrics collectors, scraped on demand. Unlike MBeans, the metrics of a collector
+ * are only read when they are scraped, so there is no bookkeeping per monitored object.
+ */
+public class MetricsRegistry {
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsRegistry.class);
+
+  private static MetricsRegistry _defaultRegistry;
+  private static boolean _defaultRegistryInitialized = false;
+
+  private final Set<MetricsCollector> _collectors =
+      Collections.newSetFromMap(new ConcurrentHashMap<MetricsCollector, Boolean>());
+
+  /**
+   * Get the registry served by the metrics HTTP server of this process. The server is started on
+   * the first call if the exporter port is configured.
+   * @return the default registry, or null if the exporter is not enabled
+   */
+  public static synchronized MetricsRegistry getDefault() {
+    if (!_defaultRegistryInitialized) {
+      _defaultRegistryInitialized = true;
+      int port = HelixUtil.getSystemPropertyAsInt(SystemPropertyKeys.METRICS_EXPORTER_PORT, -1);
+      if (port >= 0) {
+        String host = System.getProperty(SystemPropertyKeys.METRICS_EXPORTER_HOST);
+        // Metrics are not served to other hosts unless a host is configured
+        InetSocketAddress address = host == null
+            ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+            : new InetSocketAddress(host, port);
+        MetricsRegistry registry = new MetricsRegistry();
+        try {
+          new MetricsHttpServer(registry, address).start();
+          _defaultRegistry = registry;
+        } catch (IOException e) {
+          LOG.error("Failed to start the metrics exporter on " + address, e);
+        }
+      }
+    }
+    return _defaultRegistry;
+  }
+
+  public void register(MetricsCollector collector) {
+    _collectors.add(collector);
+  }
+
+  public void unregister(MetricsCollector collector) {
+    _collectors.remove(collector);
+  }
+
+  /**
+   * Collect the metrics of all the registered collectors.
+   * @param writer the output, in the Prometheus text exposition format
+   * @throws IOException
+   */
+  public void scrape(Writer writer) throws IOException {
+    MetricsWriter metricsWriter = new MetricsWriter();
+    for (MetricsCollector collector : _collectors) {
+      try {
+        collector.collect(metricsWriter);
+      } catch (RuntimeException e) {
+        LOG.warn("Failed to collect the metrics of {}", collector, e);
+      }
+    }
+    metricsWriter.writeTo(writer);
+  }
+}
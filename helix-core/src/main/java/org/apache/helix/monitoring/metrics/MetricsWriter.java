@@ -0,0 +1,203 @@
+package org.apache.helix.monitoring.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the metrics of one scrape in the Prometheus text exposition format. The samples are
+ * grouped by metric name, so collectors may write the samples of the same metric in any order.
+ * Metric and label names are sanitized: any character other than letters, digits and '_' is
+ * replaced by '_'. A metric keeps the type of its first sample.
+ */
+public class MetricsWriter {
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsWriter.class);
+
+  private static final String GAUGE = "gauge";
+  private static final String COUNTER = "counter";
+  // Helix names the attributes of its monitors that only increase with this suffix
+  private static final String COUNTER_SUFFIX = "Counter";
+
+  // metric name -> sample lines
+  private final SortedMap<String, StringBuilder> _families = new TreeMap<>();
+  // metric name -> metric type
+  private final Map<String, String> _types = new HashMap<>();
+
+  /**
+   * Write one sample of a gauge.
+   * @param name the metric name
+   * @param labels the label names and values of the sample
+   * @param value the value
+   */
+  public void gauge(String name, Map<String, String> labels, Number value) {
+    sample(GAUGE, name, labels, value);
+  }
+
+  /**
+   * Write one sample of a counter.
+   * @param name the metric name
+   * @param labels the label names and values of the sample
+   * @param value the value
+   */
+  public void counter(String name, Map<String, String> labels, Number value) {
+    sample(COUNTER, name, labels, value);
+  }
+
+  /**
+   * Write one sample of a monitor attribute: a counter if its name ends with "Counter", a gauge
+   * otherwise.
+   * @param name the metric name
+   * @param labels the label names and values of the sample
+   * @param value the value
+   */
+  public void metric(String name, Map<String, String> labels, Number value) {
+    sample(name.endsWith(COUNTER_SUFFIX) ? COUNTER : GAUGE, name, labels, value);
+  }
+
+  private void sample(String type, String name, Map<String, String> labels, Number value) {
+    if (value == null) {
+      return;
+    }
+    String metricName = sanitize(name);
+    StringBuilder samples = _families.get(metricName);
+    if (samples == null) {
+      samples = new StringBuilder();
+      _families.put(metricName, samples);
+      _types.put(metricName, type);
+    }
+    samples.append(metricName);
+    if (labels != null && !labels.isEmpty()) {
+      samples.append('{');
+      boolean first = true;
+      for (Map.Entry<String, String> label : new TreeMap<>(labels).entrySet()) {
+        if (!first) {
+          samples.append(',');
+        }
+        first = false;
+        samples.append(sanitize(label.getKey())).append("=\"");
+        escape(label.getValue(), samples);
+        samples.append('"');
+      }
+      samples.append('}');
+    }
+    samples.append(' ').append(format(value)).append('\n');
+  }
+
+  /**
+   * Write the numeric getters of a bean as metrics, see {@link #metric}. A getter "getFooGauge" is
+   * written as the metric "{prefix}_FooGauge".
+   * @param prefix the metric name prefix, usually the MBean domain
+   * @param labels the label names and values of the samples
+   * @param beanInterface the interface declaring the getters, e.g. the MBean interface
+   * @param bean the bean
+   */
+  public void metrics(String prefix, Map<String, String> labels, Class<?> beanInterface,
+      Object bean) {
+    for (Method method : beanInterface.getMethods()) {
+      Class<?> type = method.getReturnType();
+      if (!method.getName().startsWith("get") || method.getParameterTypes().length > 0
+          || !(Number.class.isAssignableFrom(type) || type == long.class || type == int.class
+          || type == double.class)) {
+        continue;
+      }
+      try {
+        metric(prefix + "_" + method.getName().substring(3), labels,
+            (Number) method.invoke(bean));
+      } catch (Exception e) {
+        LOG.warn("Failed to read metric {} of {}", method.getName(), bean, e);
+      }
+    }
+  }
+
+  /**
+   * Write all the samples, grouped by metric name.
+   * @param writer the output
+   * @throws IOException
+   */
+  public void writeTo(Writer writer) throws IOException {
+    for (Map.Entry<String, StringBuilder> family : _families.entrySet()) {
+      writer.write("# TYPE ");
+      writer.write(family.getKey());
+      writer.write(' ');
+      writer.write(_types.get(family.getKey()));
+      writer.write('\n');
+      writer.write(family.getValue().toString());
+    }
+    writer.flush();
+  }
+
+  static String sanitize(String name) {
+    StringBuilder sb = new StringBuilder(name.length() + 1);
+    if (name.isEmpty() || Character.isDigit(name.charAt(0))) {
+      sb.append('_');
+    }
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+      sb.append(valid ? c : '_');
+    }
+    return sb.toString();
+  }
+
+  private static void escape(String value, StringBuilder sb) {
+    if (value == null) {
+      return;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+      case '\\':
+        sb.append("\\\\");
+        break;
+      case '"':
+        sb.append("\\\"");
+        break;
+      case '\n':
+        sb.append("\\n");
+        break;
+      default:
+        sb.append(c);
+      }
+    }
+  }
+
+  private static String format(Number value) {
+    if (value instanceof Double || value instanceof Float) {
+      double d = value.doubleValue();
+      if (Double.isNaN(d)) {
+        return "NaN";
+      }
+      if (Double.isInfinite(d)) {
+        return d > 0 ? "+Inf" : "-Inf";
+      }
+      return Double.toString(d);
+    }
+    return Long.toString(value.longValue());
+  }
+}
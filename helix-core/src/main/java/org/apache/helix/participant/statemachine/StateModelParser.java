@@ -21,6 +21,9 @@ package org.apache.helix.participant.statemachine;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.helix.NotificationContext;
 import org.apache.helix.model.Message;
@@ -29,14 +32,55 @@ import org.apache.helix.model.Message;
  * Finds the method in stateModel to generate
  */
 public class StateModelParser {
+  /**
+   * Transition methods resolved so far, per state model class and keyed by
+   * (fromState, toState, paramTypes). A transition without a method is cached as NO_METHOD.
+   * The methods are attached to the classes, so the cache does not keep classes loaded.
+   */
+  private static final ClassValue<ConcurrentMap<List<Object>, TransitionMethod>>
+      TRANSITION_METHOD_CACHE = new ClassValue<ConcurrentMap<List<Object>, TransitionMethod>>() {
+        @Override
+        protected ConcurrentMap<List<Object>, TransitionMethod> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+  private static final TransitionMethod NO_METHOD = new TransitionMethod(null);
+
+  private static class TransitionMethod {
+    private final Method _method;
 
+    TransitionMethod(Method method) {
+      _method = method;
+    }
+  }
+
+  /**
+   * Find the method of the transition, either by annotation or by naming convention. The
+   * methods are only searched once per state model class and transition, later calls are served
+   * from a cache.
+   * @param clazz
+   * @param fromState
+   * @param toState
+   * @param paramTypes
+   * @return Method if found else null
+   */
   public Method getMethodForTransition(Class<? extends StateModel> clazz, String fromState,
       String toState, Class<?>[] paramTypes) {
-    Method method = getMethodForTransitionUsingAnnotation(clazz, fromState, toState, paramTypes);
-    if (method == null) {
-      method = getMethodForTransitionByConvention(clazz, fromState, toState, paramTypes);
+    ConcurrentMap<List<Object>, TransitionMethod> transitionMethods =
+        TRANSITION_METHOD_CACHE.get(clazz);
+
+    List<Object> transitionKey = Arrays.<Object>asList(fromState, toState,
+        paramTypes == null ? null : Arrays.asList(paramTypes));
+    TransitionMethod transitionMethod = transitionMethods.get(transitionKey);
+    if (transitionMethod == null) {
+      Method method = getMethodForTransitionUsingAnnotation(clazz, fromState, toState, paramTypes);
+      if (method == null) {
+        method = getMethodForTransitionByConvention(clazz, fromState, toState, paramTypes);
+      }
+      transitionMethod = method == null ? NO_METHOD : new TransitionMethod(method);
+      transitionMethods.put(transitionKey, transitionMethod);
     }
-    return method;
+    return transitionMethod._method;
   }
 
   /**
@@ -47,10 +47,14 @@ class RoutingTable {
   private final Map<String, ResourceInfo> _resourceInfoMap;
   // mapping a resource group name to a resourceGroupInfo
   private final Map<String, ResourceGroupInfo> _resourceGroupInfoMap;
+  // mapping a resource group name to the names of the resources in the group
+  private final Map<String, Set<String>> _resourceGroupMembers;
 
   private final Collection<LiveInstance> _liveInstances;
   private final Collection<InstanceConfig> _instanceConfigs;
-  private final Collection<ExternalView> _externalViews;
+  private final Map<String, InstanceConfig> _instanceConfigMap;
+  private final Map<String, ExternalView> _externalViewMap;
+  private final Map<String, Map<String, Map<String, CurrentState>>> _currentStateMap;
 
   public RoutingTable() {
     this(Collections.<ExternalView>emptyList(), Collections.<InstanceConfig>emptyList(),
@@ -60,62 +64,249 @@ class RoutingTable {
   public RoutingTable(Map<String, Map<String, Map<String, CurrentState>>> currentStateMap,
       Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances) {
     // TODO Aggregate currentState to an ExternalView in the RoutingTable, so there is no need to refresh according to the currentStateMap. - jjwang
-    this(Collections.<ExternalView>emptyList(), instanceConfigs, liveInstances);
+    this(Collections.<ExternalView>emptyList(), currentStateMap, instanceConfigs, liveInstances);
     refresh(currentStateMap);
   }
 
   public RoutingTable(Collection<ExternalView> externalViews,
       Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances) {
+    this(externalViews, Collections.<String, Map<String, Map<String, CurrentState>>>emptyMap(),
+        instanceConfigs, liveInstances);
+    refresh(externalViews);
+  }
+
+  private RoutingTable(Collection<ExternalView> externalViews,
+      Map<String, Map<String, Map<String, CurrentState>>> currentStateMap,
+      Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances) {
     _resourceInfoMap = new HashMap<>();
     _resourceGroupInfoMap = new HashMap<>();
+    _resourceGroupMembers = new HashMap<>();
     _liveInstances = new HashSet<>(liveInstances);
     _instanceConfigs = new HashSet<>(instanceConfigs);
-    _externalViews = new HashSet<>(externalViews);
-    refresh(externalViews);
+    _instanceConfigMap = new HashMap<>();
+    for (InstanceConfig config : _instanceConfigs) {
+      _instanceConfigMap.put(config.getId(), config);
+    }
+    _externalViewMap = new HashMap<>();
+    for (ExternalView externalView : externalViews) {
+      _externalViewMap.put(externalView.getResourceName(), externalView);
+    }
+    _currentStateMap = currentStateMap;
+  }
+
+  /**
+   * Create a routing table from an existing one, applying only the ExternalViews that have been
+   * changed. An ExternalView is considered changed if it is not the same object that the existing
+   * table was built from. The entries of unchanged resources are shared with the existing table,
+   * which is not modified.
+   * The live instances and instance configs must be the same as the ones of the existing table.
+   */
+  RoutingTable(RoutingTable base, Collection<ExternalView> externalViews) {
+    _resourceInfoMap = new HashMap<>(base._resourceInfoMap);
+    _resourceGroupInfoMap = new HashMap<>(base._resourceGroupInfoMap);
+    _resourceGroupMembers = new HashMap<>(base._resourceGroupMembers);
+    _liveInstances = base._liveInstances;
+    _instanceConfigs = base._instanceConfigs;
+    _instanceConfigMap = base._instanceConfigMap;
+    _externalViewMap = new HashMap<>();
+    for (ExternalView externalView : externalViews) {
+      _externalViewMap.put(externalView.getResourceName(), externalView);
+    }
+    _currentStateMap = base._currentStateMap;
+
+    Set<String> changedGroups = new HashSet<>();
+    for (ExternalView oldView : base._externalViewMap.values()) {
+      if (_externalViewMap.get(oldView.getResourceName()) != oldView) {
+        _resourceInfoMap.remove(oldView.getResourceName());
+        if (oldView.isGroupRoutingEnabled()) {
+          removeGroupMember(oldView.getResourceGroupName(), oldView.getResourceName());
+          changedGroups.add(oldView.getResourceGroupName());
+        }
+      }
+    }
+    for (ExternalView extView : _externalViewMap.values()) {
+      if (base._externalViewMap.get(extView.getResourceName()) != extView) {
+        addResourceEntries(extView);
+        if (extView.isGroupRoutingEnabled()) {
+          addGroupMember(extView.getResourceGroupName(), extView.getResourceName());
+          changedGroups.add(extView.getResourceGroupName());
+        }
+      }
+    }
+
+    // Resource groups aggregate all their resources, so rebuild the changed groups entirely
+    for (String resourceGroupName : changedGroups) {
+      _resourceGroupInfoMap.remove(resourceGroupName);
+      Set<String> members = _resourceGroupMembers.get(resourceGroupName);
+      if (members != null) {
+        for (String resourceName : members) {
+          addGroupEntries(_externalViewMap.get(resourceName));
+        }
+      }
+    }
+  }
+
+  /**
+   * Create a routing table from an existing one, applying only the CurrentStates that have been
+   * changed. A CurrentState is considered changed if it is not the same object that the existing
+   * table was built from. The entries of resources without any changed CurrentState are shared
+   * with the existing table, which is not modified.
+   * The live instances and instance configs must be the same as the ones of the existing table.
+   */
+  RoutingTable(RoutingTable base,
+      Map<String, Map<String, Map<String, CurrentState>>> currentStateMap) {
+    _resourceInfoMap = new HashMap<>(base._resourceInfoMap);
+    _resourceGroupInfoMap = base._resourceGroupInfoMap;
+    _resourceGroupMembers = base._resourceGroupMembers;
+    _liveInstances = base._liveInstances;
+    _instanceConfigs = base._instanceConfigs;
+    _instanceConfigMap = base._instanceConfigMap;
+    _externalViewMap = base._externalViewMap;
+    _currentStateMap = currentStateMap;
+
+    Set<String> changedResources = new HashSet<>();
+    for (LiveInstance liveInstance : _liveInstances) {
+      Map<String, CurrentState> oldStates =
+          getCurrentStates(base._currentStateMap, liveInstance);
+      Map<String, CurrentState> newStates = getCurrentStates(_currentStateMap, liveInstance);
+      for (Map.Entry<String, CurrentState> entry : newStates.entrySet()) {
+        if (oldStates.get(entry.getKey()) != entry.getValue()) {
+          changedResources.add(entry.getValue().getResourceName());
+        }
+      }
+      for (Map.Entry<String, CurrentState> entry : oldStates.entrySet()) {
+        if (!newStates.containsKey(entry.getKey())) {
+          changedResources.add(entry.getValue().getResourceName());
+        }
+      }
+    }
+
+    for (String resourceName : changedResources) {
+      _resourceInfoMap.remove(resourceName);
+    }
+    for (LiveInstance liveInstance : _liveInstances) {
+      InstanceConfig instanceConfig = _instanceConfigMap.get(liveInstance.getInstanceName());
+      if (instanceConfig == null) {
+        continue;
+      }
+      for (CurrentState currentState : getCurrentStates(_currentStateMap, liveInstance)
+          .values()) {
+        if (changedResources.contains(currentState.getResourceName())) {
+          addCurrentStateEntries(currentState, instanceConfig);
+        }
+      }
+    }
+  }
+
+  /**
+   * Whether the table is built with exactly the given live instances and instance configs, so it
+   * can be used as the base of an incremental update.
+   */
+  boolean hasSameInstances(Map<String, LiveInstance> liveInstances,
+      Map<String, InstanceConfig> instanceConfigs) {
+    if (liveInstances.size() != _liveInstances.size()
+        || instanceConfigs.size() != _instanceConfigMap.size()) {
+      return false;
+    }
+    for (LiveInstance liveInstance : _liveInstances) {
+      if (liveInstances.get(liveInstance.getInstanceName()) != liveInstance) {
+        return false;
+      }
+    }
+    for (Map.Entry<String, InstanceConfig> entry : instanceConfigs.entrySet()) {
+      if (_instanceConfigMap.get(entry.getKey()) != entry.getValue()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Map<String, CurrentState> getCurrentStates(
+      Map<String, Map<String, Map<String, CurrentState>>> currentStateMap,
+      LiveInstance liveInstance) {
+    Map<String, Map<String, CurrentState>> instanceStates =
+        currentStateMap.get(liveInstance.getInstanceName());
+    if (instanceStates != null && instanceStates.containsKey(liveInstance.getSessionId())) {
+      return instanceStates.get(liveInstance.getSessionId());
+    }
+    return Collections.emptyMap();
+  }
+
+  private void addGroupMember(String resourceGroupName, String resourceName) {
+    Set<String> members = _resourceGroupMembers.get(resourceGroupName);
+    Set<String> newMembers =
+        members == null ? new HashSet<String>() : new HashSet<>(members);
+    newMembers.add(resourceName);
+    _resourceGroupMembers.put(resourceGroupName, newMembers);
+  }
+
+  private void removeGroupMember(String resourceGroupName, String resourceName) {
+    Set<String> members = _resourceGroupMembers.get(resourceGroupName);
+    if (members != null && members.contains(resourceName)) {
+      Set<String> newMembers = new HashSet<>(members);
+      newMembers.remove(resourceName);
+      if (newMembers.isEmpty()) {
+        _resourceGroupMembers.remove(resourceGroupName);
+      } else {
+        _resourceGroupMembers.put(resourceGroupName, newMembers);
+      }
+    }
   }
 
   private void refresh(Collection<ExternalView> externalViewList) {
-    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
     if (externalViewList != null && !externalViewList.isEmpty()) {
-      for (InstanceConfig config : _instanceConfigs) {
-        instanceConfigMap.put(config.getId(), config);
+      for (ExternalView extView : externalViewList) {
+        addResourceEntries(extView);
+        if (extView.isGroupRoutingEnabled()) {
+          _resourceGroupMembers.put(extView.getResourceGroupName(), new HashSet<String>());
+        }
       }
       for (ExternalView extView : externalViewList) {
-        String resourceName = extView.getId();
-        for (String partitionName : extView.getPartitionSet()) {
-          Map<String, String> stateMap = extView.getStateMap(partitionName);
-          for (String instanceName : stateMap.keySet()) {
-            String currentState = stateMap.get(instanceName);
-            if (instanceConfigMap.containsKey(instanceName)) {
-              InstanceConfig instanceConfig = instanceConfigMap.get(instanceName);
-              if (extView.isGroupRoutingEnabled()) {
-                addEntry(resourceName, extView.getResourceGroupName(),
-                    extView.getInstanceGroupTag(), partitionName, currentState, instanceConfig);
-              } else {
-                addEntry(resourceName, partitionName, currentState, instanceConfig);
-              }
-            } else {
-              logger.warn(
-                  "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
-                      + "Skip recording partition assignment entry: Partition {}, Participant {}, State {}.",
-                  instanceName, partitionName, instanceName, stateMap.get(instanceName));
-            }
-          }
+        if (extView.isGroupRoutingEnabled()) {
+          _resourceGroupMembers.get(extView.getResourceGroupName()).add(extView.getResourceName());
+          addGroupEntries(extView);
+        }
+      }
+    }
+  }
+
+  private void addResourceEntries(ExternalView extView) {
+    String resourceName = extView.getId();
+    for (String partitionName : extView.getPartitionSet()) {
+      Map<String, String> stateMap = extView.getStateMap(partitionName);
+      for (String instanceName : stateMap.keySet()) {
+        String currentState = stateMap.get(instanceName);
+        if (_instanceConfigMap.containsKey(instanceName)) {
+          addEntry(resourceName, partitionName, currentState,
+              _instanceConfigMap.get(instanceName));
+        } else {
+          logger.warn(
+              "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
+                  + "Skip recording partition assignment entry: Partition {}, Participant {}, State {}.",
+              instanceName, partitionName, instanceName, stateMap.get(instanceName));
+        }
+      }
+    }
+  }
+
+  private void addGroupEntries(ExternalView extView) {
+    for (String partitionName : extView.getPartitionSet()) {
+      Map<String, String> stateMap = extView.getStateMap(partitionName);
+      for (String instanceName : stateMap.keySet()) {
+        InstanceConfig instanceConfig = _instanceConfigMap.get(instanceName);
+        if (instanceConfig != null) {
+          addGroupEntry(extView.getResourceGroupName(), extView.getInstanceGroupTag(),
+              partitionName, stateMap.get(instanceName), instanceConfig);
         }
       }
     }
   }
 
   private void refresh(Map<String, Map<String, Map<String, CurrentState>>> currentStateMap) {
-    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
     if (currentStateMap != null && !currentStateMap.isEmpty()) {
-      for (InstanceConfig config : _instanceConfigs) {
-        instanceConfigMap.put(config.getId(), config);
-      }
       for (LiveInstance liveInstance : _liveInstances) {
         String instanceName = liveInstance.getInstanceName();
-        String sessionId = liveInstance.getSessionId();
-        InstanceConfig instanceConfig = instanceConfigMap.get(instanceName);
+        InstanceConfig instanceConfig = _instanceConfigMap.get(instanceName);
         if (instanceConfig == null) {
           logger.warn(
               "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
@@ -124,25 +315,22 @@ class RoutingTable {
           continue;
         }
 
-        Map<String, CurrentState> currentStates = Collections.emptyMap();
-        if (currentStateMap.containsKey(instanceName) && currentStateMap.get(instanceName)
-            .containsKey(sessionId)) {
-          currentStates = currentStateMap.get(instanceName).get(sessionId);
-        }
-
-        for (CurrentState currentState : currentStates.values()) {
-          String resourceName = currentState.getResourceName();
-          Map<String, String> stateMap = currentState.getPartitionStateMap();
-
-          for (String partitionName : stateMap.keySet()) {
-            String state = stateMap.get(partitionName);
-            addEntry(resourceName, partitionName, state, instanceConfig);
-          }
+        for (CurrentState currentState : getCurrentStates(currentStateMap, liveInstance)
+            .values()) {
+          addCurrentStateEntries(currentState, instanceConfig);
         }
       }
     }
   }
 
+  private void addCurrentStateEntries(CurrentState currentState, InstanceConfig instanceConfig) {
+    String resourceName = currentState.getResourceName();
+    Map<String, String> stateMap = currentState.getPartitionStateMap();
+    for (String partitionName : stateMap.keySet()) {
+      addEntry(resourceName, partitionName, stateMap.get(partitionName), instanceConfig);
+    }
+  }
+
   private void addEntry(String resourceName, String partitionName, String state,
       InstanceConfig config) {
     if (!_resourceInfoMap.containsKey(resourceName)) {
@@ -153,12 +341,10 @@ class RoutingTable {
   }
 
   /**
-   * add an entry with a resource with resourceGrouping enabled.
+   * add an entry to a resource group.
    */
-  private void addEntry(String resourceName, String resourceGroupName, String resourceTag,
-      String partitionName, String state, InstanceConfig config) {
-    addEntry(resourceName, partitionName, state, config);
-
+  private void addGroupEntry(String resourceGroupName, String resourceTag, String partitionName,
+      String state, InstanceConfig config) {
     if (!_resourceGroupInfoMap.containsKey(resourceGroupName)) {
       _resourceGroupInfoMap.put(resourceGroupName, new ResourceGroupInfo());
     }
@@ -356,7 +542,7 @@ class RoutingTable {
    * @return a collection of ExternalViews
    */
   protected Collection<ExternalView> getExternalViews() {
-    return Collections.unmodifiableCollection(_externalViews);
+    return Collections.unmodifiableCollection(_externalViewMap.values());
   }
 
   /**
@@ -72,6 +72,7 @@ public class RoutingTableProvider
   private final PropertyType _sourceDataType;
   private final Map<RoutingTableChangeListener, ListenerContext> _routingTableChangeListenerMap;
   private final RoutingTableProviderMonitor _monitor;
+  private final boolean _isIncrementalRefreshEnabled;
 
   // For periodic refresh
   private long _lastRefreshTimestamp;
@@ -107,7 +108,27 @@ public class RoutingTableProvider
    */
   public RoutingTableProvider(HelixManager helixManager, PropertyType sourceDataType,
       boolean isPeriodicRefreshEnabled, long periodRefreshInterval) throws HelixException {
+    this(helixManager, sourceDataType, isPeriodicRefreshEnabled, periodRefreshInterval, false);
+  }
+
+  /**
+   * Initialize an instance of RoutingTableProvider
+   *
+   * @param helixManager
+   * @param sourceDataType
+   * @param isPeriodicRefreshEnabled true if periodic refresh is enabled, false otherwise
+   * @param periodRefreshInterval only effective if isPeriodRefreshEnabled is true
+   * @param isIncrementalRefreshEnabled true if the routing table should be updated incrementally.
+   *                                    Only the entries of the resources whose ExternalView or
+   *                                    CurrentStates have changed are rebuilt, as long as the
+   *                                    live instances and instance configs are unchanged.
+   * @throws HelixException
+   */
+  public RoutingTableProvider(HelixManager helixManager, PropertyType sourceDataType,
+      boolean isPeriodicRefreshEnabled, long periodRefreshInterval,
+      boolean isIncrementalRefreshEnabled) throws HelixException {
     _routingTableRef = new AtomicReference<>(new RoutingTable());
+    _isIncrementalRefreshEnabled = isIncrementalRefreshEnabled;
     _helixManager = helixManager;
     _sourceDataType = sourceDataType;
     _routingTableChangeListenerMap = new ConcurrentHashMap<>();
@@ -557,6 +578,39 @@ public class RoutingTableProvider
     resetRoutingTableAndNotify(startTime, newRoutingTable);
   }
 
+  /**
+   * Update the routing table with the changed ExternalViews only. Falls back to a full refresh if
+   * the live instances or instance configs have changed since the last refresh.
+   */
+  private void refreshIncrementally(Collection<ExternalView> externalViews,
+      Map<String, InstanceConfig> instanceConfigMap, Map<String, LiveInstance> liveInstanceMap) {
+    RoutingTable currentRoutingTable = _routingTableRef.get();
+    if (!currentRoutingTable.hasSameInstances(liveInstanceMap, instanceConfigMap)) {
+      refresh(externalViews, instanceConfigMap.values(), liveInstanceMap.values());
+      return;
+    }
+    long startTime = System.currentTimeMillis();
+    RoutingTable newRoutingTable = new RoutingTable(currentRoutingTable, externalViews);
+    resetRoutingTableAndNotify(startTime, newRoutingTable);
+  }
+
+  /**
+   * Update the routing table with the changed CurrentStates only. Falls back to a full refresh if
+   * the live instances or instance configs have changed since the last refresh.
+   */
+  private void refreshIncrementally(
+      Map<String, Map<String, Map<String, CurrentState>>> currentStateMap,
+      Map<String, InstanceConfig> instanceConfigMap, Map<String, LiveInstance> liveInstanceMap) {
+    RoutingTable currentRoutingTable = _routingTableRef.get();
+    if (!currentRoutingTable.hasSameInstances(liveInstanceMap, instanceConfigMap)) {
+      refresh(currentStateMap, instanceConfigMap.values(), liveInstanceMap.values());
+      return;
+    }
+    long startTime = System.currentTimeMillis();
+    RoutingTable newRoutingTable = new RoutingTable(currentRoutingTable, currentStateMap);
+    resetRoutingTableAndNotify(startTime, newRoutingTable);
+  }
+
   private void resetRoutingTableAndNotify(long startTime, RoutingTable newRoutingTable) {
     _routingTableRef.set(newRoutingTable);
     logger.info("Refresh the RoutingTable for cluster {}, takes {} ms.",
@@ -609,16 +663,33 @@ public class RoutingTableProvider
         _dataCache.refresh(manager.getHelixDataAccessor());
         switch (_sourceDataType) {
         case EXTERNALVIEW:
-          refresh(_dataCache.getExternalViews().values(),
-              _dataCache.getInstanceConfigMap().values(), _dataCache.getLiveInstances().values());
+          if (_isIncrementalRefreshEnabled) {
+            refreshIncrementally(_dataCache.getExternalViews().values(),
+                _dataCache.getInstanceConfigMap(), _dataCache.getLiveInstances());
+          } else {
+            refresh(_dataCache.getExternalViews().values(),
+                _dataCache.getInstanceConfigMap().values(),
+                _dataCache.getLiveInstances().values());
+          }
           break;
         case TARGETEXTERNALVIEW:
-          refresh(_dataCache.getTargetExternalViews().values(),
-              _dataCache.getInstanceConfigMap().values(), _dataCache.getLiveInstances().values());
+          if (_isIncrementalRefreshEnabled) {
+            refreshIncrementally(_dataCache.getTargetExternalViews().values(),
+                _dataCache.getInstanceConfigMap(), _dataCache.getLiveInstances());
+          } else {
+            refresh(_dataCache.getTargetExternalViews().values(),
+                _dataCache.getInstanceConfigMap().values(),
+                _dataCache.getLiveInstances().values());
+          }
           break;
         case CURRENTSTATES:
-          refresh(_dataCache.getCurrentStatesMap(), _dataCache.getInstanceConfigMap().values(),
-              _dataCache.getLiveInstances().values());
+          if (_isIncrementalRefreshEnabled) {
+            refreshIncrementally(_dataCache.getCurrentStatesMap(),
+                _dataCache.getInstanceConfigMap(), _dataCache.getLiveInstances());
+          } else {
+            refresh(_dataCache.getCurrentStatesMap(), _dataCache.getInstanceConfigMap().values(),
+                _dataCache.getLiveInstances().values());
+          }
 
           recordPropagationLatency(System.currentTimeMillis(), _dataCache.getCurrentStateSnapshot());
           break;
@@ -628,6 +699,9 @@ public class RoutingTableProvider
         }
 
         _monitor.increaseDataRefreshCounters(startTime);
+        // The time between the change notification and the new routing table being visible
+        _monitor.recordRoutingTableUpdateLatency(
+            System.currentTimeMillis() - event.getCreationTime());
       }
     }
 
@@ -56,7 +56,7 @@ public abstract class AbstractTaskDispatcher {
 
   // For connection management
   protected HelixManager _manager;
-  protected static RebalanceScheduler _rebalanceScheduler = new RebalanceScheduler();
+  protected static RebalanceScheduler _rebalanceScheduler = TaskUtil.createRebalanceScheduler();
   protected ClusterStatusMonitor _clusterStatusMonitor;
 
   public void init(HelixManager manager) {
@@ -21,10 +21,12 @@ package org.apache.helix.task;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import org.apache.helix.common.caches.TaskDataCache;
 import org.apache.helix.model.ClusterConfig;
@@ -54,6 +56,11 @@ public class AssignableInstanceManager {
   // This map is quota type -> remaining global quota
   private Map<String, Integer> _globalThreadBasedQuotaMap;
 
+  // Quota type -> AssignableInstances ordered by remaining capacity of the quota type, most
+  // available first. An index is built when its quota type is first queried, and kept up to date
+  // on assign and release, so assigning the tasks of a job does not sort all the instances again.
+  private final Map<String, TreeSet<AssignableInstance>> _capacityIndex = new HashMap<>();
+
   /**
    * Basic constructor for AssignableInstanceManager to allow an empty instantiation.
    * buildAssignableInstances() must be explicitly called after instantiation.
@@ -77,6 +84,7 @@ public class AssignableInstanceManager {
     // Reset all cached information
     _assignableInstanceMap.clear();
     _taskAssignResultMap.clear();
+    clearCapacityIndex();
 
     // Create all AssignableInstance objects based on what's in liveInstances
     for (Map.Entry<String, LiveInstance> liveInstanceEntry : liveInstances.entrySet()) {
@@ -191,6 +199,8 @@ public class AssignableInstanceManager {
     // corresponding AssignableInstance must be removed
     Collection<AssignableInstance> staleAssignableInstances =
         new HashSet<>(_assignableInstanceMap.values());
+    // Capacities may change with the configs
+    clearCapacityIndex();
 
     // Loop over new LiveInstances
     for (Map.Entry<String, LiveInstance> liveInstanceEntry : liveInstances.entrySet()) {
@@ -275,6 +285,31 @@ public class AssignableInstanceManager {
     return Collections.unmodifiableSet(new HashSet<>(_assignableInstanceMap.values()));
   }
 
+  /**
+   * Returns the AssignableInstance with the most remaining capacity of the given quota type among
+   * the given instances. Instances are looked up in the capacity index of the quota type, so this
+   * is fast when few of the AssignableInstances are not in the given instances.
+   * @param quotaType
+   * @param instances names of the instances to choose from
+   * @return the AssignableInstance, or null if none of the instances is an AssignableInstance
+   */
+  public AssignableInstance getMostAvailableInstance(String quotaType, Set<String> instances) {
+    synchronized (_capacityIndex) {
+      TreeSet<AssignableInstance> index = _capacityIndex.get(quotaType);
+      if (index == null) {
+        index = new TreeSet<>(new RemainingCapacityComparator(quotaType));
+        index.addAll(_assignableInstanceMap.values());
+        _capacityIndex.put(quotaType, index);
+      }
+      for (AssignableInstance assignableInstance : index) {
+        if (instances.contains(assignableInstance.getInstanceName())) {
+          return assignableInstance;
+        }
+      }
+    }
+    return null;
+  }
+
   /**
    * Returns taskId -> TaskAssignResult mappings.
    * @return taskAssignResultMap
@@ -314,8 +349,14 @@ public class AssignableInstanceManager {
           taskConfig.getId());
       quotaType = AssignableInstance.DEFAULT_QUOTA_TYPE;
     }
-    if (_assignableInstanceMap.containsKey(instanceName)) {
-      _assignableInstanceMap.get(instanceName).release(taskConfig, quotaType);
+    AssignableInstance assignableInstance = _assignableInstanceMap.get(instanceName);
+    if (assignableInstance != null) {
+      removeFromCapacityIndex(assignableInstance);
+      try {
+        assignableInstance.release(taskConfig, quotaType);
+      } finally {
+        addToCapacityIndex(assignableInstance);
+      }
     }
 
     if (_globalThreadBasedQuotaMap.containsKey(quotaType)) {
@@ -346,8 +387,14 @@ public class AssignableInstanceManager {
    * @throws IllegalStateException
    */
   public void assign(String instanceName, TaskAssignResult result) throws IllegalStateException {
-    if (result != null && _assignableInstanceMap.containsKey(instanceName)) {
-      _assignableInstanceMap.get(instanceName).assign(result);
+    AssignableInstance assignableInstance = _assignableInstanceMap.get(instanceName);
+    if (result != null && assignableInstance != null) {
+      removeFromCapacityIndex(assignableInstance);
+      try {
+        assignableInstance.assign(result);
+      } finally {
+        addToCapacityIndex(assignableInstance);
+      }
       _taskAssignResultMap.put(result.getTaskConfig().getId(), result);
     }
 
@@ -433,6 +480,32 @@ public class AssignableInstanceManager {
     }
   }
 
+  /**
+   * The position of an AssignableInstance in the capacity indexes depends on its used capacity, so
+   * it is removed from the indexes before its capacity changes, and added back after.
+   */
+  private void removeFromCapacityIndex(AssignableInstance assignableInstance) {
+    synchronized (_capacityIndex) {
+      for (TreeSet<AssignableInstance> index : _capacityIndex.values()) {
+        index.remove(assignableInstance);
+      }
+    }
+  }
+
+  private void addToCapacityIndex(AssignableInstance assignableInstance) {
+    synchronized (_capacityIndex) {
+      for (TreeSet<AssignableInstance> index : _capacityIndex.values()) {
+        index.add(assignableInstance);
+      }
+    }
+  }
+
+  private void clearCapacityIndex() {
+    synchronized (_capacityIndex) {
+      _capacityIndex.clear();
+    }
+  }
+
   private void computeGlobalThreadBasedCapacity() {
     _globalThreadBasedQuotaMap.clear();
     for (AssignableInstance assignableInstance : _assignableInstanceMap.values()) {
@@ -447,4 +520,37 @@ public class AssignableInstanceManager {
       }
     }
   }
+
+  /**
+   * Orders AssignableInstances by remaining thread capacity of a quota type, most available first.
+   * Instances not supporting the quota type are ordered by their DEFAULT capacity, because tasks
+   * are assigned to them as DEFAULT. Ties are broken by instance name.
+   */
+  private static class RemainingCapacityComparator implements Comparator<AssignableInstance> {
+    private static final String RESOURCE_TYPE =
+        LiveInstance.InstanceResourceType.TASK_EXEC_THREAD.name();
+    private final String _quotaType;
+
+    RemainingCapacityComparator(String quotaType) {
+      _quotaType = quotaType;
+    }
+
+    @Override
+    public int compare(AssignableInstance o1, AssignableInstance o2) {
+      int diff = getRemainingCapacity(o2) - getRemainingCapacity(o1);
+      return diff != 0 ? diff : o1.getInstanceName().compareTo(o2.getInstanceName());
+    }
+
+    private int getRemainingCapacity(AssignableInstance assignableInstance) {
+      Map<String, Integer> capacity = assignableInstance.getTotalCapacity().get(RESOURCE_TYPE);
+      if (capacity == null) {
+        return 0;
+      }
+      String quotaType =
+          capacity.containsKey(_quotaType) ? _quotaType : AssignableInstance.DEFAULT_QUOTA_TYPE;
+      Integer total = capacity.get(quotaType);
+      Integer used = assignableInstance.getUsedCapacity().get(RESOURCE_TYPE).get(quotaType);
+      return total == null || used == null ? 0 : total - used;
+    }
+  }
 }
@@ -37,7 +37,7 @@ import com.google.common.collect.Sets;
  * Helix property store.
  */
 public class JobContext extends HelixProperty {
-  private enum ContextProperties {
+  enum ContextProperties {
     START_TIME, // Time at which this JobContext was created
     STATE,
     NUM_ATTEMPTS,
@@ -53,6 +53,8 @@ public class JobContext extends HelixProperty {
 
   public JobContext(ZNRecord record) {
     super(record);
+    // Contexts persisted in the columnar form are used in the map field form
+    JobContextColumnarCodec.decode(getRecord());
   }
 
   public void setStartTime(long t) {
@@ -0,0 +1,332 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.helix.HelixException;
+import org.apache.helix.ZNRecord;
+
+/**
+ * Encodes the partition map fields of a {@link JobContext} record into packed columns, and decodes
+ * them back.
+ * <p>
+ * A JobContext stores one map field per task partition, with the state, attempts, times, target and
+ * assigned participant written as strings. In the columnar form, all the encodable partitions are
+ * written into one base64 simple field: partition ids and numbers as variable-length integers, and
+ * the string values as indexes into a per-column dictionary, so repeated states and participant
+ * names are stored once.
+ * <p>
+ * Only the znode is encoded. {@link JobContext} decodes the record when it is created, so the
+ * in-memory record and the JobContext API are the same for both forms, and contexts written in the
+ * map field form are read as they are. Partitions with fields the encoding does not know are kept as
+ * map fields.
+ * <p>
+ * The encoding reduces the size of the znode and the cost of writing, transferring and parsing it.
+ * It does not reduce the memory of a decoded context or the cost of reading its partitions: the
+ * task dispatchers read the decoded map fields as they do for contexts in the map field form.
+ */
+public final class JobContextColumnarCodec {
+  /**
+   * The simple field holding the encoded partition columns
+   */
+  public static final String PARTITION_COLUMNS_FIELD = "PARTITION_COLUMNS";
+
+  private static final int FORMAT_VERSION = 1;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final String[] STRING_COLUMNS = new String[] {
+      JobContext.ContextProperties.STATE.name(), JobContext.ContextProperties.TARGET.name(),
+      JobContext.ContextProperties.TASK_ID.name(),
+      JobContext.ContextProperties.ASSIGNED_PARTICIPANT.name(),
+      JobContext.ContextProperties.INFO.name()
+  };
+  private static final String[] NUMBER_COLUMNS = new String[] {
+      JobContext.ContextProperties.NUM_ATTEMPTS.name(),
+      JobContext.ContextProperties.START_TIME.name(),
+      JobContext.ContextProperties.FINISH_TIME.name(),
+      JobContext.ContextProperties.NEXT_RETRY_TIME.name()
+  };
+
+  private JobContextColumnarCodec() {
+  }
+
+  /**
+   * @return true if the record has encoded partition columns
+   */
+  public static boolean isEncoded(ZNRecord record) {
+    return record.getSimpleField(PARTITION_COLUMNS_FIELD) != null;
+  }
+
+  /**
+   * Encode the partition map fields of a JobContext record. The given record is not modified.
+   * @param record the JobContext record
+   * @return a record with the encodable partitions in the columns, or the given record if no
+   *         partition can be encoded
+   */
+  public static ZNRecord encode(ZNRecord record) {
+    if (isEncoded(record)) {
+      return record;
+    }
+    TreeMap<Integer, Map<String, String>> partitions = new TreeMap<>();
+    for (Map.Entry<String, Map<String, String>> mapField : record.getMapFields().entrySet()) {
+      Integer partition = parsePartition(mapField.getKey());
+      if (partition != null && isEncodable(mapField.getValue())) {
+        partitions.put(partition, mapField.getValue());
+      }
+    }
+    if (partitions.isEmpty()) {
+      return record;
+    }
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    try {
+      writeVarLong(out, FORMAT_VERSION);
+      writeVarLong(out, partitions.size());
+      int prevPartition = 0;
+      for (int partition : partitions.keySet()) {
+        writeVarLong(out, partition - prevPartition);
+        prevPartition = partition;
+      }
+      for (String column : STRING_COLUMNS) {
+        writeStringColumn(out, column, partitions.values());
+      }
+      for (String column : NUMBER_COLUMNS) {
+        writeNumberColumn(out, column, partitions.values());
+      }
+      out.flush();
+    } catch (IOException e) {
+      throw new HelixException("Failed to encode the partitions of job context " + record.getId(),
+          e);
+    }
+
+    ZNRecord encoded = new ZNRecord(record);
+    for (int partition : partitions.keySet()) {
+      encoded.getMapFields().remove(String.valueOf(partition));
+    }
+    encoded.setSimpleField(PARTITION_COLUMNS_FIELD,
+        new String(Base64.encodeBase64(baos.toByteArray()), UTF_8));
+    return encoded;
+  }
+
+  /**
+   * Decode the partition columns of a JobContext record back to map fields, in place. Records
+   * without columns are not changed.
+   * @param record the JobContext record
+   */
+  public static void decode(ZNRecord record) {
+    String columns = record.getSimpleField(PARTITION_COLUMNS_FIELD);
+    if (columns == null) {
+      return;
+    }
+    DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(Base64.decodeBase64(columns.getBytes(UTF_8))));
+    try {
+      int version = (int) readVarLong(in);
+      if (version != FORMAT_VERSION) {
+        throw new HelixException(String
+            .format("Unsupported partition column format %d of job context %s", version,
+                record.getId()));
+      }
+      int size = (int) readVarLong(in);
+      List<Map<String, String>> partitionMaps = new ArrayList<>(size);
+      int partition = 0;
+      for (int i = 0; i < size; i++) {
+        partition += (int) readVarLong(in);
+        Map<String, String> map = new TreeMap<>();
+        partitionMaps.add(map);
+        record.setMapField(String.valueOf(partition), map);
+      }
+      for (String column : STRING_COLUMNS) {
+        readStringColumn(in, column, partitionMaps);
+      }
+      for (String column : NUMBER_COLUMNS) {
+        readNumberColumn(in, column, partitionMaps);
+      }
+    } catch (IOException e) {
+      throw new HelixException("Failed to decode the partitions of job context " + record.getId(),
+          e);
+    }
+    record.getSimpleFields().remove(PARTITION_COLUMNS_FIELD);
+  }
+
+  private static Integer parsePartition(String key) {
+    try {
+      int partition = Integer.parseInt(key);
+      return partition >= 0 && String.valueOf(partition).equals(key) ? partition : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * A partition map is encodable if all its fields are known columns, and its numbers are written
+   * the way they are decoded.
+   */
+  private static boolean isEncodable(Map<String, String> map) {
+    int knownFields = 0;
+    for (String column : STRING_COLUMNS) {
+      if (map.containsKey(column)) {
+        if (map.get(column) == null) {
+          return false;
+        }
+        knownFields++;
+      }
+    }
+    for (String column : NUMBER_COLUMNS) {
+      String value = map.get(column);
+      if (value != null) {
+        try {
+          if (!String.valueOf(Long.parseLong(value)).equals(value)) {
+            return false;
+          }
+        } catch (NumberFormatException e) {
+          return false;
+        }
+        knownFields++;
+      } else if (map.containsKey(column)) {
+        return false;
+      }
+    }
+    return knownFields == map.size();
+  }
+
+  private static void writeStringColumn(DataOutputStream out, String column,
+      Iterable<Map<String, String>> partitionMaps) throws IOException {
+    Map<String, Integer> dictionary = new HashMap<>();
+    List<String> values = new ArrayList<>();
+    List<Integer> indexes = new ArrayList<>();
+    for (Map<String, String> map : partitionMaps) {
+      String value = map.get(column);
+      if (value == null) {
+        // 0 means the partition does not have the field
+        indexes.add(0);
+        continue;
+      }
+      Integer index = dictionary.get(value);
+      if (index == null) {
+        values.add(value);
+        index = values.size();
+        dictionary.put(value, index);
+      }
+      indexes.add(index);
+    }
+    writeVarLong(out, values.size());
+    for (String value : values) {
+      byte[] bytes = value.getBytes(UTF_8);
+      writeVarLong(out, bytes.length);
+      out.write(bytes);
+    }
+    for (int index : indexes) {
+      writeVarLong(out, index);
+    }
+  }
+
+  private static void readStringColumn(DataInputStream in, String column,
+      List<Map<String, String>> partitionMaps) throws IOException {
+    int dictionarySize = (int) readVarLong(in);
+    String[] values = new String[dictionarySize];
+    for (int i = 0; i < dictionarySize; i++) {
+      byte[] bytes = new byte[(int) readVarLong(in)];
+      in.readFully(bytes);
+      values[i] = new String(bytes, UTF_8);
+    }
+    for (Map<String, String> map : partitionMaps) {
+      int index = (int) readVarLong(in);
+      if (index > 0) {
+        map.put(column, values[index - 1]);
+      }
+    }
+  }
+
+  /**
+   * Numbers are written as the zig-zag encoded difference to the previous value of the column, so
+   * close timestamps take a few bytes. A leading bitmap marks the partitions having the field.
+   */
+  private static void writeNumberColumn(DataOutputStream out, String column,
+      Iterable<Map<String, String>> partitionMaps) throws IOException {
+    List<String> values = new ArrayList<>();
+    for (Map<String, String> map : partitionMaps) {
+      values.add(map.get(column));
+    }
+    byte[] bitmap = new byte[(values.size() + 7) / 8];
+    for (int i = 0; i < values.size(); i++) {
+      if (values.get(i) != null) {
+        bitmap[i / 8] |= 1 << (i % 8);
+      }
+    }
+    out.write(bitmap);
+    long prev = 0;
+    for (String value : values) {
+      if (value != null) {
+        long number = Long.parseLong(value);
+        long delta = number - prev;
+        writeVarLong(out, (delta << 1) ^ (delta >> 63));
+        prev = number;
+      }
+    }
+  }
+
+  private static void readNumberColumn(DataInputStream in, String column,
+      List<Map<String, String>> partitionMaps) throws IOException {
+    byte[] bitmap = new byte[(partitionMaps.size() + 7) / 8];
+    in.readFully(bitmap);
+    long prev = 0;
+    for (int i = 0; i < partitionMaps.size(); i++) {
+      if ((bitmap[i / 8] & (1 << (i % 8))) != 0) {
+        long zigZag = readVarLong(in);
+        prev += (zigZag >>> 1) ^ -(zigZag & 1);
+        partitionMaps.get(i).put(column, String.valueOf(prev));
+      }
+    }
+  }
+
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readVarLong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable-length integer");
+  }
+}
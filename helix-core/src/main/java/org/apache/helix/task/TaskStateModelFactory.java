@@ -20,6 +20,7 @@ package org.apache.helix.task;
  */
 
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -28,8 +29,10 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.management.JMException;
 import org.apache.helix.HelixManager;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.monitoring.mbeans.ThreadPoolExecutorMonitor;
 import org.apache.helix.participant.statemachine.StateModelFactory;
+import org.apache.helix.util.BoundedElasticExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,23 +44,22 @@ public class TaskStateModelFactory extends StateModelFactory<TaskStateModel> {
 
   private final HelixManager _manager;
   private final Map<String, TaskFactory> _taskFactoryRegistry;
-  private final ScheduledExecutorService _taskExecutor;
+  private final ExecutorService _taskExecutor;
   private final ScheduledExecutorService _timerTaskExecutor;
   private ThreadPoolExecutorMonitor _monitor;
   public final static int TASK_THREADPOOL_SIZE = 40;
 
   public TaskStateModelFactory(HelixManager manager, Map<String, TaskFactory> taskFactoryRegistry) {
-    this(manager, taskFactoryRegistry,
-        Executors.newScheduledThreadPool(TASK_THREADPOOL_SIZE, new ThreadFactory() {
-          private AtomicInteger threadId = new AtomicInteger(0);
-          @Override public Thread newThread(Runnable r) {
-            return new Thread(r, "TaskStateModelFactory-task_thread-" + threadId.getAndIncrement());
-          }
-        }));
+    this(manager, taskFactoryRegistry, createDefaultTaskExecutor());
   }
 
   public TaskStateModelFactory(HelixManager manager, Map<String, TaskFactory> taskFactoryRegistry,
       ScheduledExecutorService taskExecutor) {
+    this(manager, taskFactoryRegistry, (ExecutorService) taskExecutor);
+  }
+
+  public TaskStateModelFactory(HelixManager manager, Map<String, TaskFactory> taskFactoryRegistry,
+      ExecutorService taskExecutor) {
     _manager = manager;
     _taskFactoryRegistry = taskFactoryRegistry;
     _taskExecutor = taskExecutor;
@@ -66,14 +68,36 @@ public class TaskStateModelFactory extends StateModelFactory<TaskStateModel> {
         return new Thread(r, "TaskStateModelFactory-timeTask_thread");
       }
     });
-    if (_taskExecutor instanceof ThreadPoolExecutor) {
-      try {
+    try {
+      if (_taskExecutor instanceof ThreadPoolExecutor) {
         _monitor = new ThreadPoolExecutorMonitor(TaskConstants.STATE_MODEL_NAME,
             (ThreadPoolExecutor) _taskExecutor);
-      } catch (JMException e) {
-        LOG.warn("Error in creating ThreadPoolExecutorMonitor for TaskStateModelFactory.");
+      } else if (_taskExecutor instanceof BoundedElasticExecutor) {
+        _monitor = new ThreadPoolExecutorMonitor(TaskConstants.STATE_MODEL_NAME,
+            (BoundedElasticExecutor) _taskExecutor);
+      }
+    } catch (JMException e) {
+      LOG.warn("Error in creating ThreadPoolExecutorMonitor for TaskStateModelFactory.");
+    }
+  }
+
+  /**
+   * The tasks run on a fixed pool of TASK_THREADPOOL_SIZE threads, or in the elastic execution mode
+   * on threads created on demand, at most PARTICIPANT_TASK_CONCURRENCY_LIMIT at the same time.
+   */
+  private static ExecutorService createDefaultTaskExecutor() {
+    ThreadFactory threadFactory = new ThreadFactory() {
+      private AtomicInteger threadId = new AtomicInteger(0);
+      @Override public Thread newThread(Runnable r) {
+        return new Thread(r, "TaskStateModelFactory-task_thread-" + threadId.getAndIncrement());
       }
+    };
+    if (Boolean.getBoolean(SystemPropertyKeys.PARTICIPANT_ELASTIC_EXECUTION_ENABLED)) {
+      return new BoundedElasticExecutor(
+          Integer.getInteger(SystemPropertyKeys.PARTICIPANT_TASK_CONCURRENCY_LIMIT,
+              TASK_THREADPOOL_SIZE), threadFactory);
     }
+    return Executors.newScheduledThreadPool(TASK_THREADPOOL_SIZE, threadFactory);
   }
 
   @Override
@@ -33,8 +33,10 @@ import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
 import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.controller.rebalancer.util.RebalanceScheduler;
+import org.apache.helix.controller.rebalancer.util.TimerWheelRebalanceScheduler;
 import org.apache.helix.model.HelixConfigScope;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.model.builder.HelixConfigScopeBuilder;
@@ -217,9 +219,13 @@ public class TaskUtil {
    * @param ctx the up-to-date {@link JobContext} for the job
    */
   protected static void setJobContext(HelixManager manager, String jobResource, JobContext ctx) {
+    ZNRecord record = ctx.getRecord();
+    if (Boolean.getBoolean(SystemPropertyKeys.TASK_JOB_CONTEXT_COLUMNAR_ENCODING_ENABLED)) {
+      record = JobContextColumnarCodec.encode(record);
+    }
     manager.getHelixPropertyStore().set(
         Joiner.on("/").join(TaskConstants.REBALANCER_CONTEXT_ROOT, jobResource, CONTEXT_NODE),
-        ctx.getRecord(), AccessOption.PERSISTENT);
+        record, AccessOption.PERSISTENT);
   }
 
   /**
@@ -1042,6 +1048,19 @@ public class TaskUtil {
     setNextJobPurgeTime(workflow, currentTime, purgeInterval, rebalanceScheduler, manager);
   }
 
+  /**
+   * Create the scheduler of the timers of the task framework. The timers are kept in a timer wheel
+   * if enabled by {@link SystemPropertyKeys#TASK_TIMER_WHEEL_ENABLED}.
+   * @return a rebalance scheduler
+   */
+  public static RebalanceScheduler createRebalanceScheduler() {
+    if (Boolean.getBoolean(SystemPropertyKeys.TASK_TIMER_WHEEL_ENABLED)) {
+      return new TimerWheelRebalanceScheduler(
+          Long.getLong(SystemPropertyKeys.TASK_TIMER_WHEEL_TICK, 100L));
+    }
+    return new RebalanceScheduler();
+  }
+
   private static void setNextJobPurgeTime(String workflow, long currentTime, long purgeInterval,
       RebalanceScheduler rebalanceScheduler, HelixManager manager) {
     long nextPurgeTime = currentTime + purgeInterval;
@@ -19,13 +19,16 @@ package org.apache.helix.task.assigner;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Set;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.task.AssignableInstanceManager;
 import org.apache.helix.task.TaskConfig;
@@ -36,6 +39,8 @@ import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 public class ThreadCountBasedTaskAssigner implements TaskAssigner {
   private static final Logger logger = LoggerFactory.getLogger(ThreadCountBasedTaskAssigner.class);
   private static final int SCHED_QUEUE_INIT_CAPACITY = 200;
+  // The capacity index is used if ineligible instances are at most 1/10 of the eligible ones
+  private static final int MAX_INELIGIBLE_INSTANCE_RATIO = 10;
 
   private AssignableInstanceManager _assignableInstanceManager;
 
@@ -74,18 +79,13 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
   public Map<String, TaskAssignResult> assignTasks(
       AssignableInstanceManager assignableInstanceManager, Collection<String> instances,
       Iterable<TaskConfig> tasks, String quotaType) {
-    Iterable<AssignableInstance> assignableInstances = new HashSet<>();
-    // Only add the AssignableInstances that are also in instances
-    for (String instance : instances) {
-      ((HashSet<AssignableInstance>) assignableInstances)
-          .add(assignableInstanceManager.getAssignableInstance(instance));
-    }
-
     if (tasks == null || !tasks.iterator().hasNext()) {
       logger.warn("No task to assign!");
       return Collections.emptyMap();
     }
-    if (assignableInstances == null || !assignableInstances.iterator().hasNext()) {
+    Set<String> eligibleInstances =
+        instances instanceof Set ? (Set<String>) instances : new HashSet<>(instances);
+    if (eligibleInstances.isEmpty()) {
       logger.warn("No instance to assign!");
       return buildNoInstanceAssignment(tasks, quotaType);
     }
@@ -97,8 +97,24 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
 
     logger.info("Assigning tasks with quota type {}", quotaType);
 
-    // Build a sched queue
-    PriorityQueue<AssignableInstance> queue = buildSchedQueue(quotaType, assignableInstances);
+    // The capacity index of AssignableInstanceManager is shared by all the jobs, but has to skip
+    // the instances that are not eligible. When many instances are not eligible, for example for
+    // jobs with an instance group tag, build a sched queue of the eligible instances instead.
+    PriorityQueue<AssignableInstance> queue = null;
+    int ineligibleCount =
+        assignableInstanceManager.getAssignableInstanceNames().size() - eligibleInstances.size();
+    if (ineligibleCount > eligibleInstances.size() / MAX_INELIGIBLE_INSTANCE_RATIO) {
+      List<AssignableInstance> assignableInstances = new ArrayList<>();
+      // Only add the AssignableInstances that are also in instances
+      for (String instance : eligibleInstances) {
+        AssignableInstance assignableInstance =
+            assignableInstanceManager.getAssignableInstance(instance);
+        if (assignableInstance != null) {
+          assignableInstances.add(assignableInstance);
+        }
+      }
+      queue = buildSchedQueue(quotaType, assignableInstances);
+    }
 
     // Assign
     Map<String, TaskAssignResult> assignResults = new HashMap<>();
@@ -126,7 +142,13 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
       }
 
       // Try to assign the task to least used instance
-      AssignableInstance instance = queue.poll();
+      AssignableInstance instance = queue != null ? queue.poll()
+          : assignableInstanceManager.getMostAvailableInstance(quotaType, eligibleInstances);
+      if (instance == null) {
+        assignResults.put(task.getId(), new TaskAssignResult(task, quotaType, null, false, 0,
+            TaskAssignResult.FailureReason.INSUFFICIENT_QUOTA, "No assignable instance to assign"));
+        continue;
+      }
       TaskAssignResult result = instance.tryAssign(task, quotaType);
       assignResults.put(task.getId(), result);
 
@@ -135,11 +157,14 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
         // subsequent tasks
         lastFailure = result;
       } else {
-        // If the task is successfully accepted by the instance, assign it to the instance
+        // If the task is successfully accepted by the instance, assign it to the instance. This
+        // also moves the instance in the capacity index.
         assignableInstanceManager.assign(instance.getInstanceName(), result);
 
-        // requeue the instance to rank again
-        queue.offer(instance);
+        if (queue != null) {
+          // requeue the instance to rank again
+          queue.offer(instance);
+        }
       }
     }
     logger.info("Finished assigning tasks with quota type {}", quotaType);
@@ -0,0 +1,191 @@
+package org.apache.helix.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An executor whose concurrency is limited by a semaphore instead of a fixed number of threads.
+ * <p>
+ * Threads are created when work is submitted and released after being idle for a minute, so a
+ * large concurrency limit does not keep that many threads alive, which suits mostly I/O bound work
+ * such as tasks and message handlers. Work submitted above the limit is queued in submission order,
+ * and a thread finishing its work runs the next queued work before giving its permit back.
+ */
+public class BoundedElasticExecutor extends AbstractExecutorService {
+  private static final Logger LOG = LoggerFactory.getLogger(BoundedElasticExecutor.class);
+  private static final long THREAD_KEEP_ALIVE_SECONDS = 60L;
+
+  private final int _concurrencyLimit;
+  private final Semaphore _permits;
+  private final Queue<Runnable> _queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger _queueSize = new AtomicInteger(0);
+  private final ThreadPoolExecutor _threads;
+  private volatile boolean _shutdown = false;
+
+  /**
+   * @param concurrencyLimit the maximum number of work items run at the same time
+   * @param threadFactory the factory of the threads running the work
+   */
+  public BoundedElasticExecutor(int concurrencyLimit, ThreadFactory threadFactory) {
+    if (concurrencyLimit <= 0) {
+      throw new IllegalArgumentException("Concurrency limit must be positive: " + concurrencyLimit);
+    }
+    _concurrencyLimit = concurrencyLimit;
+    _permits = new Semaphore(concurrencyLimit);
+    _threads = new ThreadPoolExecutor(0, Integer.MAX_VALUE, THREAD_KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), threadFactory);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (command == null) {
+      throw new NullPointerException();
+    }
+    if (_shutdown) {
+      throw new RejectedExecutionException("Executor is shut down");
+    }
+    _queue.offer(command);
+    _queueSize.incrementAndGet();
+    drain();
+  }
+
+  /**
+   * @return the maximum number of work items run at the same time
+   */
+  public int getConcurrencyLimit() {
+    return _concurrencyLimit;
+  }
+
+  /**
+   * @return the number of work items running
+   */
+  public int getInFlightCount() {
+    return _concurrencyLimit - _permits.availablePermits();
+  }
+
+  /**
+   * @return the number of work items waiting for a permit
+   */
+  public int getQueueSize() {
+    return _queueSize.get();
+  }
+
+  @Override
+  public void shutdown() {
+    _shutdown = true;
+    tryTerminate();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    _shutdown = true;
+    List<Runnable> queued = new ArrayList<>();
+    Runnable command;
+    while ((command = _queue.poll()) != null) {
+      _queueSize.decrementAndGet();
+      queued.add(command);
+    }
+    _threads.shutdownNow();
+    return queued;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return _shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return _threads.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return _threads.awaitTermination(timeout, unit);
+  }
+
+  /**
+   * Start a thread for the queued work while permits are available. A permit released after the
+   * queue is checked is always followed by another drain, so queued work is never left behind.
+   */
+  private void drain() {
+    while (!_queue.isEmpty() && _permits.tryAcquire()) {
+      final Runnable first = _queue.poll();
+      if (first == null) {
+        _permits.release();
+        continue;
+      }
+      _queueSize.decrementAndGet();
+      try {
+        _threads.execute(new Runnable() {
+          @Override
+          public void run() {
+            runWorker(first);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // Only happens if the work raced with the shutdown
+        _permits.release();
+        LOG.warn("Dropped work submitted concurrently with the shutdown of the executor");
+        if (first instanceof Future) {
+          ((Future) first).cancel(false);
+        }
+      }
+    }
+  }
+
+  private void runWorker(Runnable first) {
+    try {
+      Runnable command = first;
+      while (command != null) {
+        command.run();
+        command = _queue.poll();
+        if (command != null) {
+          _queueSize.decrementAndGet();
+        }
+      }
+    } finally {
+      _permits.release();
+      drain();
+      tryTerminate();
+    }
+  }
+
+  private void tryTerminate() {
+    if (_shutdown && _queue.isEmpty() && _permits.availablePermits() == _concurrencyLimit) {
+      _threads.shutdown();
+    }
+  }
+}
@@ -38,7 +38,9 @@ import org.apache.helix.HelixProperty;
 import org.apache.helix.InstanceType;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.ZNRecord;
+import org.apache.helix.messaging.handling.ParticipantWriteCoalescer;
 import org.apache.helix.model.Error;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Message.MessageType;
@@ -53,6 +55,11 @@ import org.slf4j.LoggerFactory;
  */
 public class StatusUpdateUtil {
   static Logger _logger = LoggerFactory.getLogger(StatusUpdateUtil.class);
+  private static final int FULL_SAMPLE_PERCENTAGE = 100;
+
+  private final int _infoSamplePercentage = Integer
+      .getInteger(SystemPropertyKeys.STATUS_UPDATE_INFO_SAMPLE_PERCENTAGE, FULL_SAMPLE_PERCENTAGE);
+  private ParticipantWriteCoalescer _writeCoalescer;
 
   public static class Transition implements Comparable<Transition> {
     private final String _msgID;
@@ -318,6 +325,9 @@ public class StatusUpdateUtil {
   @Deprecated
   public void logMessageStatusUpdateRecord(Message message, Level level, Class classInfo,
       String additionalInfo, HelixDataAccessor accessor) {
+    if (!isRecorded(message, level)) {
+      return;
+    }
     try {
       ZNRecord record = createMessageStatusUpdateRecord(message, level, classInfo, additionalInfo);
       publishStatusUpdateRecord(record, message, level, accessor,
@@ -343,6 +353,9 @@ public class StatusUpdateUtil {
    */
   public void logMessageStatusUpdateRecord(Message message, Level level, Class classInfo,
       String additionalInfo, HelixManager manager) {
+    if (!isRecorded(message, level)) {
+      return;
+    }
     try {
       ZNRecord record = createMessageStatusUpdateRecord(message, level, classInfo, additionalInfo);
       publishStatusUpdateRecord(record, message, level, manager.getHelixDataAccessor(),
@@ -353,6 +366,28 @@ public class StatusUpdateUtil {
     }
   }
 
+  /**
+   * Batch the error records written by this util with the given coalescer, instead of writing
+   * them one by one.
+   * @param writeCoalescer
+   */
+  public void setWriteCoalescer(ParticipantWriteCoalescer writeCoalescer) {
+    _writeCoalescer = writeCoalescer;
+  }
+
+  /**
+   * The INFO level status updates are sampled by message, so either all or none of the updates of
+   * a message are recorded.
+   */
+  private boolean isRecorded(Message message, Level level) {
+    if (level != Level.HELIX_INFO || _infoSamplePercentage >= FULL_SAMPLE_PERCENTAGE) {
+      return true;
+    }
+    return _infoSamplePercentage > 0
+        && (message.getMsgId().hashCode() & Integer.MAX_VALUE) % FULL_SAMPLE_PERCENTAGE
+        < _infoSamplePercentage;
+  }
+
   public enum ErrorType {
     RebalanceResourceFailure,
   }
@@ -565,8 +600,13 @@ public class StatusUpdateUtil {
       // ../{sessionId}/{subPath}
       accessor.setProperty(keyBuilder.controllerTaskError(updateSubPath), new Error(record));
     } else {
-      accessor.updateProperty(keyBuilder.stateTransitionError(instanceName, sessionId,
-          updateSubPath, updateKey), new Error(record));
+      PropertyKey errorKey =
+          keyBuilder.stateTransitionError(instanceName, sessionId, updateSubPath, updateKey);
+      if (_writeCoalescer != null) {
+        _writeCoalescer.updateRecord(accessor, errorKey, record);
+      } else {
+        accessor.updateProperty(errorKey, new Error(record));
+      }
     }
   }
 }
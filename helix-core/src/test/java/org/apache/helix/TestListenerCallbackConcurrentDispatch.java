@@ -0,0 +1,228 @@
+package org.apache.helix;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.manager.zk.CallbackHandler;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.InstanceConfig;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TestListenerCallbackConcurrentDispatch extends ZkUnitTestBase {
+
+  class SlowIdealStateListener implements IdealStateChangeListener {
+    final CountDownLatch _blockingLatch = new CountDownLatch(1);
+    final CountDownLatch _startedLatch = new CountDownLatch(1);
+    final AtomicInteger _callbackCount = new AtomicInteger(0);
+    final AtomicInteger _runningCount = new AtomicInteger(0);
+    volatile boolean _concurrentCallbackDetected = false;
+
+    @Override
+    public void onIdealStateChange(List<IdealState> idealState, NotificationContext changeContext)
+        throws InterruptedException {
+      if (changeContext.getType() != NotificationContext.Type.CALLBACK) {
+        return;
+      }
+      if (_runningCount.incrementAndGet() > 1) {
+        _concurrentCallbackDetected = true;
+      }
+      _startedLatch.countDown();
+      _blockingLatch.await(30, TimeUnit.SECONDS);
+      _callbackCount.incrementAndGet();
+      _runningCount.decrementAndGet();
+    }
+  }
+
+  class InstanceConfigListener implements InstanceConfigChangeListener {
+    final CountDownLatch _callbackLatch = new CountDownLatch(1);
+
+    @Override
+    public void onInstanceConfigChange(List<InstanceConfig> instanceConfigs,
+        NotificationContext context) {
+      if (context.getType() == NotificationContext.Type.CALLBACK) {
+        _callbackLatch.countDown();
+      }
+    }
+  }
+
+  class LifecycleIdealStateListener implements IdealStateChangeListener {
+    final CountDownLatch _blockingLatch = new CountDownLatch(1);
+    final CountDownLatch _startedLatch = new CountDownLatch(1);
+    volatile boolean _callbackRunning = false;
+    volatile boolean _finalized = false;
+    volatile boolean _outOfOrderInvocationDetected = false;
+
+    @Override
+    public void onIdealStateChange(List<IdealState> idealState, NotificationContext changeContext)
+        throws InterruptedException {
+      if (changeContext.getType() == NotificationContext.Type.FINALIZE) {
+        if (_callbackRunning) {
+          _outOfOrderInvocationDetected = true;
+        }
+        _finalized = true;
+        return;
+      }
+      if (changeContext.getType() != NotificationContext.Type.CALLBACK) {
+        return;
+      }
+      if (_finalized) {
+        _outOfOrderInvocationDetected = true;
+      }
+      _callbackRunning = true;
+      _startedLatch.countDown();
+      _blockingLatch.await(30, TimeUnit.SECONDS);
+      _callbackRunning = false;
+    }
+  }
+
+  private HelixManager _manager;
+  private final String _clusterName = TestHelper.getTestClassName();
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    TestHelper.setupCluster(_clusterName, ZK_ADDR, 12918, // participant port
+        "localhost", // participant name prefix
+        "TestDB", // resource name prefix
+        2, // resources
+        4, // partitions per resource
+        2, // number of nodes
+        1, // replicas
+        "MasterSlave", true); // do rebalance
+
+    _manager = HelixManagerFactory
+        .getZKHelixManager(_clusterName, "localhost", InstanceType.SPECTATOR, ZK_ADDR);
+    _manager.connect();
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    _manager.disconnect();
+    deleteCluster(_clusterName);
+  }
+
+  @Test
+  public void testSlowListenerDoesNotBlockOthers() throws Exception {
+    String methodName = TestHelper.getTestMethodName();
+    System.out.println("START " + methodName + " at " + new Date(System.currentTimeMillis()));
+
+    SlowIdealStateListener slowListener = new SlowIdealStateListener();
+    InstanceConfigListener configListener = new InstanceConfigListener();
+    System.setProperty(SystemPropertyKeys.CONCURRENT_CALLBACK_DISPATCH_ENABLED, "true");
+    try {
+      _manager.addIdealStateChangeListener(slowListener);
+      _manager.addInstanceConfigChangeListener(configListener);
+    } finally {
+      System.clearProperty(SystemPropertyKeys.CONCURRENT_CALLBACK_DISPATCH_ENABLED);
+    }
+
+    HelixDataAccessor accessor = _manager.getHelixDataAccessor();
+    Builder keyBuilder = accessor.keyBuilder();
+
+    // Block the ideal state listener
+    updateIdealStates(accessor, keyBuilder);
+    Assert.assertTrue(slowListener._startedLatch.await(10, TimeUnit.SECONDS));
+
+    // Callbacks of the other listener are still delivered
+    for (String instance : accessor.getChildNames(keyBuilder.instanceConfigs())) {
+      InstanceConfig config = accessor.getProperty(keyBuilder.instanceConfig(instance));
+      config.getRecord().setLongField("TimeStamp", System.currentTimeMillis());
+      accessor.setProperty(keyBuilder.instanceConfig(instance), config);
+    }
+    Assert.assertTrue(configListener._callbackLatch.await(10, TimeUnit.SECONDS));
+
+    // Queue more callbacks to the blocked listener, then release it
+    updateIdealStates(accessor, keyBuilder);
+    Thread.sleep(500);
+    slowListener._blockingLatch.countDown();
+    final SlowIdealStateListener listener = slowListener;
+    Assert.assertTrue(TestHelper.verify(new TestHelper.Verifier() {
+      @Override
+      public boolean verify() {
+        return listener._runningCount.get() == 0 && listener._callbackCount.get() > 1;
+      }
+    }, 10000));
+    // Callbacks of the same listener are never invoked concurrently
+    Assert.assertFalse(slowListener._concurrentCallbackDetected);
+
+    _manager.removeListener(keyBuilder.idealStates(), slowListener);
+    _manager.removeListener(keyBuilder.instanceConfigs(), configListener);
+    // The shared dispatch executor is shut down once no handler uses it
+    Assert.assertFalse(CallbackHandler.isCallbackDispatchExecutorRunning());
+
+    System.out.println("END " + methodName + " at " + new Date(System.currentTimeMillis()));
+  }
+
+  @Test
+  public void testFinalizeWaitsForRunningCallback() throws Exception {
+    String methodName = TestHelper.getTestMethodName();
+    System.out.println("START " + methodName + " at " + new Date(System.currentTimeMillis()));
+
+    final LifecycleIdealStateListener listener = new LifecycleIdealStateListener();
+    System.setProperty(SystemPropertyKeys.CONCURRENT_CALLBACK_DISPATCH_ENABLED, "true");
+    try {
+      _manager.addIdealStateChangeListener(listener);
+    } finally {
+      System.clearProperty(SystemPropertyKeys.CONCURRENT_CALLBACK_DISPATCH_ENABLED);
+    }
+
+    HelixDataAccessor accessor = _manager.getHelixDataAccessor();
+    final Builder keyBuilder = accessor.keyBuilder();
+    updateIdealStates(accessor, keyBuilder);
+    Assert.assertTrue(listener._startedLatch.await(10, TimeUnit.SECONDS));
+    // Queue more callbacks to the blocked listener
+    updateIdealStates(accessor, keyBuilder);
+
+    // The listener is not finalized while its callback is running
+    Thread removeThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        _manager.removeListener(keyBuilder.idealStates(), listener);
+      }
+    });
+    removeThread.start();
+    Thread.sleep(500);
+    Assert.assertFalse(listener._finalized);
+
+    // Once the callback is done, the listener is finalized, and not called back afterwards
+    listener._blockingLatch.countDown();
+    removeThread.join(10000);
+    Assert.assertTrue(listener._finalized);
+    Thread.sleep(500);
+    Assert.assertFalse(listener._outOfOrderInvocationDetected);
+
+    System.out.println("END " + methodName + " at " + new Date(System.currentTimeMillis()));
+  }
+
+  private void updateIdealStates(HelixDataAccessor accessor, Builder keyBuilder) {
+    for (String resource : accessor.getChildNames(keyBuilder.idealStates())) {
+      IdealState idealState = accessor.getProperty(keyBuilder.idealStates(resource));
+      idealState.getRecord().setLongField("TimeStamp", System.currentTimeMillis());
+      accessor.setProperty(keyBuilder.idealStates(resource), idealState);
+    }
+  }
+}
@@ -2,7 +2,10 @@ package org.apache.helix.common.caches;
 
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.helix.HelixDataAccessor;
@@ -10,6 +13,8 @@ import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.common.controllers.ControlContextProvider;
 import org.apache.helix.model.InstanceConfig;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -98,6 +103,83 @@ public class TestPropertyCache {
         new PropertyKey.Builder("fake").instance("instance2"));
   }
 
+  @Test(description = "Unit test for cache refresh of changed paths only")
+  @SuppressWarnings("unchecked")
+  public void testChangedPathRefresh() {
+    final PropertyKey.Builder keyBuilder = new PropertyKey.Builder("fake");
+    PropertyCache.PropertyCacheKeyFuncs<HelixProperty> keyFuncs =
+        new PropertyCache.PropertyCacheKeyFuncs<HelixProperty>() {
+          @Override
+          public PropertyKey getRootKey(HelixDataAccessor accessor) {
+            return keyBuilder.idealStates();
+          }
+
+          @Override
+          public PropertyKey getObjPropertyKey(HelixDataAccessor accessor, String objName) {
+            return keyBuilder.idealStates(objName);
+          }
+
+          @Override
+          public String getObjName(HelixProperty obj) {
+            return obj.getRecord().getId();
+          }
+        };
+    PropertyCache<HelixProperty> propertyCache =
+        new PropertyCache<>(MOCK_CONTROL_CONTEXT_PROVIDER, "mock property cache", keyFuncs, true);
+    // The mocked data store, mapping the path to the property
+    final Map<String, HelixProperty> store = new HashMap<>();
+    for (int i = 0; i < 3; i++) {
+      store.put(keyBuilder.idealStates("resource" + i).getPath(),
+          new HelixProperty("resource" + i));
+    }
+    HelixDataAccessor accessor = mock(HelixDataAccessor.class);
+    when(accessor.getChildNames(any(PropertyKey.class)))
+        .thenReturn(ImmutableList.of("resource0", "resource1", "resource2"));
+    when(accessor.getProperty(anyListOf(PropertyKey.class), any(Boolean.class)))
+        .thenAnswer(new Answer<List<HelixProperty>>() {
+          @Override
+          public List<HelixProperty> answer(InvocationOnMock invocation) {
+            List<PropertyKey> keys = (List<PropertyKey>) invocation.getArguments()[0];
+            List<HelixProperty> properties = new ArrayList<>();
+            for (PropertyKey key : keys) {
+              properties.add(store.get(key.getPath()));
+            }
+            return properties;
+          }
+        });
+
+    // No changed path known, so do a full refresh
+    propertyCache.refresh(accessor, null);
+    Assert.assertEquals(propertyCache.getPropertyMap().keySet(),
+        ImmutableSet.of("resource0", "resource1", "resource2"));
+    Assert.assertEquals(propertyCache.getReloadedCount(), 3);
+    HelixProperty resource0 = propertyCache.getPropertyByName("resource0");
+
+    // Reload a changed object and drop a deleted one without listing or checking stats
+    HelixProperty newResource1 = new HelixProperty("resource1");
+    store.put(keyBuilder.idealStates("resource1").getPath(), newResource1);
+    store.remove(keyBuilder.idealStates("resource2").getPath());
+    propertyCache.refresh(accessor, ImmutableList
+        .of(keyBuilder.idealStates("resource1").getPath(),
+            keyBuilder.idealStates("resource2").getPath() + "/bucket_0"));
+    Assert.assertEquals(propertyCache.getPropertyMap().keySet(),
+        ImmutableSet.of("resource0", "resource1"));
+    Assert.assertSame(propertyCache.getPropertyByName("resource0"), resource0);
+    Assert.assertSame(propertyCache.getPropertyByName("resource1"), newResource1);
+    Assert.assertEquals(propertyCache.getReloadedCount(), 2);
+    Assert.assertEquals(propertyCache.getSkippedCount(), 1);
+    verify(accessor, times(1)).getChildNames(any(PropertyKey.class));
+    // Only the initial full refresh checked the stats
+    verify(accessor, times(1)).getPropertyStats(anyListOf(PropertyKey.class));
+
+    // A change of the root path falls back to a full refresh
+    when(accessor.getPropertyStats(anyListOf(PropertyKey.class)))
+        .thenReturn(Arrays.asList(new HelixProperty.Stat[2]));
+    propertyCache.refresh(accessor, ImmutableList.of(keyBuilder.idealStates().getPath()));
+    verify(accessor, times(2)).getChildNames(any(PropertyKey.class));
+    verify(accessor, times(2)).getPropertyStats(anyListOf(PropertyKey.class));
+  }
+
   @Test(description = "First set the property cache and update the object from caller")
   public void testDefensiveCopyOnDataUpdate() {
     @SuppressWarnings("unchecked")
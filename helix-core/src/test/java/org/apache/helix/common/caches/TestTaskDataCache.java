@@ -0,0 +1,154 @@
+package org.apache.helix.common.caches;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import org.apache.helix.AccessOption;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyType;
+import org.apache.helix.TestHelper;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.task.JobContext;
+import org.apache.helix.task.TaskConstants;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the write-through context cache of {@link TaskDataCache}
+ */
+public class TestTaskDataCache extends ZkUnitTestBase {
+  private static final int NUM_JOBS = 5;
+
+  private final String _clusterName = TestHelper.getTestClassName();
+  private HelixDataAccessor _accessor;
+  private ZkBaseDataAccessor<ZNRecord> _baseAccessor;
+
+  @BeforeClass
+  public void beforeClass() {
+    _baseAccessor = new ZkBaseDataAccessor<>(_gZkClient);
+    _accessor = new ZKHelixDataAccessor(_clusterName, _baseAccessor);
+    for (int i = 0; i < NUM_JOBS; i++) {
+      String jobName = "job" + i;
+      _baseAccessor.set(getContextPath(jobName), createJobContext(jobName, 0).getRecord(),
+          AccessOption.PERSISTENT);
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    deleteCluster(_clusterName);
+  }
+
+  @Test
+  public void testWriteThroughContextCache() {
+    TaskDataCache cache = new TaskDataCache(_clusterName);
+    cache.refresh(_accessor, Collections.<String, ResourceConfig>emptyMap());
+    Assert.assertEquals(cache.getContexts().size(), NUM_JOBS);
+    Assert.assertEquals(cache.getCacheHitCount(), 0);
+    long zkReadCount = cache.getZkReadCount();
+    Assert.assertTrue(zkReadCount >= NUM_JOBS);
+
+    // Nothing changed, all the contexts are reused
+    ZNRecord context = cache.getContexts().get("job0");
+    cache.refresh(_accessor, Collections.<String, ResourceConfig>emptyMap());
+    Assert.assertSame(cache.getContexts().get("job0"), context);
+    Assert.assertEquals(cache.getZkReadCount(), zkReadCount);
+    long cacheHitCount = cache.getCacheHitCount();
+    Assert.assertTrue(cacheHitCount >= NUM_JOBS);
+
+    // Contexts written by the cache are trusted
+    cache.updateJobContext("job0", createJobContext("job0", 1));
+    cache.persistDataChanges(_accessor);
+    cache.refresh(_accessor, Collections.<String, ResourceConfig>emptyMap());
+    Assert.assertEquals(cache.getZkReadCount(), zkReadCount);
+    Assert.assertEquals(cache.getJobContext("job0").getStartTime(), 1L);
+
+    // Contexts written by others are read again
+    _baseAccessor.set(getContextPath("job1"), createJobContext("job1", 2).getRecord(),
+        AccessOption.PERSISTENT);
+    cache.refresh(_accessor, Collections.<String, ResourceConfig>emptyMap());
+    Assert.assertEquals(cache.getJobContext("job1").getStartTime(), 2L);
+    Assert.assertTrue(cache.getZkReadCount() > zkReadCount);
+    Assert.assertEquals(cache.getJobContext("job0").getStartTime(), 1L);
+
+    // Contexts removed by others are dropped
+    _baseAccessor.remove(getTaskDataPath("job2"), AccessOption.PERSISTENT);
+    cache.refresh(_accessor, Collections.<String, ResourceConfig>emptyMap());
+    Assert.assertNull(cache.getJobContext("job2"));
+    Assert.assertEquals(cache.getContexts().size(), NUM_JOBS - 1);
+
+    // Everything is read again after a full refresh is required
+    zkReadCount = cache.getZkReadCount();
+    cacheHitCount = cache.getCacheHitCount();
+    cache.requireFullRefresh();
+    cache.refresh(_accessor, Collections.<String, ResourceConfig>emptyMap());
+    Assert.assertEquals(cache.getCacheHitCount(), cacheHitCount);
+    Assert.assertTrue(cache.getZkReadCount() >= zkReadCount + NUM_JOBS - 1);
+    Assert.assertNotSame(cache.getContexts().get("job0"), context);
+    Assert.assertEquals(cache.getJobContext("job0").getStartTime(), 1L);
+  }
+
+  @Test(dependsOnMethods = "testWriteThroughContextCache")
+  public void testUnpersistedContextIsReadAgain() {
+    TaskDataCache cache = new TaskDataCache(_clusterName);
+    cache.refresh(_accessor, Collections.<String, ResourceConfig>emptyMap());
+    long startTime = cache.getJobContext("job3").getStartTime();
+
+    // An in-memory change that has not been persisted is replaced by the data in zookeeper
+    JobContext jobContext = cache.getJobContext("job3");
+    jobContext.setStartTime(startTime + 100);
+    cache.updateJobContext("job3", jobContext);
+    cache.refresh(_accessor, Collections.<String, ResourceConfig>emptyMap());
+    Assert.assertEquals(cache.getJobContext("job3").getStartTime(), startTime);
+  }
+
+  @Test(dependsOnMethods = "testWriteThroughContextCache")
+  public void testReturnedContextIsCopied() {
+    TaskDataCache cache = new TaskDataCache(_clusterName);
+    cache.refresh(_accessor, Collections.<String, ResourceConfig>emptyMap());
+    long startTime = cache.getJobContext("job4").getStartTime();
+
+    // Changing a returned context without updating it does not change the cached context
+    cache.getJobContext("job4").setStartTime(startTime + 100);
+    Assert.assertEquals(cache.getJobContext("job4").getStartTime(), startTime);
+  }
+
+  private JobContext createJobContext(String jobName, long startTime) {
+    JobContext jobContext = new JobContext(new ZNRecord(jobName));
+    jobContext.getRecord().setSimpleField("NAME", jobName);
+    jobContext.setStartTime(startTime);
+    return jobContext;
+  }
+
+  private String getTaskDataPath(String jobName) {
+    return String.format("/%s/%s%s/%s", _clusterName, PropertyType.PROPERTYSTORE.name(),
+        TaskConstants.REBALANCER_CONTEXT_ROOT, jobName);
+  }
+
+  private String getContextPath(String jobName) {
+    return getTaskDataPath(jobName) + "/" + TaskConstants.CONTEXT_NODE;
+  }
+}
@@ -0,0 +1,237 @@
+package org.apache.helix.controller.dataproviders;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.helix.AccessOption;
+import org.apache.helix.HelixProperty;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.TestHelper;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.controller.stages.AttributeName;
+import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.controller.stages.ClusterEventType;
+import org.apache.helix.controller.stages.DummyClusterManager;
+import org.apache.helix.controller.stages.MessageOutput;
+import org.apache.helix.controller.stages.ReadClusterDataStage;
+import org.apache.helix.controller.stages.resource.ResourceMessageDispatchStage;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.Resource;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the read-ahead of the data refresh of {@link ReadAheadDataAccessor}
+ */
+public class TestReadAheadDataAccessor extends ZkUnitTestBase {
+  private static final String INSTANCE = "localhost_12918";
+  private static final String SESSION = "session_0";
+
+  private final String _clusterName = TestHelper.getTestClassName();
+  private final PropertyKey.Builder _keyBuilder = new PropertyKey.Builder(_clusterName);
+  private ZkBaseDataAccessor<ZNRecord> _baseAccessor;
+  private ReadAheadDataAccessor _accessor;
+
+  @BeforeClass
+  public void beforeClass() {
+    _baseAccessor = new ZkBaseDataAccessor<>(_gZkClient);
+    for (String resource : Arrays.asList("db0", "db1")) {
+      _baseAccessor.set(getCurrentStateKey(resource).getPath(), new ZNRecord(resource),
+          AccessOption.PERSISTENT);
+    }
+    _baseAccessor.set(_keyBuilder.idealStates("db0").getPath(), new ZNRecord("db0"),
+        AccessOption.PERSISTENT);
+    _accessor = new ReadAheadDataAccessor(_clusterName, _baseAccessor);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    _accessor.shutdown();
+    deleteCluster(_clusterName);
+  }
+
+  @Test
+  public void testReadAhead() throws Exception {
+    List<PropertyKey> statKeys = Arrays.asList(getCurrentStateKey("db0"),
+        getCurrentStateKey("db1"), _keyBuilder.idealStates("db0"));
+
+    // Nothing is read ahead before a refresh recorded its reads
+    _accessor.requestReadAhead();
+    _accessor.beginRefresh();
+    Assert.assertEquals(refresh(statKeys).size(), 3);
+    Assert.assertEquals(_accessor.getBufferedReadCount(), 0L);
+    _accessor.endRefresh();
+
+    // The current states are read ahead once an event is requested, the ideal state is not
+    readAhead(3);
+
+    // The buffered reads of a changed current state are dropped, its parent is not
+    _baseAccessor.set(getCurrentStateKey("db1").getPath(), new ZNRecord("db1"),
+        AccessOption.PERSISTENT);
+    _accessor.invalidate(getCurrentStateKey("db1").getPath());
+    Assert.assertEquals(_accessor.getBufferedPathCount(), 2);
+    _accessor.endPipeline();
+
+    _accessor.beginRefresh();
+    List<HelixProperty.Stat> stats = refresh(statKeys);
+    Assert.assertEquals(_accessor.getBufferedReadCount(), 2L);
+    Assert.assertEquals(stats.get(0).getVersion(), 0);
+    Assert.assertEquals(stats.get(1).getVersion(), 1);
+    Assert.assertEquals(stats.get(2).getVersion(), 0);
+    _accessor.endRefresh();
+
+    // All the buffered reads are dropped if any path may have changed
+    readAhead(3);
+    _accessor.invalidate(null);
+    Assert.assertEquals(_accessor.getBufferedPathCount(), 0);
+    _accessor.endPipeline();
+
+    // Events requested when no pipeline is running are handled right away, and not read ahead
+    _accessor.requestReadAhead();
+    _accessor.beginRefresh();
+    refresh(statKeys);
+    Assert.assertEquals(_accessor.getBufferedReadCount(), 0L);
+    _accessor.endPipeline();
+  }
+
+  @Test(dependsOnMethods = "testReadAhead")
+  public void testMessageFence() throws Exception {
+    List<PropertyKey> statKeys = Arrays.asList(getCurrentStateKey("db0"));
+    PropertyKey messageKey = _keyBuilder.message(INSTANCE, "msg0");
+    _baseAccessor.set(messageKey.getPath(), new ZNRecord("msg0"), AccessOption.PERSISTENT);
+    _accessor.beginRefresh();
+    refresh(statKeys);
+    _accessor.endRefresh();
+
+    // The current states are dropped once a message read ahead before them is gone
+    readAhead(2);
+    _baseAccessor.remove(messageKey.getPath(), AccessOption.PERSISTENT);
+    _accessor.endPipeline();
+    _accessor.beginRefresh();
+    Assert.assertTrue(_accessor.getChildNames(_keyBuilder.messages(INSTANCE)).isEmpty());
+    Assert.assertEquals(_accessor.getBufferedPathCount(), 0);
+    refresh(statKeys);
+    Assert.assertEquals(_accessor.getBufferedReadCount(), 0L);
+    _accessor.endRefresh();
+
+    // The current states are kept if no message is gone
+    readAhead(2);
+    _accessor.endPipeline();
+    _accessor.beginRefresh();
+    _accessor.getChildNames(_keyBuilder.messages(INSTANCE));
+    refresh(statKeys);
+    Assert.assertEquals(_accessor.getBufferedReadCount(), 2L);
+    _accessor.endRefresh();
+
+    // The current states are dropped once the controller sends messages to the instance
+    readAhead(2);
+    Message message = new Message(Message.MessageType.STATE_TRANSITION, "msg1");
+    message.setTgtName(INSTANCE);
+    _accessor.invalidateRecipients(Collections.singletonList(message));
+    Assert.assertEquals(_accessor.getBufferedPathCount(), 0);
+    _accessor.endPipeline();
+  }
+
+  @Test
+  public void testPipelineStages() throws Exception {
+    String clusterName = _clusterName + "_pipeline";
+    _gSetupTool.addCluster(clusterName, true);
+    setupInstances(clusterName, new int[] { 0, 1 });
+    setupLiveInstances(clusterName, new int[] { 0, 1 });
+    PropertyKey.Builder keyBuilder = new PropertyKey.Builder(clusterName);
+    for (int i = 0; i < 2; i++) {
+      _baseAccessor.set(keyBuilder.currentState("localhost_" + i, "session_" + i, "db").getPath(),
+          new ZNRecord("db"), AccessOption.PERSISTENT);
+    }
+
+    ReadAheadDataAccessor accessor = new ReadAheadDataAccessor(clusterName, _baseAccessor);
+    try {
+      ClusterEvent event = new ClusterEvent(clusterName, ClusterEventType.CurrentStateChange);
+      event.addAttribute(AttributeName.helixmanager.name(), new DummyClusterManager(clusterName,
+          new ZKHelixDataAccessor(clusterName, _baseAccessor)));
+      event.addAttribute(AttributeName.ControllerDataProvider.name(),
+          new ResourceControllerDataProvider(clusterName));
+      event.addAttribute(AttributeName.ReadAheadDataAccessor.name(), accessor);
+
+      // The refresh of the data provider reads through the accessor
+      runStage(event, new ReadClusterDataStage());
+      Assert.assertTrue(accessor.getRecordedPathCount() > 0);
+      readAhead(accessor, accessor.getRecordedPathCount());
+      accessor.endPipeline();
+      runStage(event, new ReadClusterDataStage());
+      Assert.assertTrue(accessor.getBufferedReadCount() > 0);
+
+      // The buffered current states of the recipients of the dispatched messages are dropped
+      int recordedPathCount = accessor.getRecordedPathCount();
+      readAhead(accessor, recordedPathCount);
+      Message message = new Message(Message.MessageType.STATE_TRANSITION, "msg0");
+      message.setTgtName("localhost_0");
+      message.setResourceName("db");
+      message.setPartitionName("db_0");
+      MessageOutput messageOutput = new MessageOutput();
+      messageOutput.addMessage("db", new Partition("db_0"), message);
+      Resource resource = new Resource("db");
+      resource.addPartition("db_0");
+      event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(),
+          Collections.singletonMap("db", resource));
+      event.addAttribute(AttributeName.MESSAGES_THROTTLE.name(), messageOutput);
+      runStage(event, new ResourceMessageDispatchStage());
+      int bufferedPathCount = accessor.getBufferedPathCount();
+      Assert.assertTrue(bufferedPathCount > 0 && bufferedPathCount < recordedPathCount);
+      accessor.endPipeline();
+    } finally {
+      accessor.shutdown();
+      deleteCluster(clusterName);
+    }
+  }
+
+  private void readAhead(int bufferedPathCount) throws Exception {
+    readAhead(_accessor, bufferedPathCount);
+  }
+
+  private void readAhead(final ReadAheadDataAccessor accessor, final int bufferedPathCount)
+      throws Exception {
+    accessor.requestReadAhead();
+    Assert.assertTrue(TestHelper.verify(new TestHelper.Verifier() {
+      @Override
+      public boolean verify() {
+        return accessor.getBufferedPathCount() == bufferedPathCount;
+      }
+    }, 10000L));
+  }
+
+  private List<HelixProperty.Stat> refresh(List<PropertyKey> statKeys) {
+    Assert.assertEquals(
+        _accessor.getChildNames(_keyBuilder.currentStates(INSTANCE, SESSION)).size(), 2);
+    return _accessor.getPropertyStats(statKeys);
+  }
+
+  private PropertyKey getCurrentStateKey(String resource) {
+    return _keyBuilder.currentState(INSTANCE, SESSION, resource);
+  }
+}
@@ -431,6 +431,11 @@ public class TestConstraintRebalanceStrategy {
       result.put(resourceName, partitionMap);
     }
 
+    // the weights evaluated by the constraints must not be set to the cached instance configs
+    for (InstanceConfig config : instanceConfigs.values()) {
+      Assert.assertEquals(config.getWeight(), InstanceConfig.WEIGHT_NOT_SET);
+    }
+
     Map<String, Integer> weightCount = checkPartitionUsage(result, new PartitionWeightProvider() {
       @Override
       public int getPartitionWeight(String resource, String partition) {
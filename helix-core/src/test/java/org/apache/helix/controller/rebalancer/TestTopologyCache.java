@@ -0,0 +1,134 @@
+package org.apache.helix.controller.rebalancer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.rebalancer.strategy.CrushEdRebalanceStrategy;
+import org.apache.helix.controller.rebalancer.topology.Topology;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.InstanceConfig;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestTopologyCache {
+  final int nParticipants = 200;
+  final int nZones = 10;
+  final int nResources = 100;
+  final int nPartitions = 64;
+
+  final List<String> instanceNames = new ArrayList<>();
+  final List<String> partitions = new ArrayList<>();
+  final LinkedHashMap<String, Integer> states = new LinkedHashMap<>();
+  ResourceControllerDataProvider cache;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    instanceNames.clear();
+    partitions.clear();
+    for (int i = 0; i < nParticipants; i++) {
+      instanceNames.add("node" + i);
+    }
+    for (int i = 0; i < nPartitions; i++) {
+      partitions.add(Integer.toString(i));
+    }
+    states.put("MASTER", 1);
+    states.put("SLAVE", 2);
+
+    cache = new ResourceControllerDataProvider();
+    ClusterConfig clusterConfig = new ClusterConfig("test");
+    clusterConfig.setTopologyAwareEnabled(true);
+    cache.setClusterConfig(clusterConfig);
+    cache.setInstanceConfigMap(createInstanceConfigs());
+  }
+
+  @Test
+  public void testTopologyReuse() {
+    List<String> liveNodes = instanceNames.subList(0, nParticipants - 1);
+    Topology topology = cache.getTopology(instanceNames, liveNodes);
+    Assert.assertSame(cache.getTopology(new ArrayList<>(instanceNames), new ArrayList<>(liveNodes)),
+        topology);
+    Assert.assertEquals(topology.getFaultZones().size(), nZones);
+
+    // Different live nodes
+    Assert.assertNotSame(cache.getTopology(instanceNames, instanceNames), topology);
+
+    // Instance weight changed in memory
+    InstanceConfig instanceConfig = cache.getInstanceConfigMap().get(instanceNames.get(0));
+    instanceConfig.setWeight(500);
+    Topology weightedTopology = cache.getTopology(instanceNames, liveNodes);
+    Assert.assertNotSame(weightedTopology, topology);
+    Assert.assertSame(cache.getTopology(instanceNames, liveNodes), weightedTopology);
+
+    // Instance configs are replaced
+    cache.setInstanceConfigMap(createInstanceConfigs());
+    Assert.assertNotSame(cache.getTopology(instanceNames, liveNodes), topology);
+  }
+
+  @Test
+  public void testRebalanceWithCachedTopology() {
+    List<String> liveNodes = instanceNames.subList(0, nParticipants - 2);
+
+    Map<String, ZNRecord> uncachedAssignments = new HashMap<>();
+    for (int i = 0; i < nResources; i++) {
+      // Rebuild the topology for every resource, as done before the topology cache
+      cache.clearCachedTopologies();
+      uncachedAssignments.put("resource" + i, computeAssignment("resource" + i, liveNodes));
+    }
+
+    cache.clearCachedTopologies();
+    Topology topology = cache.getTopology(instanceNames, liveNodes);
+    Map<String, ZNRecord> cachedAssignments = new HashMap<>();
+    for (int i = 0; i < nResources; i++) {
+      cachedAssignments.put("resource" + i, computeAssignment("resource" + i, liveNodes));
+    }
+    // All the resources are calculated on the same topology
+    Assert.assertSame(cache.getTopology(instanceNames, liveNodes), topology);
+
+    Assert.assertEquals(cachedAssignments.keySet(), uncachedAssignments.keySet());
+    for (String resource : uncachedAssignments.keySet()) {
+      Assert.assertEquals(cachedAssignments.get(resource).getListFields(),
+          uncachedAssignments.get(resource).getListFields());
+    }
+  }
+
+  private ZNRecord computeAssignment(String resourceName, List<String> liveNodes) {
+    CrushEdRebalanceStrategy strategy = new CrushEdRebalanceStrategy();
+    strategy.init(resourceName, partitions, states, Integer.MAX_VALUE);
+    return strategy.computePartitionAssignment(instanceNames, liveNodes,
+        new HashMap<String, Map<String, String>>(), cache);
+  }
+
+  private Map<String, InstanceConfig> createInstanceConfigs() {
+    Map<String, InstanceConfig> instanceConfigs = new HashMap<>();
+    for (int i = 0; i < nParticipants; i++) {
+      InstanceConfig config = new InstanceConfig(instanceNames.get(i));
+      config.setZoneId("zone" + (i % nZones));
+      instanceConfigs.put(config.getInstanceName(), config);
+    }
+    return instanceConfigs;
+  }
+}
@@ -0,0 +1,94 @@
+package org.apache.helix.controller.rebalancer.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestHierarchicalTimerWheel {
+  private static final long TICK = 10L;
+
+  @Test
+  public void testDeadlinesFireInTheirTick() {
+    long startTime = 1000000L;
+    HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, startTime);
+    Map<String, Long> deadlines = new HashMap<>();
+    Random random = new Random(1234);
+    // Spread the deadlines over several levels of the wheel
+    for (int i = 0; i < 5000; i++) {
+      long deadline = startTime + (long) (random.nextDouble() * random.nextDouble() * 10000000L);
+      wheel.add("resource" + i, deadline);
+      deadlines.put("resource" + i, deadline);
+    }
+    Assert.assertEquals(wheel.size(), deadlines.size());
+
+    long currentTime = startTime;
+    while (!deadlines.isEmpty()) {
+      currentTime += random.nextInt(5000);
+      long tickTime = currentTime / TICK * TICK;
+      for (Map.Entry<String, Long> entry : wheel.advance(currentTime).entrySet()) {
+        Assert.assertEquals(entry.getValue(), deadlines.remove(entry.getKey()));
+        Assert.assertTrue(entry.getValue() <= tickTime);
+      }
+      for (long deadline : deadlines.values()) {
+        Assert.assertTrue(deadline > tickTime);
+      }
+      Assert.assertEquals(wheel.size(), deadlines.size());
+    }
+  }
+
+  @Test
+  public void testReplaceAndRemove() {
+    HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 0L);
+    wheel.add("a", 100L);
+    wheel.add("b", 50000L);
+    wheel.add("b", 200L);
+    wheel.add("c", 300L);
+    Assert.assertEquals(wheel.getDeadline("b"), 200L);
+    Assert.assertEquals(wheel.remove("c"), 300L);
+    Assert.assertEquals(wheel.remove("c"), -1L);
+    Assert.assertEquals(wheel.getDeadline("c"), -1L);
+
+    Assert.assertTrue(wheel.advance(99L).isEmpty());
+    Assert.assertEquals(wheel.advance(100L), singleton("a", 100L));
+    Assert.assertEquals(wheel.advance(1000L), singleton("b", 200L));
+    Assert.assertEquals(wheel.size(), 0);
+  }
+
+  @Test
+  public void testPastDeadlineFiresOnNextAdvance() {
+    HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 1000L);
+    wheel.add("a", 500L);
+    // A deadline in the middle of the current tick is due at the next tick
+    wheel.add("b", 1005L);
+    Assert.assertEquals(wheel.advance(1000L), singleton("a", 500L));
+    Assert.assertTrue(wheel.advance(1009L).isEmpty());
+    Assert.assertEquals(wheel.advance(1010L), singleton("b", 1005L));
+  }
+
+  private static Map<String, Long> singleton(String key, long deadline) {
+    Map<String, Long> map = new HashMap<>();
+    map.put(key, deadline);
+    return map;
+  }
+}
@@ -0,0 +1,79 @@
+package org.apache.helix.controller.rebalancer.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.helix.TestHelper;
+import org.apache.helix.integration.task.TaskTestBase;
+import org.apache.helix.monitoring.mbeans.ClusterEventMonitor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestTimerWheelRebalanceScheduler extends TaskTestBase {
+  private static final long TICK_MS = 100L;
+
+  private final MBeanServer _server = ManagementFactory.getPlatformMBeanServer();
+
+  @Test
+  public void testDueTimersAreBatchedIntoOnePipeline() throws Exception {
+    final TimerWheelRebalanceScheduler scheduler = new TimerWheelRebalanceScheduler(TICK_MS);
+    long taskTimerCount = getTaskTimerPipelineCount();
+
+    // Timers due in the same tick are handled by one task pipeline run
+    long deadline = System.currentTimeMillis() + 1000L;
+    scheduler.scheduleRebalance(_controller, "Resource0", deadline);
+    scheduler.scheduleRebalance(_controller, "Resource1", deadline);
+    scheduler.scheduleRebalance(_controller, "Resource2", deadline);
+    Assert.assertEquals(scheduler.getRebalanceTime("Resource0"), deadline);
+
+    Assert.assertTrue(TestHelper.verify(new TestHelper.Verifier() {
+      @Override
+      public boolean verify() {
+        return scheduler.getRebalanceTime("Resource0") == -1L;
+      }
+    }, 10 * 1000L));
+    final long expectedCount = taskTimerCount + 1;
+    Assert.assertTrue(TestHelper.verify(new TestHelper.Verifier() {
+      @Override
+      public boolean verify() throws Exception {
+        return getTaskTimerPipelineCount() == expectedCount;
+      }
+    }, 10 * 1000L));
+    // Give a second pipeline the chance to show up
+    Thread.sleep(TICK_MS * 5);
+    Assert.assertEquals(getTaskTimerPipelineCount(), expectedCount);
+  }
+
+  /**
+   * The scheduling lag is reported once per task pipeline run with due timers.
+   */
+  private long getTaskTimerPipelineCount() throws JMException {
+    long count = 0;
+    for (ObjectName objectName : _server.queryNames(new ObjectName(String.format(
+        "ClusterStatus:cluster=%s,eventName=ClusterEvent,phaseName=%s,*", CLUSTER_NAME,
+        ClusterEventMonitor.PhaseName.TaskTimerLag.name())), null)) {
+      count += (Long) _server.getAttribute(objectName, "EventCounter");
+    }
+    return count;
+  }
+}
@@ -23,9 +23,11 @@ import java.util.Date;
 import java.util.Map;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.model.BuiltInStateModelDefinitions;
+import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.IdealState.RebalanceMode;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
+import org.testng.Assert;
 import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
 
@@ -71,4 +73,49 @@ public class TestBestPossibleStateCalcStage extends BaseStageTest {
     System.out.println("END TestBestPossibleStateCalcStage at "
         + new Date(System.currentTimeMillis()));
   }
+
+  @Test
+  public void testParallelCalculation() {
+    String[] resources = new String[] {
+        "testResource_0", "testResource_1", "testResource_2", "testResource_3", "testResource_4"
+    };
+    int numPartition = 10;
+    int numReplica = 2;
+
+    setupIdealState(5, resources, numPartition, numReplica, RebalanceMode.SEMI_AUTO,
+        BuiltInStateModelDefinitions.MasterSlave.name());
+    setupLiveInstances(5);
+    setupStateModel();
+
+    Map<String, Resource> resourceMap =
+        getResourceMap(resources, numPartition, BuiltInStateModelDefinitions.MasterSlave.name());
+    BestPossibleStateOutput sequentialOutput = runBestPossibleCalc(resourceMap);
+
+    ClusterConfig clusterConfig = new ClusterConfig(_clusterName);
+    clusterConfig.setBestPossibleCalcParallelism(3);
+    setClusterConfig(clusterConfig);
+    BestPossibleStateOutput parallelOutput = runBestPossibleCalc(resourceMap);
+
+    Assert.assertEquals(parallelOutput.resourceSet(), sequentialOutput.resourceSet());
+    for (String resource : resources) {
+      Assert.assertEquals(parallelOutput.getPartitionStateMap(resource).getStateMap(),
+          sequentialOutput.getPartitionStateMap(resource).getStateMap());
+      Assert.assertEquals(parallelOutput.getPreferenceLists(resource),
+          sequentialOutput.getPreferenceLists(resource));
+    }
+  }
+
+  private BestPossibleStateOutput runBestPossibleCalc(Map<String, Resource> resourceMap) {
+    event = new ClusterEvent(ClusterEventType.Unknown);
+    event.addAttribute(AttributeName.RESOURCES.name(), resourceMap);
+    event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(), resourceMap);
+    event.addAttribute(AttributeName.CURRENT_STATE.name(), new CurrentStateOutput());
+    event.addAttribute(AttributeName.ControllerDataProvider.name(),
+        new ResourceControllerDataProvider());
+
+    runStage(event, new ReadClusterDataStage());
+    BestPossibleStateCalcStage stage = new BestPossibleStateCalcStage();
+    runStage(event, stage);
+    return event.getAttribute(AttributeName.BEST_POSSIBLE_STATE.name());
+  }
 }
@@ -1,17 +1,26 @@
 package org.apache.helix.controller.stages;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.helix.BaseDataAccessor;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixManager;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.TestHelper;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.common.caches.ExternalViewCache;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.controller.pipeline.Pipeline;
 import org.apache.helix.manager.zk.ZKHelixDataAccessor;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.testng.Assert;
+import org.apache.zookeeper.data.Stat;
 import org.testng.annotations.Test;
 
 public class TestExternalViewStage extends ZkUnitTestBase {
@@ -63,4 +72,174 @@ public class TestExternalViewStage extends ZkUnitTestBase {
     }
   }
 
+  @Test
+  public void testIncrementalExternalViews() throws Exception {
+    String clusterName = "CLUSTER_" + TestHelper.getTestMethodName();
+
+    HelixDataAccessor accessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<ZNRecord>(_gZkClient));
+    HelixManager manager = new DummyClusterManager(clusterName, accessor);
+    setupIdealState(clusterName, new int[] {
+        0, 1
+    }, new String[] {
+        "TestDB0", "TestDB1"
+    }, 1, 2);
+    setupLiveInstances(clusterName, new int[] {
+        0, 1
+    });
+    setupStateModel(clusterName);
+    setCurrentState(accessor, "TestDB0", "MASTER");
+    setCurrentState(accessor, "TestDB1", "MASTER");
+
+    ExternalViewComputeStage externalViewComputeStage;
+    System.setProperty(SystemPropertyKeys.CONTROLLER_INCREMENTAL_EXTERNAL_VIEW_ENABLED, "true");
+    System.setProperty(SystemPropertyKeys.CONTROLLER_EXTERNAL_VIEW_FULL_RECONCILE_INTERVAL,
+        "3600000");
+    try {
+      externalViewComputeStage = new ExternalViewComputeStage();
+    } finally {
+      System.clearProperty(SystemPropertyKeys.CONTROLLER_INCREMENTAL_EXTERNAL_VIEW_ENABLED);
+      System.clearProperty(SystemPropertyKeys.CONTROLLER_EXTERNAL_VIEW_FULL_RECONCILE_INTERVAL);
+    }
+    ResourceControllerDataProvider cache = new ResourceControllerDataProvider(clusterName);
+    ClusterStatusMonitor monitor = new ClusterStatusMonitor(clusterName);
+
+    // The first computation is a full one
+    runExternalViewStage(manager, cache, monitor, externalViewComputeStage);
+    Assert.assertEquals(monitor.getExternalViewRecomputedResourceGauge(), 2);
+    Assert.assertEquals(monitor.getExternalViewSkippedResourceGauge(), 0);
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    ExternalView view0 = accessor.getProperty(keyBuilder.externalView("TestDB0"));
+    Assert.assertEquals(view0.getStateMap("TestDB0_0").get("localhost_0"), "MASTER");
+
+    // Nothing changed
+    runExternalViewStage(manager, cache, monitor, externalViewComputeStage);
+    Assert.assertEquals(monitor.getExternalViewRecomputedResourceGauge(), 0);
+    Assert.assertEquals(monitor.getExternalViewSkippedResourceGauge(), 2);
+
+    // Only the view of the resource whose current state changed is computed and written
+    setCurrentState(accessor, "TestDB1", "SLAVE");
+    runExternalViewStage(manager, cache, monitor, externalViewComputeStage);
+    Assert.assertEquals(monitor.getExternalViewRecomputedResourceGauge(), 1);
+    Assert.assertEquals(monitor.getExternalViewSkippedResourceGauge(), 1);
+    ExternalView view1 = accessor.getProperty(keyBuilder.externalView("TestDB1"));
+    Assert.assertEquals(view1.getStateMap("TestDB1_0").get("localhost_0"), "SLAVE");
+    Assert.assertEquals(accessor.getProperty(keyBuilder.externalView("TestDB0")).getStat()
+        .getVersion(), view0.getStat().getVersion());
+    Assert.assertEquals(cache.getExternalViews().get("TestDB1").getRecord(), view1.getRecord());
+  }
+
+  @Test
+  public void testBucketizedExternalViews() throws Exception {
+    String clusterName = "CLUSTER_" + TestHelper.getTestMethodName();
+
+    BaseDataAccessor<ZNRecord> baseAccessor = new ZkBaseDataAccessor<>(_gZkClient);
+    HelixDataAccessor accessor = new ZKHelixDataAccessor(clusterName, baseAccessor);
+    HelixManager manager = new DummyClusterManager(clusterName, accessor);
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    List<IdealState> idealStates = setupIdealState(clusterName, new int[] {
+        0, 1
+    }, new String[] {
+        "TestDB"
+    }, 2, 2);
+    IdealState idealState = idealStates.get(0);
+    idealState.setBucketSize(1);
+    accessor.setProperty(keyBuilder.idealStates("TestDB"), idealState);
+    setupLiveInstances(clusterName, new int[] {
+        0, 1
+    });
+    setupStateModel(clusterName);
+    CurrentState currentState = new CurrentState("TestDB");
+    currentState.setSessionId("session_0");
+    currentState.setStateModelDefRef("MasterSlave");
+    currentState.setState("TestDB_0", "MASTER");
+    currentState.setState("TestDB_1", "MASTER");
+    PropertyKey currentStateKey = keyBuilder.currentState("localhost_0", "session_0", "TestDB");
+    accessor.setProperty(currentStateKey, currentState);
+
+    ExternalViewComputeStage externalViewComputeStage = new ExternalViewComputeStage();
+    ResourceControllerDataProvider cache = new ResourceControllerDataProvider(clusterName);
+    ClusterStatusMonitor monitor = new ClusterStatusMonitor(clusterName);
+    runExternalViewStage(manager, cache, monitor, externalViewComputeStage);
+
+    String evPath = keyBuilder.externalView("TestDB").getPath();
+    Assert.assertEquals(baseAccessor.getChildNames(evPath, 0).size(), 2);
+    Stat bucket0Stat = baseAccessor.getStat(evPath + "/TestDB_p0-p0", 0);
+    Stat bucket1Stat = baseAccessor.getStat(evPath + "/TestDB_p1-p1", 0);
+    final String bucketPathPrefix = evPath + "/";
+    final AtomicInteger bucketReads = new AtomicInteger();
+    HelixDataAccessor spectatorAccessor = new ZKHelixDataAccessor(clusterName,
+        new ZkBaseDataAccessor<ZNRecord>(_gZkClient) {
+          @Override
+          public List<ZNRecord> get(List<String> paths, List<Stat> stats, int options,
+              boolean throwException) {
+            for (String path : paths) {
+              if (path.startsWith(bucketPathPrefix)) {
+                bucketReads.incrementAndGet();
+              }
+            }
+            return super.get(paths, stats, options, throwException);
+          }
+        });
+    ExternalViewCache spectatorCache = new ExternalViewCache(clusterName);
+    spectatorCache.refresh(spectatorAccessor);
+    Assert.assertEquals(spectatorCache.getExternalViewMap().get("TestDB").getRecord(),
+        accessor.getProperty(keyBuilder.externalView("TestDB")).getRecord());
+    Assert.assertEquals(bucketReads.get(), 2);
+
+    // Only the bucket of the changed partition is written
+    currentState.setState("TestDB_1", "SLAVE");
+    accessor.setProperty(currentStateKey, currentState);
+    runExternalViewStage(manager, cache, monitor, externalViewComputeStage);
+    Assert.assertEquals(baseAccessor.getStat(evPath + "/TestDB_p0-p0", 0).getVersion(),
+        bucket0Stat.getVersion());
+    Assert.assertTrue(
+        baseAccessor.getStat(evPath + "/TestDB_p1-p1", 0).getVersion() > bucket1Stat.getVersion());
+
+    // The spectator assembles the view from the cached and the reloaded buckets
+    ExternalView view = accessor.getProperty(keyBuilder.externalView("TestDB"));
+    Assert.assertEquals(view.getStateMap("TestDB_0").get("localhost_0"), "MASTER");
+    Assert.assertEquals(view.getStateMap("TestDB_1").get("localhost_0"), "SLAVE");
+    spectatorCache.refresh(spectatorAccessor);
+    Assert.assertEquals(spectatorCache.getExternalViewMap().get("TestDB").getRecord(),
+        view.getRecord());
+    Assert.assertEquals(bucketReads.get(), 3);
+    Assert.assertEquals(spectatorCache.getExternalViewMap().get("TestDB").getStat(),
+        view.getStat());
+
+    // Dropping the partition removes its bucket
+    currentState.getRecord().getMapFields().remove("TestDB_1");
+    accessor.setProperty(currentStateKey, currentState);
+    runExternalViewStage(manager, cache, monitor, externalViewComputeStage);
+    Assert.assertFalse(baseAccessor.exists(evPath + "/TestDB_p1-p1", 0));
+    spectatorCache.refresh(spectatorAccessor);
+    view = spectatorCache.getExternalViewMap().get("TestDB");
+    Assert.assertNull(view.getStateMap("TestDB_1"));
+    Assert.assertEquals(view.getStateMap("TestDB_0").get("localhost_0"), "MASTER");
+  }
+
+  private void setCurrentState(HelixDataAccessor accessor, String resourceName, String state) {
+    CurrentState currentState = new CurrentState(resourceName);
+    currentState.setSessionId("session_0");
+    currentState.setStateModelDefRef("MasterSlave");
+    currentState.setState(resourceName + "_0", state);
+    accessor.setProperty(
+        accessor.keyBuilder().currentState("localhost_0", "session_0", resourceName),
+        currentState);
+  }
+
+  private void runExternalViewStage(HelixManager manager, ResourceControllerDataProvider cache,
+      ClusterStatusMonitor monitor, ExternalViewComputeStage externalViewComputeStage)
+      throws Exception {
+    ClusterEvent event = new ClusterEvent(ClusterEventType.Unknown);
+    event.addAttribute(AttributeName.helixmanager.name(), manager);
+    event.addAttribute(AttributeName.ControllerDataProvider.name(), cache);
+    event.addAttribute(AttributeName.clusterStatusMonitor.name(), monitor);
+    Pipeline dataRefresh = new Pipeline();
+    dataRefresh.addStage(new ReadClusterDataStage());
+    runPipeline(event, dataRefresh);
+    runStage(event, new ResourceComputationStage());
+    runStage(event, new CurrentStateComputationStage());
+    runStage(event, externalViewComputeStage);
+  }
 }
@@ -19,6 +19,7 @@ package org.apache.helix.controller.stages;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -256,6 +257,81 @@ public class TestIntermediateStateCalcStage extends BaseStageTest {
     }
   }
 
+  @Test
+  public void testParallelCalculation() {
+    int nResource = 6;
+    int nPartition = 4;
+    int nReplica = 3;
+    int recoveryLimit = 5;
+
+    Set<String> resourceSet = new HashSet<>();
+    for (int i = 0; i < nResource; i++) {
+      resourceSet.add("resource_" + i);
+    }
+    preSetup(StateTransitionThrottleConfig.RebalanceType.RECOVERY_BALANCE, resourceSet, nReplica,
+        nReplica);
+    // Throttle the recovery of the cluster, so the result depends on how it is charged
+    StateTransitionThrottleConfig throttleConfig = new StateTransitionThrottleConfig(
+        StateTransitionThrottleConfig.RebalanceType.RECOVERY_BALANCE,
+        StateTransitionThrottleConfig.ThrottleScope.CLUSTER, recoveryLimit);
+    _clusterConfig.setStateTransitionThrottleConfigs(Collections.singletonList(throttleConfig));
+    setClusterConfig(_clusterConfig);
+    event.addAttribute(AttributeName.RESOURCES.name(), getResourceMap(
+        resourceSet.toArray(new String[resourceSet.size()]), nPartition, "OnlineOffline"));
+    event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(), getResourceMap(
+        resourceSet.toArray(new String[resourceSet.size()]), nPartition, "OnlineOffline"));
+
+    BestPossibleStateOutput bestPossibleStateOutput = new BestPossibleStateOutput();
+    CurrentStateOutput currentStateOutput = new CurrentStateOutput();
+    for (String resource : resourceSet) {
+      Map<String, List<String>> partitionMap = new HashMap<>();
+      for (int p = 0; p < nPartition; p++) {
+        Partition partition = new Partition(resource + "_" + p);
+        List<String> preferenceList = new ArrayList<>();
+        for (int r = 0; r < nReplica; r++) {
+          String instanceName = HOSTNAME_PREFIX + r;
+          preferenceList.add(instanceName);
+          bestPossibleStateOutput.setState(resource, partition, instanceName, "ONLINE");
+          // Partitions with more ONLINE replicas are recovered later
+          currentStateOutput.setCurrentState(resource, partition, instanceName,
+              r < p % nReplica ? "ONLINE" : "OFFLINE");
+        }
+        partitionMap.put(partition.getPartitionName(), preferenceList);
+      }
+      bestPossibleStateOutput.setPreferenceLists(resource, partitionMap);
+    }
+    event.addAttribute(AttributeName.BEST_POSSIBLE_STATE.name(), bestPossibleStateOutput);
+    event.addAttribute(AttributeName.CURRENT_STATE.name(), currentStateOutput);
+
+    IntermediateStateOutput sequentialOutput = runIntermediateStateCalc();
+    _clusterConfig.setIntermediateStateCalcParallelism(3);
+    setClusterConfig(_clusterConfig);
+    IntermediateStateOutput parallelOutput = runIntermediateStateCalc();
+
+    int recoveredPartitions = 0;
+    for (String resource : resourceSet) {
+      Map<Partition, Map<String, String>> stateMap =
+          parallelOutput.getPartitionStateMap(resource).getStateMap();
+      Assert.assertEquals(stateMap,
+          sequentialOutput.getPartitionStateMap(resource).getStateMap());
+      for (Map.Entry<Partition, Map<String, String>> entry : stateMap.entrySet()) {
+        if (entry.getValue().equals(bestPossibleStateOutput.getPartitionStateMap(resource)
+            .getPartitionMap(entry.getKey()))) {
+          recoveredPartitions++;
+        }
+      }
+    }
+    Assert.assertEquals(recoveredPartitions, recoveryLimit);
+  }
+
+  private IntermediateStateOutput runIntermediateStateCalc() {
+    event.addAttribute(AttributeName.ControllerDataProvider.name(),
+        new ResourceControllerDataProvider());
+    runStage(event, new ReadClusterDataStage());
+    runStage(event, new IntermediateStateCalcStage());
+    return event.getAttribute(AttributeName.INTERMEDIATE_STATE.name());
+  }
+
   private void preSetup(StateTransitionThrottleConfig.RebalanceType rebalanceType,
       Set<String> resourceSet, int numOfLiveInstances, int numOfReplicas) {
     setupIdealState(numOfLiveInstances, resourceSet.toArray(new String[resourceSet.size()]),
@@ -0,0 +1,128 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.TestHelper;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.stages.resource.ResourceMessageDispatchStage;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.Resource;
+import org.apache.helix.monitoring.mbeans.ClusterEventMonitor;
+import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TestMessageDispatchStage extends ZkUnitTestBase {
+  private static final String RESOURCE = "db";
+  private static final String PARTITION = "db_0";
+
+  private final String _clusterName = TestHelper.getTestClassName();
+  private final MBeanServer _server = ManagementFactory.getPlatformMBeanServer();
+  private HelixDataAccessor _accessor;
+  private ClusterStatusMonitor _clusterStatusMonitor;
+
+  @BeforeClass
+  public void beforeClass() {
+    _gSetupTool.addCluster(_clusterName, true);
+    setupInstances(_clusterName, new int[] { 0 });
+    setupLiveInstances(_clusterName, new int[] { 0 });
+    _accessor = new ZKHelixDataAccessor(_clusterName, new ZkBaseDataAccessor<ZNRecord>(_gZkClient));
+    _clusterStatusMonitor = new ClusterStatusMonitor(_clusterName);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    _clusterStatusMonitor.reset();
+    deleteCluster(_clusterName);
+  }
+
+  @Test
+  public void testNotificationToDispatchReportedOnDispatch() throws Exception {
+    long notificationTime = System.currentTimeMillis();
+    long reportCount = getNotificationToDispatchCount();
+
+    // A pipeline that dispatches no message does not report the metric
+    runStage(createEvent(notificationTime), new ResourceMessageDispatchStage());
+    Assert.assertEquals(getNotificationToDispatchCount(), reportCount);
+
+    // A pipeline that dispatches messages reports it
+    ClusterEvent event = createEvent(notificationTime);
+    addMessage(event, "msg0");
+    runStage(event, new ResourceMessageDispatchStage());
+    Assert.assertEquals(getNotificationToDispatchCount(), reportCount + 1);
+
+    // A pipeline that handles no change notification does not report it
+    event = createEvent(null);
+    addMessage(event, "msg1");
+    runStage(event, new ResourceMessageDispatchStage());
+    Assert.assertEquals(getNotificationToDispatchCount(), reportCount + 1);
+  }
+
+  private ClusterEvent createEvent(Long notificationTime) {
+    ClusterEvent event = new ClusterEvent(_clusterName, ClusterEventType.CurrentStateChange);
+    event.addAttribute(AttributeName.helixmanager.name(),
+        new DummyClusterManager(_clusterName, _accessor));
+    ResourceControllerDataProvider cache = new ResourceControllerDataProvider(_clusterName);
+    cache.refresh(_accessor);
+    event.addAttribute(AttributeName.ControllerDataProvider.name(), cache);
+    event.addAttribute(AttributeName.clusterStatusMonitor.name(), _clusterStatusMonitor);
+    Resource resource = new Resource(RESOURCE);
+    resource.addPartition(PARTITION);
+    event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(),
+        Collections.singletonMap(RESOURCE, resource));
+    event.addAttribute(AttributeName.MESSAGES_THROTTLE.name(), new MessageOutput());
+    if (notificationTime != null) {
+      event.addAttribute(AttributeName.EarliestNotificationTime.name(), notificationTime);
+    }
+    return event;
+  }
+
+  private void addMessage(ClusterEvent event, String msgId) {
+    Message message = new Message(Message.MessageType.STATE_TRANSITION, msgId);
+    message.setTgtName("localhost_0");
+    message.setResourceName(RESOURCE);
+    message.setPartitionName(PARTITION);
+    MessageOutput messageOutput = event.getAttribute(AttributeName.MESSAGES_THROTTLE.name());
+    messageOutput.addMessage(RESOURCE, new Partition(PARTITION), message);
+  }
+
+  private long getNotificationToDispatchCount() throws JMException {
+    long count = 0;
+    for (ObjectName objectName : _server.queryNames(new ObjectName(String.format(
+        "ClusterStatus:cluster=%s,eventName=ClusterEvent,phaseName=%s,*", _clusterName,
+        ClusterEventMonitor.PhaseName.NotificationToDispatch.name())), null)) {
+      count += (Long) _server.getAttribute(objectName, "EventCounter");
+    }
+    return count;
+  }
+}
@@ -0,0 +1,99 @@
+package org.apache.helix.controller.stages.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.Map;
+import org.apache.helix.HelixConstants;
+import org.apache.helix.TestHelper;
+import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
+import org.apache.helix.controller.stages.BestPossibleStateOutput;
+import org.apache.helix.controller.stages.CurrentStateOutput;
+import org.apache.helix.integration.task.TaskTestBase;
+import org.apache.helix.integration.task.TaskTestUtil;
+import org.apache.helix.integration.task.WorkflowGenerator;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.task.JobConfig;
+import org.apache.helix.task.JobQueue;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the selection of the workflows dispatched by the incremental task dispatch
+ */
+public class TestWorkflowDispatchTracker extends TaskTestBase {
+  private final String _idleQueue = TestHelper.getTestClassName() + "_idle";
+  private final String _changedQueue = TestHelper.getTestClassName() + "_changed";
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    super.beforeClass();
+    // Stop the controller for isolated testing of the tracker
+    _controller.syncStop();
+    for (String queue : new String[] { _idleQueue, _changedQueue }) {
+      JobQueue.Builder queueBuilder = TaskTestUtil.buildJobQueue(queue);
+      queueBuilder.enqueueJob("Job", new JobConfig.Builder()
+          .setTargetResource(WorkflowGenerator.DEFAULT_TGT_DB).setCommand("1"));
+      _driver.createQueue(queueBuilder.build());
+    }
+  }
+
+  @Test
+  public void testUnchangedWorkflowsAreSkipped() throws InterruptedException {
+    ZKHelixDataAccessor accessor = new ZKHelixDataAccessor(CLUSTER_NAME, _baseAccessor);
+    WorkflowControllerDataProvider cache = new WorkflowControllerDataProvider(CLUSTER_NAME);
+    cache.refresh(accessor);
+    CurrentStateOutput currentStateOutput = new CurrentStateOutput();
+    WorkflowDispatchTracker tracker = new WorkflowDispatchTracker(3600000L);
+
+    // All the workflows are dispatched in the first pipeline
+    Assert.assertNull(tracker.getWorkflowsToDispatch(cache, currentStateOutput,
+        Collections.<String>emptySet()));
+    recordDispatch(tracker, cache);
+
+    // Nothing changed, so no workflow is dispatched
+    cache.refresh(accessor);
+    Assert.assertEquals(tracker.getWorkflowsToDispatch(cache, currentStateOutput,
+        Collections.<String>emptySet()), Collections.emptySet());
+    recordDispatch(tracker, cache);
+
+    // Only the workflow whose config changed is dispatched
+    _driver.stop(_changedQueue);
+    cache.notifyDataChange(HelixConstants.ChangeType.RESOURCE_CONFIG);
+    cache.refresh(accessor);
+    Assert.assertEquals(tracker.getWorkflowsToDispatch(cache, currentStateOutput,
+        Collections.<String>emptySet()), Collections.singleton(_changedQueue));
+    recordDispatch(tracker, cache);
+
+    // Only the workflow whose timer is due is dispatched
+    cache.refresh(accessor);
+    Assert.assertEquals(tracker.getWorkflowsToDispatch(cache, currentStateOutput,
+        Collections.singleton(_idleQueue)), Collections.singleton(_idleQueue));
+  }
+
+  private void recordDispatch(WorkflowDispatchTracker tracker,
+      WorkflowControllerDataProvider cache) {
+    for (String workflow : cache.getWorkflowConfigMap().keySet()) {
+      Map<String, String> workflowStates = tracker.getWorkflowStates(workflow, cache);
+      tracker.recordDispatch(workflow, workflowStates, cache, new BestPossibleStateOutput());
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package org.apache.helix.integration.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.TestHelper;
+import org.apache.helix.task.JobConfig;
+import org.apache.helix.task.JobQueue;
+import org.apache.helix.task.TaskState;
+import org.apache.helix.task.TaskUtil;
+import org.apache.helix.task.Workflow;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Runs workflows with the incremental dispatch of the task pipeline enabled, and the periodic full
+ * dispatch pushed out of the test, so the workflows only progress on their own changes.
+ */
+public class TestIncrementalTaskDispatch extends TaskTestBase {
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    System.setProperty(SystemPropertyKeys.TASK_INCREMENTAL_DISPATCH_ENABLED, "true");
+    System.setProperty(SystemPropertyKeys.TASK_FULL_DISPATCH_INTERVAL, "3600000");
+    setSingleTestEnvironment();
+    super.beforeClass();
+  }
+
+  @AfterClass
+  public void afterClass() throws Exception {
+    super.afterClass();
+    System.clearProperty(SystemPropertyKeys.TASK_INCREMENTAL_DISPATCH_ENABLED);
+    System.clearProperty(SystemPropertyKeys.TASK_FULL_DISPATCH_INTERVAL);
+  }
+
+  @Test
+  public void testWorkflowsProgressIndependently() throws InterruptedException {
+    // A workflow whose tasks keep running, so it does not change while the other one runs
+    String longWorkflowName = TestHelper.getTestMethodName() + "_long";
+    Map<String, String> longTaskConfig = new HashMap<>(WorkflowGenerator.DEFAULT_COMMAND_CONFIG);
+    longTaskConfig.put(MockTask.JOB_DELAY, "60000");
+    Workflow.Builder longBuilder = new Workflow.Builder(longWorkflowName);
+    longBuilder.addJob("Job",
+        new JobConfig.Builder().setTargetResource(WorkflowGenerator.DEFAULT_TGT_DB)
+            .setCommand(MockTask.TASK_COMMAND).setJobCommandConfigMap(longTaskConfig));
+    _driver.start(longBuilder.build());
+    _driver.pollForJobState(longWorkflowName,
+        TaskUtil.getNamespacedJobName(longWorkflowName, "Job"), TaskState.IN_PROGRESS);
+
+    String workflowName = TestHelper.getTestMethodName();
+    Workflow.Builder builder = new Workflow.Builder(workflowName);
+    JobConfig.Builder jobBuilder =
+        new JobConfig.Builder().setTargetResource(WorkflowGenerator.DEFAULT_TGT_DB)
+            .setCommand(MockTask.TASK_COMMAND).setMaxAttemptsPerTask(2)
+            .setJobCommandConfigMap(WorkflowGenerator.DEFAULT_COMMAND_CONFIG);
+    builder.addParentChildDependency("Job1", "Job2");
+    builder.addParentChildDependency("Job2", "Job3");
+    builder.addJob("Job1", jobBuilder);
+    builder.addJob("Job2", jobBuilder);
+    builder.addJob("Job3", jobBuilder);
+    _driver.start(builder.build());
+    _driver.pollForWorkflowState(workflowName, TaskState.COMPLETED);
+
+    // Stopping the idle workflow is a config change, so it is dispatched again
+    _driver.stop(longWorkflowName);
+    _driver.pollForWorkflowState(longWorkflowName, TaskState.STOPPED);
+    Assert.assertEquals(_driver.getWorkflowContext(longWorkflowName).getJobState(
+        TaskUtil.getNamespacedJobName(longWorkflowName, "Job")), TaskState.STOPPED);
+  }
+
+  @Test
+  public void testDelayedJobIsScheduledOnTimer() throws InterruptedException {
+    // Nothing but the rebalance timer changes once the first job completes
+    String queueName = TestHelper.getTestMethodName();
+    JobQueue.Builder queueBuilder = TaskTestUtil.buildJobQueue(queueName);
+    JobConfig.Builder jobBuilder =
+        new JobConfig.Builder().setTargetResource(WorkflowGenerator.DEFAULT_TGT_DB)
+            .setCommand(MockTask.TASK_COMMAND).setMaxAttemptsPerTask(2)
+            .setJobCommandConfigMap(WorkflowGenerator.DEFAULT_COMMAND_CONFIG);
+    queueBuilder.enqueueJob("Job1", jobBuilder);
+    queueBuilder.enqueueJob("Job2", jobBuilder.setExecutionDelay(2000L));
+    _driver.start(queueBuilder.build());
+    _driver.pollForJobState(queueName, TaskUtil.getNamespacedJobName(queueName, "Job2"),
+        TaskState.COMPLETED);
+
+    long jobOneFinishTime =
+        _driver.getJobContext(TaskUtil.getNamespacedJobName(queueName, "Job1")).getFinishTime();
+    long jobTwoStartTime = _driver.getWorkflowContext(queueName)
+        .getJobStartTime(TaskUtil.getNamespacedJobName(queueName, "Job2"));
+    Assert.assertTrue(jobTwoStartTime - jobOneFinishTime >= 2000L);
+  }
+}
@@ -0,0 +1,143 @@
+package org.apache.helix.manager.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.TestHelper;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.monitoring.mbeans.CurrentStateWriteMonitor;
+import org.apache.helix.monitoring.mbeans.MBeanRegistrar;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.ParticipantMessageMonitor;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class TestCurrentStateWriteCoalescer extends ZkUnitTestBase {
+  private final String _rootPath = TestHelper.getTestClassName();
+  private final MBeanServer _beanServer = ManagementFactory.getPlatformMBeanServer();
+
+  @AfterMethod
+  public void afterMethod() {
+    String path = "/" + _rootPath;
+    if (_gZkClient.exists(path)) {
+      _gZkClient.deleteRecursively(path);
+    }
+  }
+
+  @Test
+  public void testCoalesceConcurrentUpdates() throws Exception {
+    String participantName = TestHelper.getTestMethodName();
+    final String path = String.format("/%s/CURRENTSTATES/session_0/TestDB", _rootPath);
+    final BaseDataAccessor<ZNRecord> accessor = new ZkBaseDataAccessor<>(_gZkClient);
+    CurrentStateWriteMonitor monitor = new CurrentStateWriteMonitor(participantName).register();
+    final CurrentStateWriteCoalescer coalescer = new CurrentStateWriteCoalescer(100L, monitor);
+
+    int numUpdates = 20;
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(numUpdates);
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < numUpdates; i++) {
+      final ZNRecord delta = createDelta("TestDB_" + i, "ONLINE");
+      results.add(executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          start.await();
+          return coalescer.commit(accessor, AccessOption.PERSISTENT, path, delta, true);
+        }
+      }));
+    }
+    start.countDown();
+    for (Future<Boolean> result : results) {
+      Assert.assertTrue(result.get());
+    }
+    executor.shutdown();
+
+    ZNRecord record = _gZkClient.readData(path);
+    Assert.assertEquals(record.getMapFields().size(), numUpdates);
+    ObjectName name = getObjectName(participantName);
+    Assert.assertEquals((long) _beanServer.getAttribute(name, "UpdateCounter"), numUpdates);
+    long writes = (long) _beanServer.getAttribute(name, "WriteCounter");
+    Assert.assertTrue(writes < numUpdates, "Writes: " + writes);
+    Assert.assertTrue((long) _beanServer.getAttribute(name, "UpdatesPerWriteGauge.Max") > 1);
+    Assert.assertEquals((long) _beanServer.getAttribute(name, "ConflictRetryCounter"), 0);
+    monitor.unregister();
+  }
+
+  @Test
+  public void testConflictRetry() throws Exception {
+    String participantName = TestHelper.getTestMethodName();
+    String path = String.format("/%s/CURRENTSTATES/session_0/TestDB", _rootPath);
+    BaseDataAccessor<ZNRecord> accessor = new ZkBaseDataAccessor<>(_gZkClient);
+    CurrentStateWriteMonitor monitor = new CurrentStateWriteMonitor(participantName).register();
+    CurrentStateWriteCoalescer coalescer = new CurrentStateWriteCoalescer(0L, monitor);
+
+    Assert.assertTrue(coalescer.commit(accessor, AccessOption.PERSISTENT, path,
+        createDelta("TestDB_0", "OFFLINE"), true));
+    // Another writer changes the current state behind the last written version
+    ZNRecord record = _gZkClient.readData(path);
+    record.merge(createDelta("TestDB_1", "OFFLINE"));
+    _gZkClient.writeData(path, record);
+
+    Assert.assertTrue(coalescer.commit(accessor, AccessOption.PERSISTENT, path,
+        createDelta("TestDB_0", "ONLINE"), true));
+    record = _gZkClient.readData(path);
+    Assert.assertEquals(record.getMapField("TestDB_0").get("CURRENT_STATE"), "ONLINE");
+    Assert.assertEquals(record.getMapField("TestDB_1").get("CURRENT_STATE"), "OFFLINE");
+
+    ObjectName name = getObjectName(participantName);
+    Assert.assertEquals((long) _beanServer.getAttribute(name, "ConflictRetryCounter"), 1);
+    Assert.assertEquals((long) _beanServer.getAttribute(name, "WriteCounter"), 3);
+
+    // The next write uses the version read on the retry
+    Assert.assertTrue(coalescer.commit(accessor, AccessOption.PERSISTENT, path,
+        createDelta("TestDB_1", "ONLINE"), true));
+    Assert.assertEquals((long) _beanServer.getAttribute(name, "ConflictRetryCounter"), 1);
+    record = _gZkClient.readData(path);
+    Assert.assertEquals(record.getMapField("TestDB_1").get("CURRENT_STATE"), "ONLINE");
+    monitor.unregister();
+  }
+
+  private static ZNRecord createDelta(String partition, String state) {
+    ZNRecord delta = new ZNRecord("TestDB");
+    delta.setMapField(partition, new HashMap<String, String>());
+    delta.getMapField(partition).put("CURRENT_STATE", state);
+    return delta;
+  }
+
+  private static ObjectName getObjectName(String participantName) throws Exception {
+    return MBeanRegistrar.buildObjectName(MonitorDomainNames.CLMParticipantReport.name(),
+        ParticipantMessageMonitor.PARTICIPANT_KEY, participantName, "MonitorType",
+        CurrentStateWriteMonitor.class.getSimpleName());
+  }
+}
@@ -20,6 +20,9 @@ package org.apache.helix.manager.zk;
  */
 
 import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -33,6 +36,7 @@ import org.I0Itec.zkclient.IZkDataListener;
 import org.I0Itec.zkclient.IZkStateListener;
 import org.I0Itec.zkclient.ZkServer;
 import org.apache.helix.HelixException;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.TestHelper;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.ZkUnitTestBase;
@@ -352,4 +356,96 @@ public class TestRawZkClient extends ZkUnitTestBase {
       zkServer.shutdown();
     }
   }
+
+  @Test
+  void testPartitionedEventThread() throws Exception {
+    final String TEST_KEY = "testPartitionedEventThread";
+    final int partitions = 4;
+    final String parentPath = "/" + TestHelper.getTestMethodName();
+
+    ZkClient zkClient;
+    System.setProperty(SystemPropertyKeys.ZK_EVENT_THREAD_PARTITIONS, String.valueOf(partitions));
+    try {
+      ZkClient.Builder builder = new ZkClient.Builder();
+      builder.setZkServer(ZK_ADDR).setMonitorKey(TEST_KEY).setMonitorType(TEST_TAG)
+          .setMonitorRootPathOnly(true);
+      zkClient = builder.build();
+      zkClient.setZkSerializer(new ZNRecordSerializer());
+    } finally {
+      System.clearProperty(SystemPropertyKeys.ZK_EVENT_THREAD_PARTITIONS);
+    }
+
+    // Find two paths that are delivered by different partitions
+    String blockedPath = parentPath + "/node_0";
+    String otherPath = null;
+    for (int i = 1; otherPath == null; i++) {
+      String path = parentPath + "/node_" + i;
+      if ((path.hashCode() & Integer.MAX_VALUE) % partitions
+          != (blockedPath.hashCode() & Integer.MAX_VALUE) % partitions) {
+        otherPath = path;
+      }
+    }
+    zkClient.createPersistent(blockedPath, true);
+    zkClient.createPersistent(otherPath, true);
+
+    final CountDownLatch blockingLatch = new CountDownLatch(1);
+    final CountDownLatch blockedLatch = new CountDownLatch(1);
+    final CountDownLatch otherLatch = new CountDownLatch(1);
+    final List<Object> blockedPathData = new CopyOnWriteArrayList<>();
+    zkClient.subscribeDataChanges(blockedPath, new IZkDataListener() {
+      @Override
+      public void handleDataChange(String dataPath, Object data) throws Exception {
+        blockedPathData.add(data);
+        blockedLatch.countDown();
+        blockingLatch.await(10, TimeUnit.SECONDS);
+      }
+
+      @Override
+      public void handleDataDeleted(String dataPath) throws Exception {
+      }
+    });
+    zkClient.subscribeDataChanges(otherPath, new IZkDataListener() {
+      @Override
+      public void handleDataChange(String dataPath, Object data) throws Exception {
+        otherLatch.countDown();
+      }
+
+      @Override
+      public void handleDataDeleted(String dataPath) throws Exception {
+      }
+    });
+
+    zkClient.writeData(blockedPath, new ZNRecord("0"));
+    Assert.assertTrue(blockedLatch.await(10, TimeUnit.SECONDS));
+    zkClient.writeData(blockedPath, new ZNRecord("1"));
+
+    // The events of the other path are delivered while the blocked path is still being handled
+    zkClient.writeData(otherPath, new ZNRecord("0"));
+    Assert.assertTrue(otherLatch.await(10, TimeUnit.SECONDS));
+
+    MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = MBeanRegistrar
+        .buildObjectName(MonitorDomainNames.HelixZkClient.name(), ZkClientMonitor.MONITOR_TYPE,
+            TEST_TAG, ZkClientMonitor.MONITOR_KEY, TEST_KEY);
+    long pendingCount = 0;
+    for (int i = 0; i < partitions; i++) {
+      pendingCount += (long) beanServer.getAttribute(name, "PendingCallbackGauge.Partition" + i);
+    }
+    Assert.assertEquals(pendingCount, 1);
+    Assert.assertEquals((long) beanServer.getAttribute(name, "PendingCallbackGauge"), 1);
+
+    // The events of the same path are delivered in order
+    blockingLatch.countDown();
+    Assert.assertTrue(TestHelper.verify(new TestHelper.Verifier() {
+      @Override
+      public boolean verify() throws Exception {
+        return blockedPathData.size() == 2;
+      }
+    }, 10000));
+    Assert.assertEquals(((ZNRecord) blockedPathData.get(0)).getId(), "0");
+    Assert.assertEquals(((ZNRecord) blockedPathData.get(1)).getId(), "1");
+
+    zkClient.deleteRecursively(parentPath);
+    zkClient.close();
+  }
 }
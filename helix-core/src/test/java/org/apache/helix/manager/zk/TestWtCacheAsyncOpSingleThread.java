@@ -25,11 +25,13 @@ import java.util.Date;
 import java.util.List;
 import org.I0Itec.zkclient.DataUpdater;
 import org.apache.helix.AccessOption;
+import org.apache.helix.BatchWriteOp;
 import org.apache.helix.PropertyPathBuilder;
 import org.apache.helix.TestHelper;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.ZNRecordUpdater;
 import org.apache.helix.ZkUnitTestBase;
+import org.apache.zookeeper.data.Stat;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -205,4 +207,68 @@ public class TestWtCacheAsyncOpSingleThread extends ZkUnitTestBase {
     System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
 
   }
+
+  @Test
+  public void testBatchWriteZkCacheBaseAccessor() {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+    System.out.println("START " + clusterName + " at " + new Date(System.currentTimeMillis()));
+
+    // init zkCacheDataAccessor
+    String curStatePath = PropertyPathBuilder.instanceCurrentState(clusterName, "localhost_8901");
+    ZkBaseDataAccessor<ZNRecord> baseAccessor = new ZkBaseDataAccessor<ZNRecord>(_gZkClient);
+    baseAccessor.create(curStatePath, null, AccessOption.PERSISTENT);
+    List<String> cachePaths = Arrays.asList(curStatePath);
+    ZkCacheBaseDataAccessor<ZNRecord> accessor =
+        new ZkCacheBaseDataAccessor<ZNRecord>(baseAccessor, null, cachePaths, null);
+
+    // create 10 current states, the first one creating their parent
+    List<String> paths = new ArrayList<String>();
+    List<BatchWriteOp<ZNRecord>> ops = new ArrayList<BatchWriteOp<ZNRecord>>();
+    for (int i = 0; i < 10; i++) {
+      String path = PropertyPathBuilder.instanceCurrentState(clusterName, "localhost_8901",
+          "session_0", "TestDB" + i);
+      paths.add(path);
+      ops.add(BatchWriteOp.create(path, new ZNRecord("TestDB" + i), AccessOption.PERSISTENT));
+    }
+    boolean[] success = accessor.batchWrite(ops);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertTrue(success[i], "Should succeed in create: " + paths.get(i));
+    }
+    boolean ret = TestHelper.verifyZkCache(cachePaths, accessor._wtCache._cache, _gZkClient, false);
+    Assert.assertTrue(ret, "wtCache doesn't match data on Zk");
+
+    // set the current states of even version, which fails for the odd ones after the first
+    ops.clear();
+    for (int i = 0; i < 10; i++) {
+      ops.add(BatchWriteOp.set(paths.get(i), new ZNRecord("TestDB" + i + "_new"), i % 2,
+          AccessOption.PERSISTENT));
+    }
+    success = accessor.batchWrite(ops);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(success[i], i % 2 == 0, "Unexpected set result: " + paths.get(i));
+      Stat stat = new Stat();
+      baseAccessor.get(paths.get(i), stat, 0);
+      Assert.assertEquals(accessor._wtCache._cache.get(paths.get(i)).getStat().getVersion(),
+          stat.getVersion());
+    }
+    ret = TestHelper.verifyZkCache(cachePaths, accessor._wtCache._cache, _gZkClient, false);
+    Assert.assertTrue(ret, "wtCache doesn't match data on Zk");
+
+    // delete the current states
+    ops.clear();
+    for (String path : paths) {
+      ops.add(BatchWriteOp.<ZNRecord>delete(path, -1));
+    }
+    success = accessor.batchWrite(ops);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertTrue(success[i], "Should succeed in delete: " + paths.get(i));
+      Assert.assertFalse(accessor._wtCache._cache.containsKey(paths.get(i)));
+    }
+    ret = TestHelper.verifyZkCache(cachePaths, accessor._wtCache._cache, _gZkClient, false);
+    Assert.assertTrue(ret, "wtCache doesn't match data on Zk");
+
+    System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
+  }
 }
@@ -0,0 +1,129 @@
+package org.apache.helix.manager.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.apache.helix.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZNRecordBinarySerializer {
+  @Test
+  public void basicTest() {
+    ZNRecord record = new ZNRecord("testId");
+    record.setMapField("k1", ImmutableMap.of("a", "b", "c", "d"));
+    record.setMapField("k2", ImmutableMap.of("e", "f", "g", "h"));
+    record.setListField("k3", ImmutableList.of("a", "b", "c", "d"));
+    record.setListField("k4", ImmutableList.of("d", "e", "f", "g"));
+    record.setSimpleField("k5", "a");
+    record.setSimpleField("k6", "\u4e2d\u6587");
+    record.setRawPayload(new byte[] { 1, 2, 3 });
+    ZNRecordBinarySerializer serializer = new ZNRecordBinarySerializer();
+    byte[] data = serializer.serialize(record);
+    Assert.assertTrue(ZNRecordBinarySerializer.isBinaryFormat(data));
+
+    ZNRecord result = (ZNRecord) serializer.deserialize(data);
+    Assert.assertEquals(result, record);
+    Assert.assertEquals(result.getSimpleField("k6"), "\u4e2d\u6587");
+    Assert.assertEquals(result.getRawPayload(), new byte[] { 1, 2, 3 });
+  }
+
+  @Test
+  public void testNullFields() {
+    ZNRecord record = new ZNRecord("testId");
+    record.setMapField("K1", null);
+    record.setListField("k2", null);
+    record.setSimpleField("k3", null);
+    ZNRecordBinarySerializer serializer = new ZNRecordBinarySerializer();
+    ZNRecord result = (ZNRecord) serializer.deserialize(serializer.serialize(record));
+
+    Assert.assertEquals(result, record);
+    Assert.assertNull(result.getMapField("K1"));
+    Assert.assertNull(result.getListField("k2"));
+    Assert.assertNull(result.getSimpleField("k3"));
+    Assert.assertNull(result.getRawPayload());
+  }
+
+  /**
+   * Test that JSON and binary znodes can be read by both the JSON and the binary serializers
+   */
+  @Test
+  public void testFormatDetection() {
+    ZNRecord record = createExternalViewRecord(100);
+    ZNRecordSerializer jsonSerializer = new ZNRecordSerializer();
+    ZNRecordStreamingSerializer streamingSerializer = new ZNRecordStreamingSerializer();
+    ZNRecordBinarySerializer binarySerializer = new ZNRecordBinarySerializer();
+
+    byte[] jsonData = jsonSerializer.serialize(record);
+    byte[] binaryData = binarySerializer.serialize(record);
+    Assert.assertFalse(ZNRecordBinarySerializer.isBinaryFormat(jsonData));
+
+    Assert.assertEquals(binarySerializer.deserialize(jsonData), record);
+    Assert.assertEquals(jsonSerializer.deserialize(binaryData), record);
+    Assert.assertEquals(streamingSerializer.deserialize(binaryData), record);
+
+    record.setSimpleField("enableCompression", "true");
+    byte[] compressedJsonData = jsonSerializer.serialize(record);
+    Assert.assertEquals(binarySerializer.deserialize(compressedJsonData), record);
+  }
+
+  @Test
+  public void testCompression() {
+    ZNRecord record = createExternalViewRecord(10000);
+    ZNRecordSerializer jsonSerializer = new ZNRecordSerializer();
+    ZNRecordBinarySerializer serializer = new ZNRecordBinarySerializer();
+
+    byte[] data = serializer.serialize(record);
+    Assert.assertTrue(data.length < jsonSerializer.serialize(record).length);
+    Assert.assertEquals(serializer.deserialize(data), record);
+
+    record.setSimpleField("enableCompression", "true");
+    byte[] compressedData = serializer.serialize(record);
+    Assert.assertTrue(compressedData.length < data.length);
+    Assert.assertEquals(serializer.deserialize(compressedData), record);
+  }
+
+  @Test
+  public void testCorruptedData() {
+    ZNRecordBinarySerializer serializer = new ZNRecordBinarySerializer();
+    byte[] data = serializer.serialize(createExternalViewRecord(10));
+    byte[] truncated = new byte[data.length / 2];
+    System.arraycopy(data, 0, truncated, 0, truncated.length);
+    Assert.assertNull(serializer.deserialize(truncated));
+  }
+
+  private ZNRecord createExternalViewRecord(int numPartitions) {
+    ZNRecord record = new ZNRecord("TestResource");
+    Random random = new Random();
+    for (int p = 0; p < numPartitions; p++) {
+      Map<String, String> map = new HashMap<>();
+      map.put("host_" + random.nextInt(100), "MASTER");
+      map.put("host_" + random.nextInt(100), "SLAVE");
+      map.put("host_" + random.nextInt(100), "SLAVE");
+      record.setMapField("TestResource_" + p, map);
+    }
+    record.setSimpleField("STATE_MODEL_DEF_REF", "MasterSlave");
+    return record;
+  }
+}
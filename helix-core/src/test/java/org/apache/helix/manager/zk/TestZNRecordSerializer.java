@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -75,6 +76,53 @@ public class TestZNRecordSerializer {
   }
 
 
+  /**
+   * Test that records are written compactly and indented records written by older versions can
+   * still be read
+   */
+  @Test
+  public void testCompactOutput() {
+    ZNRecord record = createZnRecord();
+    ZNRecordSerializer serializer = new ZNRecordSerializer();
+    byte[] data = serializer.serialize(record);
+    Assert.assertFalse(new String(data).contains("\n"));
+    Assert.assertEquals(serializer.deserialize(data), record);
+
+    String indentedJson = "{\n  \"id\" : \"myId\",\n  \"simpleFields\" : {\n    \"k\" : \"v\"\n  },"
+        + "\n  \"listFields\" : {\n  },\n  \"mapFields\" : {\n  }\n}";
+    ZNRecord result = (ZNRecord) serializer.deserialize(indentedJson.getBytes());
+    Assert.assertNotNull(result);
+    Assert.assertEquals(result.getId(), "myId");
+    Assert.assertEquals(result.getSimpleField("k"), "v");
+  }
+
+  @Test
+  public void testConcurrentSerialization() throws ExecutionException, InterruptedException {
+    final ZNRecordSerializer serializer = new ZNRecordSerializer();
+    ExecutorService executorService = Executors.newFixedThreadPool(10);
+    List<Future<ZNRecord>> futures = new ArrayList<>();
+    final List<ZNRecord> records = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      ZNRecord record = new ZNRecord("testId_" + i);
+      record.setSimpleField("k", "v_" + i);
+      record.setListField("k", Collections.nCopies(i, "v"));
+      record.setMapField("k", Collections.singletonMap("k", "v_" + i));
+      records.add(record);
+    }
+    for (final ZNRecord record : records) {
+      futures.add(executorService.submit(new Callable<ZNRecord>() {
+        @Override
+        public ZNRecord call() {
+          return (ZNRecord) serializer.deserialize(serializer.serialize(record));
+        }
+      }));
+    }
+    for (int i = 0; i < records.size(); i++) {
+      Assert.assertEquals(futures.get(i).get(), records.get(i));
+    }
+    executorService.shutdown();
+  }
+
   @Test (enabled = false)
   public void testPerformance() {
     ZNRecord record = createZnRecord();
@@ -91,6 +139,7 @@ public class TestZNRecordSerializer {
     System.out.println("ZNRecordSerializer serialize took " + (System.currentTimeMillis() - start) + " ms");
 
     byte[] data = serializer1.serialize(record);
+    System.out.println("ZNRecordSerializer serialized size " + data.length + " bytes");
     start = System.currentTimeMillis();
     for (int i = 0; i < loop; i++) {
       serializer1.deserialize(data);
@@ -103,6 +152,7 @@ public class TestZNRecordSerializer {
       data = serializer2.serialize(record);
     }
     System.out.println("ZNRecordStreamingSerializer serialize took " + (System.currentTimeMillis() - start) + " ms");
+    System.out.println("ZNRecordStreamingSerializer serialized size " + data.length + " bytes");
 
     start = System.currentTimeMillis();
     for (int i = 0; i < loop; i++) {
@@ -19,19 +19,29 @@ package org.apache.helix.manager.zk;
  * under the License.
  */
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.I0Itec.zkclient.DataUpdater;
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.BatchWriteOp;
 import org.apache.helix.PropertyPathBuilder;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.TestHelper;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.ZNRecordUpdater;
 import org.apache.helix.ZkUnitTestBase;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor.AccessResult;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor.RetCode;
+import org.apache.helix.monitoring.mbeans.MBeanRegistrar;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.ZkClientMonitor;
+import org.apache.helix.monitoring.mbeans.ZkClientPathMonitor;
+import org.apache.helix.util.HelixUtil;
 import org.apache.zookeeper.data.Stat;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -516,4 +526,175 @@ public class TestZkBaseDataAccessor extends ZkUnitTestBase {
         + new Date(System.currentTimeMillis()));
   }
 
+  @Test
+  public void testAsyncBatchGet() throws Exception {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String testName = className + "_" + methodName;
+
+    System.out.println("START " + testName + " at " + new Date(System.currentTimeMillis()));
+
+    String monitorType = "test_batch_read";
+    ZkClient.Builder builder = new ZkClient.Builder();
+    builder.setZkServer(ZK_ADDR).setMonitorKey(testName).setMonitorType(monitorType)
+        .setMonitorRootPathOnly(true);
+    ZkClient zkClient = builder.build();
+    zkClient.setZkSerializer(new ZNRecordSerializer());
+
+    // Limit the in-flight requests below the batch size and deserialize on the worker pool
+    ZkBaseDataAccessor<ZNRecord> accessor;
+    System.setProperty(SystemPropertyKeys.ZK_ASYNC_READ_WINDOW_SIZE, "3");
+    System.setProperty(SystemPropertyKeys.ZK_ASYNC_READ_DESERIALIZER_POOL_SIZE, "2");
+    try {
+      accessor = new ZkBaseDataAccessor<>(zkClient);
+    } finally {
+      System.clearProperty(SystemPropertyKeys.ZK_ASYNC_READ_WINDOW_SIZE);
+      System.clearProperty(SystemPropertyKeys.ZK_ASYNC_READ_DESERIALIZER_POOL_SIZE);
+    }
+
+    List<String> paths = new ArrayList<>();
+    List<ZNRecord> records = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      String msgId = "msg_" + i;
+      paths.add(PropertyPathBuilder.instanceMessage(_rootPath, "host_1", msgId));
+      records.add(new ZNRecord(msgId));
+    }
+    boolean[] success = accessor.createChildren(paths, records, AccessOption.PERSISTENT);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertTrue(success[i]);
+    }
+    // Missing nodes are returned as null
+    paths.add(5, PropertyPathBuilder.instanceMessage(_rootPath, "host_1", "msg_missing"));
+
+    List<Stat> stats = new ArrayList<>();
+    List<ZNRecord> getRecords = accessor.get(paths, stats, 0);
+    Assert.assertEquals(getRecords.size(), 11);
+    Assert.assertEquals(stats.size(), 11);
+    Assert.assertNull(getRecords.get(5));
+    Assert.assertNull(stats.get(5));
+    for (int i = 0; i < 11; i++) {
+      if (i != 5) {
+        String msgId = "msg_" + (i < 5 ? i : i - 1);
+        Assert.assertEquals(getRecords.get(i).getId(), msgId);
+        Assert.assertEquals(stats.get(i).getVersion(), 0);
+      }
+    }
+
+    MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName rootName = MBeanRegistrar
+        .buildObjectName(MonitorDomainNames.HelixZkClient.name(), ZkClientMonitor.MONITOR_TYPE,
+            monitorType, ZkClientMonitor.MONITOR_KEY, testName, ZkClientPathMonitor.MONITOR_PATH,
+            "Root");
+    Assert.assertEquals((long) beanServer.getAttribute(rootName, "ReadBatchSizeGauge.Max"), 11);
+    Assert.assertTrue((long) beanServer.getAttribute(rootName, "ReadBatchLatencyGauge.Max") >= 0);
+
+    zkClient.close();
+    System.out.println("END " + testName + " at " + new Date(System.currentTimeMillis()));
+  }
+
+  @Test
+  public void testBatchWrite() throws Exception {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String testName = className + "_" + methodName;
+
+    System.out.println("START " + testName + " at " + new Date(System.currentTimeMillis()));
+
+    String monitorType = "test_batch_write";
+    ZkClient.Builder builder = new ZkClient.Builder();
+    builder.setZkServer(ZK_ADDR).setMonitorKey(testName).setMonitorType(monitorType)
+        .setMonitorRootPathOnly(true);
+    ZkClient zkClient = builder.build();
+    zkClient.setZkSerializer(new ZNRecordSerializer());
+
+    // Limit the size of a multi-op so the batch is split into chunks
+    ZkBaseDataAccessor<ZNRecord> accessor;
+    System.setProperty(SystemPropertyKeys.ZK_MULTI_MAX_BYTES, "1000");
+    try {
+      accessor = new ZkBaseDataAccessor<>(zkClient);
+    } finally {
+      System.clearProperty(SystemPropertyKeys.ZK_MULTI_MAX_BYTES);
+    }
+
+    String parentPath = PropertyPathBuilder.instanceMessage(_rootPath, "host_1");
+    Assert.assertTrue(accessor.create(parentPath, null, AccessOption.PERSISTENT));
+    List<BatchWriteOp<ZNRecord>> ops = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      String msgId = "msg_" + i;
+      ops.add(BatchWriteOp.create(PropertyPathBuilder.instanceMessage(_rootPath, "host_1", msgId),
+          new ZNRecord(msgId), AccessOption.PERSISTENT));
+    }
+    boolean[] success = accessor.batchWrite(ops);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertTrue(success[i]);
+    }
+    Assert.assertEquals(accessor.getChildNames(parentPath, 0).size(), 10);
+
+    MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName rootName = MBeanRegistrar
+        .buildObjectName(MonitorDomainNames.HelixZkClient.name(), ZkClientMonitor.MONITOR_TYPE,
+            monitorType, ZkClientMonitor.MONITOR_KEY, testName, ZkClientPathMonitor.MONITOR_PATH,
+            "Root");
+    long maxOps = (long) beanServer.getAttribute(rootName, "MultiWriteOpsGauge.Max");
+    Assert.assertTrue(maxOps > 1 && maxOps < 10, "Ops per multi-op: " + maxOps);
+    Assert.assertTrue((long) beanServer.getAttribute(rootName, "MultiWriteLatencyGauge.Max") >= 0);
+
+    // A failed op does not fail the other ops of its chunk
+    String msg0 = PropertyPathBuilder.instanceMessage(_rootPath, "host_1", "msg_0");
+    String msg1 = PropertyPathBuilder.instanceMessage(_rootPath, "host_1", "msg_1");
+    String msg2 = PropertyPathBuilder.instanceMessage(_rootPath, "host_1", "msg_2");
+    String msg3 = PropertyPathBuilder.instanceMessage(_rootPath, "host_1", "msg_3");
+    ops = new ArrayList<>();
+    ops.add(BatchWriteOp.set(msg0, new ZNRecord("msg_0_new"), 0, AccessOption.PERSISTENT));
+    ops.add(BatchWriteOp.set(msg1, new ZNRecord("msg_1_new"), 5, AccessOption.PERSISTENT));
+    ops.add(BatchWriteOp.<ZNRecord>delete(msg2, 0));
+    ops.add(BatchWriteOp.create(msg3, new ZNRecord("msg_3_new"), AccessOption.PERSISTENT));
+    success = accessor.batchWrite(ops);
+    Assert.assertEquals(success, new boolean[] { true, false, true, false });
+    Stat stat = new Stat();
+    Assert.assertEquals(accessor.get(msg0, stat, 0).getId(), "msg_0_new");
+    Assert.assertEquals(stat.getVersion(), 1);
+    Assert.assertEquals(accessor.get(msg1, null, 0).getId(), "msg_1");
+    Assert.assertFalse(accessor.exists(msg2, 0));
+    Assert.assertEquals(accessor.get(msg3, null, 0).getId(), "msg_3");
+
+    // Missing parents are created and missing ZNodes are set or deleted as single writes do
+    String newPath = PropertyPathBuilder.instanceMessage(_rootPath, "host_2", "msg_0");
+    String setPath = PropertyPathBuilder.instanceMessage(_rootPath, "host_3", "msg_0");
+    ops = new ArrayList<>();
+    ops.add(BatchWriteOp.create(newPath, new ZNRecord("msg_0"), AccessOption.PERSISTENT));
+    ops.add(BatchWriteOp.set(setPath, new ZNRecord("msg_0"), -1, AccessOption.PERSISTENT));
+    ops.add(BatchWriteOp.<ZNRecord>delete(msg2, -1));
+    success = accessor.batchWrite(ops);
+    Assert.assertEquals(success, new boolean[] { true, true, true });
+    Assert.assertTrue(accessor.exists(newPath, 0));
+    Assert.assertTrue(accessor.exists(setPath, 0));
+
+    // Sets of any version create the missing ZNodes, and deletes of any version remove the children
+    String upsertPath = PropertyPathBuilder.instanceMessage(_rootPath, "host_1", "msg_upsert");
+    ops = new ArrayList<>();
+    ops.add(BatchWriteOp.set(upsertPath, new ZNRecord("msg_upsert"), -1, AccessOption.PERSISTENT));
+    ops.add(BatchWriteOp.set(msg0, new ZNRecord("msg_0_upsert"), -1, AccessOption.PERSISTENT));
+    ops.add(BatchWriteOp.<ZNRecord>delete(HelixUtil.getZkParentPath(newPath), -1));
+    success = accessor.batchWrite(ops);
+    Assert.assertEquals(success, new boolean[] { true, true, true });
+    Assert.assertEquals(accessor.get(upsertPath, null, 0).getId(), "msg_upsert");
+    Assert.assertEquals(accessor.get(msg0, null, 0).getId(), "msg_0_upsert");
+    Assert.assertFalse(accessor.exists(newPath, 0));
+
+    // After a failed op, the ops depending on the earlier ops of the batch are still written
+    String dependentPath = PropertyPathBuilder.instanceMessage(_rootPath, "host_1", "msg_dep");
+    ops = new ArrayList<>();
+    ops.add(BatchWriteOp.create(msg3, new ZNRecord("msg_3_new"), AccessOption.PERSISTENT));
+    ops.add(BatchWriteOp.create(dependentPath, new ZNRecord("msg_dep"), AccessOption.PERSISTENT));
+    ops.add(BatchWriteOp.set(dependentPath, new ZNRecord("msg_dep_new"), 0,
+        AccessOption.PERSISTENT));
+    ops.add(BatchWriteOp.set(msg1, new ZNRecord("msg_1_new"), 5, AccessOption.PERSISTENT));
+    success = accessor.batchWrite(ops);
+    Assert.assertEquals(success, new boolean[] { false, true, true, false });
+    Assert.assertEquals(accessor.get(dependentPath, null, 0).getId(), "msg_dep_new");
+
+    zkClient.close();
+    System.out.println("END " + testName + " at " + new Date(System.currentTimeMillis()));
+  }
 }
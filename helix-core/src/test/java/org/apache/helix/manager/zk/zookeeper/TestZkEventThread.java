@@ -0,0 +1,157 @@
+package org.apache.helix.manager.zk.zookeeper;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZkEventThread {
+  private static final int PARTITIONS = 4;
+
+  @Test
+  public void testEventsOfSamePathDeliveredInOrder() throws Exception {
+    ZkEventThread eventThread =
+        new ZkEventThread("testEventsOfSamePathDeliveredInOrder", PARTITIONS);
+    eventThread.start();
+    try {
+      int paths = 8;
+      int eventsPerPath = 100;
+      final CountDownLatch deliveredLatch = new CountDownLatch(paths * eventsPerPath);
+      List<List<Integer>> delivered = new ArrayList<>();
+      for (int i = 0; i < paths; i++) {
+        delivered.add(new CopyOnWriteArrayList<Integer>());
+      }
+      for (int seq = 0; seq < eventsPerPath; seq++) {
+        for (int i = 0; i < paths; i++) {
+          eventThread.send(recordingEvent(delivered.get(i), seq, deliveredLatch), "/path_" + i);
+        }
+      }
+
+      Assert.assertTrue(deliveredLatch.await(10, TimeUnit.SECONDS));
+      for (List<Integer> pathDelivered : delivered) {
+        Assert.assertEquals(pathDelivered.size(), eventsPerPath);
+        for (int seq = 0; seq < eventsPerPath; seq++) {
+          Assert.assertEquals(pathDelivered.get(seq).intValue(), seq);
+        }
+      }
+    } finally {
+      eventThread.interrupt();
+    }
+  }
+
+  @Test
+  public void testGlobalEventOrdering() throws Exception {
+    ZkEventThread eventThread = new ZkEventThread("testGlobalEventOrdering", PARTITIONS);
+    eventThread.start();
+    try {
+      final CountDownLatch blockingLatch = new CountDownLatch(1);
+      final CountDownLatch blockedLatch = new CountDownLatch(1);
+      final List<String> delivered = new CopyOnWriteArrayList<>();
+      eventThread.send(new ZkEventThread.ZkEvent("blocking event") {
+        @Override
+        public void run() throws Exception {
+          blockedLatch.countDown();
+          blockingLatch.await(10, TimeUnit.SECONDS);
+          delivered.add("before");
+        }
+      }, "/blocked");
+      Assert.assertTrue(blockedLatch.await(10, TimeUnit.SECONDS));
+
+      final CountDownLatch globalLatch = new CountDownLatch(1);
+      eventThread.send(new ZkEventThread.ZkEvent("global event") {
+        @Override
+        public void run() {
+          delivered.add("global");
+          globalLatch.countDown();
+        }
+      });
+      final CountDownLatch afterLatch = new CountDownLatch(1);
+      eventThread.send(new ZkEventThread.ZkEvent("event after the global event") {
+        @Override
+        public void run() {
+          delivered.add("after");
+          afterLatch.countDown();
+        }
+      }, "/other");
+
+      // The global event waits for the events sent before it on every partition
+      Assert.assertFalse(globalLatch.await(500, TimeUnit.MILLISECONDS));
+      blockingLatch.countDown();
+      Assert.assertTrue(afterLatch.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(delivered, Arrays.asList("before", "global", "after"));
+    } finally {
+      eventThread.interrupt();
+    }
+  }
+
+  @Test
+  public void testTerminatedPartitionFailOver() throws Exception {
+    ZkEventThread eventThread = new ZkEventThread("testTerminatedPartitionFailOver", PARTITIONS);
+    eventThread.start();
+    try {
+      final CountDownLatch interruptedLatch = new CountDownLatch(1);
+      // A listener interrupted while delivering terminates the partition thread
+      eventThread.send(new ZkEventThread.ZkEvent("interrupted event") {
+        @Override
+        public void run() throws Exception {
+          interruptedLatch.countDown();
+          throw new InterruptedException();
+        }
+      }, "/terminated");
+      Assert.assertTrue(interruptedLatch.await(10, TimeUnit.SECONDS));
+
+      // Neither the globally ordered events nor the events of the terminated partition are blocked
+      final CountDownLatch globalLatch = new CountDownLatch(1);
+      eventThread.send(new ZkEventThread.ZkEvent("global event") {
+        @Override
+        public void run() {
+          globalLatch.countDown();
+        }
+      });
+      final CountDownLatch deliveredLatch = new CountDownLatch(2);
+      final List<Integer> delivered = new CopyOnWriteArrayList<>();
+      eventThread.send(recordingEvent(delivered, 0, deliveredLatch), "/terminated");
+      eventThread.send(recordingEvent(delivered, 1, deliveredLatch), "/terminated");
+
+      Assert.assertTrue(globalLatch.await(10, TimeUnit.SECONDS));
+      Assert.assertTrue(deliveredLatch.await(10, TimeUnit.SECONDS));
+      Assert.assertEquals(delivered, Arrays.asList(0, 1));
+    } finally {
+      eventThread.interrupt();
+    }
+  }
+
+  private static ZkEventThread.ZkEvent recordingEvent(final List<Integer> delivered, final int seq,
+      final CountDownLatch deliveredLatch) {
+    return new ZkEventThread.ZkEvent("event " + seq) {
+      @Override
+      public void run() {
+        delivered.add(seq);
+        deliveredLatch.countDown();
+      }
+    };
+  }
+}
@@ -0,0 +1,176 @@
+package org.apache.helix.messaging;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.google.common.collect.ImmutableMap;
+import org.apache.helix.Criteria;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixException;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.TestHelper;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.model.ExternalView;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TestCriteriaEvaluator extends ZkUnitTestBase {
+  private final String _clusterName = CLUSTER_PREFIX + "_" + getShortClassName();
+  private HelixDataAccessor _accessor;
+  private CachedCriteriaEvaluator _cachedEvaluator;
+
+  @BeforeClass
+  public void beforeClass() {
+    _gSetupTool.addCluster(_clusterName, true);
+    _accessor =
+        new ZKHelixDataAccessor(_clusterName, new ZkBaseDataAccessor<ZNRecord>(_gZkClient));
+    setupLiveInstances(_clusterName, new int[] { 0, 1, 2 });
+
+    // localhost_3 is not live
+    ExternalView ev = new ExternalView("TestDB");
+    for (int i = 0; i < 4; i++) {
+      ev.setStateMap("TestDB_" + i,
+          ImmutableMap.of("localhost_" + i, "MASTER", "localhost_" + (i + 1) % 4, "SLAVE"));
+    }
+    _accessor.setProperty(_accessor.keyBuilder().externalView("TestDB"), ev);
+    ev = new ExternalView("MyDB");
+    ev.setStateMap("MyDB_0", ImmutableMap.of("localhost_2", "ONLINE"));
+    _accessor.setProperty(_accessor.keyBuilder().externalView("MyDB"), ev);
+
+    _cachedEvaluator = new CachedCriteriaEvaluator();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    _cachedEvaluator.close();
+    for (String instance : _accessor.getChildNames(_accessor.keyBuilder().liveInstances())) {
+      _accessor.removeProperty(_accessor.keyBuilder().liveInstance(instance));
+    }
+    deleteCluster(_clusterName);
+  }
+
+  @Test
+  public void testEvaluateCriteria() {
+    // The masters of a resource
+    Criteria criteria = createCriteria("%", "TestDB", "%", "MASTER");
+    Set<Map<String, String>> expected = new HashSet<>();
+    for (int i = 0; i < 3; i++) {
+      expected.add(row("localhost_" + i, "TestDB", "TestDB_" + i, "MASTER"));
+    }
+    verifyEvaluation(criteria, expected);
+
+    // The resources of an instance, with the state case insensitive
+    criteria = createCriteria("localhost_2", "%", "", "");
+    expected.clear();
+    expected.add(row("localhost_2", "TestDB", "", ""));
+    expected.add(row("localhost_2", "MyDB", "", ""));
+    verifyEvaluation(criteria, expected);
+
+    criteria = createCriteria("%", "%", "TestDB_3", "slave");
+    expected.clear();
+    expected.add(row("localhost_0", "TestDB", "TestDB_3", "SLAVE"));
+    verifyEvaluation(criteria, expected);
+
+    // All the live instances
+    criteria = createCriteria("%", "", "", "");
+    criteria.setDataSource(Criteria.DataSource.LIVEINSTANCES);
+    expected.clear();
+    for (int i = 0; i < 3; i++) {
+      expected.add(row("localhost_" + i, "", "", ""));
+    }
+    verifyEvaluation(criteria, expected);
+
+    // The records without map fields match any partition and state, and return empty ones
+    criteria = createCriteria("%", "", "%", "%");
+    criteria.setDataSource(Criteria.DataSource.LIVEINSTANCES);
+    verifyEvaluation(criteria, expected);
+
+    criteria = createCriteria("%", "NotExistDB", "%", "");
+    for (CriteriaEvaluator evaluator : new CriteriaEvaluator[] { new CriteriaEvaluator(),
+        _cachedEvaluator }) {
+      try {
+        evaluator.evaluateCriteria(criteria, _accessor);
+        Assert.fail("Evaluating a missing resource should fail");
+      } catch (HelixException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test(dependsOnMethods = "testEvaluateCriteria")
+  public void testCachedEvaluationFollowsChanges() throws Exception {
+    final Criteria criteria = createCriteria("%", "TestDB", "%", "MASTER");
+    Assert.assertEquals(_cachedEvaluator.evaluateCriteria(criteria, _accessor).size(), 3);
+
+    // A new master and a participant going offline are seen through the watches
+    PropertyKey evKey = _accessor.keyBuilder().externalView("TestDB");
+    ExternalView ev = _accessor.getProperty(evKey);
+    ev.setState("TestDB_1", "localhost_2", "MASTER");
+    _accessor.setProperty(evKey, ev);
+    _accessor.removeProperty(_accessor.keyBuilder().liveInstance("localhost_0"));
+
+    final Set<Map<String, String>> expected = new HashSet<>();
+    expected.add(row("localhost_1", "TestDB", "TestDB_1", "MASTER"));
+    expected.add(row("localhost_2", "TestDB", "TestDB_1", "MASTER"));
+    expected.add(row("localhost_2", "TestDB", "TestDB_2", "MASTER"));
+    Assert.assertTrue(TestHelper.verify(new TestHelper.Verifier() {
+      @Override
+      public boolean verify() {
+        return expected
+            .equals(new HashSet<>(_cachedEvaluator.evaluateCriteria(criteria, _accessor)));
+      }
+    }, 10000));
+    verifyEvaluation(criteria, expected);
+  }
+
+  private void verifyEvaluation(Criteria criteria, Set<Map<String, String>> expected) {
+    List<Map<String, String>> result =
+        new CriteriaEvaluator().evaluateCriteria(criteria, _accessor);
+    Assert.assertEquals(result.size(), expected.size());
+    Assert.assertEquals(new HashSet<>(result), expected);
+    Assert.assertEquals(new HashSet<>(_cachedEvaluator.evaluateCriteria(criteria, _accessor)),
+        expected);
+  }
+
+  private static Criteria createCriteria(String instanceName, String resourceName,
+      String partitionName, String partitionState) {
+    Criteria criteria = new Criteria();
+    criteria.setInstanceName(instanceName);
+    criteria.setResource(resourceName);
+    criteria.setPartition(partitionName);
+    criteria.setPartitionState(partitionState);
+    criteria.setDataSource(Criteria.DataSource.EXTERNALVIEW);
+    return criteria;
+  }
+
+  private static Map<String, String> row(String instanceName, String resourceName,
+      String partitionName, String partitionState) {
+    return ImmutableMap.of("instanceName", instanceName, "resourceName", resourceName,
+        "partitionName", partitionName, "partitionState", partitionState);
+  }
+}
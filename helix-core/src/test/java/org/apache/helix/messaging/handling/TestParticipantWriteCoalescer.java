@@ -0,0 +1,103 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Message.MessageType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestParticipantWriteCoalescer extends ZkUnitTestBase {
+  private static final String INSTANCE_NAME = "localhost_12918";
+
+  @Test
+  public void testCoalescedWrites() {
+    String clusterName = CLUSTER_PREFIX + "_" + getShortClassName();
+    _gSetupTool.addCluster(clusterName, true);
+    _gSetupTool.addInstanceToCluster(clusterName, INSTANCE_NAME);
+    ZKHelixDataAccessor accessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<ZNRecord>(_gZkClient));
+    Builder keyBuilder = accessor.keyBuilder();
+
+    // A long interval and a large batch, so nothing is written before the explicit flush
+    ParticipantWriteCoalescer coalescer = new ParticipantWriteCoalescer(60000L, 1000);
+    for (int i = 0; i < 10; i++) {
+      Message message = new Message(MessageType.NO_OP, "msg_" + i);
+      message.setTgtName(INSTANCE_NAME);
+      accessor.setProperty(keyBuilder.message(INSTANCE_NAME, message.getId()), message);
+      coalescer.removeMessage(accessor, message, INSTANCE_NAME);
+    }
+    PropertyKey errorKey =
+        keyBuilder.stateTransitionError(INSTANCE_NAME, "session_0", "TestDB", "TestDB_0");
+    ZNRecord firstError = new ZNRecord("TestDB");
+    firstError.setMapField("error_0", Collections.singletonMap("key", "value_0"));
+    ZNRecord secondError = new ZNRecord("TestDB");
+    secondError.setMapField("error_1", Collections.singletonMap("key", "value_1"));
+    coalescer.updateRecord(accessor, errorKey, firstError);
+    coalescer.updateRecord(accessor, errorKey, secondError);
+
+    Assert.assertEquals(accessor.getChildNames(keyBuilder.messages(INSTANCE_NAME)).size(), 10);
+    Assert.assertNull(accessor.getProperty(errorKey));
+
+    coalescer.flush();
+    Assert.assertTrue(accessor.getChildNames(keyBuilder.messages(INSTANCE_NAME)).isEmpty());
+    ZNRecord error = accessor.getProperty(errorKey).getRecord();
+    Assert.assertEquals(error.getMapField("error_0").get("key"), "value_0");
+    Assert.assertEquals(error.getMapField("error_1").get("key"), "value_1");
+
+    coalescer.shutdown();
+    deleteCluster(clusterName);
+  }
+
+  @Test
+  public void testBatchSizeTriggersFlush() throws Exception {
+    String clusterName = CLUSTER_PREFIX + "_" + getShortClassName() + "_batch";
+    _gSetupTool.addCluster(clusterName, true);
+    _gSetupTool.addInstanceToCluster(clusterName, INSTANCE_NAME);
+    ZKHelixDataAccessor accessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<ZNRecord>(_gZkClient));
+    Builder keyBuilder = accessor.keyBuilder();
+
+    ParticipantWriteCoalescer coalescer = new ParticipantWriteCoalescer(60000L, 5);
+    for (int i = 0; i < 5; i++) {
+      Message message = new Message(MessageType.NO_OP, "msg_" + i);
+      message.setTgtName(INSTANCE_NAME);
+      accessor.setProperty(keyBuilder.message(INSTANCE_NAME, message.getId()), message);
+      coalescer.removeMessage(accessor, message, INSTANCE_NAME);
+    }
+
+    long deadline = System.currentTimeMillis() + 10000L;
+    while (!accessor.getChildNames(keyBuilder.messages(INSTANCE_NAME)).isEmpty()
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50L);
+    }
+    Assert.assertTrue(accessor.getChildNames(keyBuilder.messages(INSTANCE_NAME)).isEmpty());
+
+    coalescer.shutdown();
+    deleteCluster(clusterName);
+  }
+}
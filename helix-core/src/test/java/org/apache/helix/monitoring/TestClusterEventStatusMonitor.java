@@ -68,6 +68,11 @@ public class TestClusterEventStatusMonitor {
         _server.queryMBeans(new ObjectName("ClusterStatus:Cluster=TestCluster,eventName=ClusterEvent,*"), null);
     Assert.assertEquals(mbeans.size(), 0);
 
+    // The phase that is not reported by every pipeline is registered on activation
+    mbeans = _server.queryMBeans(
+        new ObjectName("ClusterStatus:cluster=TestCluster,eventName=ClusterEvent,*"), null);
+    Assert.assertEquals(mbeans.size(), 1);
+
     // Customize event monitors for testing
     try {
       this.addTestEventMonitor(monitor, ClusterEventMonitor.PhaseName.Callback.name());
@@ -76,6 +81,7 @@ public class TestClusterEventStatusMonitor {
       this.addTestEventMonitor(monitor, ReadClusterDataStage.class.getSimpleName());
       this.addTestEventMonitor(monitor, IntermediateStateCalcStage.class.getSimpleName());
       this.addTestEventMonitor(monitor, ResourceMessageDispatchStage.class.getSimpleName());
+      this.addTestEventMonitor(monitor, ClusterEventMonitor.PhaseName.NotificationToDispatch.name());
     } catch (JMException jme) {
       Assert.assertTrue(false, "Failed to customize event monitors");
     }
@@ -89,13 +95,15 @@ public class TestClusterEventStatusMonitor {
       monitor.updateClusterEventDuration(ReadClusterDataStage.class.getSimpleName(), 100 * i);
       monitor.updateClusterEventDuration(IntermediateStateCalcStage.class.getSimpleName(), 100 * i);
       monitor.updateClusterEventDuration(ResourceMessageDispatchStage.class.getSimpleName(), 100 * i);
+      monitor.updateClusterEventDuration(
+          ClusterEventMonitor.PhaseName.NotificationToDispatch.name(), 100 * i);
       totalDuration += 100 * i;
     }
 
     mbeans =
         _server.queryMBeans(
             new ObjectName("ClusterStatus:cluster=TestCluster,eventName=ClusterEvent,*"), null);
-    Assert.assertEquals(mbeans.size(), 6);
+    Assert.assertEquals(mbeans.size(), 7);
 
     for (ObjectInstance mbean : mbeans) {
       Long duration = (Long) _server.getAttribute(mbean.getObjectName(), "TotalDurationCounter");
@@ -150,6 +158,9 @@ public class TestClusterEventStatusMonitor {
   private void addTestEventMonitor(ClusterStatusMonitorForTest monitor, String phaseName) throws
       JMException {
     ConcurrentHashMap<String, ClusterEventMonitor> monitors = monitor.getClusterEventMonitors();
+    if (monitors.containsKey(phaseName)) {
+      monitors.remove(phaseName).unregister();
+    }
     ClusterEventMonitor eventMonitor = new ClusterEventMonitor(monitor, phaseName,
         TEST_SLIDING_WINDOW_MS);
     eventMonitor.register();
@@ -86,6 +86,9 @@ public class TestHelixCallbackMonitor {
     Assert.assertEquals((long) _beanServer.getAttribute(name, "Counter"), 1);
     Assert.assertEquals((long) _beanServer.getAttribute(name, "LatencyCounter"), 1000L);
     Assert.assertEquals((long) _beanServer.getAttribute(name, "LatencyGauge.Max"), 1000L);
+
+    monitor.recordQueueWaitTime(300L);
+    Assert.assertEquals((long) _beanServer.getAttribute(name, "QueueWaitTimeGauge.Max"), 300L);
     monitor.unregister();
   }
 }
@@ -97,6 +97,12 @@ public class TestRoutingTableProviderMonitor {
     Assert.assertTrue(newLatency >= latency);
     Assert.assertEquals((long) _beanServer.getAttribute(name, "DataRefreshCounter"), 2);
 
+    Assert.assertEquals((long) _beanServer.getAttribute(name, "RoutingTableUpdateLatencyGauge.Max"),
+        0);
+    monitor.recordRoutingTableUpdateLatency(20);
+    Assert.assertEquals((long) _beanServer.getAttribute(name, "RoutingTableUpdateLatencyGauge.Max"),
+        20);
+
     monitor.unregister();
   }
 
@@ -0,0 +1,239 @@
+package org.apache.helix.monitoring.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.TestHelper;
+import org.apache.helix.controller.stages.BestPossibleStateOutput;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.Resource;
+import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
+import org.apache.helix.monitoring.mbeans.MonitorLevel;
+import org.apache.helix.tools.StateModelConfigGenerator;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestMetricsExporter {
+  private static final MBeanServer _server = ManagementFactory.getPlatformMBeanServer();
+  private static final String TEST_DB = "TestDB";
+
+  @Test
+  public void testMetricsWriter() throws Exception {
+    MetricsWriter writer = new MetricsWriter();
+    writer.gauge("ClusterStatus_PartitionGauge",
+        ImmutableMap.of("resourceName", "db\"1\\", "cluster", "c1"), 3L);
+    writer.gauge("ClusterEvent.Duration.Pct95th", Collections.<String, String>emptyMap(), 1.5);
+    writer.gauge("ClusterStatus_PartitionGauge", ImmutableMap.of("cluster", "c2"), 4);
+    writer.gauge("ClusterStatus_Skipped", null, null);
+    writer.counter("ClusterEvent_Events", null, 5L);
+    writer.metric("ClusterEvent_EventCounter", null, 6L);
+
+    StringWriter out = new StringWriter();
+    writer.writeTo(out);
+    Assert.assertEquals(out.toString(),
+        "# TYPE ClusterEvent_Duration_Pct95th gauge\n"
+            + "ClusterEvent_Duration_Pct95th 1.5\n"
+            + "# TYPE ClusterEvent_EventCounter counter\n"
+            + "ClusterEvent_EventCounter 6\n"
+            + "# TYPE ClusterEvent_Events counter\n"
+            + "ClusterEvent_Events 5\n"
+            + "# TYPE ClusterStatus_PartitionGauge gauge\n"
+            + "ClusterStatus_PartitionGauge{cluster=\"c1\",resourceName=\"db\\\"1\\\\\"} 3\n"
+            + "ClusterStatus_PartitionGauge{cluster=\"c2\"} 4\n");
+  }
+
+  @Test
+  public void testGaugeTable() throws Exception {
+    GaugeTable table = new GaugeTable("Test", Arrays.asList("cluster", "instanceName"),
+        Arrays.asList("FooGauge", "BarGauge"));
+    table.setRow(Arrays.asList("c", "i1"), 1L, 2L);
+    table.setRow(Arrays.asList("c", "i2"), 3L, 4L);
+    table.setRow(Arrays.asList("c", "i1"), 5L, 6L);
+    Assert.assertEquals(table.size(), 2);
+    Assert.assertEquals(table.getRow(Arrays.asList("c", "i1")), new long[] { 5L, 6L });
+
+    table.retainRows(Collections.singleton(Arrays.asList("c", "i2")));
+    Assert.assertEquals(table.size(), 1);
+    Assert.assertNull(table.getRow(Arrays.asList("c", "i1")));
+
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.register(table);
+    Assert.assertEquals(scrape(registry),
+        "# TYPE Test_BarGauge gauge\nTest_BarGauge{cluster=\"c\",instanceName=\"i2\"} 4\n"
+            + "# TYPE Test_FooGauge gauge\nTest_FooGauge{cluster=\"c\",instanceName=\"i2\"} 3\n");
+
+    registry.unregister(table);
+    Assert.assertEquals(scrape(registry), "");
+  }
+
+  @Test
+  public void testAggregatedOnlyMBeans() throws Exception {
+    String clusterName = TestHelper.getTestClassName() + "_" + TestHelper.getTestMethodName();
+    System.setProperty(SystemPropertyKeys.MBEAN_MONITOR_LEVEL, MonitorLevel.AGGREGATED_ONLY.name());
+    try {
+      MetricsRegistry registry = new MetricsRegistry();
+      ClusterStatusMonitor monitor = new ClusterStatusMonitor(clusterName, registry);
+      monitor.active();
+
+      Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
+      for (String instance : Arrays.asList("localhost_12918", "localhost_12919")) {
+        instanceConfigMap.put(instance, new InstanceConfig(instance));
+      }
+      monitor.setClusterInstanceStatus(instanceConfigMap.keySet(), instanceConfigMap.keySet(),
+          Collections.<String>emptySet(),
+          Collections.<String, Map<String, List<String>>>emptyMap(),
+          Collections.<String, List<String>>emptyMap(),
+          Collections.<String, Set<String>>emptyMap());
+
+      setPerInstanceResourceStatus(monitor, instanceConfigMap);
+
+      monitor.updateRebalancerStats(TEST_DB, 1L, 0L, 0L, 0L);
+      monitor.retainResourceMonitor(Sets.newHashSet(TEST_DB));
+      monitor.updateClusterEventDuration("Callback", 10L);
+
+      // Only the cluster and the Callback and NotificationToDispatch event MBeans are registered
+      Assert.assertTrue(_server.isRegistered(monitor.getObjectName(monitor.clusterBeanName())));
+      Set<ObjectName> objectNames =
+          _server.queryNames(monitor.getObjectName(monitor.clusterBeanName() + ",*"), null);
+      Assert.assertEquals(objectNames.size(), 3);
+      for (ObjectName objectName : objectNames) {
+        Assert.assertNull(objectName.getKeyProperty(ClusterStatusMonitor.RESOURCE_DN_KEY));
+        Assert.assertNull(objectName.getKeyProperty("instanceName"));
+      }
+
+      // All of them are served by the registry
+      String metrics = scrape(registry);
+      String cluster = "cluster=\"" + clusterName + "\"";
+      Assert.assertTrue(
+          metrics.contains("ClusterStatus_Cluster_InstancesGauge{" + cluster + "} 2\n"));
+      Assert.assertTrue(metrics.contains(
+          "ClusterStatus_Instance_Online{" + cluster + ",instanceName=\"localhost_12918\"} 1\n"));
+      Assert.assertTrue(metrics.contains("ClusterStatus_PerInstanceResource_PartitionGauge{"
+          + cluster + ",instanceName=\"localhost_12918\",resourceName=\"TestDB\"} 1\n"));
+      Assert.assertTrue(metrics.contains("ClusterStatus_PerInstanceResource_PartitionGauge{"
+          + cluster + ",instanceName=\"localhost_12919\",resourceName=\"TestDB\"} 0\n"));
+      Assert.assertTrue(metrics.contains(
+          "ClusterStatus_Resource_PendingRecoveryRebalancePartitionGauge{" + cluster
+              + ",resourceName=\"TestDB\"} 1\n"));
+      Assert.assertTrue(
+          metrics.contains("# TYPE ClusterStatus_ClusterEvent_TotalDurationCounter counter\n"));
+      Assert.assertTrue(metrics.contains("ClusterStatus_ClusterEvent_TotalDurationCounter{"
+          + cluster + ",eventName=\"ClusterEvent\",phaseName=\"Callback\"} 10\n"));
+
+      monitor.reset();
+      Assert.assertFalse(_server.isRegistered(monitor.getObjectName(monitor.clusterBeanName())));
+      Assert.assertEquals(scrape(registry), "");
+    } finally {
+      System.clearProperty(SystemPropertyKeys.MBEAN_MONITOR_LEVEL);
+    }
+  }
+
+  @Test
+  public void testAggregatedOnlyMBeansWithoutExporter() throws Exception {
+    String clusterName = TestHelper.getTestClassName() + "_" + TestHelper.getTestMethodName();
+    System.setProperty(SystemPropertyKeys.MBEAN_MONITOR_LEVEL, MonitorLevel.AGGREGATED_ONLY.name());
+    try {
+      ClusterStatusMonitor monitor = new ClusterStatusMonitor(clusterName, null);
+      monitor.active();
+      setPerInstanceResourceStatus(monitor,
+          Collections.singletonMap("localhost_12918", new InstanceConfig("localhost_12918")));
+
+      // The gauges are not kept, since nothing scrapes them
+      MetricsWriter writer = new MetricsWriter();
+      monitor.collect(writer);
+      StringWriter out = new StringWriter();
+      writer.writeTo(out);
+      Assert.assertFalse(out.toString().contains("PerInstanceResource"));
+      monitor.reset();
+    } finally {
+      System.clearProperty(SystemPropertyKeys.MBEAN_MONITOR_LEVEL);
+    }
+  }
+
+  @Test
+  public void testHttpScrape() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    GaugeTable table =
+        new GaugeTable("Test", Arrays.asList("cluster"), Arrays.asList("FooGauge"));
+    table.setRow(Arrays.asList("c"), 7L);
+    registry.register(table);
+
+    MetricsHttpServer server =
+        new MetricsHttpServer(registry, new InetSocketAddress("localhost", 0));
+    server.start();
+    try {
+      URL url = new URL(
+          "http://localhost:" + server.getPort() + MetricsHttpServer.METRICS_PATH);
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      Assert.assertEquals(connection.getResponseCode(), 200);
+      Assert.assertEquals(connection.getContentType(), MetricsHttpServer.CONTENT_TYPE);
+      try (InputStream in = connection.getInputStream();
+          Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name()).useDelimiter("\\A")) {
+        Assert.assertEquals(scanner.next(),
+            "# TYPE Test_FooGauge gauge\nTest_FooGauge{cluster=\"c\"} 7\n");
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+  private static void setPerInstanceResourceStatus(ClusterStatusMonitor monitor,
+      Map<String, InstanceConfig> instanceConfigMap) {
+    BestPossibleStateOutput bestPossibleStates = new BestPossibleStateOutput();
+    bestPossibleStates.setState(TEST_DB, new Partition(TEST_DB + "_0"), "localhost_12918",
+        "MASTER");
+    bestPossibleStates.setState(TEST_DB, new Partition(TEST_DB + "_0"), "localhost_12919",
+        "OFFLINE");
+    Resource db = new Resource(TEST_DB);
+    db.setStateModelDefRef("MasterSlave");
+    StateModelDefinition stateModelDef =
+        new StateModelDefinition(StateModelConfigGenerator.generateConfigForMasterSlave());
+    monitor.setPerInstanceResourceStatus(bestPossibleStates, instanceConfigMap,
+        Collections.singletonMap(TEST_DB, db),
+        Collections.singletonMap("MasterSlave", stateModelDef));
+  }
+
+  private static String scrape(MetricsRegistry registry) throws Exception {
+    StringWriter out = new StringWriter();
+    registry.scrape(out);
+    return out.toString();
+  }
+}
@@ -118,4 +118,28 @@ public class TestStateModelParser {
     Assert.assertEquals(method.getName(), "onBecomeDroppedFromError");
 
   }
+
+  @Test
+  public void testCachedTransitionMethod() {
+    StateModelParser parser = new StateModelParser();
+    Class<?>[] paramTypes = new Class[] {
+        Message.class, NotificationContext.class
+    };
+
+    Method method = parser.getMethodForTransition(DerivedStateModelUsingAnnotation.class,
+        "offline", "slave", paramTypes);
+    Assert.assertEquals(method.getName(), "derivedOnBecomeSlaveFromOffline");
+    // A new parser is served from the same cache
+    Assert.assertSame(new StateModelParser().getMethodForTransition(
+        DerivedStateModelUsingAnnotation.class, "offline", "slave", paramTypes), method);
+    // Cached per class
+    Assert.assertEquals(parser.getMethodForTransition(StateModelUsingAnnotation.class, "offline",
+        "slave", paramTypes).getName(), "onBecomeSlaveFromOffline");
+
+    // Missing transitions are cached as well
+    Assert.assertNull(parser.getMethodForTransition(StateModelUsingNameConvention.class, "slave",
+        "master", paramTypes));
+    Assert.assertNull(parser.getMethodForTransition(StateModelUsingNameConvention.class, "slave",
+        "master", paramTypes));
+  }
 }
@@ -0,0 +1,249 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestIncrementalRoutingTable {
+  private static final String[] STATES = new String[] {
+      "MASTER", "SLAVE", "OFFLINE"
+  };
+  private static final int NUM_INSTANCES = 4;
+  private static final int NUM_PARTITIONS = 6;
+
+  private List<InstanceConfig> _instanceConfigs;
+  private List<LiveInstance> _liveInstances;
+
+  @BeforeMethod
+  public void setup() {
+    _instanceConfigs = new ArrayList<>();
+    _liveInstances = new ArrayList<>();
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      String instanceName = "localhost_" + (12918 + i);
+      InstanceConfig config = new InstanceConfig(instanceName);
+      config.setHostName("localhost");
+      config.setPort(String.valueOf(12918 + i));
+      _instanceConfigs.add(config);
+      LiveInstance liveInstance = new LiveInstance(instanceName);
+      liveInstance.setSessionId("session_" + i);
+      _liveInstances.add(liveInstance);
+    }
+  }
+
+  @Test
+  public void testExternalViewUpdate() {
+    Map<String, ExternalView> externalViews = new HashMap<>();
+    for (int i = 0; i < 3; i++) {
+      ExternalView externalView = createExternalView("TestDB_" + i, 0);
+      externalViews.put(externalView.getResourceName(), externalView);
+    }
+    RoutingTable base = new RoutingTable(externalViews.values(), _instanceConfigs, _liveInstances);
+
+    // Change one resource, drop one and add a new one
+    Map<String, ExternalView> newExternalViews = new HashMap<>(externalViews);
+    newExternalViews.put("TestDB_0", createExternalView("TestDB_0", 1));
+    newExternalViews.remove("TestDB_1");
+    newExternalViews.put("TestDB_3", createExternalView("TestDB_3", 2));
+
+    RoutingTable incremental = new RoutingTable(base, newExternalViews.values());
+    RoutingTable full =
+        new RoutingTable(newExternalViews.values(), _instanceConfigs, _liveInstances);
+    verifyRoutingTables(incremental, full, newExternalViews.keySet(), false);
+
+    // The base table is not modified
+    verifyRoutingTables(base,
+        new RoutingTable(externalViews.values(), _instanceConfigs, _liveInstances),
+        externalViews.keySet(), false);
+    // Unchanged resources are shared
+    Assert.assertSame(incremental.get("TestDB_2"), base.get("TestDB_2"));
+    Assert.assertNull(incremental.get("TestDB_1"));
+  }
+
+  @Test
+  public void testResourceGroupUpdate() {
+    Map<String, ExternalView> externalViews = new HashMap<>();
+    for (int i = 0; i < 3; i++) {
+      ExternalView externalView = createExternalView("TestDB_" + i, 0);
+      setResourceGroup(externalView, "TestGroup", "tag_" + i);
+      externalViews.put(externalView.getResourceName(), externalView);
+    }
+    RoutingTable base = new RoutingTable(externalViews.values(), _instanceConfigs, _liveInstances);
+
+    Map<String, ExternalView> newExternalViews = new HashMap<>(externalViews);
+    ExternalView changedView = createExternalView("TestDB_0", 1);
+    setResourceGroup(changedView, "TestGroup", "tag_0");
+    newExternalViews.put("TestDB_0", changedView);
+    newExternalViews.remove("TestDB_2");
+
+    RoutingTable incremental = new RoutingTable(base, newExternalViews.values());
+    RoutingTable full =
+        new RoutingTable(newExternalViews.values(), _instanceConfigs, _liveInstances);
+    verifyRoutingTables(incremental, full, newExternalViews.keySet(), true);
+
+    // Removing all the resources of a group removes the group
+    newExternalViews.clear();
+    RoutingTable empty = new RoutingTable(incremental, newExternalViews.values());
+    Assert.assertNull(empty.getResourceGroup("TestGroup"));
+    Assert.assertTrue(empty.getResources().isEmpty());
+  }
+
+  @Test
+  public void testCurrentStateUpdate() {
+    Map<String, Map<String, Map<String, CurrentState>>> currentStateMap = new HashMap<>();
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      LiveInstance liveInstance = _liveInstances.get(i);
+      Map<String, CurrentState> currentStates = new HashMap<>();
+      for (int r = 0; r < 3; r++) {
+        String resourceName = "TestDB_" + r;
+        currentStates.put(resourceName, createCurrentState(resourceName, liveInstance, i));
+      }
+      Map<String, Map<String, CurrentState>> sessionMap = new HashMap<>();
+      sessionMap.put(liveInstance.getSessionId(), currentStates);
+      currentStateMap.put(liveInstance.getInstanceName(), sessionMap);
+    }
+    RoutingTable base = new RoutingTable(currentStateMap, _instanceConfigs, _liveInstances);
+
+    // Update a resource on one instance and drop another resource from a different instance
+    Map<String, Map<String, Map<String, CurrentState>>> newCurrentStateMap =
+        copyCurrentStateMap(currentStateMap);
+    LiveInstance liveInstance = _liveInstances.get(0);
+    newCurrentStateMap.get(liveInstance.getInstanceName()).get(liveInstance.getSessionId())
+        .put("TestDB_0", createCurrentState("TestDB_0", liveInstance, 2));
+    liveInstance = _liveInstances.get(1);
+    newCurrentStateMap.get(liveInstance.getInstanceName()).get(liveInstance.getSessionId())
+        .remove("TestDB_1");
+
+    RoutingTable incremental = new RoutingTable(base, newCurrentStateMap);
+    RoutingTable full = new RoutingTable(newCurrentStateMap, _instanceConfigs, _liveInstances);
+    verifyRoutingTables(incremental, full, new HashSet<>(full.getResources()), false);
+    Assert.assertSame(incremental.get("TestDB_2"), base.get("TestDB_2"));
+  }
+
+  @Test
+  public void testSameInstances() {
+    RoutingTable table =
+        new RoutingTable(new ArrayList<ExternalView>(), _instanceConfigs, _liveInstances);
+    Map<String, LiveInstance> liveInstanceMap = new HashMap<>();
+    for (LiveInstance liveInstance : _liveInstances) {
+      liveInstanceMap.put(liveInstance.getInstanceName(), liveInstance);
+    }
+    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
+    for (InstanceConfig config : _instanceConfigs) {
+      instanceConfigMap.put(config.getInstanceName(), config);
+    }
+    Assert.assertTrue(table.hasSameInstances(liveInstanceMap, instanceConfigMap));
+
+    // A reloaded instance config is considered as changed
+    InstanceConfig config = _instanceConfigs.get(0);
+    instanceConfigMap.put(config.getInstanceName(), new InstanceConfig(config.getRecord()));
+    Assert.assertFalse(table.hasSameInstances(liveInstanceMap, instanceConfigMap));
+    instanceConfigMap.put(config.getInstanceName(), config);
+
+    liveInstanceMap.remove(_liveInstances.get(0).getInstanceName());
+    Assert.assertFalse(table.hasSameInstances(liveInstanceMap, instanceConfigMap));
+  }
+
+  private ExternalView createExternalView(String resourceName, int offset) {
+    ExternalView externalView = new ExternalView(resourceName);
+    for (int p = 0; p < NUM_PARTITIONS; p++) {
+      for (int i = 0; i < NUM_INSTANCES; i++) {
+        externalView.setState(resourceName + "_" + p, _instanceConfigs.get(i).getInstanceName(),
+            STATES[(p + i + offset) % STATES.length]);
+      }
+    }
+    return externalView;
+  }
+
+  private void setResourceGroup(ExternalView externalView, String groupName, String tag) {
+    externalView.getRecord().setSimpleField(
+        ExternalView.ExternalViewProperty.RESOURCE_GROUP_NAME.toString(), groupName);
+    externalView.getRecord().setSimpleField(
+        ExternalView.ExternalViewProperty.INSTANCE_GROUP_TAG.toString(), tag);
+    externalView.getRecord().setBooleanField(
+        ExternalView.ExternalViewProperty.GROUP_ROUTING_ENABLED.name(), true);
+  }
+
+  private CurrentState createCurrentState(String resourceName, LiveInstance liveInstance,
+      int offset) {
+    CurrentState currentState = new CurrentState(resourceName);
+    currentState.setSessionId(liveInstance.getSessionId());
+    for (int p = 0; p < NUM_PARTITIONS; p++) {
+      currentState.setState(resourceName + "_" + p, STATES[(p + offset) % STATES.length]);
+    }
+    return currentState;
+  }
+
+  private Map<String, Map<String, Map<String, CurrentState>>> copyCurrentStateMap(
+      Map<String, Map<String, Map<String, CurrentState>>> currentStateMap) {
+    Map<String, Map<String, Map<String, CurrentState>>> copy = new HashMap<>();
+    for (String instance : currentStateMap.keySet()) {
+      Map<String, Map<String, CurrentState>> sessionMap = new HashMap<>();
+      for (String session : currentStateMap.get(instance).keySet()) {
+        sessionMap.put(session, new HashMap<>(currentStateMap.get(instance).get(session)));
+      }
+      copy.put(instance, sessionMap);
+    }
+    return copy;
+  }
+
+  private void verifyRoutingTables(RoutingTable actual, RoutingTable expected,
+      Collection<String> resources, boolean groupRouting) {
+    Assert.assertEquals(new HashSet<>(actual.getResources()),
+        new HashSet<>(expected.getResources()));
+    for (String resource : resources) {
+      for (String state : STATES) {
+        Assert.assertEquals(actual.getInstancesForResource(resource, state),
+            expected.getInstancesForResource(resource, state));
+        for (int p = 0; p < NUM_PARTITIONS; p++) {
+          String partition = resource + "_" + p;
+          Assert.assertEquals(actual.getInstancesForResource(resource, partition, state),
+              expected.getInstancesForResource(resource, partition, state));
+        }
+      }
+    }
+    if (groupRouting) {
+      for (String state : STATES) {
+        Assert.assertEquals(actual.getInstancesForResourceGroup("TestGroup", state),
+            expected.getInstancesForResourceGroup("TestGroup", state));
+        for (String resource : resources) {
+          for (int p = 0; p < NUM_PARTITIONS; p++) {
+            Assert.assertEquals(
+                new HashSet<>(actual.getInstancesForResourceGroup("TestGroup", resource + "_" + p,
+                    state)),
+                new HashSet<>(expected.getInstancesForResourceGroup("TestGroup",
+                    resource + "_" + p, state)));
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.manager.zk.ZNRecordSerializer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestJobContextColumnarCodec {
+  private static final int NUM_PARTITIONS = 2000;
+  private static final int NUM_INSTANCES = 20;
+
+  @Test
+  public void testRoundTrip() {
+    JobContext jobContext = createJobContext("job", NUM_PARTITIONS);
+    // Partitions the encoding does not know are kept as map fields
+    jobContext.getRecord().setMapField("notAPartition", new HashMap<String, String>());
+    jobContext.getRecord().getMapField("notAPartition").put("STATE", "RUNNING");
+    jobContext.getRecord().getMapField("1").put("UNKNOWN_FIELD", "value");
+    jobContext.getRecord().getMapField("2").put("START_TIME", "0010");
+    Map<String, Map<String, String>> expected = copyMapFields(jobContext.getRecord());
+
+    ZNRecord encoded = JobContextColumnarCodec.encode(jobContext.getRecord());
+    Assert.assertTrue(JobContextColumnarCodec.isEncoded(encoded));
+    Assert.assertFalse(JobContextColumnarCodec.isEncoded(jobContext.getRecord()));
+    Assert.assertEquals(encoded.getMapFields().keySet().size(), 3);
+    Assert.assertTrue(encoded.getMapFields().containsKey("notAPartition"));
+    Assert.assertTrue(encoded.getMapFields().containsKey("1"));
+    Assert.assertTrue(encoded.getMapFields().containsKey("2"));
+    // Encoding an encoded record does nothing
+    Assert.assertSame(JobContextColumnarCodec.encode(encoded), encoded);
+
+    ZNRecordSerializer serializer = new ZNRecordSerializer();
+    ZNRecord deserialized = (ZNRecord) serializer.deserialize(serializer.serialize(encoded));
+    JobContext decoded = new JobContext(deserialized);
+    Assert.assertFalse(JobContextColumnarCodec.isEncoded(decoded.getRecord()));
+    Assert.assertEquals(decoded.getRecord().getMapFields(), expected);
+    Assert.assertEquals(decoded.getRecord().getSimpleFields(),
+        jobContext.getRecord().getSimpleFields());
+    Assert.assertEquals(decoded.getPartitionState(5), jobContext.getPartitionState(5));
+    Assert.assertEquals(decoded.getAssignedParticipant(7), jobContext.getAssignedParticipant(7));
+    Assert.assertEquals(decoded.getPartitionNumAttempts(9),
+        jobContext.getPartitionNumAttempts(9));
+    Assert.assertEquals(decoded.getPartitionFinishTime(11),
+        jobContext.getPartitionFinishTime(11));
+  }
+
+  @Test
+  public void testEncodedSize() {
+    JobContext jobContext = createJobContext("job", NUM_PARTITIONS);
+    ZNRecordSerializer serializer = new ZNRecordSerializer();
+    int mapFieldSize = serializer.serialize(jobContext.getRecord()).length;
+    int columnarSize =
+        serializer.serialize(JobContextColumnarCodec.encode(jobContext.getRecord())).length;
+    Assert.assertTrue(columnarSize * 4 < mapFieldSize,
+        String.format("columnar %d bytes, map fields %d bytes", columnarSize, mapFieldSize));
+  }
+
+  @Test
+  public void testRecordsWithoutPartitions() {
+    // Workflow contexts and new job contexts are not changed
+    ZNRecord workflowContext = new WorkflowContext(new ZNRecord("workflow")).getRecord();
+    workflowContext.setMapField("JOB_STATES", new HashMap<String, String>());
+    Assert.assertSame(JobContextColumnarCodec.encode(workflowContext), workflowContext);
+
+    JobContext jobContext = createJobContext("job", 0);
+    Assert.assertSame(JobContextColumnarCodec.encode(jobContext.getRecord()),
+        jobContext.getRecord());
+  }
+
+  private JobContext createJobContext(String jobName, int numPartitions) {
+    JobContext jobContext = new JobContext(new ZNRecord(jobName));
+    long startTime = 1500000000000L;
+    jobContext.setStartTime(startTime);
+    jobContext.setName(jobName);
+    TaskPartitionState[] states = TaskPartitionState.values();
+    for (int p = 0; p < numPartitions; p++) {
+      jobContext.setPartitionState(p, states[p % states.length]);
+      jobContext.setAssignedParticipant(p, "localhost_" + (12918 + p % NUM_INSTANCES));
+      jobContext.setPartitionNumAttempts(p, p % 3);
+      jobContext.setPartitionStartTime(p, startTime + p * 7);
+      if (p % 2 == 0) {
+        jobContext.setPartitionFinishTime(p, startTime + p * 11);
+        jobContext.setPartitionInfo(p, "Task completed");
+      }
+      if (p % 5 == 0) {
+        jobContext.setTaskIdForPartition(p, jobName + "_task_" + p);
+      }
+    }
+    return jobContext;
+  }
+
+  private Map<String, Map<String, String>> copyMapFields(ZNRecord record) {
+    Map<String, Map<String, String>> copy = new HashMap<>();
+    for (Map.Entry<String, Map<String, String>> entry : record.getMapFields().entrySet()) {
+      copy.put(entry.getKey(), new HashMap<>(entry.getValue()));
+    }
+    return copy;
+  }
+}
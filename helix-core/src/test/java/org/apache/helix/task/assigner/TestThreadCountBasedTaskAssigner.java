@@ -149,6 +149,64 @@ public class TestThreadCountBasedTaskAssigner extends AssignerTestBase {
     }
   }
 
+  @Test(enabled = false, description = "Not enabling profiling tests")
+  public void testAssignerProfilingManyJobs() {
+    int instanceCount = 1000;
+    int jobCount = 10000;
+    int taskCountPerJob = 100;
+    TaskAssigner assigner = new ThreadCountBasedTaskAssigner();
+    // Type1 gets half of the threads, which is enough for all the tasks
+    AssignableInstanceManager assignableInstanceManager = createAssignableInstanceManager(
+        instanceCount, 2 * jobCount * taskCountPerJob / instanceCount);
+    Set<String> instances = assignableInstanceManager.getAssignableInstanceNames();
+
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < jobCount; i++) {
+      Map<String, TaskAssignResult> results = assigner.assignTasks(assignableInstanceManager,
+          instances, createTaskConfigs(taskCountPerJob), testQuotaTypes[0]);
+      assertAssignmentResults(results.values(), true);
+    }
+    System.out.println(String.format("Assigned %d jobs of %d tasks to %d instances in %d ms",
+        jobCount, taskCountPerJob, instanceCount, System.currentTimeMillis() - start));
+  }
+
+  @Test
+  public void testAssignmentWithCapacityIndex() {
+    int instanceCount = 20;
+    TaskAssigner assigner = new ThreadCountBasedTaskAssigner();
+    AssignableInstanceManager assignableInstanceManager =
+        createAssignableInstanceManager(instanceCount, 50);
+    Set<String> eligibleInstances =
+        new HashSet<>(assignableInstanceManager.getAssignableInstanceNames());
+    String ineligibleInstance = "instance-0";
+    eligibleInstances.remove(ineligibleInstance);
+
+    // Assign several jobs, the capacity index is kept up to date between them
+    for (int i = 0; i < 5; i++) {
+      Map<String, TaskAssignResult> results = assigner.assignTasks(assignableInstanceManager,
+          eligibleInstances, createTaskConfigs(instanceCount - 1), testQuotaTypes[0]);
+      assertAssignmentResults(results.values(), true);
+    }
+    for (AssignableInstance instance : assignableInstanceManager.getAssignableInstanceMap()
+        .values()) {
+      int assignedCount = instance.getUsedCapacity()
+          .get(LiveInstance.InstanceResourceType.TASK_EXEC_THREAD.name()).get(testQuotaTypes[0]);
+      Assert.assertEquals(assignedCount,
+          instance.getInstanceName().equals(ineligibleInstance) ? 0 : 5);
+    }
+
+    // The instance with released tasks is the most available one
+    AssignableInstance instance = assignableInstanceManager.getAssignableInstance("instance-1");
+    for (String taskId : new HashSet<>(instance.getCurrentAssignments())) {
+      TaskAssignResult result = assignableInstanceManager.getTaskAssignResultMap().get(taskId);
+      assignableInstanceManager.release(instance.getInstanceName(), result.getTaskConfig(),
+          testQuotaTypes[0]);
+    }
+    Map<String, TaskAssignResult> results = assigner.assignTasks(assignableInstanceManager,
+        eligibleInstances, createTaskConfigs(1), testQuotaTypes[0]);
+    Assert.assertEquals(results.values().iterator().next().getInstanceName(), "instance-1");
+  }
+
   @Test
   public void testAssignmentToGivenInstances() {
     int totalNumberOfInstances = 10;
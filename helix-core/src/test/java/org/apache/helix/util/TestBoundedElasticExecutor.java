@@ -0,0 +1,143 @@
+package org.apache.helix.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestBoundedElasticExecutor {
+  private static final int LIMIT = 3;
+
+  @Test
+  public void testConcurrencyLimit() throws Exception {
+    BoundedElasticExecutor executor =
+        new BoundedElasticExecutor(LIMIT, Executors.defaultThreadFactory());
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger running = new AtomicInteger(0);
+    final AtomicInteger maxRunning = new AtomicInteger(0);
+    final CountDownLatch done = new CountDownLatch(10);
+    for (int i = 0; i < 10; i++) {
+      executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          int current = running.incrementAndGet();
+          while (true) {
+            int max = maxRunning.get();
+            if (current <= max || maxRunning.compareAndSet(max, current)) {
+              break;
+            }
+          }
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          running.decrementAndGet();
+          done.countDown();
+        }
+      });
+    }
+
+    long deadline = System.currentTimeMillis() + 10000L;
+    while (running.get() < LIMIT && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10L);
+    }
+    Assert.assertEquals(running.get(), LIMIT);
+    Assert.assertEquals(executor.getInFlightCount(), LIMIT);
+    Assert.assertEquals(executor.getQueueSize(), 10 - LIMIT);
+
+    release.countDown();
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    Assert.assertEquals(maxRunning.get(), LIMIT);
+    Assert.assertEquals(executor.getQueueSize(), 0);
+    waitForInFlight(executor, 0);
+
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testShutdown() throws Exception {
+    BoundedElasticExecutor executor =
+        new BoundedElasticExecutor(1, Executors.defaultThreadFactory());
+    final CountDownLatch release = new CountDownLatch(1);
+    Runnable blocking = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    executor.submit(blocking);
+    Future<?> queued = executor.submit(blocking);
+
+    // Queued work still runs after a shutdown
+    executor.shutdown();
+    Assert.assertTrue(executor.isShutdown());
+    Assert.assertFalse(executor.isTerminated());
+    try {
+      executor.submit(blocking);
+      Assert.fail("Work should be rejected after the shutdown");
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+    release.countDown();
+    queued.get(10, TimeUnit.SECONDS);
+    Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    // Queued work is returned by shutdownNow
+    executor = new BoundedElasticExecutor(1, Executors.defaultThreadFactory());
+    final CountDownLatch neverReleased = new CountDownLatch(1);
+    executor.submit(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          neverReleased.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    executor.submit(blocking);
+    List<Runnable> notRun = executor.shutdownNow();
+    Assert.assertEquals(notRun.size(), 1);
+    Assert.assertEquals(executor.getQueueSize(), 0);
+    Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  private static void waitForInFlight(BoundedElasticExecutor executor, int expected)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000L;
+    while (executor.getInFlightCount() != expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10L);
+    }
+    Assert.assertEquals(executor.getInFlightCount(), expected);
+  }
+}
@@ -0,0 +1,99 @@
+package org.apache.helix.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Message.MessageType;
+import org.apache.helix.util.StatusUpdateUtil.Level;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class TestStatusUpdateUtil {
+
+  @AfterMethod
+  public void afterMethod() {
+    System.clearProperty(SystemPropertyKeys.STATUS_UPDATE_INFO_SAMPLE_PERCENTAGE);
+  }
+
+  @Test
+  public void testDropInfoStatusUpdates() {
+    System.setProperty(SystemPropertyKeys.STATUS_UPDATE_INFO_SAMPLE_PERCENTAGE, "0");
+    RecordingStatusUpdateUtil statusUpdateUtil = new RecordingStatusUpdateUtil();
+    Message message = createMessage("msg_0");
+
+    statusUpdateUtil.logMessageStatusUpdateRecord(message, Level.HELIX_INFO, getClass(), "info",
+        (HelixDataAccessor) null);
+    Assert.assertEquals(statusUpdateUtil._published, 0);
+    // Warnings and errors are always recorded
+    statusUpdateUtil.logMessageStatusUpdateRecord(message, Level.HELIX_WARNING, getClass(),
+        "warning", (HelixDataAccessor) null);
+    statusUpdateUtil.logMessageStatusUpdateRecord(message, Level.HELIX_ERROR, getClass(), "error",
+        (HelixDataAccessor) null);
+    Assert.assertEquals(statusUpdateUtil._published, 2);
+  }
+
+  @Test
+  public void testSampleInfoStatusUpdates() {
+    System.setProperty(SystemPropertyKeys.STATUS_UPDATE_INFO_SAMPLE_PERCENTAGE, "50");
+    RecordingStatusUpdateUtil statusUpdateUtil = new RecordingStatusUpdateUtil();
+
+    int sampledMessages = 0;
+    for (int i = 0; i < 1000; i++) {
+      Message message = createMessage("msg_" + i);
+      int published = statusUpdateUtil._published;
+      // All or none of the updates of a message are recorded
+      for (int j = 0; j < 3; j++) {
+        statusUpdateUtil.logMessageStatusUpdateRecord(message, Level.HELIX_INFO, getClass(),
+            "info", (HelixDataAccessor) null);
+      }
+      int recorded = statusUpdateUtil._published - published;
+      Assert.assertTrue(recorded == 0 || recorded == 3);
+      if (recorded > 0) {
+        sampledMessages++;
+      }
+    }
+    Assert.assertTrue(sampledMessages > 400 && sampledMessages < 600, "" + sampledMessages);
+  }
+
+  private static Message createMessage(String msgId) {
+    Message message = new Message(MessageType.STATE_TRANSITION, msgId);
+    message.setTgtName("localhost_12918");
+    message.setTgtSessionId("session_0");
+    message.setResourceName("TestDB");
+    message.setPartitionName("TestDB_0");
+    message.setFromState("OFFLINE");
+    message.setToState("ONLINE");
+    return message;
+  }
+
+  private static class RecordingStatusUpdateUtil extends StatusUpdateUtil {
+    int _published = 0;
+
+    @Override
+    void publishStatusUpdateRecord(ZNRecord record, Message message, Level level,
+        HelixDataAccessor accessor, boolean isController) {
+      _published++;
+    }
+  }
+}